@@ -0,0 +1,70 @@
+package com.global.api.benchmarks;
+
+import com.global.api.ServicesContainer;
+import com.global.api.builders.AuthorizationBuilder;
+import com.global.api.builders.validations.Validations;
+import com.global.api.entities.Transaction;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.paymentMethods.CreditCardData;
+import com.global.api.tests.FakeGateway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and executing a credit sale against an in memory gateway, on the rules shared by the
+ * builder class and on rules set up again for every builder as before they were shared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BuilderValidationBenchmark {
+    private static final String CONFIG_NAME = "builderValidationBenchmark";
+    private static final BigDecimal AMOUNT = new BigDecimal("10");
+
+    @Param({ "shared", "perBuilder" })
+    public String rules;
+
+    private CreditCardData card;
+
+    @Setup
+    public void setUp() throws ApiException {
+        FakeGateway.configure(new FakeGateway(), CONFIG_NAME);
+
+        card = new CreditCardData();
+        card.setNumber("4111111111111111");
+        card.setExpMonth(12);
+        card.setExpYear(2025);
+        card.setCvn("123");
+    }
+
+    @TearDown
+    public void tearDown() throws ApiException {
+        ServicesContainer.configureService(null, CONFIG_NAME);
+    }
+
+    @Benchmark
+    public Transaction charge() throws ApiException {
+        AuthorizationBuilder builder = card.charge(AMOUNT).withCurrency("USD");
+        if(rules.equals("perBuilder")) {
+            builder.setValidations(new Validations());
+            builder.setupValidations();
+        }
+        return builder.execute(CONFIG_NAME);
+    }
+}
@@ -0,0 +1,112 @@
+package com.global.api.benchmarks;
+
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.utils.Element;
+import com.global.api.utils.ElementTree;
+import com.global.api.utils.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ElementTreeBenchmark {
+    /**
+     * A Portico activity report of 400 rows, read by either parser.
+     */
+    @State(Scope.Benchmark)
+    public static class ActivityReport {
+        @Param({ "Dom", "Streaming" })
+        public ElementTree.Parser parser;
+
+        String xml;
+
+        @Setup
+        public void setUp() {
+            StringBuilder sb = new StringBuilder("<PosResponse><Ver1.0><Header><GatewayRspCode>0</GatewayRspCode></Header><Transaction><ReportActivity>");
+            for(int i = 0; i < 400; i++) {
+                sb.append("<Details><GatewayTxnId>").append(1000000 + i).append("</GatewayTxnId><ServiceName>CreditSale</ServiceName>")
+                        .append("<TxnStatus>A</TxnStatus><Amt>").append(i).append(".00</Amt><CardType>Visa</CardType><MaskedCardNbr>411111******1111</MaskedCardNbr>")
+                        .append("<TxnUtcDT>2021-03-04T10:11:12.123</TxnUtcDT><RspCode>00</RspCode><RspText>APPROVAL</RspText><AuthCode>12345A</AuthCode>")
+                        .append("<UserName>user</UserName><DeviceId>1234</DeviceId><SiteId>5678</SiteId></Details>");
+            }
+            sb.append("</ReportActivity></Transaction></Ver1.0></PosResponse>");
+            xml = sb.toString();
+        }
+    }
+
+    /**
+     * A SIP batch report of the given size in bytes, parsed straight from the bytes.
+     */
+    @State(Scope.Benchmark)
+    public static class SipPayload {
+        @Param({ "1024", "16384", "262144", "1048576" })
+        public int size;
+
+        byte[] payload;
+
+        @Setup
+        public void setUp() {
+            StringBuilder sb = new StringBuilder("<SIP><Version>1.0</Version><ECRId>1004</ECRId><Request>GetBatchReport</Request>")
+                    .append("<Response>GetBatchReport</Response><RequestId>100001</RequestId><MultipleMessage>0</MultipleMessage>")
+                    .append("<Result>0</Result><ResultText>Success</ResultText>");
+            int record = 0;
+            while(sb.length() < size - 256) {
+                sb.append("<Record><TransactionId>").append(record++).append("</TransactionId><TransactionType>CREDIT SALE</TransactionType>")
+                        .append("<CardType>VISA</CardType><MaskedPAN>************1111</MaskedPAN><TransactionAmount>1000</TransactionAmount></Record>");
+            }
+            sb.append("</SIP>");
+            payload = sb.toString().getBytes(IOUtils.ISO_8859_1);
+        }
+    }
+
+    // the time per byte should stay flat as the payload grows
+    @Benchmark
+    public ElementTree parseBytes(SipPayload state) throws ApiException {
+        return ElementTree.parse(state.payload);
+    }
+
+    // reads the row fields the way the Portico connector does, several of them missing
+    @Benchmark
+    public int activityReport(ActivityReport state) throws ApiException {
+        Element report = ElementTree.parse(state.xml, new HashMap<String, String>(), state.parser).get("ReportActivity");
+
+        int count = 0;
+        for(Element detail: report.getAll("Details")) {
+            detail.getString("GatewayTxnId");
+            detail.getString("ServiceName");
+            detail.getString("Status", "TxnStatus");
+            detail.getDecimal("Amt");
+            detail.getString("CardType");
+            detail.getString("MaskedCardNbr");
+            detail.getDateTime("TxnUtcDT", "ReqUtcDT");
+            detail.getString("IssuerRspCode", "RspCode");
+            detail.getString("IssuerRspText", "RspText");
+            detail.getString("AuthCode");
+            detail.getString("UserName");
+            detail.getString("ClientTxnId");
+            detail.getString("InvoiceNbr");
+            detail.getString("CustomerID");
+            detail.getString("ClerkID");
+            detail.getDecimal("GratuityAmtInfo");
+            detail.getDecimal("SettlementAmt");
+            detail.getString("TokenPANLast4");
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,72 @@
+package com.global.api.benchmarks;
+
+import com.global.api.entities.enums.ReportType;
+import com.global.api.entities.reporting.TransactionSummaryPaged;
+import com.global.api.mapping.GpApiMapping;
+import com.global.api.utils.IOUtils;
+import com.google.gson.stream.JsonReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Mapping a gzipped page of 2000 transactions, read whole into a string and a document as
+ * before, and streamed off the reader. Run with -prof gc for the bytes allocated per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GpApiReportMappingBenchmark {
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws Exception {
+        StringBuilder page = new StringBuilder("{\"total_record_count\":2000,\"current_page_size\":2000,\"transactions\":[");
+        for (int i = 0; i < 2000; i++) {
+            page.append(i == 0 ? "" : ",").append(buildTransactionJson(i));
+        }
+        page.append("],\"paging\":{\"page_size\":2000,\"page\":1}}");
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+        gzip.write(page.toString().getBytes("UTF-8"));
+        gzip.close();
+        body = compressed.toByteArray();
+    }
+
+    @Benchmark
+    public TransactionSummaryPaged buffered() throws Exception {
+        String rawResponse = IOUtils.readFully(new GZIPInputStream(new ByteArrayInputStream(body)));
+        return GpApiMapping.mapReportResponse(rawResponse, ReportType.FindTransactionsPaged);
+    }
+
+    @Benchmark
+    public TransactionSummaryPaged streamed() throws Exception {
+        InputStreamReader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(body)), "UTF-8");
+        return GpApiMapping.mapReportResponse(new JsonReader(reader), ReportType.FindTransactionsPaged);
+    }
+
+    private static String buildTransactionJson(int index) {
+        return "{\"id\":\"TRN_" + index + "\",\"time_created\":\"2020-06-05T03:08:20.896Z\",\"status\":\"CAPTURED\",\"type\":\"SALE\",\"channel\":\"CNP\","
+                + "\"amount\":\"" + (1000 + index) + "\",\"currency\":\"USD\",\"reference\":\"ref-" + index + "\",\"batch_id\":\"\",\"country\":\"US\","
+                + "\"payment_method\":{\"result\":\"00\",\"message\":\"SUCCESS\",\"entry_mode\":\"ECOM\",\"card\":{\"brand\":\"VISA\",\"authcode\":\"12345\","
+                + "\"masked_number_first6last4\":\"411111XXXXXX1111\"}},\"system\":{\"mid\":\"101023947262\",\"name\":\"XYZ LTD.\"}}";
+    }
+}
@@ -0,0 +1,102 @@
+package com.global.api.benchmarks;
+
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.gateways.IHttpTransport;
+import com.global.api.gateways.PooledHttpTransport;
+import com.global.api.gateways.RestGateway;
+import com.global.api.tests.LoopbackTls;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.net.ssl.HttpsURLConnection;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A GET against an HTTPS host on the loopback interface, over the pooled transport and over
+ * a new SSL context (and so a new handshake) for every request as before the pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class HttpTransportBenchmark {
+    private static final byte[] RESPONSE = "{\"status\":\"OK\"}".getBytes();
+
+    @Param({ "pooled", "unpooled" })
+    public String transport;
+
+    private HttpsServer server;
+    private ExecutorService serverExecutor;
+    private RestGateway gateway;
+
+    @Setup
+    public void setUp() throws Exception {
+        final LoopbackTls tls = new LoopbackTls();
+        serverExecutor = Executors.newCachedThreadPool();
+        server = tls.createHttpsServer(serverExecutor);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(200, RESPONSE.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(RESPONSE);
+                out.close();
+            }
+        });
+        server.start();
+
+        gateway = new RestGateway();
+        gateway.setServiceUrl(String.format("https://localhost:%d", server.getAddress().getPort()));
+        gateway.setTimeout(5000);
+        if(transport.equals("pooled")) {
+            gateway.setHttpTransport(new PooledHttpTransport(0, tls.createClientSocketFactory()));
+        }
+        else {
+            gateway.setHttpTransport(new IHttpTransport() {
+                public HttpsURLConnection openConnection(URL url, Proxy proxy, int timeout) throws IOException {
+                    HttpsURLConnection conn = (HttpsURLConnection) url.openConnection();
+                    try {
+                        conn.setSSLSocketFactory(tls.createClientSocketFactory());
+                    }
+                    catch(Exception exc) {
+                        throw new IOException(exc);
+                    }
+                    conn.setConnectTimeout(timeout);
+                    return conn;
+                }
+                public void releaseConnection(HttpsURLConnection connection) { }
+            });
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public String get() throws GatewayException {
+        return gateway.doTransaction("GET", "/ping");
+    }
+}
@@ -0,0 +1,61 @@
+package com.global.api.benchmarks;
+
+import com.global.api.entities.exceptions.GatewayComsException;
+import com.global.api.entities.exceptions.GatewayTimeoutException;
+import com.global.api.gateways.NetworkGateway;
+import com.global.api.terminals.DeviceMessage;
+import com.global.api.tests.network.LoopbackHost;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of one request over a pooled TLS connection to a host on the loopback interface.
+ * Sampled, so the report carries the percentiles as well as the mean.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NetworkLoopbackBenchmark {
+    private LoopbackHost host;
+    private NetworkGateway gateway;
+    private DeviceMessage request;
+
+    @Setup
+    public void setUp() throws Exception {
+        host = new LoopbackHost();
+
+        gateway = new NetworkGateway();
+        gateway.setPrimaryEndpoint("localhost");
+        gateway.setPrimaryPort(host.getPort());
+        gateway.setTimeout(1000);
+        gateway.setConnectionPoolSize(1);
+        gateway.setSslSocketFactory(host.getClientSocketFactory());
+
+        request = new DeviceMessage(LoopbackHost.frame("LATENCY".getBytes()));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        gateway.dispose();
+        host.close();
+    }
+
+    @Benchmark
+    public byte[] send() throws GatewayTimeoutException, GatewayComsException {
+        return gateway.send(request);
+    }
+}
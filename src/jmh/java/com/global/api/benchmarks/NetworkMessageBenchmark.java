@@ -0,0 +1,91 @@
+package com.global.api.benchmarks;
+
+import com.global.api.network.NetworkMessage;
+import com.global.api.network.elements.DE48_MessageControl;
+import com.global.api.network.enums.DataElementId;
+import com.global.api.network.enums.Iso8583MessageType;
+import com.global.api.utils.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and parsing of a 1200 request with primary and secondary elements, variable lengths
+ * and a DE 48 sub element message. Run with -prof gc for the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NetworkMessageBenchmark {
+    private NetworkMessage request;
+    private byte[] response;
+
+    @Setup
+    public void setUp() {
+        request = buildRequest();
+
+        // the parser starts after the MTI
+        byte[] data = request.buildMessage();
+        response = new byte[data.length - 4];
+        System.arraycopy(data, 4, response, 0, response.length);
+    }
+
+    @Benchmark
+    public NetworkMessage newMessage() {
+        return new NetworkMessage(Iso8583MessageType.CompleteMessage);
+    }
+
+    @Benchmark
+    public NetworkMessage newSubElementMessage() {
+        return new NetworkMessage(Iso8583MessageType.SubElement_DE_048);
+    }
+
+    @Benchmark
+    public byte[] buildMessage() {
+        return request.buildMessage();
+    }
+
+    @Benchmark
+    public String parse() {
+        return NetworkMessage.parse(response, Iso8583MessageType.CompleteMessage).getString(DataElementId.DE_011);
+    }
+
+    private static NetworkMessage buildRequest() {
+        DE48_MessageControl messageControl = new DE48_MessageControl().fromByteArray(StringUtils.bytesFromHex("5824000082000000333420203231323035373130202020202020202030303030303330303031303032444220203331303320594e32363939393939392020202030303030303030303030303030303030"));
+
+        NetworkMessage doc = new NetworkMessage();
+        doc.setMessageTypeIndicator("1200");
+        doc.set(DataElementId.DE_002, "4012002000060016")
+                .set(DataElementId.DE_003, "000800")
+                .set(DataElementId.DE_004, "000000001089")
+                .set(DataElementId.DE_007, "1018120000")
+                .set(DataElementId.DE_011, "000153")
+                .set(DataElementId.DE_012, "261018120000")
+                .set(DataElementId.DE_018, "5541")
+                .set(DataElementId.DE_022, "L10101B1014C")
+                .set(DataElementId.DE_024, "200")
+                .set(DataElementId.DE_025, "1376")
+                .set(DataElementId.DE_035, "4012002000060016=2512101")
+                .set(DataElementId.DE_041, "0044    ")
+                .set(DataElementId.DE_042, "0007326539908  ")
+                .set(DataElementId.DE_048, messageControl)
+                .set(DataElementId.DE_055, StringUtils.bytesFromHex("9f2701809f100706010a03a000009f3704a9e1b2c3"))
+                .set(DataElementId.DE_062, "01IID040001")
+                .set(DataElementId.DE_073, "181018")
+                .set(DataElementId.DE_096, StringUtils.bytesFromHex("0102030405060708"))
+                .set(DataElementId.DE_127, "00");
+        return doc;
+    }
+}
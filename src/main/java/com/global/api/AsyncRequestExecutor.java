@@ -0,0 +1,189 @@
+package com.global.api;
+
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.terminals.abstractions.IDisposable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs the asynchronous requests of one configuration. At most maxConcurrentRequests
+ * requests are in flight at a time, the rest wait in a queue without holding a thread.
+ */
+public class AsyncRequestExecutor implements IDisposable {
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 64;
+
+    public interface IAsyncRequest<T> {
+        T execute() throws ApiException;
+    }
+
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final int maxConcurrentRequests;
+    private final ConcurrentLinkedQueue<PendingRequest> pendingRequests;
+    private final AtomicInteger runningCount;
+
+    public Executor getExecutor() {
+        return executor;
+    }
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+    public int getRunningCount() {
+        return runningCount.get();
+    }
+    public int getQueuedCount() {
+        return pendingRequests.size();
+    }
+
+    public AsyncRequestExecutor() {
+        this(null, DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    /**
+     * @param executor runs the requests, null for a pool owned by this instance
+     * @param maxConcurrentRequests the most requests in flight at once, 0 for no limit
+     */
+    public AsyncRequestExecutor(Executor executor, int maxConcurrentRequests) {
+        if(executor == null) {
+            ownedExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger threadCount = new AtomicInteger();
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "AsyncRequest-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            this.executor = ownedExecutor;
+        }
+        else {
+            ownedExecutor = null;
+            this.executor = executor;
+        }
+
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        pendingRequests = new ConcurrentLinkedQueue<PendingRequest>();
+        runningCount = new AtomicInteger();
+    }
+
+    /**
+     * Runs a blocking request on the executor, the slot is held until it returns.
+     */
+    public <T> CompletableFuture<T> execute(final IAsyncRequest<T> request) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        enqueue(new PendingRequest(future) {
+            public void run() {
+                try {
+                    future.complete(request.execute());
+                }
+                catch(Throwable exc) {
+                    future.completeExceptionally(exc);
+                }
+                finally {
+                    release();
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Starts a non-blocking request on the executor, the slot is held until its future completes.
+     */
+    public <T> CompletableFuture<T> executeAsync(final IAsyncRequest<CompletableFuture<T>> request) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        enqueue(new PendingRequest(future) {
+            public void run() {
+                CompletableFuture<T> response;
+                try {
+                    response = request.execute();
+                }
+                catch(Throwable exc) {
+                    future.completeExceptionally(exc);
+                    release();
+                    return;
+                }
+
+                response.whenComplete(new BiConsumer<T, Throwable>() {
+                    public void accept(T result, Throwable exc) {
+                        if(exc != null) {
+                            future.completeExceptionally(exc);
+                        }
+                        else future.complete(result);
+                        release();
+                    }
+                });
+            }
+        });
+        return future;
+    }
+
+    public static <T> CompletableFuture<T> failed(Throwable exc) {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        future.completeExceptionally(exc);
+        return future;
+    }
+
+    // lets the requests already started finish, nothing new is accepted by an owned pool
+    public void dispose() {
+        if(ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private void enqueue(PendingRequest request) {
+        pendingRequests.offer(request);
+        dispatch();
+    }
+
+    private void release() {
+        runningCount.decrementAndGet();
+        dispatch();
+    }
+
+    private void dispatch() {
+        while(true) {
+            int running = runningCount.get();
+            if((maxConcurrentRequests > 0 && running >= maxConcurrentRequests) || pendingRequests.isEmpty()) {
+                return;
+            }
+            if(!runningCount.compareAndSet(running, running + 1)) {
+                continue;
+            }
+
+            PendingRequest request = pendingRequests.poll();
+            if(request == null) {
+                // another thread took it, give the slot back and look again
+                runningCount.decrementAndGet();
+                continue;
+            }
+
+            try {
+                executor.execute(request);
+            }
+            catch(RuntimeException exc) {
+                request.fail(exc);
+                runningCount.decrementAndGet();
+            }
+        }
+    }
+
+    private static abstract class PendingRequest implements Runnable {
+        private final CompletableFuture<?> future;
+
+        PendingRequest(CompletableFuture<?> future) {
+            this.future = future;
+        }
+
+        void fail(Throwable exc) {
+            future.completeExceptionally(exc);
+        }
+    }
+}
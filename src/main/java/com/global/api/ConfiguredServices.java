@@ -10,6 +10,8 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ConfiguredServices implements IDisposable {
     private IPaymentGateway gatewayConnector;
@@ -21,6 +23,14 @@ public class ConfiguredServices implements IDisposable {
     private PayrollConnector payrollConnector;
     private HashMap<Secure3dVersion, ISecure3dProvider> secure3dProviders;
     private IBillingProvider billingProvider;
+    private AsyncRequestExecutor asyncRequestExecutor;
+
+    // transactions running on this configuration, once it is replaced the last one out disposes it
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean retired;
+    private final AtomicBoolean disposed = new AtomicBoolean();
+    // shared with the other configurations of the container, unset when used on its own
+    private ServicesContainer.References references;
 
     IPaymentGateway getGatewayConnector() {
         return gatewayConnector;
@@ -79,11 +89,89 @@ public class ConfiguredServices implements IDisposable {
         this.billingProvider = billingProvider;
     }
 
+    synchronized AsyncRequestExecutor getAsyncRequestExecutor() {
+        if(asyncRequestExecutor == null) {
+            asyncRequestExecutor = new AsyncRequestExecutor();
+        }
+        return asyncRequestExecutor;
+    }
+    public synchronized void setAsyncRequestExecutor(AsyncRequestExecutor asyncRequestExecutor) {
+        if(this.asyncRequestExecutor != null && this.asyncRequestExecutor != asyncRequestExecutor) {
+            this.asyncRequestExecutor.dispose();
+        }
+        this.asyncRequestExecutor = asyncRequestExecutor;
+    }
+
     public ConfiguredServices() {
         secure3dProviders = new HashMap<Secure3dVersion, ISecure3dProvider>();
     }
 
+    // a copy to be configured further, it has its own async executor
+    ConfiguredServices(ConfiguredServices source) {
+        gatewayConnector = source.gatewayConnector;
+        recurringConnector = source.recurringConnector;
+        reportingService = source.reportingService;
+        deviceInterface = source.deviceInterface;
+        deviceController = source.deviceController;
+        tableServiceConnector = source.tableServiceConnector;
+        payrollConnector = source.payrollConnector;
+        secure3dProviders = new HashMap<Secure3dVersion, ISecure3dProvider>(source.secure3dProviders);
+        billingProvider = source.billingProvider;
+    }
+
+    boolean acquire() {
+        inFlight.incrementAndGet();
+        if(retired) {
+            // replaced in the meantime, the caller looks up the new configuration
+            release();
+            return false;
+        }
+        return true;
+    }
+
+    void release() {
+        if(inFlight.decrementAndGet() == 0 && retired) {
+            dispose();
+        }
+    }
+
+    void retainServices(ServicesContainer.References references) {
+        this.references = references;
+        references.retain(deviceController);
+        references.retain(gatewayConnector);
+    }
+
+    /**
+     * Takes the configuration out of use. It is disposed when the transactions still running
+     * on it have finished, the services another configuration still holds are left alone.
+     */
+    void retire() {
+        retired = true;
+        if(inFlight.get() == 0) {
+            dispose();
+        }
+    }
+
     public void dispose() {
-        deviceController.dispose();
+        if(!disposed.compareAndSet(false, true)) {
+            return;
+        }
+
+        if(deviceController != null && releaseService(deviceController)) {
+            deviceController.dispose();
+        }
+        if(gatewayConnector != null && releaseService(gatewayConnector) && gatewayConnector instanceof IDisposable) {
+            ((IDisposable) gatewayConnector).dispose();
+        }
+        synchronized (this) {
+            if(asyncRequestExecutor != null) {
+                asyncRequestExecutor.dispose();
+            }
+        }
+    }
+
+    // true when this was the last configuration holding the service
+    private boolean releaseService(Object service) {
+        return references == null || references.release(service);
     }
 }
@@ -9,40 +9,170 @@ import com.global.api.terminals.DeviceController;
 import com.global.api.terminals.abstractions.IDeviceInterface;
 import com.global.api.terminals.abstractions.IDisposable;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Holds the configured services by name. A configuration is never changed once it is in use,
+ * configuring a name again puts a new copy in its place and the old one is disposed when the
+ * transactions running on it have finished.
+ */
 public class ServicesContainer implements IDisposable {
-    private HashMap<String, ConfiguredServices> configurations;
-    private static ServicesContainer instance;
+    private final ConcurrentHashMap<String, ConfiguredServices> configurations;
+    // configurations are read without locking, only the writers take turns
+    private final Object configurationLock = new Object();
+    private final References references = new References();
+
+    private static class InstanceHolder {
+        private static final ServicesContainer instance = new ServicesContainer();
+    }
+
+    /**
+     * Keeps a configuration from being disposed until it is closed, so a transaction uses
+     * the same services from start to end even when the configuration is replaced meanwhile.
+     */
+    public static class Lease implements AutoCloseable {
+        private final ConfiguredServices services;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(ConfiguredServices services) {
+            this.services = services;
+        }
+
+        public IDeviceInterface getDeviceInterface() throws ApiException {
+            return ServicesContainer.getDeviceInterface(services);
+        }
+        public DeviceController getDeviceController() throws ApiException {
+            return ServicesContainer.getDeviceController(services);
+        }
+        public IPaymentGateway getGateway() throws ApiException {
+            return ServicesContainer.getGateway(services);
+        }
+        public PayrollConnector getPayroll() throws ApiException {
+            return ServicesContainer.getPayroll(services);
+        }
+        public IRecurringGateway getRecurring() throws ApiException {
+            return ServicesContainer.getRecurring(services);
+        }
+        public ISecure3dProvider getSecure3d(Secure3dVersion version) throws ApiException {
+            return ServicesContainer.getSecure3d(services, version);
+        }
+        public TableServiceConnector getTableService() throws ApiException {
+            return ServicesContainer.getTableService(services);
+        }
+        public AsyncRequestExecutor getAsyncRequestExecutor() throws ApiException {
+            return ServicesContainer.getAsyncRequestExecutor(services);
+        }
+        public IBillingProvider getBillingClient() throws ApiException {
+            return ServicesContainer.getBillingClient(services);
+        }
+
+        public void close() {
+            if(services != null && closed.compareAndSet(false, true)) {
+                services.release();
+            }
+        }
+    }
+
+    /**
+     * Counts the configurations holding each connector and device, one shared by several
+     * configurations is disposed with the last of them.
+     */
+    static class References {
+        private final IdentityHashMap<Object, Integer> counts = new IdentityHashMap<Object, Integer>();
+
+        synchronized void retain(Object service) {
+            if(service != null) {
+                Integer count = counts.get(service);
+                counts.put(service, count == null ? 1 : count + 1);
+            }
+        }
+
+        // true when no configuration holds the service any more
+        synchronized boolean release(Object service) {
+            Integer count = counts.get(service);
+            if(count == null || count <= 1) {
+                counts.remove(service);
+                return true;
+            }
+            counts.put(service, count - 1);
+            return false;
+        }
+    }
 
     public IDeviceInterface getDeviceInterface(String configName) throws ApiException {
-        if(configurations.containsKey(configName))
-            return configurations.get(configName).getDeviceInterface();
-        throw new ApiException("The specified configuration has not been configured for terminal interaction.");
+        return getDeviceInterface(configurations.get(configName));
     }
     public DeviceController getDeviceController(String configName) throws ApiException {
-        if(configurations.containsKey(configName))
-            return configurations.get(configName).getDeviceController();
-        throw new ApiException("The specified configuration has not been configured for terminal interaction.");
+        return getDeviceController(configurations.get(configName));
     }
     public IPaymentGateway getGateway(String configName) throws ApiException {
-        if(configurations.containsKey(configName))
-            return configurations.get(configName).getGatewayConnector();
-        throw new ApiException("The specified configuration has not been configured for card processing.");
+        return getGateway(configurations.get(configName));
     }
     public PayrollConnector getPayroll(String configName) throws ApiException {
-        if(configurations.containsKey(configName))
-            return configurations.get(configName).getPayrollConnector();
-        throw new ApiException("The specified configuration has not been configured for payroll.");
+        return getPayroll(configurations.get(configName));
     }
     public IRecurringGateway getRecurring(String configName) throws ApiException {
-        if(configurations.containsKey(configName))
-            return configurations.get(configName).getRecurringConnector();
-        throw new ApiException("The specified configuration has not been configured for recurring processing.");
+        return getRecurring(configurations.get(configName));
     }
     public ISecure3dProvider getSecure3d(String configName, Secure3dVersion version) throws ApiException {
-        if(configurations.containsKey(configName)) {
-            ISecure3dProvider provider = configurations.get(configName).getSecure3dProvider(version);
+        return getSecure3d(configurations.get(configName), version);
+    }
+    public TableServiceConnector getTableService(String configName) throws ApiException {
+        return getTableService(configurations.get(configName));
+    }
+    public AsyncRequestExecutor getAsyncRequestExecutor(String configName) throws ApiException {
+        return getAsyncRequestExecutor(configurations.get(configName));
+    }
+    public IBillingProvider getBillingClient(String configName) throws ApiException {
+        return getBillingClient(configurations.get(configName));
+    }
+
+    /**
+     * Leases the current configuration, the lease must be closed once the transaction is done.
+     * An unknown configuration gives an empty lease whose getters fail as the container's do.
+     */
+    public Lease lease(String configName) {
+        while(true) {
+            ConfiguredServices cs = configurations.get(configName);
+            if(cs == null || cs.acquire()) {
+                return new Lease(cs);
+            }
+            // replaced while leasing it, take the new one
+        }
+    }
+
+    private static IDeviceInterface getDeviceInterface(ConfiguredServices cs) throws ApiException {
+        if(cs != null)
+            return cs.getDeviceInterface();
+        throw new ApiException("The specified configuration has not been configured for terminal interaction.");
+    }
+    private static DeviceController getDeviceController(ConfiguredServices cs) throws ApiException {
+        if(cs != null)
+            return cs.getDeviceController();
+        throw new ApiException("The specified configuration has not been configured for terminal interaction.");
+    }
+    private static IPaymentGateway getGateway(ConfiguredServices cs) throws ApiException {
+        if(cs != null)
+            return cs.getGatewayConnector();
+        throw new ApiException("The specified configuration has not been configured for card processing.");
+    }
+    private static PayrollConnector getPayroll(ConfiguredServices cs) throws ApiException {
+        if(cs != null)
+            return cs.getPayrollConnector();
+        throw new ApiException("The specified configuration has not been configured for payroll.");
+    }
+    private static IRecurringGateway getRecurring(ConfiguredServices cs) throws ApiException {
+        if(cs != null)
+            return cs.getRecurringConnector();
+        throw new ApiException("The specified configuration has not been configured for recurring processing.");
+    }
+    private static ISecure3dProvider getSecure3d(ConfiguredServices cs, Secure3dVersion version) throws ApiException {
+        if(cs != null) {
+            ISecure3dProvider provider = cs.getSecure3dProvider(version);
             if(provider != null) {
                 return provider;
             }
@@ -50,23 +180,26 @@ public class ServicesContainer implements IDisposable {
         }
         throw new ConfigurationException("Secure 3d is not configured on the connector");
     }
-    public TableServiceConnector getTableService(String configName) throws ApiException {
-        if(configurations.containsKey(configName))
-            return configurations.get(configName).getTableServiceConnector();
+    private static TableServiceConnector getTableService(ConfiguredServices cs) throws ApiException {
+        if(cs != null)
+            return cs.getTableServiceConnector();
         throw new ApiException("The specified configuration has not been configured for payroll.");
     }
-    public IBillingProvider getBillingClient(String configName) throws ApiException {
-        if (configurations.containsKey(configName)) {
-            return configurations.get(configName).getBillingProvider();
+    private static AsyncRequestExecutor getAsyncRequestExecutor(ConfiguredServices cs) throws ApiException {
+        if(cs != null)
+            return cs.getAsyncRequestExecutor();
+        throw new ApiException("The specified configuration has not been configured.");
+    }
+    private static IBillingProvider getBillingClient(ConfiguredServices cs) throws ApiException {
+        if (cs != null) {
+            return cs.getBillingProvider();
         }
 
         throw new ConfigurationException("The specified configuration has not been configured for gateway processing.");
     }
 
     public static ServicesContainer getInstance() {
-        if(instance == null)
-            instance = new ServicesContainer();
-        return instance;
+        return InstanceHolder.instance;
     }
 
     public static void configure(ServicesConfig config) throws ConfigurationException {
@@ -75,24 +208,34 @@ public class ServicesContainer implements IDisposable {
     public static void configure(ServicesConfig config, String configName) throws ConfigurationException {
         config.validate();
 
+        // the services are configured together and put in use at once
+        List<Configuration> configs = new ArrayList<Configuration>();
+
         // configure devices
-        configureService(config.getDeviceConnectionConfig(), configName);
+        if(config.getDeviceConnectionConfig() != null) {
+            configs.add(config.getDeviceConnectionConfig());
+        }
 
         // configure table service
-        configureService(config.getTableServiceConfig(), configName);
+        if(config.getTableServiceConfig() != null) {
+            configs.add(config.getTableServiceConfig());
+        }
 
         // configure payroll
-        configureService(config.getPayrollConfig(), configName);
+        if(config.getPayrollConfig() != null) {
+            configs.add(config.getPayrollConfig());
+        }
 
         // configure gateways
-        configureService(config.getGatewayConfig(), configName);
-
-        ConfiguredServices cs = new ConfiguredServices();
-
-        // configure devices
-        if(config.getDeviceConnectionConfig() != null) {
+        if(config.getGatewayConfig() != null) {
+            configs.add(config.getGatewayConfig());
+        }
 
+        if(configs.isEmpty()) {
+            getInstance().removeConfiguration(configName);
+            return;
         }
+        getInstance().addConfiguration(configName, configs, false);
     }
 
     public static <T extends Configuration> void configureService(T config) throws ConfigurationException {
@@ -108,39 +251,53 @@ public class ServicesContainer implements IDisposable {
             config.validate();
         }
 
-        ConfiguredServices cs = getInstance().getConfiguration(configName);
-        config.configureContainer(cs);
-
-        getInstance().addConfiguration(configName, cs);
+        ArrayList<Configuration> configs = new ArrayList<Configuration>();
+        configs.add(config);
+        getInstance().addConfiguration(configName, configs, true);
     }
 
     private ServicesContainer() {
-        configurations = new HashMap<String, ConfiguredServices>();
+        configurations = new ConcurrentHashMap<String, ConfiguredServices>();
     }
 
-    private ConfiguredServices getConfiguration(String configName) {
-        if(configurations.containsKey(configName))
-            return configurations.get(configName);
-        return new ConfiguredServices();
-    }
+    /*
+     * Puts a new copy of the configuration in place. A single service is added on a copy of the
+     * services configured before, a whole services config starts from none.
+     */
+    private void addConfiguration(String configName, List<Configuration> configs, boolean keepServices) throws ConfigurationException {
+        synchronized (configurationLock) {
+            ConfiguredServices current = configurations.get(configName);
+            ConfiguredServices cs = keepServices && current != null ? new ConfiguredServices(current) : new ConfiguredServices();
+            for(Configuration config : configs) {
+                config.configureContainer(cs);
+            }
+
+            Configuration last = configs.get(configs.size() - 1);
+            cs.setAsyncRequestExecutor(new AsyncRequestExecutor(last.getAsyncExecutor(), last.getMaxConcurrentRequests()));
 
-    private void addConfiguration(String configName, ConfiguredServices cs) {
-        System.out.println(String.format("[Add Configuration] - %s", configName));
-        if(configurations.containsKey(configName)) {
-            configurations.remove(configName);
+            // held before the old copy lets go of the services they share
+            cs.retainServices(references);
+            configurations.put(configName, cs);
+            if(current != null) {
+                current.retire();
+            }
         }
-        configurations.put(configName, cs);
     }
 
     private void removeConfiguration(String configName) {
-        System.out.println(String.format("[Remove Configuration] - %s", configName));
-        if(configurations.containsKey(configName)) {
-            configurations.remove(configName);
+        synchronized (configurationLock) {
+            ConfiguredServices current = configurations.remove(configName);
+            if(current != null) {
+                current.retire();
+            }
         }
     }
 
     public void dispose() {
-        for(ConfiguredServices cs : configurations.values())
-            cs.dispose();
+        synchronized (configurationLock) {
+            for(String configName : configurations.keySet()) {
+                removeConfiguration(configName);
+            }
+        }
     }
 }
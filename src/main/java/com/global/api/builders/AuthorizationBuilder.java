@@ -1,11 +1,13 @@
 package com.global.api.builders;
 
+import com.global.api.AsyncRequestExecutor;
 import com.global.api.ServicesContainer;
 import com.global.api.entities.*;
 import com.global.api.entities.billing.Bill;
 import com.global.api.entities.enums.*;
 import com.global.api.entities.exceptions.ApiException;
 import com.global.api.entities.exceptions.UnsupportedTransactionException;
+import com.global.api.gateways.IAsyncPaymentGateway;
 import com.global.api.gateways.IPaymentGateway;
 import com.global.api.network.entities.FleetData;
 import com.global.api.network.entities.PriorMessageInformation;
@@ -20,6 +22,7 @@ import lombok.Setter;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class AuthorizationBuilder extends TransactionBuilder<Transaction> {
     private AccountType accountType;
@@ -694,12 +697,44 @@ public class AuthorizationBuilder extends TransactionBuilder<Transaction> {
     }
 
     public Transaction execute(String configName) throws ApiException {
+        try (ServicesContainer.Lease lease = ServicesContainer.getInstance().lease(configName)) {
+            return execute(configName, lease);
+        }
+    }
+
+    @Override
+    protected Transaction execute(String configName, ServicesContainer.Lease lease) throws ApiException {
         super.execute(configName);
 
-        IPaymentGateway client = ServicesContainer.getInstance().getGateway(configName);
+        IPaymentGateway client = lease.getGateway();
         return client.processAuthorization(this);
     }
 
+    @Override
+    public CompletableFuture<Transaction> executeAsync(String configName) {
+        ServicesContainer.Lease lease = ServicesContainer.getInstance().lease(configName);
+        try {
+            IPaymentGateway client = lease.getGateway();
+            if(client instanceof IAsyncPaymentGateway) {
+                final IAsyncPaymentGateway asyncClient = (IAsyncPaymentGateway) client;
+
+                AsyncRequestExecutor executor = lease.getAsyncRequestExecutor();
+                return closeOnCompletion(executor.executeAsync(new AsyncRequestExecutor.IAsyncRequest<CompletableFuture<Transaction>>() {
+                    public CompletableFuture<Transaction> execute() throws ApiException {
+                        validations.validate(AuthorizationBuilder.this);
+                        return asyncClient.processAuthorizationAsync(AuthorizationBuilder.this);
+                    }
+                }), lease);
+            }
+        }
+        catch(ApiException exc) {
+            lease.close();
+            return AsyncRequestExecutor.failed(exc);
+        }
+        lease.close();
+        return super.executeAsync(configName);
+    }
+
     public String serialize() throws ApiException {
         return serialize("default");
     }
@@ -1,21 +1,47 @@
 package com.global.api.builders;
 
+import com.global.api.AsyncRequestExecutor;
+import com.global.api.ServicesContainer;
 import com.global.api.builders.validations.Validations;
 import com.global.api.entities.exceptions.ApiException;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
 public abstract class BaseBuilder<TResult> {
+    // the rules are the same for every instance of a builder class, so they are set up once
+    private static final ConcurrentHashMap<Class<?>, Validations> classValidations = new ConcurrentHashMap<Class<?>, Validations>();
+
     protected Validations validations;
+    private boolean sharedValidations;
 
+    // the shared rules are copied before they are handed out, so changing them only affects this builder
     public Validations getValidations() {
+        if(sharedValidations) {
+            validations = new Validations(validations);
+            sharedValidations = false;
+        }
         return validations;
     }
     public void setValidations(Validations validations) {
         this.validations = validations;
+        sharedValidations = false;
     }
 
     public BaseBuilder() {
-        validations = new Validations();
-        setupValidations();
+        Validations existing = classValidations.get(getClass());
+        if(existing == null) {
+            validations = new Validations();
+            setupValidations();
+
+            existing = classValidations.putIfAbsent(getClass(), validations);
+            if(existing == null) {
+                existing = validations;
+            }
+        }
+        validations = existing;
+        sharedValidations = true;
     }
 
     public TResult execute() throws ApiException {
@@ -25,6 +51,40 @@ public abstract class BaseBuilder<TResult> {
         validations.validate(this);
         return null;
     }
+    // runs on the services of a configuration already leased, builders that take their services
+    // from the container by name run on the named configuration
+    protected TResult execute(String configName, ServicesContainer.Lease lease) throws ApiException {
+        return execute(configName);
+    }
+
+    public CompletableFuture<TResult> executeAsync() {
+        return executeAsync("default");
+    }
+    public CompletableFuture<TResult> executeAsync(final String configName) {
+        final ServicesContainer.Lease lease = ServicesContainer.getInstance().lease(configName);
+        try {
+            AsyncRequestExecutor executor = lease.getAsyncRequestExecutor();
+            return closeOnCompletion(executor.execute(new AsyncRequestExecutor.IAsyncRequest<TResult>() {
+                public TResult execute() throws ApiException {
+                    return BaseBuilder.this.execute(configName, lease);
+                }
+            }), lease);
+        }
+        catch(ApiException exc) {
+            lease.close();
+            return AsyncRequestExecutor.failed(exc);
+        }
+    }
+
+    // the request runs on the configuration it was queued on, which is held until the request is done
+    protected static <T> CompletableFuture<T> closeOnCompletion(CompletableFuture<T> future, final ServicesContainer.Lease lease) {
+        future.whenComplete(new BiConsumer<T, Throwable>() {
+            public void accept(T result, Throwable exc) {
+                lease.close();
+            }
+        });
+        return future;
+    }
 
     public abstract void setupValidations();
 }
@@ -130,9 +130,16 @@ public class BillingBuilder extends TransactionBuilder<BillingResponse> {
 
     @Override
     public BillingResponse execute(String configName) throws ApiException {
+        try (ServicesContainer.Lease lease = ServicesContainer.getInstance().lease(configName)) {
+            return execute(configName, lease);
+        }
+    }
+
+    @Override
+    protected BillingResponse execute(String configName, ServicesContainer.Lease lease) throws ApiException {
         super.execute(configName);
 
-        IBillingProvider client = ServicesContainer.getInstance().getBillingClient(configName);
+        IBillingProvider client = lease.getBillingClient();
         return client.processBillingRequest(this);
     }
 
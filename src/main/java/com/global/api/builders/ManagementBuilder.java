@@ -1,5 +1,6 @@
 package com.global.api.builders;
 
+import com.global.api.AsyncRequestExecutor;
 import com.global.api.ServicesContainer;
 import com.global.api.entities.DccRateData;
 import com.global.api.entities.DisputeDocument;
@@ -8,6 +9,7 @@ import com.global.api.entities.Transaction;
 import com.global.api.entities.billing.Bill;
 import com.global.api.entities.enums.*;
 import com.global.api.entities.exceptions.ApiException;
+import com.global.api.gateways.IAsyncPaymentGateway;
 import com.global.api.gateways.IPaymentGateway;
 import com.global.api.network.entities.FleetData;
 import com.global.api.network.entities.PriorMessageInformation;
@@ -23,6 +25,7 @@ import lombok.Getter;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class ManagementBuilder extends TransactionBuilder<Transaction> {
 	private AlternativePaymentType alternativePaymentType;
@@ -487,12 +490,44 @@ public class ManagementBuilder extends TransactionBuilder<Transaction> {
 
     @Override
     public Transaction execute(String configName) throws ApiException {
+        try (ServicesContainer.Lease lease = ServicesContainer.getInstance().lease(configName)) {
+            return execute(configName, lease);
+        }
+    }
+
+    @Override
+    protected Transaction execute(String configName, ServicesContainer.Lease lease) throws ApiException {
         super.execute(configName);
 
-        IPaymentGateway gateway = ServicesContainer.getInstance().getGateway(configName);
+        IPaymentGateway gateway = lease.getGateway();
         return gateway.manageTransaction(this);
     }
 
+    @Override
+    public CompletableFuture<Transaction> executeAsync(String configName) {
+        ServicesContainer.Lease lease = ServicesContainer.getInstance().lease(configName);
+        try {
+            IPaymentGateway gateway = lease.getGateway();
+            if(gateway instanceof IAsyncPaymentGateway) {
+                final IAsyncPaymentGateway asyncGateway = (IAsyncPaymentGateway) gateway;
+
+                AsyncRequestExecutor executor = lease.getAsyncRequestExecutor();
+                return closeOnCompletion(executor.executeAsync(new AsyncRequestExecutor.IAsyncRequest<CompletableFuture<Transaction>>() {
+                    public CompletableFuture<Transaction> execute() throws ApiException {
+                        validations.validate(ManagementBuilder.this);
+                        return asyncGateway.manageTransactionAsync(ManagementBuilder.this);
+                    }
+                }), lease);
+            }
+        }
+        catch(ApiException exc) {
+            lease.close();
+            return AsyncRequestExecutor.failed(exc);
+        }
+        lease.close();
+        return super.executeAsync(configName);
+    }
+
     @Override
     public void setupValidations() {
         this.validations.of(EnumSet.of(TransactionType.Capture, TransactionType.Edit, TransactionType.Hold, TransactionType.Release))
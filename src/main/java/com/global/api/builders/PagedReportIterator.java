@@ -0,0 +1,85 @@
+package com.global.api.builders;
+
+import com.global.api.entities.gpApi.PagedResult;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads a paged report one row at a time. When a page arrives the next one is requested
+ * in the background, so at most the page being read and the page after it are held.
+ * A failed request surfaces as a CompletionException with the ApiException as its cause.
+ */
+class PagedReportIterator<TResult, T> implements Iterator<T> {
+    private final TransactionReportBuilder<TResult> builder;
+    private final String configName;
+    private final int pageSize;
+    private int page;
+    private boolean started;
+    private Iterator<T> current;
+    // the page being fetched, null once the last page has been taken
+    private CompletableFuture<TResult> next;
+
+    PagedReportIterator(TransactionReportBuilder<TResult> builder, String configName) {
+        this.builder = builder;
+        this.configName = configName;
+        this.pageSize = builder.getPageSize();
+        this.page = builder.getPage();
+    }
+
+    public boolean hasNext() {
+        if(!started) {
+            started = true;
+            fetch(page);
+        }
+
+        while(current == null || !current.hasNext()) {
+            if(next == null) {
+                current = null;
+                return false;
+            }
+
+            PagedResult<T> result = toPagedResult(next.join());
+            next = null;
+            if(result == null) {
+                continue;
+            }
+            current = result.getResults().iterator();
+
+            // a short page is the last one
+            if(result.getResults().size() == pageSize) {
+                fetch(++page);
+            }
+        }
+        return true;
+    }
+
+    public T next() {
+        if(!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    // drops the rows still held and the page being fetched
+    void close() {
+        started = true;
+        current = null;
+        if(next != null) {
+            next.cancel(false);
+            next = null;
+        }
+    }
+
+    // the previous request has completed before the page changes, so the builder is never read while it is written
+    private void fetch(int page) {
+        builder.setPage(page);
+        next = builder.executeAsync(configName);
+    }
+
+    @SuppressWarnings("unchecked")
+    private PagedResult<T> toPagedResult(TResult result) {
+        return (PagedResult<T>) result;
+    }
+}
@@ -66,9 +66,16 @@ public class RecurringBuilder<TResult> extends TransactionBuilder<TResult> {
     }
 
     public TResult execute(String configName) throws ApiException {
+        try (ServicesContainer.Lease lease = ServicesContainer.getInstance().lease(configName)) {
+            return execute(configName, lease);
+        }
+    }
+
+    @Override
+    protected TResult execute(String configName, ServicesContainer.Lease lease) throws ApiException {
         super.execute(configName);
 
-        IRecurringGateway client = ServicesContainer.getInstance().getRecurring(configName);
+        IRecurringGateway client = lease.getRecurring();
         return client.processRecurring(this, clazz);
     }
 
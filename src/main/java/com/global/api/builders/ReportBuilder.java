@@ -24,6 +24,10 @@ public abstract class ReportBuilder<TResult> extends BaseBuilder<TResult> {
         this.timeZoneConversion = timeZoneConversion;
     }
 
+    public Class<TResult> getResultClass() {
+        return clazz;
+    }
+
     public ReportBuilder(ReportType type, Class<TResult> clazz) {
         super();
         this.reportType = type;
@@ -31,9 +35,16 @@ public abstract class ReportBuilder<TResult> extends BaseBuilder<TResult> {
     }
 
     public TResult execute(String configName) throws ApiException {
+        try (ServicesContainer.Lease lease = ServicesContainer.getInstance().lease(configName)) {
+            return execute(configName, lease);
+        }
+    }
+
+    @Override
+    protected TResult execute(String configName, ServicesContainer.Lease lease) throws ApiException {
         super.execute(configName);
 
-        IReportingService client = (IReportingService) ServicesContainer.getInstance().getGateway(configName);
+        IReportingService client = (IReportingService) lease.getGateway();
         return client.processReport(this, clazz);
     }
 }
@@ -88,9 +88,16 @@ public class ResubmitBuilder extends TransactionBuilder<Transaction> {
     }
 
     public Transaction execute(String configName) throws ApiException {
+        try (ServicesContainer.Lease lease = ServicesContainer.getInstance().lease(configName)) {
+            return execute(configName, lease);
+        }
+    }
+
+    @Override
+    protected Transaction execute(String configName, ServicesContainer.Lease lease) throws ApiException {
         super.execute(configName);
 
-        IPaymentGateway client = ServicesContainer.getInstance().getGateway(configName);
+        IPaymentGateway client = lease.getGateway();
         if(client instanceof VapsConnector) {
             return ((VapsConnector)client).resubmitTransaction(this);
         }
@@ -1,6 +1,8 @@
 package com.global.api.builders;
 
 import com.global.api.entities.enums.*;
+import com.global.api.entities.exceptions.BuilderException;
+import com.global.api.entities.gpApi.PagedResult;
 import com.global.api.entities.reporting.DataServiceCriteria;
 import com.global.api.entities.reporting.SearchCriteria;
 import com.global.api.entities.reporting.SearchCriteriaBuilder;
@@ -8,6 +10,11 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.util.Date;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class TransactionReportBuilder<TResult> extends ReportBuilder<TResult> {
     private String deviceId;
@@ -145,6 +152,44 @@ public class TransactionReportBuilder<TResult> extends ReportBuilder<TResult> {
         return this;
     }
 
+    public <T> Iterator<T> iterator() throws BuilderException {
+        return iterator("default");
+    }
+    /**
+     * Reads every row of a paged report from the builder's page on, requesting the pages
+     * as they are needed. The builder's page is moved forward as the rows are read.
+     */
+    public <T> Iterator<T> iterator(String configName) throws BuilderException {
+        return createIterator(configName);
+    }
+
+    public <T> Stream<T> stream() throws BuilderException {
+        return stream("default");
+    }
+    /**
+     * The rows of a paged report as a lazy stream, see iterator. Closing the stream
+     * cancels the page being fetched.
+     */
+    public <T> Stream<T> stream(String configName) throws BuilderException {
+        final PagedReportIterator<TResult, T> iterator = createIterator(configName);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(new Runnable() {
+                    public void run() {
+                        iterator.close();
+                    }
+                });
+    }
+
+    private <T> PagedReportIterator<TResult, T> createIterator(String configName) throws BuilderException {
+        if(!PagedResult.class.isAssignableFrom(getResultClass())) {
+            throw new BuilderException(String.format("%s is not a paged report.", getReportType()));
+        }
+        if(pageSize <= 0) {
+            throw new BuilderException("A page size is required to read a paged report.");
+        }
+        return new PagedReportIterator<TResult, T>(this, configName);
+    }
+
     public void setupValidations() {
         this.validations.of(ReportType.TransactionDetail)
                 .check("transactionId").isNotNull();
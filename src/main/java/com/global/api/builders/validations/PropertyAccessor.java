@@ -0,0 +1,67 @@
+package com.global.api.builders.validations;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads fields by name through method handles that are looked up once per class and field.
+ */
+final class PropertyAccessor {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    // stands in for a field the class does not have
+    private static final MethodHandle MISSING = MethodHandles.dropArguments(MethodHandles.constant(Object.class, null), 0, Object.class);
+
+    private static final ClassValue<ConcurrentHashMap<String, MethodHandle>> getters = new ClassValue<ConcurrentHashMap<String, MethodHandle>>() {
+        protected ConcurrentHashMap<String, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<String, MethodHandle>();
+        }
+    };
+
+    private PropertyAccessor() {
+    }
+
+    /**
+     * @return the getter of the field declared on the class or one of its superclasses, null when there is none
+     */
+    static MethodHandle find(Class<?> clazz, String name) {
+        ConcurrentHashMap<String, MethodHandle> classGetters = getters.get(clazz);
+        MethodHandle getter = classGetters.get(name);
+        if(getter == null) {
+            getter = lookup(clazz, name);
+            classGetters.put(name, getter);
+        }
+        return getter == MISSING ? null : getter;
+    }
+
+    static Object get(MethodHandle getter, Object target) throws Exception {
+        try {
+            return getter.invokeExact(target);
+        }
+        catch(Exception | Error exc) {
+            throw exc;
+        }
+        catch(Throwable exc) {
+            throw new IllegalStateException(exc);
+        }
+    }
+
+    private static MethodHandle lookup(Class<?> clazz, String name) {
+        for(Class<?> type = clazz; type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                return MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+            }
+            catch(NoSuchFieldException exc) {
+                // look in the superclass
+            }
+            catch(IllegalAccessException exc) {
+                return MISSING;
+            }
+        }
+        return MISSING;
+    }
+}
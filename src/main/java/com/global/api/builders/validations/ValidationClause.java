@@ -2,7 +2,7 @@ package com.global.api.builders.validations;
 
 import com.global.api.utils.StringUtils;
 
-import java.lang.reflect.Field;
+import java.lang.invoke.MethodHandle;
 
 public class ValidationClause {
     private Validations parent;
@@ -37,14 +37,12 @@ public class ValidationClause {
     public ValidationTarget isNull(String message){
         callback = new MyCallable() {
             public Boolean call(Object builder) throws Exception {
-                try {
-                    Field f = getField(builder.getClass(), propertyName);
-                    Object value = f.get(builder);
-                    return value == null;
-                }
-                catch(NoSuchFieldException exc) {
+                MethodHandle getter = PropertyAccessor.find(builder.getClass(), propertyName);
+                if(getter == null) {
                     return false;
                 }
+                Object value = PropertyAccessor.get(getter, builder);
+                return value == null;
             }
         };
         this.message = (message != null) ? message : String.format("%s cannot be null for this transaction type.", propertyName);
@@ -59,14 +57,12 @@ public class ValidationClause {
     public ValidationTarget isNotNull(String message){
         callback = new MyCallable() {
             public Boolean call(Object builder) throws Exception {
-                try {
-                    Field f = getField(builder.getClass(), propertyName);
-                    Object value = f.get(builder);
-                    return value != null;
-                }
-                catch(NoSuchFieldException exc) {
+                MethodHandle getter = PropertyAccessor.find(builder.getClass(), propertyName);
+                if(getter == null) {
                     return false;
                 }
+                Object value = PropertyAccessor.get(getter, builder);
+                return value != null;
             }
         };
         this.message = (message != null) ? message : String.format("%s cannot be null for this transaction type.", propertyName);
@@ -82,14 +78,12 @@ public class ValidationClause {
         final Class checkClass = clazz;
         callback = new MyCallable() {
             public Boolean call(Object builder) throws Exception {
-                try {
-                    Field f = getField(builder.getClass(), propertyName);
-                    Object value = f.get(builder);
-                    return value.getClass() == checkClass;
-                }
-                catch(NoSuchFieldException exc) {
+                MethodHandle getter = PropertyAccessor.find(builder.getClass(), propertyName);
+                if(getter == null) {
                     return false;
                 }
+                Object value = PropertyAccessor.get(getter, builder);
+                return value.getClass() == checkClass;
             }
         };
         this.message = (message != null) ? message : String.format("%s must be an instance of the %s class.", propertyName, clazz.getName());
@@ -105,14 +99,12 @@ public class ValidationClause {
         final Class checkClass = clazz;
         callback = new MyCallable() {
             public Boolean call(Object builder) throws Exception {
-                try {
-                    Field f = getField(builder.getClass(), propertyName);
-                    Object value = f.get(builder);
-                    return checkClass.isAssignableFrom(value.getClass());
-                }
-                catch(NoSuchFieldException exc) {
+                MethodHandle getter = PropertyAccessor.find(builder.getClass(), propertyName);
+                if(getter == null) {
                     return false;
                 }
+                Object value = PropertyAccessor.get(getter, builder);
+                return checkClass.isAssignableFrom(value.getClass());
             }
         };
         this.message = (message != null) ? message : String.format("%s must be an instance of the %s class.", propertyName, clazz.getName());
@@ -127,25 +119,26 @@ public class ValidationClause {
     public ValidationTarget isEqualTo(final Object expected, String message) {
         callback = new MyCallable() {
             public Boolean call(Object builder) throws Exception {
-                try {
-                    Field f = getField(builder.getClass(), propertyName);
-                    Object value = f.get(builder);
-
-                    // check sub-field
-                    if(!StringUtils.isNullOrEmpty(subPropertyName)) {
-                        if(!propertyClass.isInstance(value)) {
-                            return false;
-                        }
+                MethodHandle getter = PropertyAccessor.find(builder.getClass(), propertyName);
+                if(getter == null) {
+                    return false;
+                }
+                Object value = PropertyAccessor.get(getter, builder);
 
-                        Field subField = getField(propertyClass, subPropertyName);
-                        value = subField.get(value);
+                // check sub-field
+                if(!StringUtils.isNullOrEmpty(subPropertyName)) {
+                    if(!propertyClass.isInstance(value)) {
+                        return false;
                     }
 
-                    return value.equals(expected);
-                }
-                catch(NoSuchFieldException exc) {
-                    return false;
+                    MethodHandle subGetter = PropertyAccessor.find(propertyClass, subPropertyName);
+                    if(subGetter == null) {
+                        return false;
+                    }
+                    value = PropertyAccessor.get(subGetter, value);
                 }
+
+                return value.equals(expected);
             }
         };
         this.message = (message != null) ? message : String.format("%s was not the expected value %s", propertyName, expected.toString());
@@ -160,14 +153,12 @@ public class ValidationClause {
     public ValidationTarget isNotEqual(final Object expected, String message) {
         callback = new MyCallable() {
             public Boolean call(Object builder) throws Exception {
-                try {
-                    Field f = getField(builder.getClass(), propertyName);
-                    Object value = f.get(builder);
-                    return !value.equals(expected);
-                }
-                catch(NoSuchFieldException exc) {
+                MethodHandle getter = PropertyAccessor.find(builder.getClass(), propertyName);
+                if(getter == null) {
                     return false;
                 }
+                Object value = PropertyAccessor.get(getter, builder);
+                return !value.equals(expected);
             }
         };
         this.message = (message != null) ? message : String.format("%s cannot be the value %s.", propertyName, expected.toString());
@@ -181,20 +172,4 @@ public class ValidationClause {
         this.subPropertyName = subPropertyName;
         return this;
     }
-
-    private Field getField(Class clazz, String fieldName) throws NoSuchFieldException {
-        try{
-            Field f = clazz.getDeclaredField(fieldName);
-            f.setAccessible(true);
-            return f;
-        }
-        catch(NoSuchFieldException e) {
-            Class superClass = clazz.getSuperclass();
-            if(superClass == null)
-                throw e;
-            else {
-                return getField(superClass, fieldName);
-            }
-        }
-    }
 }
@@ -5,15 +5,28 @@ import com.global.api.builders.TransactionBuilder;
 import com.global.api.entities.enums.IFlag;
 import com.global.api.entities.exceptions.BuilderException;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
-import java.lang.reflect.Field;
 import java.util.*;
 
+/**
+ * The rules of a builder class. They are set up once per class and shared by its instances,
+ * so they are only read while validating. A builder copies them before they can be changed.
+ */
 public class Validations {
+    // the field holding a flag is named after the flag's class
+    private static final ClassValue<String> propertyNames = new ClassValue<String>() {
+        protected String computeValue(Class<?> type) {
+            String name = type.getSimpleName();
+            return name.substring(0, 1).toLowerCase() + name.substring(1);
+        }
+    };
+
     class ValidationKey {
         private Class<?> type;
         private long value;
+        private Set<?> set;
 
         public Type getType() {
             return type;
@@ -25,9 +38,14 @@ public class Validations {
         ValidationKey(Class type, long value) {
             this.type = type;
             this.value = value;
+            this.set = loadSet();
         }
 
         Set<?> getSet() {
+            return set;
+        }
+
+        private Set<?> loadSet() {
             try {
                 Method method = type.getMethod("getSet", long.class);
                 return (Set<?>)method.invoke(this.type, this.value);
@@ -36,10 +54,16 @@ public class Validations {
         }
     }
 
-    private HashMap<ValidationKey, List<ValidationTarget>> rules;
+    private LinkedHashMap<ValidationKey, List<ValidationTarget>> rules;
 
     public Validations() {
-        rules = new HashMap<ValidationKey, List<ValidationTarget>>();
+        rules = new LinkedHashMap<ValidationKey, List<ValidationTarget>>();
+    }
+    public Validations(Validations validations) {
+        this();
+        for(Map.Entry<ValidationKey, List<ValidationTarget>> rule: validations.rules.entrySet()) {
+            rules.put(rule.getKey(), new ArrayList<ValidationTarget>(rule.getValue()));
+        }
     }
 
     public <T extends IFlag> ValidationTarget of(Set<T> types) {
@@ -59,17 +83,18 @@ public class Validations {
     }
 
     public <T> void validate(BaseBuilder<T> builder) throws BuilderException {
-        for(ValidationKey key: rules.keySet()) {
-            IFlag value = getPropertyValue(builder, key.getType());
+        for(Map.Entry<ValidationKey, List<ValidationTarget>> rule: rules.entrySet()) {
+            ValidationKey key = rule.getKey();
+            IFlag value = getPropertyValue(builder, key.type);
             if(value == null && builder instanceof TransactionBuilder) {
-                value = getPropertyValue(((TransactionBuilder<T>)builder).getPaymentMethod(), key.getType());
+                value = getPropertyValue(((TransactionBuilder<T>)builder).getPaymentMethod(), key.type);
                 if(value == null)
                     continue;
             }
 
             Set<?> values = key.getSet();
             if(values.contains(value)) {
-                for(ValidationTarget validation: rules.get(key)) {
+                for(ValidationTarget validation: rule.getValue()) {
                     ValidationClause clause = validation.getClause();
                     if(clause == null) continue;
 
@@ -106,28 +131,14 @@ public class Validations {
         }
     }
 
-    private Field getField(Class clazz, String name) throws NoSuchFieldException {
-        try {
-            Field field = clazz.getDeclaredField(name);
-            field.setAccessible(true);
-            return field;
-        }
-        catch(NoSuchFieldException e) {
-            Class superClazz = clazz.getSuperclass();
-            if(superClazz != null)
-                return getField(superClazz, name);
-            else throw e;
-        }
-    }
-    private IFlag getPropertyValue(Object obj, Object comp) {
+    private IFlag getPropertyValue(Object obj, Class<?> comp) {
         if(obj == null) return null;
 
-        String name = ((Class)comp).getSimpleName();
-        name = name.substring(0, 1).toLowerCase() + name.substring(1);
+        MethodHandle getter = PropertyAccessor.find(obj.getClass(), propertyNames.get(comp));
+        if(getter == null) return null;
 
         try{
-            Field field = getField(obj.getClass(), name);
-            return (IFlag)field.get(obj);
+            return (IFlag)PropertyAccessor.get(getter, obj);
         }
         catch(Exception e) {
             return null;
@@ -4,6 +4,7 @@ import com.global.api.builders.ResubmitBuilder;
 import com.global.api.entities.enums.TransactionType;
 import com.global.api.entities.exceptions.ApiException;
 import com.global.api.entities.exceptions.BuilderException;
+import com.global.api.network.entities.ResendFailure;
 import org.joda.time.DateTime;
 
 import java.math.BigDecimal;
@@ -13,7 +14,9 @@ import java.util.List;
 public class BatchSummary {
     private Integer batchId;
     private Transaction resentBatchClose;
+    private ApiException resentBatchCloseException;
     private LinkedList<Transaction> resentTransactions;
+    private LinkedList<ResendFailure> resendFailures;
     private String responseCode;
     private String sequenceNumber;
     private Integer transactionCount;
@@ -124,12 +127,28 @@ public class BatchSummary {
     public void setResentBatchClose(Transaction resentBatchClose) {
         this.resentBatchClose = resentBatchClose;
     }
+    /**
+     * @return the exception the resent batch close failed with, or that stopped the stored
+     * requests being read after a 580
+     */
+    public ApiException getResentBatchCloseException() {
+        return resentBatchCloseException;
+    }
+    public void setResentBatchCloseException(ApiException resentBatchCloseException) {
+        this.resentBatchCloseException = resentBatchCloseException;
+    }
     public LinkedList<Transaction> getResentTransactions() {
         return resentTransactions;
     }
     public void setResentTransactions(LinkedList<Transaction> resentTransactions) {
         this.resentTransactions = resentTransactions;
     }
+    public LinkedList<ResendFailure> getResendFailures() {
+        return resendFailures;
+    }
+    public void setResendFailures(LinkedList<ResendFailure> resendFailures) {
+        this.resendFailures = resendFailures;
+    }
     public String getResponseCode() {
         return responseCode;
     }
@@ -7,6 +7,7 @@ import com.global.api.entities.enums.TransactionType;
 import com.global.api.gateways.events.IGatewayEvent;
 import com.global.api.network.entities.NtsData;
 import com.global.api.network.entities.PriorMessageInformation;
+import com.global.api.network.entities.TransactionToken;
 import com.global.api.network.enums.CardIssuerEntryTag;
 import com.global.api.paymentMethods.GiftCard;
 import com.global.api.paymentMethods.IPaymentMethod;
@@ -59,7 +60,7 @@ public class Transaction {
     private ThreeDSecure threeDsecure;
     private String timestamp;
     private String transactionDescriptor;
-    private String transactionToken;
+    private TransactionToken transactionToken;
     private String token;
     private GiftCard giftCard;
     private TransactionReference transactionReference;
@@ -420,9 +421,12 @@ public class Transaction {
         this.transactionDescriptor = transactionDescriptor;
     }
     public String getTransactionToken() {
-        return transactionToken;
+        return transactionToken != null ? transactionToken.getValue() : null;
     }
     public void setTransactionToken(String transactionToken) {
+        this.transactionToken = transactionToken != null ? TransactionToken.of(transactionToken) : null;
+    }
+    public void setTransactionTokenSource(TransactionToken transactionToken) {
         this.transactionToken = transactionToken;
     }
     public String getTransactionId() {
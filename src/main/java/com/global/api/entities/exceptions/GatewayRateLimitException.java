@@ -0,0 +1,10 @@
+package com.global.api.entities.exceptions;
+
+/**
+ * The gateway refused the request because too many were sent, it can be sent again after a pause.
+ */
+public class GatewayRateLimitException extends GatewayException {
+    public GatewayRateLimitException(String message, String responseCode, String responseText) {
+        super(message, responseCode, responseText);
+    }
+}
@@ -9,12 +9,23 @@ import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
-import java.security.Key;
-import java.security.spec.AlgorithmParameterSpec;
 
 public class PayrollEncoder implements IRequestEncoder {
     private String username;
     private String apiKey;
+    private volatile KeyMaterial keyMaterial;
+
+    private static final ThreadLocal<CipherState> ciphers = new ThreadLocal<CipherState>() {
+        @Override
+        protected CipherState initialValue() {
+            try {
+                return new CipherState();
+            }
+            catch(Exception exc) {
+                throw new IllegalStateException(exc);
+            }
+        }
+    };
 
     public String getUsername() {
         return username;
@@ -63,22 +74,11 @@ public class PayrollEncoder implements IRequestEncoder {
             return null;
 
         try {
-            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
-            PBEKeySpec pbeKeySpec = new PBEKeySpec(apiKey.toCharArray(), username.getBytes("UTF-8"), 1000, 384);
-            Key secretKey = factory.generateSecret(pbeKeySpec);
-            byte[] key = new byte[32];
-            byte[] iv = new byte[16];
-            System.arraycopy(secretKey.getEncoded(), 0, key, 0, 32);
-            System.arraycopy(secretKey.getEncoded(), 32, iv, 0, 16);
-
-            SecretKeySpec secret = new SecretKeySpec(key, "AES");
-            AlgorithmParameterSpec ivSpec = new IvParameterSpec(iv);
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            cipher.init(Cipher.ENCRYPT_MODE, secret, ivSpec);
-            byte[] results = cipher.doFinal(value.toString().getBytes("UTF-8"));
+            byte[] results = cipher(Cipher.ENCRYPT_MODE).doFinal(value.toString().getBytes("UTF-8"));
             return Base64.encodeBase64String(results);
         }
         catch(Exception exc) {
+            ciphers.remove();
             return value.toString();
         }
     }
@@ -88,24 +88,70 @@ public class PayrollEncoder implements IRequestEncoder {
             return null;
 
         try {
-            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
-            PBEKeySpec pbeKeySpec = new PBEKeySpec(apiKey.toCharArray(), username.getBytes("UTF-8"), 1000, 384);
-            Key secretKey = factory.generateSecret(pbeKeySpec);
-            byte[] key = new byte[32];
-            byte[] iv = new byte[16];
-            System.arraycopy(secretKey.getEncoded(), 0, key, 0, 32);
-            System.arraycopy(secretKey.getEncoded(), 32, iv, 0, 16);
-
-            SecretKeySpec secret = new SecretKeySpec(key, "AES");
-            AlgorithmParameterSpec ivSpec = new IvParameterSpec(iv);
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            cipher.init(Cipher.DECRYPT_MODE, secret, ivSpec);
             byte[] decode = Base64.decodeBase64(value.toString());
-            byte[] results = cipher.doFinal(decode);
+            byte[] results = cipher(Cipher.DECRYPT_MODE).doFinal(decode);
             return new String(results);
         }
         catch(Exception exc) {
+            ciphers.remove();
             return value.toString();
         }
     }
+
+    // the key and iv are stretched from the credentials once, until either of them changes
+    private KeyMaterial getKeyMaterial() throws Exception {
+        KeyMaterial material = keyMaterial;
+        if(material == null || !material.isFor(username, apiKey)) {
+            material = new KeyMaterial(username, apiKey);
+            keyMaterial = material;
+        }
+        return material;
+    }
+
+    // a cipher already set up for the same key and mode is reused, doFinal leaves it ready for the next call
+    private Cipher cipher(int mode) throws Exception {
+        KeyMaterial material = getKeyMaterial();
+
+        CipherState state = ciphers.get();
+        if(state.material != material || state.mode != mode) {
+            state.material = null;
+            state.cipher.init(mode, material.key, material.iv);
+            state.material = material;
+            state.mode = mode;
+        }
+        return state.cipher;
+    }
+
+    private static class KeyMaterial {
+        private final String username;
+        private final String apiKey;
+        private final SecretKeySpec key;
+        private final IvParameterSpec iv;
+
+        KeyMaterial(String username, String apiKey) throws Exception {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+            PBEKeySpec pbeKeySpec = new PBEKeySpec(apiKey.toCharArray(), username.getBytes("UTF-8"), 1000, 384);
+            byte[] encoded = factory.generateSecret(pbeKeySpec).getEncoded();
+            pbeKeySpec.clearPassword();
+
+            this.username = username;
+            this.apiKey = apiKey;
+            this.key = new SecretKeySpec(encoded, 0, 32, "AES");
+            this.iv = new IvParameterSpec(encoded, 32, 16);
+        }
+
+        boolean isFor(String username, String apiKey) {
+            return this.username.equals(username) && this.apiKey.equals(apiKey);
+        }
+    }
+
+    private static class CipherState {
+        private final Cipher cipher;
+        private KeyMaterial material;
+        private int mode;
+
+        CipherState() throws Exception {
+            cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        }
+    }
 }
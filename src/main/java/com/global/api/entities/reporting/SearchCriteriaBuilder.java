@@ -10,6 +10,8 @@ import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 public class SearchCriteriaBuilder<TResult> {
 	private TransactionReportBuilder<TResult> _reportBuilder;
@@ -429,6 +431,22 @@ public class SearchCriteriaBuilder<TResult> {
 		return _reportBuilder.execute(configName);
 	}
 
+	public <T> Iterator<T> iterator() throws ApiException {
+		return iterator("default");
+	}
+
+	public <T> Iterator<T> iterator(String configName) throws ApiException {
+		return _reportBuilder.iterator(configName);
+	}
+
+	public <T> Stream<T> stream() throws ApiException {
+		return stream("default");
+	}
+
+	public <T> Stream<T> stream(String configName) throws ApiException {
+		return _reportBuilder.stream(configName);
+	}
+
 	public <T> SearchCriteriaBuilder<TResult> and(SearchCriteria criteria, T value) {
 		String criteriaValue = criteria.toString();
 		if (criteriaValue != null) {
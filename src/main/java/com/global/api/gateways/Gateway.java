@@ -27,6 +27,16 @@ public abstract class Gateway {
     protected int timeout;
     protected String serviceUrl;
     protected Proxy proxy;
+    private IHttpTransport httpTransport;
+
+    private static final IResponseHandler<GatewayResponse> defaultResponseHandler = new IResponseHandler<GatewayResponse>() {
+        public GatewayResponse handle(int statusCode, Reader responseReader) throws IOException {
+            GatewayResponse response = new GatewayResponse();
+            response.setStatusCode(statusCode);
+            response.setRawResponse(IOUtils.readFully(responseReader));
+            return response;
+        }
+    };
 
     // ----------------------------------------------------------------------
     // TODO: Remove if it is not more useful
@@ -66,6 +76,15 @@ public abstract class Gateway {
     public void setProxy(Proxy proxy) {
         this.proxy = proxy;
     }
+    public IHttpTransport getHttpTransport() {
+        if(httpTransport == null) {
+            return PooledHttpTransport.getDefault();
+        }
+        return httpTransport;
+    }
+    public void setHttpTransport(IHttpTransport httpTransport) {
+        this.httpTransport = httpTransport;
+    }
     public Gateway(String contentType) {
         headers = new HashMap<String, String>();
         this.contentType = contentType;
@@ -77,17 +96,34 @@ public abstract class Gateway {
     protected GatewayResponse sendRequest(String verb, String endpoint, String data) throws GatewayException {
         return sendRequest(verb, endpoint, data, null);
     }
+    /**
+     * Sends a body that is already encoded as UTF-8, such as the bytes written by ElementTree.toBytes.
+     */
+    protected GatewayResponse sendRequest(String verb, String endpoint, byte[] data) throws GatewayException {
+        return sendRequest(verb, endpoint, data, null, null, defaultResponseHandler);
+    }
     protected GatewayResponse sendRequest(String verb, String endpoint, String data, HashMap<String, String> queryStringParams) throws GatewayException {
+        return sendRequest(verb, endpoint, data, queryStringParams, null);
+    }
+    /**
+     * @param requestHeaders sent with this request only, on top of the gateway's shared headers
+     */
+    protected GatewayResponse sendRequest(String verb, String endpoint, String data, HashMap<String, String> queryStringParams, Map<String, String> requestHeaders) throws GatewayException {
+        return sendRequest(verb, endpoint, data, queryStringParams, requestHeaders, defaultResponseHandler);
+    }
+    /**
+     * Hands the response body to the handler as it is read, without first collecting it into a string.
+     */
+    protected <T> T sendRequest(String verb, String endpoint, String data, HashMap<String, String> queryStringParams, Map<String, String> requestHeaders, IResponseHandler<T> handler) throws GatewayException {
+        return sendRequest(verb, endpoint, data != null ? data.getBytes(IOUtils.UTF_8) : null, queryStringParams, requestHeaders, handler);
+    }
+
+    private <T> T sendRequest(String verb, String endpoint, byte[] request, HashMap<String, String> queryStringParams, Map<String, String> requestHeaders, IResponseHandler<T> handler) throws GatewayException {
+        IHttpTransport transport = getHttpTransport();
         HttpsURLConnection conn = null;
         try{
             String queryString = buildQueryString(queryStringParams);
-            if (proxy != null) {
-                conn = (HttpsURLConnection) new URL((serviceUrl + endpoint + queryString).trim()).openConnection(proxy);
-            } else {
-                conn = (HttpsURLConnection) new URL((serviceUrl + endpoint + queryString).trim()).openConnection();
-            }
-            conn.setSSLSocketFactory(new SSLSocketFactoryEx());
-            conn.setConnectTimeout(timeout);
+            conn = transport.openConnection(new URL((serviceUrl + endpoint + queryString).trim()), proxy, timeout);
             conn.setDoInput(true);
             // ----------------------------------------------------------------------
             // Fix: Supports PATCH requests in HttpsURLConnection on JAVA & Android
@@ -107,6 +143,11 @@ public abstract class Gateway {
             for (Map.Entry<String, String> header: headers.entrySet()) {
                 conn.addRequestProperty(header.getKey(), header.getValue());
             }
+            if (requestHeaders != null) {
+                for (Map.Entry<String, String> header: requestHeaders.entrySet()) {
+                    conn.setRequestProperty(header.getKey(), header.getValue());
+                }
+            }
 
             if (this.enableLogging) {
                 System.out.println("================================================================================");
@@ -117,12 +158,11 @@ public abstract class Gateway {
             }
 
             if (!verb.equals("GET")) {
-                byte[] request = data.getBytes();
-
                 conn.setDoOutput(true);
                 conn.addRequestProperty("Content-Length", String.valueOf(request.length));
 
                 if (this.enableLogging) {
+                    String data = new String(request, IOUtils.UTF_8);
                     if (acceptJson()) {
                         if (!StringUtils.isNullOrEmpty(data)) {
                             System.out.println("Request Body: " + System.getProperty("line.separator") + toPrettyJson(data));
@@ -141,25 +181,31 @@ public abstract class Gateway {
             }
 
             InputStream responseStream = conn.getInputStream();
+            try {
+                Reader responseReader = openResponseReader(verb, endpoint, responseStream);
 
-            String rawResponse = getRawResponse(verb, endpoint, responseStream);
-
-            responseStream.close();
-            if (this.enableLogging) {
-                if (acceptJson()) {
-                    System.out.println("--------------------------------------------------------------------------------");
-                    System.out.println("Response Code: " + conn.getResponseCode() + " " + conn.getResponseMessage());
-                    System.out.println("Response: " + System.getProperty("line.separator") + toPrettyJson(rawResponse));
-                    System.out.println("================================================================================" + System.getProperty("line.separator"));
-                } else {
-                    System.out.println("Response: " + rawResponse);
+                if (this.enableLogging) {
+                    // logging needs the whole body, read it up front and hand the copy on
+                    String rawResponse = IOUtils.readFully(responseReader);
+                    if (acceptJson()) {
+                        System.out.println("--------------------------------------------------------------------------------");
+                        System.out.println("Response Code: " + conn.getResponseCode() + " " + conn.getResponseMessage());
+                        System.out.println("Response: " + System.getProperty("line.separator") + toPrettyJson(rawResponse));
+                        System.out.println("================================================================================" + System.getProperty("line.separator"));
+                    } else {
+                        System.out.println("Response: " + rawResponse);
+                    }
+                    responseReader = new StringReader(rawResponse);
                 }
-            }
 
-            GatewayResponse response = new GatewayResponse();
-            response.setStatusCode(conn.getResponseCode());
-            response.setRawResponse(rawResponse);
-            return response;
+                return handler.handle(conn.getResponseCode(), responseReader);
+            }
+            finally {
+                responseStream.close();
+            }
+        }
+        catch(GatewayException exc) {
+            throw exc;
         }
         catch(Exception exc) {
             if (this.enableLogging) {
@@ -168,40 +214,40 @@ public abstract class Gateway {
                 System.out.println("================================================================================" + System.getProperty("line.separator"));
             }
 
+            if (conn == null) {
+                throw new GatewayException("Error occurred while communicating with gateway.", exc);
+            }
             try {
                 throw new GatewayException("Error occurred while communicating with gateway.", exc, String.valueOf(conn.getResponseCode()), getRawResponse(verb, endpoint, conn.getErrorStream()));
             } catch (IOException e) {   // Legacy GatewayException
                 throw new GatewayException("Error occurred while communicating with gateway.", exc);
             }
         }
+        finally {
+            transport.releaseConnection(conn);
+        }
     }
 
     public String getRawResponse(String verb, String endpoint, InputStream responseStream) throws IOException {
-        String rawResponse;
-        if (acceptGzipEncoding(verb, endpoint)) {
-            // Decompress GZIP response
-            GZIPInputStream gzis = new GZIPInputStream(responseStream);
-            InputStreamReader reader = new InputStreamReader(gzis);
-            BufferedReader in = new BufferedReader(reader);
+        if (responseStream == null) {
+            return null;
+        }
+        return IOUtils.readFully(openResponseReader(verb, endpoint, responseStream));
+    }
 
-            StringBuilder decompressedResponse = new StringBuilder();
-            String line;
-            while ((line = in.readLine()) != null) {
-                decompressedResponse.append(line);
-            }
-            rawResponse = decompressedResponse.toString();
-        } else {
-            rawResponse = IOUtils.readFully(responseStream);
+    // Decompresses and decodes the body as it is read, line breaks included
+    protected Reader openResponseReader(String verb, String endpoint, InputStream responseStream) throws IOException {
+        if (acceptGzipEncoding(verb, endpoint)) {
+            responseStream = new GZIPInputStream(responseStream, 8192);
         }
-        return rawResponse;
+        return new BufferedReader(new InputStreamReader(responseStream, IOUtils.UTF_8), 8192);
     }
 
     protected GatewayResponse sendRequest(String endpoint, MultipartEntity content) throws GatewayException {
-        HttpsURLConnection conn;
+        IHttpTransport transport = getHttpTransport();
+        HttpsURLConnection conn = null;
         try{
-            conn = (HttpsURLConnection)new URL((serviceUrl + endpoint).trim()).openConnection();
-            conn.setSSLSocketFactory(new SSLSocketFactoryEx());
-            conn.setConnectTimeout(timeout);
+            conn = transport.openConnection(new URL((serviceUrl + endpoint).trim()), null, timeout);
             conn.setDoInput(true);
             conn.setDoOutput(true);
             conn.setRequestMethod("POST");
@@ -231,6 +277,9 @@ public abstract class Gateway {
         catch(Exception exc) {
             throw new GatewayException("Error occurred while communicating with gateway.", exc);
         }
+        finally {
+            transport.releaseConnection(conn);
+        }
     }
 
     private String buildQueryString(HashMap<String, String> queryStringParams) throws UnsupportedEncodingException {
@@ -8,13 +8,17 @@ import com.global.api.entities.Transaction;
 import com.global.api.entities.enums.*;
 import com.global.api.entities.exceptions.ApiException;
 import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.entities.exceptions.GatewayRateLimitException;
 import com.global.api.entities.exceptions.UnsupportedTransactionException;
 import com.global.api.entities.gpApi.*;
 import com.global.api.mapping.GpApiMapping;
 import com.global.api.network.NetworkMessageHeader;
 import com.global.api.serviceConfigs.GpApiConfig;
+import com.global.api.utils.IOUtils;
 import com.global.api.utils.JsonDoc;
 import com.global.api.utils.StringUtils;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 import lombok.Getter;
 import lombok.Setter;
 import org.joda.time.DateTime;
@@ -22,10 +26,13 @@ import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Map;
 
 import static com.global.api.utils.StringUtils.isNullOrEmpty;
 
@@ -38,59 +45,89 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
     public static final DateTimeFormatter DATE_TIME_DTF_2 = DateTimeFormat.forPattern(DATE_TIME_PATTERN_2);
     public static final DateTimeFormatter DATE_TIME_DTF_3 = DateTimeFormat.forPattern(DATE_TIME_PATTERN_3);
     public static final SimpleDateFormat DATE_SDF = new SimpleDateFormat(DATE_PATTERN);
+    // a SimpleDateFormat is not thread safe, requests built at the same time each use their thread's own
+    private static final ThreadLocal<SimpleDateFormat> dateFormat = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat(DATE_PATTERN);
+        }
+    };
 
     private static final String GP_API_VERSION = "2021-03-22";
     private static final String IDEMPOTENCY_HEADER = "x-gp-idempotency";
+    private static final String RATE_LIMITED = "429";
 
-    private String accessToken;
     @Getter GpApiConfig gpApiConfig; // Contains: appId, appKey, secondsToExpire, intervalToExpire, channel and language
 
-    private static String dataAccountName;
+    // Access tokens are shared by every connector signed in with the same credentials
+    private final GpApiTokenCache tokenCache = GpApiTokenCache.getDefault();
+    private final GpApiTokenCache.ISignIn tokenSignIn = new GpApiTokenCache.ISignIn() {
+        public GpApiTokenResponse signIn() throws GatewayException {
+            return getAccessToken();
+        }
+    };
+
+    // Account names set explicitly, otherwise they come from the access token, signing in again
+    // when another thread dropped the token since the request signed in
+    private volatile String dataAccountName;
+    private volatile String disputeManagementAccountName;
+    private volatile String tokenizationAccountName;
+    private volatile String transactionProcessingAccountName;
 
     public String getDataAccountName() throws GatewayException {
-        if (StringUtils.isNullOrEmpty(dataAccountName)) {
+        String value = dataAccountName;
+        if (StringUtils.isNullOrEmpty(value)) {
+            value = signIn().getDataAccountName();
+        }
+        if (StringUtils.isNullOrEmpty(value)) {
             throw new GatewayException("dataAccountName is not set");
         }
-        return dataAccountName;
+        return value;
     }
 
     public void setDataAccountName(String value) {
         dataAccountName = value;
     }
 
-    private static String disputeManagementAccountName;
-
     public String getDisputeManagementAccountName() throws GatewayException {
-        if (StringUtils.isNullOrEmpty(disputeManagementAccountName)) {
+        String value = disputeManagementAccountName;
+        if (StringUtils.isNullOrEmpty(value)) {
+            value = signIn().getDisputeManagementAccountName();
+        }
+        if (StringUtils.isNullOrEmpty(value)) {
             throw new GatewayException("disputeManagementAccountName is not set");
         }
-        return disputeManagementAccountName;
+        return value;
     }
 
     public void setDisputeManagementAccountName(String value) {
         disputeManagementAccountName = value;
     }
 
-    private static String tokenizationAccountName;
-
     public String getTokenizationAccountName() throws GatewayException {
-        if (StringUtils.isNullOrEmpty(tokenizationAccountName)) {
+        String value = tokenizationAccountName;
+        if (StringUtils.isNullOrEmpty(value)) {
+            value = signIn().getTokenizationAccountName();
+        }
+        if (StringUtils.isNullOrEmpty(value)) {
             throw new GatewayException("tokenizationAccountName is not set");
         }
-        return tokenizationAccountName;
+        return value;
     }
 
     public void setTokenizationAccountName(String value) {
         tokenizationAccountName = value;
     }
 
-    static String transactionProcessingAccountName;
-
     public String getTransactionProcessingAccountName() throws GatewayException {
-        if (StringUtils.isNullOrEmpty(transactionProcessingAccountName)) {
+        String value = transactionProcessingAccountName;
+        if (StringUtils.isNullOrEmpty(value)) {
+            value = signIn().getTransactionProcessingAccountName();
+        }
+        if (StringUtils.isNullOrEmpty(value)) {
             throw new GatewayException("transactionProcessingAccountName is not set");
         }
-        return transactionProcessingAccountName;
+        return value;
     }
 
     public void setTransactionProcessingAccountName(String value) {
@@ -117,14 +154,24 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
         headers.put("X-GP-Version", GP_API_VERSION);
     }
 
-    void signIn() throws GatewayException {
-        GpApiTokenResponse response = getAccessToken();
+    // Returns the cached access token, signing in when it is missing or about to expire
+    GpApiTokenCache.AccessToken signIn() throws GatewayException {
+        return tokenCache.getToken(getTokenCacheKey(), tokenSignIn);
+    }
 
-        accessToken = response.getToken();
-        dataAccountName = response.getDataAccountName();
-        disputeManagementAccountName = response.getDisputeManagementAccountName();
-        tokenizationAccountName = response.getTokenizationAccountName();
-        transactionProcessingAccountName = response.getTransactionProcessingAccountName();
+    private String getTokenCacheKey() {
+        StringBuilder key = new StringBuilder();
+        key.append(serviceUrl)
+                .append('|').append(gpApiConfig.getAppId())
+                .append('|').append(gpApiConfig.getAppKey())
+                .append('|').append(gpApiConfig.getSecondsToExpire())
+                .append('|').append(gpApiConfig.getIntervalToExpire());
+        if (gpApiConfig.getPermissions() != null) {
+            for (String permission : gpApiConfig.getPermissions()) {
+                key.append('|').append(permission);
+            }
+        }
+        return key.toString();
     }
 
     public GpApiRequest SignOut() throws UnsupportedTransactionException {
@@ -145,44 +192,64 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
         return new GpApiTokenResponse(rawResponse);
     }
 
-    private String doTransactionWithIdempotencyKey(GpApiRequest.HttpMethod verb, String endpoint, String data, HashMap<String, String> queryStringParams, String idempotencyKey) throws GatewayException {
-        if (!StringUtils.isNullOrEmpty(idempotencyKey)) {
-            headers.put(IDEMPOTENCY_HEADER, idempotencyKey);
-        }
-        try {
-            return super.doTransaction(verb.getValue(), endpoint, data, queryStringParams);
-        } catch (GatewayException ex) {
-            throw ex;
-        } finally {
-            headers.remove(IDEMPOTENCY_HEADER);
-        }
+    public String doTransaction(GpApiRequest.HttpMethod verb, String endpoint, String data, HashMap<String, String> queryStringParams, String idempotencyKey) throws GatewayException {
+        return doTransaction(verb, endpoint, data, queryStringParams, idempotencyKey, new IResponseHandler<String>() {
+            public String handle(int statusCode, Reader responseReader) throws IOException, GatewayException {
+                GatewayResponse response = new GatewayResponse();
+                response.setStatusCode(statusCode);
+                response.setRawResponse(IOUtils.readFully(responseReader));
+                return handleResponse(response);
+            }
+        });
     }
 
-    public String doTransaction(GpApiRequest.HttpMethod verb, String endpoint, String data, HashMap<String, String> queryStringParams, String idempotencyKey) throws GatewayException {
-        if (isNullOrEmpty(accessToken)) {
-            signIn();
-        }
-        // TODO: Check if we can move this into singIn()
-        headers.put("Authorization", String.format("Bearer %s", accessToken));
+    public <T> T doTransaction(GpApiRequest.HttpMethod verb, String endpoint, String data, HashMap<String, String> queryStringParams, String idempotencyKey, IResponseHandler<T> handler) throws GatewayException {
+        GpApiTokenCache.AccessToken token = signIn();
 
         try {
-            return doTransactionWithIdempotencyKey(verb, endpoint, data, queryStringParams, idempotencyKey);
+            return sendRequest(verb.getValue(), endpoint, data, queryStringParams, getRequestHeaders(token, idempotencyKey), handler);
         } catch (GatewayException ex) {
             if (
-                    "NOT_AUTHENTICATED".equals(ex.getResponseCode())    &&
+                    isNotAuthenticated(ex)                              &&
                     !isNullOrEmpty(gpApiConfig.getAppId())              &&
                     !isNullOrEmpty(gpApiConfig.getAppKey())
             ) {
-                signIn();
-                headers.put("Authorization", String.format("Bearer %s", accessToken));
+                // the token was revoked before it expired, drop it so only one caller signs in again
+                tokenCache.invalidate(getTokenCacheKey(), token);
+                token = signIn();
 
-                return doTransactionWithIdempotencyKey(verb, endpoint, data, queryStringParams, idempotencyKey);
+                return sendRequest(verb.getValue(), endpoint, data, queryStringParams, getRequestHeaders(token, idempotencyKey), handler);
             }
             generateGpApiException(ex.getResponseCode(), ex.getResponseText());
             throw ex;
         }
     }
 
+    // Headers of a single request, the shared headers are never modified after construction
+    private Map<String, String> getRequestHeaders(GpApiTokenCache.AccessToken token, String idempotencyKey) {
+        Map<String, String> requestHeaders = new HashMap<String, String>(4);
+        requestHeaders.put("Authorization", String.format("Bearer %s", token.getToken()));
+        if (!StringUtils.isNullOrEmpty(idempotencyKey)) {
+            requestHeaders.put(IDEMPOTENCY_HEADER, idempotencyKey);
+        }
+        return requestHeaders;
+    }
+
+    private boolean isNotAuthenticated(GatewayException ex) {
+        if ("NOT_AUTHENTICATED".equals(ex.getResponseCode())) {
+            return true;
+        }
+        if (!StringUtils.isNullOrEmpty(ex.getResponseText())) {
+            try {
+                JsonDoc parsedResponse = JsonDoc.parse(ex.getResponseText());
+                return parsedResponse != null && "NOT_AUTHENTICATED".equals(parsedResponse.getString("error_code"));
+            } catch (JsonParseException exc) {
+                return false;
+            }
+        }
+        return false;
+    }
+
     @Override
     protected String handleResponse(GatewayResponse response) throws GatewayException {
         if (response.getStatusCode() != 200 && response.getStatusCode() != 204) {
@@ -192,29 +259,39 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
     }
 
     private void generateGpApiException(String responseCode, String responseText) throws GatewayException {
+        JsonDoc parsedResponse = null;
         if(!StringUtils.isNullOrEmpty(responseText)) {
-            JsonDoc parsedResponse = JsonDoc.parse(responseText);
-            if (parsedResponse.has("error_code")) {     // has the expected JSON GP API error format
-                String errorCode = parsedResponse.getString("error_code");
-                String detailedErrorCode = parsedResponse.getString("detailed_error_code");
-                String detailedErrorDescription = parsedResponse.getString("detailed_error_description");
-
-                throw new GatewayException(
-                        String.format("Status Code: %s - %s", responseCode, detailedErrorDescription),
-                        errorCode,
-                        detailedErrorCode
+            try {
+                parsedResponse = JsonDoc.parse(responseText);
+            } catch (JsonParseException exc) {
+                // eat the parse exception, the body is not in the GP API error format
+            }
+        }
+
+        // proxies answer 429 with plain text or HTML, so the status decides before the body does
+        if (RATE_LIMITED.equals(responseCode)) {
+            if (parsedResponse != null && parsedResponse.has("error_code")) {
+                throw new GatewayRateLimitException(
+                        String.format("Status Code: %s - %s", responseCode, parsedResponse.getString("detailed_error_description")),
+                        parsedResponse.getString("error_code"),
+                        parsedResponse.getString("detailed_error_code")
                 );
             }
+            throw new GatewayRateLimitException(String.format("Status Code: %s - Too many requests", responseCode), responseCode, responseText);
+        }
+        if (parsedResponse != null && parsedResponse.has("error_code")) {     // has the expected JSON GP API error format
+            throw new GatewayException(
+                    String.format("Status Code: %s - %s", responseCode, parsedResponse.getString("detailed_error_description")),
+                    parsedResponse.getString("error_code"),
+                    parsedResponse.getString("detailed_error_code")
+            );
         }
         // Legacy Exception
         // throw new GatewayException(String.format("Status Code: %s - %s", responseCode, responseText));
     }
 
     public Transaction processAuthorization(AuthorizationBuilder builder) throws ApiException {
-        if (isNullOrEmpty(accessToken)) {
-            signIn();
-        }
-        headers.put("Authorization", String.format("Bearer %s", accessToken));
+        signIn();
 
         GpApiRequest request = GpApiAuthorizationRequestBuilder.buildRequest(builder, this);
 
@@ -227,10 +304,7 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
     }
 
     public Transaction manageTransaction(ManagementBuilder builder) throws GatewayException {
-        if (StringUtils.isNullOrEmpty(accessToken)) {
-            signIn();
-        }
-        headers.put("Authorization", String.format("Bearer %s", accessToken));
+        signIn();
 
         GpApiRequest request = GpApiManagementRequestBuilder.buildRequest(builder, this);
 
@@ -244,17 +318,25 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
 
     @SuppressWarnings("unchecked")
     public <T> T processReport(ReportBuilder<T> builder, Class<T> clazz) throws ApiException {
-        if (StringUtils.isNullOrEmpty(accessToken)) {
-            signIn();
-        }
-        headers.put("Authorization", String.format("Bearer %s", accessToken));
+        signIn();
 
         GpApiRequest request = GpApiReportRequestBuilder.buildRequest(builder, this);
 
         if (request != null) {
-            String response = doTransaction(request.getVerb(), request.getEndpoint(), request.getRequestBody(), request.getQueryStringParams(), null);
-
-            return GpApiMapping.mapReportResponse(response, builder.getReportType());
+            final ReportType reportType = builder.getReportType();
+
+            // pages are mapped straight off the response stream, one record at a time
+            return doTransaction(request.getVerb(), request.getEndpoint(), request.getRequestBody(), request.getQueryStringParams(), null, new IResponseHandler<T>() {
+                public T handle(int statusCode, Reader responseReader) throws IOException, GatewayException {
+                    if (statusCode != 200 && statusCode != 204) {
+                        // the body has been read, so an error outside the GP API format ends here
+                        String rawResponse = IOUtils.readFully(responseReader);
+                        generateGpApiException(String.valueOf(statusCode), rawResponse);
+                        throw new GatewayException(String.format("Status Code: %s - %s", statusCode, rawResponse), String.valueOf(statusCode), rawResponse);
+                    }
+                    return GpApiMapping.mapReportResponse(new JsonReader(responseReader), reportType);
+                }
+            });
         }
         return null;
     }
@@ -264,10 +346,7 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
     }
 
     public Transaction processSecure3d(Secure3dBuilder builder) throws ApiException {
-        if (StringUtils.isNullOrEmpty(accessToken)) {
-            signIn();
-        }
-        headers.put("Authorization", String.format("Bearer %s", accessToken));
+        signIn();
 
         GpApiRequest request = GpApiSecure3DRequestBuilder.buildRequest(builder, this);
 
@@ -308,7 +387,7 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
     }
 
     public static String getDateIfNotNull(Date obj) {
-        return (obj != null) ? DATE_SDF.format(obj) : "";
+        return (obj != null) ? dateFormat.get().format(obj) : "";
     }
 
     public static String getDateIfNotNull(DateTime obj) {
@@ -324,7 +403,7 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
             if (StringUtils.isNullOrEmpty(dateValue)) {
                 return null;
             }
-            return GpApiConnector.DATE_SDF.parse(dateValue);
+            return dateFormat.get().parse(dateValue);
         } catch (ParseException ex) {
             throw new GatewayException("Date format is not supported.", ex);
         }
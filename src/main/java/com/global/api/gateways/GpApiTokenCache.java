@@ -0,0 +1,166 @@
+package com.global.api.gateways;
+
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.entities.gpApi.GpApiTokenResponse;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Access tokens shared by every GpApiConnector signing in with the same credentials and
+ * permissions. A token is refreshed ahead of its expiry, and only one caller signs in
+ * at a time for a given key; the rest either keep using the still valid token or wait
+ * for the new one.
+ */
+class GpApiTokenCache {
+    // refresh this long before the token expires, capped at half of its lifetime
+    private static final long REFRESH_MARGIN = TimeUnit.SECONDS.toNanos(60);
+    private static final GpApiTokenCache defaultCache = new GpApiTokenCache();
+
+    interface ISignIn {
+        GpApiTokenResponse signIn() throws GatewayException;
+    }
+
+    static GpApiTokenCache getDefault() {
+        return defaultCache;
+    }
+
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<String, Slot>();
+
+    /**
+     * Returns a token for the key, signing in when there is none yet or it is about to expire.
+     */
+    AccessToken getToken(String key, ISignIn signIn) throws GatewayException {
+        Slot slot = getSlot(key);
+
+        AccessToken current = slot.token;
+        long now = System.nanoTime();
+        if(current != null && !current.needsRefresh(now)) {
+            return current;
+        }
+
+        // still usable, refresh in this thread only if nobody else is already doing it
+        if(current != null && !current.isExpired(now)) {
+            if(!slot.lock.tryLock()) {
+                return current;
+            }
+        }
+        else slot.lock.lock();
+
+        try {
+            current = slot.token;
+            if(current != null && !current.needsRefresh(System.nanoTime())) {
+                return current;
+            }
+
+            AccessToken token = new AccessToken(signIn.signIn(), System.nanoTime());
+            slot.token = token;
+            return token;
+        }
+        finally {
+            slot.lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the token after the gateway rejected it. Only the token the caller actually
+     * used is dropped, so concurrent failures with the same stale token sign in once.
+     */
+    void invalidate(String key, AccessToken token) {
+        Slot slot = slots.get(key);
+        if(slot != null && slot.token == token) {
+            slot.lock.lock();
+            try {
+                if(slot.token == token) {
+                    slot.token = null;
+                }
+            }
+            finally {
+                slot.lock.unlock();
+            }
+        }
+    }
+
+    void clear() {
+        slots.clear();
+    }
+
+    private Slot getSlot(String key) {
+        Slot slot = slots.get(key);
+        if(slot == null) {
+            Slot newSlot = new Slot();
+            slot = slots.putIfAbsent(key, newSlot);
+            if(slot == null) {
+                slot = newSlot;
+            }
+        }
+        return slot;
+    }
+
+    private static class Slot {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile AccessToken token;
+    }
+
+    static class AccessToken {
+        private final String token;
+        private final String dataAccountName;
+        private final String disputeManagementAccountName;
+        private final String tokenizationAccountName;
+        private final String transactionProcessingAccountName;
+        private final boolean expires;
+        private final long refreshAt;
+        private final long expiresAt;
+
+        String getToken() {
+            return token;
+        }
+        String getDataAccountName() {
+            return dataAccountName;
+        }
+        String getDisputeManagementAccountName() {
+            return disputeManagementAccountName;
+        }
+        String getTokenizationAccountName() {
+            return tokenizationAccountName;
+        }
+        String getTransactionProcessingAccountName() {
+            return transactionProcessingAccountName;
+        }
+
+        AccessToken(GpApiTokenResponse response, long issuedAt) {
+            this(response.getToken(),
+                    response.getDataAccountName(),
+                    response.getDisputeManagementAccountName(),
+                    response.getTokenizationAccountName(),
+                    response.getTransactionProcessingAccountName(),
+                    response.getSecondsToExpire(),
+                    issuedAt);
+        }
+
+        /**
+         * @param secondsToExpire the lifetime reported by the gateway, 0 if unknown
+         */
+        AccessToken(String token, String dataAccountName, String disputeManagementAccountName, String tokenizationAccountName, String transactionProcessingAccountName, int secondsToExpire, long issuedAt) {
+            this.token = token;
+            this.dataAccountName = dataAccountName;
+            this.disputeManagementAccountName = disputeManagementAccountName;
+            this.tokenizationAccountName = tokenizationAccountName;
+            this.transactionProcessingAccountName = transactionProcessingAccountName;
+
+            long lifetime = TimeUnit.SECONDS.toNanos(secondsToExpire);
+            this.expires = lifetime > 0;
+            this.expiresAt = issuedAt + lifetime;
+            this.refreshAt = expiresAt - Math.min(REFRESH_MARGIN, lifetime / 2);
+        }
+
+        boolean needsRefresh(long now) {
+            return expires && now - refreshAt >= 0;
+        }
+
+        boolean isExpired(long now) {
+            return expires && now - expiresAt >= 0;
+        }
+    }
+}
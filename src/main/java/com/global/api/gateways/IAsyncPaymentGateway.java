@@ -0,0 +1,17 @@
+package com.global.api.gateways;
+
+import com.global.api.builders.AuthorizationBuilder;
+import com.global.api.builders.ManagementBuilder;
+import com.global.api.entities.Transaction;
+import com.global.api.entities.exceptions.ApiException;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Implemented by payment gateways that can send a request without holding a
+ * thread until the response arrives.
+ */
+public interface IAsyncPaymentGateway {
+    CompletableFuture<Transaction> processAuthorizationAsync(AuthorizationBuilder builder) throws ApiException;
+    CompletableFuture<Transaction> manageTransactionAsync(ManagementBuilder builder) throws ApiException;
+}
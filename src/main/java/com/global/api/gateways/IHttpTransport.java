@@ -0,0 +1,16 @@
+package com.global.api.gateways;
+
+import javax.net.ssl.HttpsURLConnection;
+import java.io.IOException;
+import java.net.Proxy;
+import java.net.URL;
+
+/**
+ * Supplies the HTTPS connections a Gateway sends its requests over. Every
+ * connection handed out by openConnection is given back via releaseConnection
+ * once its response has been read.
+ */
+public interface IHttpTransport {
+    HttpsURLConnection openConnection(URL url, Proxy proxy, int timeout) throws IOException;
+    void releaseConnection(HttpsURLConnection connection);
+}
@@ -0,0 +1,14 @@
+package com.global.api.gateways;
+
+import com.global.api.entities.exceptions.GatewayException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Consumes a successful response body as it is read from the connection,
+ * already decompressed and decoded.
+ */
+public interface IResponseHandler<T> {
+    T handle(int statusCode, Reader response) throws IOException, GatewayException;
+}
@@ -0,0 +1,128 @@
+package com.global.api.gateways;
+
+import com.global.api.entities.enums.Host;
+import com.global.api.terminals.abstractions.IDisposable;
+
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds idle, already handshaken SSL sockets for the primary and secondary
+ * endpoints so that a NetworkGateway can reuse them across sends.
+ */
+public class NetworkConnectionPool implements IDisposable {
+    private final int maxIdleConnections;
+    private final int healthCheckInterval;
+    private final EnumMap<Host, LinkedBlockingDeque<PooledConnection>> idleConnections;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+    public int getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+    public long getHitCount() {
+        return hitCount.get();
+    }
+    public long getMissCount() {
+        return missCount.get();
+    }
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+    public int getIdleCount(Host host) {
+        return idleConnections.get(host).size();
+    }
+
+    public NetworkConnectionPool(int maxIdleConnections, int healthCheckInterval) {
+        this.maxIdleConnections = maxIdleConnections;
+        this.healthCheckInterval = healthCheckInterval;
+
+        idleConnections = new EnumMap<Host, LinkedBlockingDeque<PooledConnection>>(Host.class);
+        for(Host host: Host.values()) {
+            idleConnections.put(host, new LinkedBlockingDeque<PooledConnection>());
+        }
+    }
+
+    // most recently used first, the freshest socket is the least likely to have been dropped
+    PooledConnection poll(Host host) {
+        return idleConnections.get(host).pollFirst();
+    }
+
+    void recordHit() {
+        hitCount.incrementAndGet();
+    }
+    void recordMiss() {
+        missCount.incrementAndGet();
+    }
+
+    void release(Host host, SSLSocket socket) {
+        if(socket == null || socket.isClosed() || !socket.isConnected()) {
+            return;
+        }
+
+        LinkedBlockingDeque<PooledConnection> connections = idleConnections.get(host);
+        if(connections.size() < maxIdleConnections) {
+            connections.offerFirst(new PooledConnection(socket));
+        }
+        else close(socket);
+    }
+
+    void evict(PooledConnection connection) {
+        evictionCount.incrementAndGet();
+        close(connection.getSocket());
+    }
+
+    // a dead socket usually means the host dropped every idle connection
+    void evictAll(Host host) {
+        PooledConnection connection;
+        while((connection = idleConnections.get(host).pollFirst()) != null) {
+            evict(connection);
+        }
+    }
+
+    public void dispose() {
+        for(LinkedBlockingDeque<PooledConnection> connections: idleConnections.values()) {
+            PooledConnection connection;
+            while((connection = connections.pollFirst()) != null) {
+                close(connection.getSocket());
+            }
+        }
+    }
+
+    private void close(SSLSocket socket) {
+        try {
+            socket.close();
+        }
+        catch(IOException exc) {
+            // eat the close exception
+        }
+    }
+
+    static class PooledConnection {
+        private final SSLSocket socket;
+        private final long releasedAt;
+
+        SSLSocket getSocket() {
+            return socket;
+        }
+        long getIdleTime() {
+            return System.currentTimeMillis() - releasedAt;
+        }
+        boolean isOpen() {
+            return socket.isConnected() && !socket.isClosed() && !socket.isInputShutdown() && !socket.isOutputShutdown();
+        }
+
+        PooledConnection(SSLSocket socket) {
+            this.socket = socket;
+            this.releasedAt = System.currentTimeMillis();
+        }
+    }
+}
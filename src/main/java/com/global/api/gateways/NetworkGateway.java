@@ -8,6 +8,7 @@ import com.global.api.entities.exceptions.GatewayException;
 import com.global.api.entities.exceptions.GatewayTimeoutException;
 import com.global.api.gateways.events.*;
 import com.global.api.terminals.abstractions.IDeviceMessage;
+import com.global.api.terminals.abstractions.IDisposable;
 import com.global.api.utils.StringUtils;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -15,30 +16,43 @@ import org.joda.time.DateTimeZone;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import java.io.*;
-import java.math.BigInteger;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
-public class NetworkGateway {
-    private SSLSocket client;
-    private DataOutputStream out;
-    private InputStream in;
-    private int connectionFaults = 0;
+public class NetworkGateway implements IDisposable {
 
     private String primaryEndpoint;
     private Integer primaryPort;
     private String secondaryEndpoint;
     private Integer secondaryPort;
 
-    protected Host currentHost;
+    // the host of the latest connection
+    protected volatile Host currentHost;
 
     private boolean enableLogging = false;
     private HashMap<Host, ArrayList<HostError>> simulatedHostErrors;
     private int timeout;
 
+    private int connectionPoolSize = 0;
+    private int healthCheckInterval = 60000;
+    private NetworkConnectionPool connectionPool;
+
+    private SSLSocketFactory sslSocketFactory;
+    private boolean multiplexedConnection = false;
+    private NetworkMultiplexer multiplexer;
+    private Executor asyncExecutor;
+    private ExecutorService defaultAsyncExecutor;
+
     private String connectorName = "NetworkGateway";
     private IGatewayEventHandler gatewayEventHandler;
 
@@ -79,112 +93,246 @@ public class NetworkGateway {
         this.enableLogging = enableLogging;
     }
     public void setGatewayEventHandler(IGatewayEventHandler eventHandler) { this.gatewayEventHandler = eventHandler; }
-    public HashMap<Host, ArrayList<HostError>> getSimulatedHostErrors() {
+    public int getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+    public void setConnectionPoolSize(int connectionPoolSize) {
+        this.connectionPoolSize = connectionPoolSize;
+    }
+    public int getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+    public void setHealthCheckInterval(int healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+    public void setSslSocketFactory(SSLSocketFactory sslSocketFactory) {
+        this.sslSocketFactory = sslSocketFactory;
+    }
+    public boolean isMultiplexedConnection() {
+        return multiplexedConnection;
+    }
+    public void setMultiplexedConnection(boolean multiplexedConnection) {
+        this.multiplexedConnection = multiplexedConnection;
+    }
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+    public synchronized Executor getAsyncExecutor() {
+        if(asyncExecutor != null) {
+            return asyncExecutor;
+        }
+        if(defaultAsyncExecutor == null) {
+            defaultAsyncExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, connectorName + "-Async");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return defaultAsyncExecutor;
+    }
+    public int getInFlightCount() {
+        return multiplexer != null ? multiplexer.getInFlightCount() : 0;
+    }
+    public synchronized NetworkConnectionPool getConnectionPool() {
+        if(connectionPool == null && connectionPoolSize > 0) {
+            connectionPool = new NetworkConnectionPool(connectionPoolSize, healthCheckInterval);
+        }
+        return connectionPool;
+    }
+    public synchronized HashMap<Host, ArrayList<HostError>> getSimulatedHostErrors() {
         return simulatedHostErrors;
     }
 
-    public void setSimulatedHostErrors(HashMap<Host, ArrayList<HostError>> simulatedHostErrors) {
+    public synchronized void setSimulatedHostErrors(HashMap<Host, ArrayList<HostError>> simulatedHostErrors) {
         this.simulatedHostErrors = simulatedHostErrors;
     }
-    private boolean isForcedError(HostError error) {
-        if(simulatedHostErrors != null && simulatedHostErrors.containsKey(currentHost)) {
-            return simulatedHostErrors.get(currentHost).contains(error);
+    // errors set on the gateway apply to the next send only
+    protected synchronized HashMap<Host, ArrayList<HostError>> takeSimulatedHostErrors() {
+        HashMap<Host, ArrayList<HostError>> rvalue = simulatedHostErrors;
+        simulatedHostErrors = null;
+        return rvalue;
+    }
+    private static boolean isForcedError(HashMap<Host, ArrayList<HostError>> simulatedHostErrors, Host host, HostError error) {
+        if(simulatedHostErrors != null && simulatedHostErrors.containsKey(host)) {
+            return simulatedHostErrors.get(host).contains(error);
         }
         return false;
     }
 
     // establish connection
-    private void connect(String endpoint, Integer port) throws GatewayComsException {
-        currentHost = endpoint.equals(primaryEndpoint) ? Host.Primary : Host.Secondary;
+    private Connection connect(String endpoint, Integer port, HashMap<Host, ArrayList<HostError>> simulatedHostErrors, int connectionFaults) throws GatewayComsException {
+        Host host = endpoint.equals(primaryEndpoint) ? Host.Primary : Host.Secondary;
+        currentHost = host;
 
         // create the connection event
         ConnectionEvent connectionEvent = new ConnectionEvent(connectorName);
         connectionEvent.setEndpoint(endpoint);
         connectionEvent.setPort(port.toString());
-        connectionEvent.setHost(currentHost.getValue());
+        connectionEvent.setHost(host.getValue());
         connectionEvent.setConnectionAttempts(connectionFaults);
         raiseGatewayEvent(connectionEvent);
 
         DateTime connectionStarted = DateTime.now(DateTimeZone.UTC);
-        if(client == null || out == null || in == null || !client.isConnected()) {
-            if(client != null) {
-                disconnect();
-            }
-
-            try {
-                // connection started
-                connectionEvent.setConnectionStarted(connectionStarted);
+        try {
+            // connection started
+            connectionEvent.setConnectionStarted(connectionStarted);
+
+            // check for simulated connection error
+            SSLSocket socket = null;
+            boolean reused = false;
+            if(!isForcedError(simulatedHostErrors, host, HostError.Connection)) {
+                // reuse a warm socket if one is available
+                if(getConnectionPool() != null) {
+                    socket = acquirePooledConnection(host);
+                    reused = (socket != null);
+                }
 
-                // check for simulated connection error
-                if(!isForcedError(HostError.Connection)) {
+                if(socket == null) {
                     try {
-                        SSLSocketFactory factory = new SSLSocketFactoryEx();
-                        client = (SSLSocket) factory.createSocket();
-                        client.connect(new InetSocketAddress(endpoint, port), 5000);
-                        client.startHandshake();
+                        socket = openSocket(endpoint, port);
 
                         raiseGatewayEvent(new SslHandshakeEvent(connectorName, null));
                     }
                     catch(Exception exc) {
                         raiseGatewayEvent(new SslHandshakeEvent(connectorName, exc));
-                        if(client != null && client.isConnected()) {
-                            disconnect();
-                        }
                     }
                 }
+            }
 
-                if(client != null && client.isConnected()) {
-                    // connection completed
-                    raiseGatewayEvent(new ConnectionCompleteEvent(connectorName, connectionStarted, DateTime.now(DateTimeZone.UTC)));
+            if(socket != null && socket.isConnected()) {
+                // connection completed
+                raiseGatewayEvent(new ConnectionCompleteEvent(connectorName, connectionStarted, DateTime.now(DateTimeZone.UTC)));
 
-                    out = new DataOutputStream(client.getOutputStream());
-                    in = client.getInputStream();
-                    client.setKeepAlive(true);
-                    connectionFaults = 0;
+                try {
+                    socket.setKeepAlive(true);
+                    return new Connection(socket, host, reused);
                 }
-                else {
-                    // connection fail over
-                    raiseGatewayEvent(new FailOverEvent(connectorName, connectionStarted, DateTime.now(DateTimeZone.UTC)));
-
-                    if(connectionFaults++ != 3) {
-                        if(endpoint.equals(primaryEndpoint) && secondaryEndpoint != null) {
-                            connect(secondaryEndpoint, secondaryPort);
-                        }
-                        else {
-                            connect(primaryEndpoint, primaryPort);
-                        }
-                    }
-                    else {
-                        throw new IOException("Failed to connect to primary or secondary processing endpoints.");
-                    }
+                catch(IOException exc) {
+                    socket.close();
+                    throw exc;
                 }
             }
-            catch(Exception exc) {
-                throw new GatewayComsException(exc);
+
+            // connection fail over
+            raiseGatewayEvent(new FailOverEvent(connectorName, connectionStarted, DateTime.now(DateTimeZone.UTC)));
+
+            if(connectionFaults != 3) {
+                if(endpoint.equals(primaryEndpoint) && secondaryEndpoint != null) {
+                    return connect(secondaryEndpoint, secondaryPort, simulatedHostErrors, connectionFaults + 1);
+                }
+                return connect(primaryEndpoint, primaryPort, simulatedHostErrors, connectionFaults + 1);
             }
+            throw new IOException("Failed to connect to primary or secondary processing endpoints.");
+        }
+        catch(Exception exc) {
+            throw new GatewayComsException(exc);
         }
     }
 
+    SSLSocket openSocket(String endpoint, Integer port) throws Exception {
+        SSLSocketFactory factory = sslSocketFactory != null ? sslSocketFactory : new SSLSocketFactoryEx();
+        SSLSocket socket = (SSLSocket) factory.createSocket();
+        try {
+            socket.connect(new InetSocketAddress(endpoint, port), 5000);
+            socket.startHandshake();
+        }
+        catch(Exception exc) {
+            socket.close();
+            throw exc;
+        }
+        return socket;
+    }
+
     // close connection
-    private void disconnect() {
+    private void disconnect(Connection connection) {
         try {
-            if (client != null && !client.isClosed()) {
-                if(in != null) {
-                    in.close();
-                }
-                if(out != null) {
-                    out.close();
-                }
-                client.close();
+            if(!connection.socket.isClosed()) {
+                connection.in.close();
+                connection.out.close();
+                connection.socket.close();
             }
-            client = null;
         }
         catch(IOException exc) {
             // eat the close exception
         }
     }
 
+    private SSLSocket acquirePooledConnection(Host host) {
+        NetworkConnectionPool.PooledConnection connection;
+        while((connection = connectionPool.poll(host)) != null) {
+            if(connection.isOpen()) {
+                if(connection.getIdleTime() < connectionPool.getHealthCheckInterval() || isHealthy(connection.getSocket())) {
+                    connectionPool.recordHit();
+                    return connection.getSocket();
+                }
+            }
+            connectionPool.evict(connection);
+        }
+
+        connectionPool.recordMiss();
+        return null;
+    }
+
+    // idle sockets are verified with a keep alive before they are handed out
+    private boolean isHealthy(SSLSocket socket) {
+        IDeviceMessage keepAlive = buildKeepAliveMessage();
+        if(keepAlive == null) {
+            return true;
+        }
+
+        try {
+            socket.setSoTimeout(getResponseTimeout());
+            socket.getOutputStream().write(keepAlive.getSendBuffer());
+            return readFrame(new DataInputStream(socket.getInputStream())).length > 0;
+        }
+        catch(Exception exc) {
+            return false;
+        }
+        finally {
+            try {
+                socket.setSoTimeout(0);
+            }
+            catch(SocketException exc) {
+                // the socket is gone, it will be evicted
+            }
+        }
+    }
+
+    protected IDeviceMessage buildKeepAliveMessage() {
+        return null;
+    }
+
+    // identifies which in-flight request a response frame belongs to, null when it cannot be determined
+    protected String getCorrelationKey(byte[] responseBuffer) {
+        return null;
+    }
+
+    public void dispose() {
+        if(connectionPool != null) {
+            connectionPool.dispose();
+        }
+        synchronized (this) {
+            if(multiplexer != null) {
+                multiplexer.dispose();
+            }
+            if(defaultAsyncExecutor != null) {
+                defaultAsyncExecutor.shutdown();
+                defaultAsyncExecutor = null;
+            }
+        }
+    }
+
     public byte[] send(IDeviceMessage message) throws GatewayTimeoutException, GatewayComsException {
+        return send(message, takeSimulatedHostErrors());
+    }
+
+    /*
+     * Each send checks out its own connection, a pooled one when there is one idle, so sends
+     * from several threads run side by side.
+     */
+    protected byte[] send(IDeviceMessage message, HashMap<Host, ArrayList<HostError>> simulatedHostErrors) throws GatewayTimeoutException, GatewayComsException {
         /*
         1) if the initial attempt to connect fails (on both hosts) a GatewayComsException is thrown
         2) if the send/receive fails, no exception is thrown (timeout flag is tripped) and fail over occurs
@@ -194,7 +342,9 @@ public class NetworkGateway {
         6) if no response from the secondary host, GatewayTimeoutException is thrown
          */
         boolean timeout = false;
-        connect(getPrimaryEndpoint(), getPrimaryPort());
+        boolean reusable = false;
+        boolean retried = false;
+        Connection connection = connect(getPrimaryEndpoint(), getPrimaryPort(), simulatedHostErrors, 0);
 
         byte[] buffer = message.getSendBuffer();
         try {
@@ -202,28 +352,41 @@ public class NetworkGateway {
                 raiseGatewayEvent(new RequestSentEvent(connectorName));
                 DateTime requestSent = DateTime.now(DateTimeZone.UTC);
                 try {
-                    if(!isForcedError(HostError.SendFailure)) {
-                        out.write(buffer);
+                    if(!isForcedError(simulatedHostErrors, connection.host, HostError.SendFailure)) {
+                        connection.out.write(buffer);
                     }
                     else throw new IOException("Simulated IO Exception on request send.");
 
-                    byte[] rvalue = getGatewayResponse();
-                    if (rvalue != null && !isForcedError(HostError.Timeout)) {
+                    byte[] rvalue = getGatewayResponse(connection);
+                    if (rvalue != null && !isForcedError(simulatedHostErrors, connection.host, HostError.Timeout)) {
                         raiseGatewayEvent(new ResponseReceivedEvent(connectorName, requestSent));
+                        reusable = true;
                         return rvalue;
                     }
                     timeout = true;
                 }
                 catch(IOException exc) {
                     /* Exception occurred on message send, do not trip timeout */
+
+                    // the host may have dropped a pooled socket while it was idle, retry on a fresh one
+                    if(connection.reused && !retried && !isForcedError(simulatedHostErrors, connection.host, HostError.SendFailure)) {
+                        retried = true;
+                        connectionPool.evictAll(connection.host);
+                        disconnect(connection);
+                        connection = connection.host.equals(Host.Primary)
+                                ? connect(getPrimaryEndpoint(), getPrimaryPort(), simulatedHostErrors, 0)
+                                : connect(getSecondaryEndpoint(), getSecondaryPort(), simulatedHostErrors, 0);
+                        i--;
+                        continue;
+                    }
                 }
 
                 // did not get a response, switch endpoints and try again
-                if(!currentHost.equals(Host.Secondary) && !StringUtils.isNullOrEmpty(secondaryEndpoint) && i < 1) {
+                if(!connection.host.equals(Host.Secondary) && !StringUtils.isNullOrEmpty(secondaryEndpoint) && i < 1) {
                     raiseGatewayEvent(new TimeoutEvent(connectorName, GatewayEventType.TimeoutFailOver));
 
-                    disconnect();
-                    connect(getSecondaryEndpoint(), getSecondaryPort());
+                    disconnect(connection);
+                    connection = connect(getSecondaryEndpoint(), getSecondaryPort(), simulatedHostErrors, 0);
                 }
             }
 
@@ -240,62 +403,75 @@ public class NetworkGateway {
             throw exc;
         }
         finally {
-            disconnect();
-            raiseGatewayEvent(new DisconnectEvent(connectorName));
-
-            // remove simulated errors
-            if(simulatedHostErrors != null) {
-                simulatedHostErrors = null;
+            if(reusable && connectionPool != null) {
+                // hand the connection back to the pool instead of closing it
+                connectionPool.release(connection.host, connection.socket);
+            }
+            else {
+                disconnect(connection);
+                raiseGatewayEvent(new DisconnectEvent(connectorName));
             }
         }
     }
 
-    private byte[] getGatewayResponse() throws IOException, GatewayTimeoutException {
-        byte[] buffer = new byte[2048];
-
-        int bytesReceived = awaitResponse(in, buffer);
-
-        if(bytesReceived > 0) {
-            byte[] rec_buffer = new byte[bytesReceived];
-            System.arraycopy(buffer, 0, rec_buffer, 0, bytesReceived);
-            return rec_buffer;
-        }
-
-        return null;
-    }
-
-    private int awaitResponse(InputStream in, byte[] buffer) throws GatewayTimeoutException, IOException {
-        long t = System.currentTimeMillis();
-
-        int position = 0;
-        Integer messageLength = null;
-        do {
-            if(messageLength == null) {
-                byte[] lengthBuffer = new byte[2];
-                int length = in.read(lengthBuffer, 0, 2);
-                if(length == 2) {
-                    messageLength = new BigInteger(lengthBuffer).intValue() - 2;
+    protected CompletableFuture<byte[]> sendAsync(final IDeviceMessage message, String correlationKey) {
+        if(multiplexedConnection) {
+            synchronized (this) {
+                if(multiplexer == null) {
+                    multiplexer = new NetworkMultiplexer(this);
                 }
             }
+            return multiplexer.send(correlationKey, message.getSendBuffer());
+        }
 
-            if(messageLength != null) {
-                int currLength = in.read(buffer, position, messageLength);
-                if (currLength == messageLength) {
-                    return messageLength;
+        // without multiplexing each request still blocks its own connection, just not the caller
+        final CompletableFuture<byte[]> future = new CompletableFuture<byte[]>();
+        getAsyncExecutor().execute(new Runnable() {
+            public void run() {
+                try {
+                    future.complete(send(message));
                 }
-                else {
-                    position += currLength;
+                catch(Exception exc) {
+                    future.completeExceptionally(exc);
                 }
             }
+        });
+        return future;
+    }
 
-            try {
-                Thread.sleep(50);
+    protected Host getMultiplexedHost() {
+        return multiplexer != null ? multiplexer.getHost() : currentHost;
+    }
+
+    private byte[] getGatewayResponse(Connection connection) throws IOException {
+        connection.socket.setSoTimeout(getResponseTimeout());
+        try {
+            byte[] rvalue = readFrame(connection.in);
+            if(rvalue.length > 0) {
+                return rvalue;
             }
-            catch(InterruptedException e) { break; }
+            return null;
+        }
+        catch(SocketTimeoutException exc) {
+            return null;
+        }
+    }
+
+    // 20 seconds when no timeout is configured
+    int getResponseTimeout() {
+        return timeout > 0 ? timeout : 20000;
+    }
+
+    // blocks until the whole length prefixed frame has arrived, the prefix counts itself
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        int messageLength = in.readUnsignedShort() - 2;
+        if(messageLength < 0) {
+            throw new IOException(String.format("Invalid message length received: %s", messageLength + 2));
         }
-        while((System.currentTimeMillis() - t) <= 20000);
 
-        throw new GatewayTimeoutException();
+        byte[] buffer = new byte[messageLength];
+        in.readFully(buffer);
+        return buffer;
     }
 
     private void raiseGatewayEvent(final IGatewayEvent event) {
@@ -307,4 +483,21 @@ public class NetworkGateway {
             }).start();
         }
     }
+
+    // a connection checked out by one send
+    private static class Connection {
+        private final SSLSocket socket;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+        private final Host host;
+        private final boolean reused;
+
+        Connection(SSLSocket socket, Host host, boolean reused) throws IOException {
+            this.socket = socket;
+            this.out = new DataOutputStream(socket.getOutputStream());
+            this.in = new DataInputStream(socket.getInputStream());
+            this.host = host;
+            this.reused = reused;
+        }
+    }
 }
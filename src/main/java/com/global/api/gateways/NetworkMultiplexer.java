@@ -0,0 +1,204 @@
+package com.global.api.gateways;
+
+import com.global.api.entities.enums.Host;
+import com.global.api.entities.exceptions.GatewayComsException;
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.entities.exceptions.GatewayTimeoutException;
+import com.global.api.terminals.abstractions.IDisposable;
+import com.global.api.utils.StringUtils;
+
+import javax.net.ssl.SSLSocket;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pipelines many requests over a single long lived connection. Responses are
+ * handed back to their callers by the correlation key the gateway extracts
+ * from each response frame, so they may arrive in any order.
+ */
+class NetworkMultiplexer implements IDisposable {
+    private static final ScheduledExecutorService timeoutScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "NetworkMultiplexer-Timeout");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final NetworkGateway gateway;
+    private final LinkedHashMap<String, CompletableFuture<byte[]>> pendingRequests;
+    private SSLSocket socket;
+    private OutputStream out;
+    private Host host;
+
+    Host getHost() {
+        return host;
+    }
+    synchronized int getInFlightCount() {
+        return pendingRequests.size();
+    }
+
+    NetworkMultiplexer(NetworkGateway gateway) {
+        this.gateway = gateway;
+        this.pendingRequests = new LinkedHashMap<String, CompletableFuture<byte[]>>();
+    }
+
+    CompletableFuture<byte[]> send(final String correlationKey, byte[] buffer) {
+        final CompletableFuture<byte[]> future = new CompletableFuture<byte[]>();
+
+        synchronized (this) {
+            if(pendingRequests.containsKey(correlationKey)) {
+                future.completeExceptionally(new GatewayException(String.format("A request for %s is already in flight.", correlationKey)));
+                return future;
+            }
+
+            try {
+                if(socket == null) {
+                    connect();
+                }
+
+                pendingRequests.put(correlationKey, future);
+                out.write(buffer);
+                out.flush();
+            }
+            catch(GatewayComsException exc) {
+                future.completeExceptionally(exc);
+                return future;
+            }
+            catch(IOException exc) {
+                pendingRequests.remove(correlationKey);
+                future.completeExceptionally(new GatewayComsException(exc));
+                close(socket, new GatewayComsException(exc));
+                return future;
+            }
+        }
+
+        timeoutScheduler.schedule(new Runnable() {
+            public void run() {
+                if(remove(correlationKey, future)) {
+                    future.completeExceptionally(new GatewayTimeoutException());
+                }
+            }
+        }, gateway.getResponseTimeout(), TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    public void dispose() {
+        synchronized (this) {
+            close(socket, new GatewayComsException());
+        }
+    }
+
+    // must be called while holding the lock
+    private void connect() throws GatewayComsException {
+        try {
+            host = Host.Primary;
+            socket = gateway.openSocket(gateway.getPrimaryEndpoint(), gateway.getPrimaryPort());
+        }
+        catch(Exception primaryExc) {
+            if(StringUtils.isNullOrEmpty(gateway.getSecondaryEndpoint())) {
+                throw new GatewayComsException(primaryExc);
+            }
+
+            try {
+                host = Host.Secondary;
+                socket = gateway.openSocket(gateway.getSecondaryEndpoint(), gateway.getSecondaryPort());
+            }
+            catch(Exception secondaryExc) {
+                throw new GatewayComsException(secondaryExc);
+            }
+        }
+
+        try {
+            socket.setKeepAlive(true);
+            out = socket.getOutputStream();
+            beginReceiveThread(socket, new DataInputStream(socket.getInputStream()));
+        }
+        catch(IOException exc) {
+            close(socket, new GatewayComsException(exc));
+            throw new GatewayComsException(exc);
+        }
+    }
+
+    private void beginReceiveThread(final SSLSocket connection, final DataInputStream in) {
+        Thread receiveThread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while(true) {
+                        byte[] frame = NetworkGateway.readFrame(in);
+
+                        // header only responses (host rejects) carry no STAN, so nothing says which
+                        // request was rejected. Every request on the connection is failed instead.
+                        String correlationKey = gateway.getCorrelationKey(frame);
+                        if(correlationKey == null) {
+                            synchronized (NetworkMultiplexer.this) {
+                                close(connection, new GatewayException("The host rejected a request on the connection without identifying it."));
+                            }
+                            return;
+                        }
+
+                        CompletableFuture<byte[]> future = takePending(correlationKey);
+                        if(future != null) {
+                            future.complete(frame);
+                        }
+                        // otherwise the caller already timed out, drop the late response
+                    }
+                }
+                catch(IOException exc) {
+                    synchronized (NetworkMultiplexer.this) {
+                        close(connection, new GatewayComsException(exc));
+                    }
+                }
+                catch(RuntimeException exc) {
+                    // a frame that cannot be matched leaves the connection out of step, drop it
+                    synchronized (NetworkMultiplexer.this) {
+                        close(connection, new GatewayComsException(exc));
+                    }
+                }
+            }
+        }, "NetworkMultiplexer-Receive");
+        receiveThread.setDaemon(true);
+        receiveThread.start();
+    }
+
+    private synchronized CompletableFuture<byte[]> takePending(String correlationKey) {
+        return pendingRequests.remove(correlationKey);
+    }
+
+    private synchronized boolean remove(String correlationKey, CompletableFuture<byte[]> future) {
+        if(pendingRequests.get(correlationKey) == future) {
+            pendingRequests.remove(correlationKey);
+            return true;
+        }
+        return false;
+    }
+
+    // must be called while holding the lock, fails everything still waiting on the connection
+    private void close(SSLSocket connection, GatewayException exc) {
+        if(connection == null || connection != socket) {
+            return;
+        }
+
+        try {
+            connection.close();
+        }
+        catch(IOException e) {
+            // eat the close exception
+        }
+        socket = null;
+        out = null;
+
+        for(CompletableFuture<byte[]> future: new ArrayList<CompletableFuture<byte[]>>(pendingRequests.values())) {
+            future.completeExceptionally(exc);
+        }
+        pendingRequests.clear();
+    }
+}
@@ -0,0 +1,152 @@
+package com.global.api.gateways;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Default transport shared by the HTTP gateways. All connections use one cached
+ * SSL socket factory, which lets the JVM keep-alive cache hand the same TLS
+ * connection back for the next request to a host and lets the TLS session be
+ * resumed. The number of idle connections kept per host follows the standard
+ * http.maxConnections system property.
+ */
+public class PooledHttpTransport implements IHttpTransport {
+    private static final PooledHttpTransport defaultTransport = new PooledHttpTransport();
+
+    private final int maxConnectionsPerHost;
+    private final ConcurrentHashMap<String, Semaphore> hostPermits;
+    private final ConcurrentHashMap<HttpsURLConnection, Semaphore> leases;
+    private volatile SSLSocketFactory sslSocketFactory;
+
+    public static PooledHttpTransport getDefault() {
+        return defaultTransport;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+    public int getActiveConnections(String host) {
+        Semaphore permits = hostPermits.get(host);
+        if(permits == null) {
+            return 0;
+        }
+        return maxConnectionsPerHost - permits.availablePermits();
+    }
+
+    public PooledHttpTransport() {
+        this(0);
+    }
+    public PooledHttpTransport(int maxConnectionsPerHost) {
+        this(maxConnectionsPerHost, null);
+    }
+
+    /**
+     * @param maxConnectionsPerHost the most requests in flight to one host at a time, 0 for no limit
+     * @param sslSocketFactory the factory used for every connection, null for an SSLSocketFactoryEx
+     */
+    public PooledHttpTransport(int maxConnectionsPerHost, SSLSocketFactory sslSocketFactory) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.sslSocketFactory = sslSocketFactory;
+        hostPermits = new ConcurrentHashMap<String, Semaphore>();
+        leases = new ConcurrentHashMap<HttpsURLConnection, Semaphore>();
+    }
+
+    public HttpsURLConnection openConnection(URL url, Proxy proxy, int timeout) throws IOException {
+        Semaphore permits = acquire(url, timeout);
+        try {
+            HttpsURLConnection conn;
+            if (proxy != null) {
+                conn = (HttpsURLConnection) url.openConnection(proxy);
+            } else {
+                conn = (HttpsURLConnection) url.openConnection();
+            }
+            conn.setSSLSocketFactory(getSslSocketFactory());
+            conn.setConnectTimeout(timeout);
+
+            if(permits != null) {
+                leases.put(conn, permits);
+            }
+            return conn;
+        }
+        catch(IOException exc) {
+            release(permits);
+            throw exc;
+        }
+        catch(RuntimeException exc) {
+            release(permits);
+            throw exc;
+        }
+    }
+
+    // the lease is keyed by the connection itself, as a redirect changes the connection's URL
+    public void releaseConnection(HttpsURLConnection connection) {
+        if(connection != null) {
+            release(leases.remove(connection));
+        }
+    }
+
+    private SSLSocketFactory getSslSocketFactory() throws IOException {
+        SSLSocketFactory factory = sslSocketFactory;
+        if(factory == null) {
+            synchronized (this) {
+                if(sslSocketFactory == null) {
+                    try {
+                        sslSocketFactory = new SSLSocketFactoryEx();
+                    }
+                    catch(Exception exc) {
+                        throw new IOException("Unable to initialize the SSL context.", exc);
+                    }
+                }
+                factory = sslSocketFactory;
+            }
+        }
+        return factory;
+    }
+
+    private Semaphore acquire(URL url, int timeout) throws IOException {
+        if(maxConnectionsPerHost <= 0) {
+            return null;
+        }
+
+        Semaphore permits = getPermits(url);
+        try {
+            if(timeout > 0) {
+                if(!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                    throw new IOException(String.format("Timed out waiting for a connection to %s.", url.getHost()));
+                }
+            }
+            else permits.acquire();
+        }
+        catch(InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection.", exc);
+        }
+        return permits;
+    }
+
+    private void release(Semaphore permits) {
+        if(permits != null) {
+            permits.release();
+        }
+    }
+
+    private Semaphore getPermits(URL url) {
+        String host = url.getHost();
+
+        Semaphore permits = hostPermits.get(host);
+        if(permits == null) {
+            Semaphore created = new Semaphore(maxConnectionsPerHost, true);
+            permits = hostPermits.putIfAbsent(host, created);
+            if(permits == null) {
+                permits = created;
+            }
+        }
+        return permits;
+    }
+}
@@ -616,10 +616,10 @@ public class PorticoConnector extends XmlGateway implements IPaymentGateway {
         return mapReportResponse(response, builder.getReportType(), clazz);
     }
 
-    private String buildEnvelope(ElementTree et, Element transaction) {
+    private byte[] buildEnvelope(ElementTree et, Element transaction) throws ApiException {
         return buildEnvelope(et, transaction, null);
     }
-    private String buildEnvelope(ElementTree et, Element transaction, String clientTransactionId) {
+    private byte[] buildEnvelope(ElementTree et, Element transaction, String clientTransactionId) throws ApiException {
         et.addNamespace("soap", "http://schemas.xmlsoap.org/soap/envelope/");
         et.addNamespace("xsi", "http://www.w3.org/2001/XMLSchema-instance");
         et.addNamespace("xsd", "http://www.w3.org/2001/XMLSchema");
@@ -648,13 +648,13 @@ public class PorticoConnector extends XmlGateway implements IPaymentGateway {
         Element trans = et.subElement(version1, "Transaction");
         trans.append(transaction);
         
-        return et.toString(envelope);
+        return et.toBytes(envelope);
     }
 
     private Transaction mapResponse(String rawResponse, IPaymentMethod paymentMethod) throws ApiException {
         Transaction result = new Transaction();
 
-        Element root = ElementTree.parse(rawResponse).get("PosResponse");
+        Element root = ElementTree.parse(rawResponse, ElementTree.Parser.Streaming).get("PosResponse");
         ArrayList<String> acceptedCodes = new ArrayList<String>();
         acceptedCodes.add("00");
         acceptedCodes.add("0");
@@ -753,7 +753,7 @@ public class PorticoConnector extends XmlGateway implements IPaymentGateway {
 
     @SuppressWarnings("unchecked")
     private <TResult> TResult mapReportResponse(String rawResponse, ReportType reportType, Class<TResult> clazz) throws ApiException {
-        Element response = ElementTree.parse(rawResponse).get("PosResponse");
+        Element response = ElementTree.parse(rawResponse, ElementTree.Parser.Streaming).get("PosResponse");
         ArrayList<String> acceptedCodes = new ArrayList<String>();
         acceptedCodes.add("00");
         acceptedCodes.add("0");
@@ -770,7 +770,7 @@ public class PorticoConnector extends XmlGateway implements IPaymentGateway {
             );
         }
 
-        Element doc = ElementTree.parse(rawResponse).get(mapReportType(reportType));
+        Element doc = ElementTree.parse(rawResponse, ElementTree.Parser.Streaming).get(mapReportType(reportType));
 
         try {
             TResult rvalue = clazz.newInstance();
@@ -1045,8 +1045,7 @@ public class PorticoConnector extends XmlGateway implements IPaymentGateway {
             LodgingData lodgingData = new LodgingData();
 
             String advancedDepositType = root.getString("AdvancedDepositType");
-            ReverseStringEnumMap<AdvancedDepositType> map = new ReverseStringEnumMap<AdvancedDepositType>(AdvancedDepositType.class);
-            lodgingData.setAdvancedDepositType(map.get(advancedDepositType));
+            lodgingData.setAdvancedDepositType(ReverseStringEnumMap.parse(advancedDepositType, AdvancedDepositType.class));
             lodgingData.setLodgingDataEdit(root.getString("LodgingDataEdit"));
             summary.setLodgingData(lodgingData);
         }
@@ -345,7 +345,7 @@ public class RealexConnector extends XmlGateway implements IPaymentGateway, IRec
             }
         }
 
-        String response = doTransaction(et.toString(request));
+        String response = doTransaction(et.toBytes(request));
         return mapResponse(response, builder);
     }
 
@@ -633,7 +633,7 @@ public class RealexConnector extends XmlGateway implements IPaymentGateway, IRec
             et.subElement(request, "refundhash", GenerationUtils.generateHash(builder.getAlternativePaymentType() != null ? refundPassword : rebatePassword));
         }
 
-        String response = doTransaction(et.toString(request));
+        String response = doTransaction(et.toBytes(request));
         return mapResponse(response, builder);
     }
 
@@ -656,7 +656,7 @@ public class RealexConnector extends XmlGateway implements IPaymentGateway, IRec
             et.subElement(request, "sha1hash").text(sha1hash);
         }
 
-        String response = doTransaction(et.toString(request));
+        String response = doTransaction(et.toBytes(request));
         return mapReportResponse(response, builder.getReportType(), clazz);
     }
 
@@ -713,7 +713,7 @@ public class RealexConnector extends XmlGateway implements IPaymentGateway, IRec
             }
         }
 
-        String response = doTransaction(et.toString(request));
+        String response = doTransaction(et.toBytes(request));
         return mapRecurringResponse(response, builder);
     }
 
@@ -746,7 +746,7 @@ public class RealexConnector extends XmlGateway implements IPaymentGateway, IRec
     }
 
     private Transaction mapResponse(String rawResponse, TransactionBuilder<Transaction> builder) throws ApiException {
-        Element root = ElementTree.parse(rawResponse).get("response");
+        Element root = ElementTree.parse(rawResponse, ElementTree.Parser.Streaming).get("response");
 
         checkResponse(root);
         Transaction result = new Transaction();
@@ -835,7 +835,7 @@ public class RealexConnector extends XmlGateway implements IPaymentGateway, IRec
 
     @SuppressWarnings("unchecked")
     private <TResult> TResult mapReportResponse(String rawResponse, ReportType reportType, Class<TResult> clazz) throws ApiException {
-        Element response = ElementTree.parse(rawResponse).get("response");
+        Element response = ElementTree.parse(rawResponse, ElementTree.Parser.Streaming).get("response");
         checkResponse(response);
 
         try {
@@ -874,7 +874,7 @@ public class RealexConnector extends XmlGateway implements IPaymentGateway, IRec
 
     @SuppressWarnings("unchecked")
     private <TResult> TResult mapRecurringResponse(String rawResponse, RecurringBuilder<TResult> builder) throws ApiException {
-        Element root = ElementTree.parse(rawResponse).get("response");
+        Element root = ElementTree.parse(rawResponse, ElementTree.Parser.Streaming).get("response");
 
         // check response
         checkResponse(root);
@@ -10,11 +10,15 @@ import com.global.api.entities.exceptions.*;
 import com.global.api.entities.payroll.PayrollEncoder;
 import com.global.api.network.*;
 import com.global.api.network.abstractions.IBatchProvider;
+import com.global.api.network.abstractions.IResendTracker;
 import com.global.api.network.abstractions.IStanProvider;
+import com.global.api.network.abstractions.IStreamingBatchProvider;
 import com.global.api.network.entities.FleetData;
 import com.global.api.network.entities.NtsData;
 import com.global.api.network.entities.PriorMessageInformation;
+import com.global.api.network.entities.ResendFailure;
 import com.global.api.network.entities.TransactionMatchingData;
+import com.global.api.network.entities.TransactionToken;
 import com.global.api.serviceConfigs.AcceptorConfig;
 import com.global.api.network.elements.*;
 import com.global.api.network.enums.*;
@@ -30,10 +34,21 @@ import org.joda.time.DateTimeZone;
 import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
-
-public class VapsConnector extends NetworkGateway implements IPaymentGateway {
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+public class VapsConnector extends NetworkGateway implements IPaymentGateway, IAsyncPaymentGateway {
     private AcceptorConfig acceptorConfig;
     private IBatchProvider batchProvider;
     private CharacterSet characterSet = CharacterSet.ASCII;
@@ -47,9 +62,11 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
     private IStanProvider stanProvider;
     private String terminalId;
     private String uniqueDeviceId;
-    private LinkedList<Transaction> resentTransactions;
-    private Transaction resentBatch;
+    private int resendConcurrency = 4;
     private NetworkProcessingFlag processingFlag;
+    private boolean tokenizationEnabled = true;
+    private boolean backgroundDataCollectReporting;
+    private ExecutorService dataCollectReporter;
 
     private boolean lrcFailure;
 
@@ -92,6 +109,24 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
     public void setUniqueDeviceId(String uniqueDeviceId) {
         this.uniqueDeviceId = uniqueDeviceId;
     }
+    public boolean isTokenizationEnabled() {
+        return tokenizationEnabled;
+    }
+    public void setTokenizationEnabled(boolean tokenizationEnabled) {
+        this.tokenizationEnabled = tokenizationEnabled;
+    }
+    public boolean isBackgroundDataCollectReporting() {
+        return backgroundDataCollectReporting;
+    }
+    public void setBackgroundDataCollectReporting(boolean backgroundDataCollectReporting) {
+        this.backgroundDataCollectReporting = backgroundDataCollectReporting;
+    }
+    public int getResendConcurrency() {
+        return resendConcurrency;
+    }
+    public void setResendConcurrency(int resendConcurrency) {
+        this.resendConcurrency = resendConcurrency;
+    }
     public NetworkProcessingFlag getProcessingFlag() {
         return processingFlag;
     }
@@ -104,12 +139,20 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
     }
 
     public Transaction processAuthorization(AuthorizationBuilder builder) throws ApiException {
-        validate(builder);
-
         // TODO: These should come from the builder somehow
         byte[] orgCorr1 = new byte[2];
         byte[] orgCorr2 = new byte[8];
 
+        NetworkMessage request = buildAuthorizationRequest(builder);
+        return sendRequest(request, builder, orgCorr1, orgCorr2);
+    }
+    public CompletableFuture<Transaction> processAuthorizationAsync(AuthorizationBuilder builder) throws ApiException {
+        NetworkMessage request = buildAuthorizationRequest(builder);
+        return sendRequestAsync(request, builder, new byte[2], new byte[8]);
+    }
+    private NetworkMessage buildAuthorizationRequest(AuthorizationBuilder builder) throws ApiException {
+        validate(builder);
+
         NetworkMessage request = new NetworkMessage();
         IPaymentMethod paymentMethod = builder.getPaymentMethod();
         PaymentMethodType paymentMethodType = builder.getPaymentMethod().getPaymentMethodType();
@@ -515,15 +558,23 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
             }
         }
 
-        return sendRequest(request, builder, orgCorr1, orgCorr2);
+        return request;
     }
     public Transaction manageTransaction(ManagementBuilder builder) throws ApiException {
-        validate(builder);
-
         // TODO: These should come from the builder somehow
         byte[] orgCorr1 = new byte[2];
         byte[] orgCorr2 = new byte[8];
 
+        NetworkMessage request = buildManagementRequest(builder);
+        return sendRequest(request, builder, orgCorr1, orgCorr2);
+    }
+    public CompletableFuture<Transaction> manageTransactionAsync(ManagementBuilder builder) throws ApiException {
+        NetworkMessage request = buildManagementRequest(builder);
+        return sendRequestAsync(request, builder, new byte[2], new byte[8]);
+    }
+    private NetworkMessage buildManagementRequest(ManagementBuilder builder) throws ApiException {
+        validate(builder);
+
         NetworkMessage request = new NetworkMessage();
         IPaymentMethod paymentMethod = builder.getPaymentMethod();
         TransactionType transactionType = builder.getTransactionType();
@@ -968,6 +1019,7 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
             // transaction count
             if(transactionCount == null) {
                 if(batchProvider != null) {
+                    awaitDataCollectReports();
                     transactionCount = batchProvider.getTransactionCount();
                     totalDebits = batchProvider.getTotalDebits();
                     totalCredits = batchProvider.getTotalCredits();
@@ -1014,7 +1066,7 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
             }
         }
 
-        return sendRequest(request, builder, orgCorr1, orgCorr2);
+        return request;
     }
     public Transaction resubmitTransaction(ResubmitBuilder builder) throws ApiException {
         if(StringUtils.isNullOrEmpty(builder.getTransactionToken())){
@@ -1148,8 +1200,13 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
         return new DeviceMessage(buffer.toArray());
     }
     
+    @Override
+    protected IDeviceMessage buildKeepAliveMessage() {
+        return buildMessage(new byte[0], new byte[2], new byte[8], true);
+    }
+
     public NetworkMessageHeader sendKeepAlive() throws ApiException {
-        IDeviceMessage keepAlive = buildMessage(new byte[0], new byte[2], new byte[8], true);
+        IDeviceMessage keepAlive = buildKeepAliveMessage();
         byte[] responseBuffer = send(keepAlive);
         MessageReader mr = new MessageReader(responseBuffer);
 
@@ -1167,105 +1224,188 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
     }
     
     private <T extends TransactionBuilder<Transaction>> Transaction sendRequest(NetworkMessage request, T builder, byte[] orgCorr1, byte[] orgCorr2) throws ApiException {
+        IDeviceMessage message = buildRequestMessage(request, orgCorr1, orgCorr2);
+
+        try {
+            HashMap<Host, ArrayList<HostError>> simulatedHostErrors = takeSimulatedHostErrors();
+            if(builder != null) {
+                simulatedHostErrors = builder.getSimulatedHostErrors();
+            }
+            byte[] responseBuffer = send(message, simulatedHostErrors);
+            return processResponse(responseBuffer, request, builder, orgCorr1, orgCorr2, currentHost);
+        }
+        catch(GatewayException exc) {
+            throw prepareException(exc, request, builder, currentHost);
+        }
+    }
+
+    private <T extends TransactionBuilder<Transaction>> CompletableFuture<Transaction> sendRequestAsync(final NetworkMessage request, final T builder, final byte[] orgCorr1, final byte[] orgCorr2) {
+        IDeviceMessage message = buildRequestMessage(request, orgCorr1, orgCorr2);
+
+        return sendAsync(message, getCorrelationKey(request)).handleAsync(new BiFunction<byte[], Throwable, Transaction>() {
+            public Transaction apply(byte[] responseBuffer, Throwable failure) {
+                Host host = getMultiplexedHost();
+                try {
+                    if(failure != null) {
+                        Throwable cause = (failure instanceof CompletionException && failure.getCause() != null) ? failure.getCause() : failure;
+                        if(cause instanceof GatewayException) {
+                            throw (GatewayException) cause;
+                        }
+                        throw new CompletionException(cause);
+                    }
+                    return processResponse(responseBuffer, request, builder, orgCorr1, orgCorr2, host);
+                }
+                catch(GatewayException exc) {
+                    throw new CompletionException(prepareException(exc, request, builder, host));
+                }
+                catch(ApiException exc) {
+                    throw new CompletionException(exc);
+                }
+            }
+        }, getAsyncExecutor());
+    }
+
+    private IDeviceMessage buildRequestMessage(NetworkMessage request, byte[] orgCorr1, byte[] orgCorr2) {
         byte[] sendBuffer = request.buildMessage();
         if(isEnableLogging()) {
             System.out.println("Request Breakdown:\r\n" + request.toString());
         }
-        IDeviceMessage message = buildMessage(sendBuffer, orgCorr1, orgCorr2, false);
-        TransactionType transactionType = null;
+        return buildMessage(sendBuffer, orgCorr1, orgCorr2, false);
+    }
 
+    private <T extends TransactionBuilder<Transaction>> GatewayException prepareException(GatewayException exc, NetworkMessage request, T builder, Host host) {
+        if(tokenizationEnabled) {
+            TransactionToken transactionToken = checkResponse(null, request, null, builder);
+            exc.setTransactionToken(transactionToken != null ? transactionToken.getValue() : null);
+        }
+        exc.setMessageTypeIndicator(request.getMessageTypeIndicator());
+        exc.setProcessingCode(request.getString(DataElementId.DE_003));
+        exc.setTransmissionTime(request.getString(DataElementId.DE_007));
+        exc.setPosDataCode(request.getString(DataElementId.DE_022));
+        if(host != null) {
+            exc.setHost(host.getValue());
+        }
+        return exc;
+    }
+
+    // responses are matched to their requests by STAN and terminal id
+    private String getCorrelationKey(NetworkMessage message) {
+        String terminalId = message.getString(DataElementId.DE_041);
+        return String.format("%s|%s", message.getString(DataElementId.DE_011), terminalId != null ? terminalId.trim() : null);
+    }
+
+    @Override
+    protected String getCorrelationKey(byte[] responseBuffer) {
         try {
-            if(builder != null) {
-                transactionType = builder.getTransactionType();
-                this.setSimulatedHostErrors(builder.getSimulatedHostErrors());
+            MessageReader mr = new MessageReader(responseBuffer);
+            NetworkMessageHeader header = NetworkMessageHeader.parse(mr.readBytes(30));
+            if(header.getMessageType() == null || header.getMessageType().equals(MessageType.NoMessage)) {
+                return null;
             }
-            byte[] responseBuffer = send(message);
 
-            String functionCode = request.getString(DataElementId.DE_024);
-            String messageReasonCode = request.getString(DataElementId.DE_025);
-            String processingCode = request.getString(DataElementId.DE_003);
-            String stan = request.getString(DataElementId.DE_011);
+            // only the elements up to the terminal id are read, the response is parsed in full later
+            mr.readString(4); // MTI
+            NetworkMessage message = NetworkMessage.parse(mr.readBytes(responseBuffer.length), Iso8583MessageType.CompleteMessage, DataElementId.DE_041);
+            return getCorrelationKey(message);
+        }
+        catch(Exception exc) {
+            return null;
+        }
+    }
 
-            PriorMessageInformation priorMessageInformation = new PriorMessageInformation();
-            IPaymentMethod paymentMethod = builder != null ? builder.getPaymentMethod() : null;
-            if(paymentMethod != null) {
-                DE48_CardType cardType = mapCardType(paymentMethod, transactionType);
-                if(cardType != null) {
-                    priorMessageInformation.setCardType(cardType.getValue());
-                }
+    private <T extends TransactionBuilder<Transaction>> Transaction processResponse(byte[] responseBuffer, NetworkMessage request, T builder, byte[] orgCorr1, byte[] orgCorr2, Host host) throws ApiException {
+        TransactionType transactionType = builder != null ? builder.getTransactionType() : null;
+
+        String functionCode = request.getString(DataElementId.DE_024);
+        String messageReasonCode = request.getString(DataElementId.DE_025);
+        String processingCode = request.getString(DataElementId.DE_003);
+        String stan = request.getString(DataElementId.DE_011);
+
+        PriorMessageInformation priorMessageInformation = new PriorMessageInformation();
+        IPaymentMethod paymentMethod = builder != null ? builder.getPaymentMethod() : null;
+        if(paymentMethod != null) {
+            DE48_CardType cardType = mapCardType(paymentMethod, transactionType);
+            if(cardType != null) {
+                priorMessageInformation.setCardType(cardType.getValue());
             }
+        }
 
 //            priorMessageInformation.setResponseTime(); // TODO: Need to get this from the send message
-            priorMessageInformation.setFunctionCode(functionCode);
-            priorMessageInformation.setMessageReasonCode(messageReasonCode);
-            priorMessageInformation.setMessageTransactionIndicator(request.getMessageTypeIndicator());
-            priorMessageInformation.setProcessingCode(processingCode);
-            priorMessageInformation.setSystemTraceAuditNumber(stan);
-            priorMessageInformation.setProcessingHost(currentHost);
+        priorMessageInformation.setFunctionCode(functionCode);
+        priorMessageInformation.setMessageReasonCode(messageReasonCode);
+        priorMessageInformation.setMessageTransactionIndicator(request.getMessageTypeIndicator());
+        priorMessageInformation.setProcessingCode(processingCode);
+        priorMessageInformation.setSystemTraceAuditNumber(stan);
+        priorMessageInformation.setProcessingHost(host);
 
-            Transaction response = mapResponse(responseBuffer, request, builder);
-            response.setMessageInformation(priorMessageInformation);
-            if(batchProvider != null) {
-                batchProvider.setPriorMessageData(priorMessageInformation);
+        MappedResponse mapped = mapResponse(responseBuffer, request, builder);
+        Transaction response = mapped.transaction;
+        response.setMessageInformation(priorMessageInformation);
+        if(batchProvider != null) {
+            batchProvider.setPriorMessageData(priorMessageInformation);
+        }
+
+        // check to see if we need to send a completion
+        if(paymentMethod != null && transactionType != null) {
+            if(stanProvider == null && builder.getFollowOnStan() == null) {
+                return response;
             }
 
-            // check to see if we need to send a completion
-            if(paymentMethod != null && transactionType != null) {
-                if(stanProvider == null && builder.getFollowOnStan() == null) {
-                    return response;
-                }
+            // get the original payment method
+            IPaymentMethod originalPaymentMethod = paymentMethod;
+            if(originalPaymentMethod instanceof TransactionReference) {
+                originalPaymentMethod = ((TransactionReference) paymentMethod).getOriginalPaymentMethod();
+            }
 
-                // get the original payment method
-                IPaymentMethod originalPaymentMethod = paymentMethod;
-                if(originalPaymentMethod instanceof TransactionReference) {
-                    originalPaymentMethod = ((TransactionReference) paymentMethod).getOriginalPaymentMethod();
-                }
+            // check for Debit or EBT
+            if(originalPaymentMethod instanceof Debit || originalPaymentMethod instanceof EBT) {
+                ArrayList<String> successCodes = new ArrayList<String>();
+                successCodes.add("000");
+                successCodes.add("002");
 
-                // check for Debit or EBT
-                if(originalPaymentMethod instanceof Debit || originalPaymentMethod instanceof EBT) {
-                    ArrayList<String> successCodes = new ArrayList<String>();
-                    successCodes.add("000");
-                    successCodes.add("002");
+                if((transactionType.equals(TransactionType.Sale) || transactionType.equals(TransactionType.Refund)) && mapped.token != null) {
+                    if(!successCodes.contains(response.getResponseCode())) {
+                        return response;
+                    }
 
-                    if((transactionType.equals(TransactionType.Sale) || transactionType.equals(TransactionType.Refund)) && !StringUtils.isNullOrEmpty(response.getTransactionToken())) {
-                        if(!successCodes.contains(response.getResponseCode())) {
-                            return response;
-                        }
+                    NetworkMessage impliedCapture = mapped.token.getRequest();
+                    if(impliedCapture == null) {
+                        return response;
+                    }
 
-                        Integer followOnStan = builder.getFollowOnStan();
-                        if(followOnStan == null && stanProvider != null) {
-                            followOnStan = stanProvider.generateStan();
-                        }
+                    Integer followOnStan = builder.getFollowOnStan();
+                    if(followOnStan == null && stanProvider != null) {
+                        followOnStan = stanProvider.generateStan();
+                    }
 
-                        NetworkMessage impliedCapture = decodeRequest(response.getTransactionToken());
-                        impliedCapture.set(DataElementId.DE_011, StringUtils.padLeft(followOnStan, 6, '0'));
-                        impliedCapture.set(DataElementId.DE_012, DateTime.now().toString("yyMMddhhmmss"));
-                        impliedCapture.set(DataElementId.DE_025, DE25_MessageReasonCode.PinDebit_EBT_Acknowledgement);
+                    impliedCapture.set(DataElementId.DE_011, StringUtils.padLeft(followOnStan, 6, '0'));
+                    impliedCapture.set(DataElementId.DE_012, DateTime.now().toString("yyMMddhhmmss"));
+                    impliedCapture.set(DataElementId.DE_025, DE25_MessageReasonCode.PinDebit_EBT_Acknowledgement);
 
-                        Transaction dataCollectResponse = sendRequest(impliedCapture, null, orgCorr1, orgCorr2);
-                        response.setPreAuthCompletion(dataCollectResponse);
+                    Transaction dataCollectResponse = sendRequest(impliedCapture, null, orgCorr1, orgCorr2);
+                    response.setPreAuthCompletion(dataCollectResponse);
+                }
+                else if(transactionType.equals(TransactionType.Capture) && messageReasonCode != null) {
+                    Integer followOnStan = builder.getFollowOnStan();
+                    if(followOnStan == null && stanProvider != null) {
+                        followOnStan = stanProvider.generateStan();
                     }
-                    else if(transactionType.equals(TransactionType.Capture) && messageReasonCode != null) {
-                        Integer followOnStan = builder.getFollowOnStan();
-                        if(followOnStan == null && stanProvider != null) {
-                            followOnStan = stanProvider.generateStan();
-                        }
 
-                        if(messageReasonCode.equals(DE25_MessageReasonCode.AuthCapture.getValue())) {
-                            request.set(DataElementId.DE_011, StringUtils.padLeft(followOnStan, 6, '0'));
-                            request.set(DataElementId.DE_012, DateTime.now().toString("yyMMddhhmmss"));
-                            request.set(DataElementId.DE_025, DE25_MessageReasonCode.PinDebit_EBT_Acknowledgement);
+                    if(messageReasonCode.equals(DE25_MessageReasonCode.AuthCapture.getValue())) {
+                        request.set(DataElementId.DE_011, StringUtils.padLeft(followOnStan, 6, '0'));
+                        request.set(DataElementId.DE_012, DateTime.now().toString("yyMMddhhmmss"));
+                        request.set(DataElementId.DE_025, DE25_MessageReasonCode.PinDebit_EBT_Acknowledgement);
 
-                            Transaction dataCollectResponse = sendRequest(request, builder, orgCorr1, orgCorr2);
-                            response.setPreAuthCompletion(dataCollectResponse);
-                        }
+                        Transaction dataCollectResponse = sendRequest(request, builder, orgCorr1, orgCorr2);
+                        response.setPreAuthCompletion(dataCollectResponse);
                     }
                 }
-                else if(originalPaymentMethod instanceof GiftCard) {
-                    /*
-                    Removed As this was deemed not needed by the issuer
-                    Leaving the code for now... in case they change their minds
-                    */
+            }
+            else if(originalPaymentMethod instanceof GiftCard) {
+                /*
+                Removed As this was deemed not needed by the issuer
+                Leaving the code for now... in case they change their minds
+                */
 //                    if(((GiftCard) originalPaymentMethod).getCardType().equals("ValueLink")) {
 //                        if(transactionType.equals(TransactionType.Capture) && messageReasonCode != null) {
 //                            // check for the right MRC
@@ -1278,25 +1418,16 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
 //                            }
 //                        }
 //                    }
-                }
             }
-
-            return response;
-        }
-        catch(GatewayException exc) {
-            String transactionToken = checkResponse(null, request, null, builder);
-            exc.setTransactionToken(transactionToken);
-            exc.setMessageTypeIndicator(request.getMessageTypeIndicator());
-            exc.setProcessingCode(request.getString(DataElementId.DE_003));
-            exc.setTransmissionTime(request.getString(DataElementId.DE_007));
-            exc.setPosDataCode(request.getString(DataElementId.DE_022));
-            exc.setHost(currentHost.getValue());
-            throw exc;
         }
+
+        return response;
     }
 
-    private <T extends TransactionBuilder<Transaction>> Transaction mapResponse(byte[] buffer, NetworkMessage request, T builder) throws GatewayException {
+    private <T extends TransactionBuilder<Transaction>> MappedResponse mapResponse(byte[] buffer, NetworkMessage request, T builder) throws GatewayException {
         Transaction result = new Transaction();
+        RequestToken token = null;
+        BatchResend batchResend = null;
         MessageReader mr = new MessageReader(buffer);
 
         // parse the header
@@ -1353,15 +1484,20 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
                     }
 
                     if(builder != null) {
-                        String transactionToken = checkResponse(responseCode, request, message, builder);
-                        result.setTransactionToken(transactionToken);
+                        if(responseCode.equals("580") && batchProvider != null) {
+                            batchResend = resendBatch(request, builder);
+                        }
+                        token = checkResponse(responseCode, request, message, builder);
+                        if(tokenizationEnabled) {
+                            result.setTransactionTokenSource(token);
+                        }
                     }
                 }
 
                 // EMV response
                 byte[] emvResponse = message.getByteArray(DataElementId.DE_055);
                 if(emvResponse != null){
-                    EmvData emvData = EmvUtils.parseTagData(StringUtils.hexFromBytes(emvResponse), isEnableLogging());
+                    EmvData emvData = EmvUtils.parseTagData(emvResponse, isEnableLogging());
                     result.setEmvIssuerResponse(emvData.getAcceptedTagData());
                 }
 
@@ -1466,8 +1602,12 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
                     if(builder.getTransactionType().equals(TransactionType.BatchClose)) {
                         BatchSummary summary = new BatchSummary();
                         summary.setResponseCode(responseCode);
-                        summary.setResentTransactions(resentTransactions);
-                        summary.setResentBatchClose(resentBatch);
+                        if(batchResend != null) {
+                            summary.setResentTransactions(batchResend.resentTransactions);
+                            summary.setResendFailures(batchResend.resendFailures);
+                            summary.setResentBatchClose(batchResend.resentBatchClose);
+                            summary.setResentBatchCloseException(batchResend.resentBatchCloseException);
+                        }
                         summary.setTransactionToken(result.getTransactionToken());
 
                         if(messageControl != null) {
@@ -1502,8 +1642,20 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
             }
         }
 
-        return result;
+        return new MappedResponse(result, token);
+    }
+
+    // the transaction and the token of its request, which the follow up capture is built from
+    private static class MappedResponse {
+        private final Transaction transaction;
+        private final RequestToken token;
+
+        MappedResponse(Transaction transaction, RequestToken token) {
+            this.transaction = transaction;
+            this.token = token;
+        }
     }
+
     private <T extends TransactionBuilder<Transaction>> String mapMTI(T builder) {
         String mtiValue = "1";
 
@@ -2391,7 +2543,7 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
     }
 
     // check result & put to IBatchProvider if data collect
-    private <T extends TransactionBuilder<Transaction>> String checkResponse(String responseCode, NetworkMessage request, NetworkMessage response, T builder) {
+    private <T extends TransactionBuilder<Transaction>> RequestToken checkResponse(String responseCode, NetworkMessage request, NetworkMessage response, T builder) {
         ArrayList<String> successCodes = new ArrayList<String>();
         successCodes.add("000");
         successCodes.add("002");
@@ -2410,22 +2562,24 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
             }
         }
 
-        String encodedRequest = null;
+        IPaymentMethod paymentMethod = builder != null ? builder.getPaymentMethod() : null;
+
+        // the data collect token falls back to the request token when it cannot be built
+        RequestToken dataCollectToken = null;
+        boolean reported = false;
         if(builder != null && request.isDataCollect(paymentMethodType)) {
             // check if we need to build the implied data-collect
             if(transactionType.equals(TransactionType.Sale) || transactionType.equals(TransactionType.Refund)) {
                 NetworkMessage impliedCapture = buildImpliedCapture(request, response, paymentMethodType);
-
-                encodedRequest = encodeRequest(impliedCapture);
-                if(batchProvider != null && successCodes.contains(responseCode)) {
-                    batchProvider.reportDataCollect(transactionType, paymentMethodType, amount, encodedRequest);
-                }
+                dataCollectToken = new RequestToken(getRequestEncoder(), impliedCapture, request, paymentMethod);
             }
             else if(!transactionType.equals(TransactionType.DataCollect)) {
-                encodedRequest = encodeRequest(request);
-                if(batchProvider != null && successCodes.contains(responseCode)) {
-                    batchProvider.reportDataCollect(transactionType, paymentMethodType, amount, encodedRequest);
-                }
+                dataCollectToken = new RequestToken(getRequestEncoder(), request, null, paymentMethod);
+            }
+
+            if(dataCollectToken != null && batchProvider != null && successCodes.contains(responseCode)) {
+                reportDataCollect(transactionType, paymentMethodType, amount, dataCollectToken);
+                reported = true;
             }
         }
 
@@ -2433,53 +2587,332 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
         if(successCodes.contains(responseCode)) {
             // if there's a batch provider handle the batch close stuff
             if ((responseCode.equals("500") || responseCode.equals("501")) && batchProvider != null) {
+                awaitDataCollectReports();
                 batchProvider.closeBatch(responseCode.equals("500"));
             } else if (responseCode.equals("580")) {
-                if(batchProvider != null) {
-                    try {
-                        LinkedList<String> encodedRequests = batchProvider.getEncodedRequests();
-                        if (encodedRequests != null) {
-                            resentTransactions = new LinkedList<Transaction>();
-                            for (String encRequest : encodedRequests) {
-                                try {
-                                    NetworkMessage newRequest = decodeRequest(encRequest);
-                                    newRequest.setMessageTypeIndicator("1221");
-
-                                    Transaction resend = sendRequest(newRequest, null, new byte[2], new byte[8]);
-                                    resentTransactions.add(resend);
-                                } catch (ApiException exc) {
-                                    /* NOM NOM */
-                                    // TODO: this should be reported
-                                }
-                            }
+                // the batch has been resent by now, see resendBatch
+                return encryptCardData(new RequestToken(getRequestEncoder(), request), false);
+            }
+        }
 
-                            // resend the batch close
-                            request.setMessageTypeIndicator("1521");
-                            resentBatch = sendRequest(request, builder, new byte[2], new byte[8]);
-                        }
-                    } catch (ApiException exc) {
-                        /* NOM NOM */
-                        // TODO: this should be reported
+        // Tokenize that which has not already.
+        if(dataCollectToken != null) {
+            return encryptCardData(dataCollectToken, reported);
+        }
+        return encryptCardData(new RequestToken(getRequestEncoder(), snapshotRequest(request, paymentMethod)), false);
+    }
+
+    /*
+     * A token holding card data is encrypted straight away when the transaction keeps it, so no
+     * plain copy of the card is held. With background reporting that is done on the reporter
+     * thread, and a token reported as a data collect is encrypted by its report.
+     */
+    private RequestToken encryptCardData(final RequestToken token, boolean reported) {
+        if(!tokenizationEnabled || reported || !token.hasCardData()) {
+            return token;
+        }
+
+        if(backgroundDataCollectReporting) {
+            try {
+                getDataCollectReporter().execute(new Runnable() {
+                    public void run() {
+                        token.getEncodedMessage();
                     }
-                }
-                encodedRequest = encodeRequest(request);
+                });
+                return token;
+            }
+            catch(RejectedExecutionException exc) {
+                // eat the exception, the connector is disposed so it is encrypted here
             }
         }
+        token.getEncodedMessage();
+        return token;
+    }
 
-        // Tokenize that which has not already.
-        if(StringUtils.isNullOrEmpty(encodedRequest)) {
-            // check for pan data and replace it with the truncated track
-            if(builder != null && builder.getPaymentMethod() instanceof ITrackData) {
-                ITrackData track = (ITrackData)builder.getPaymentMethod();
-                if(request.has(DataElementId.DE_035) || request.has(DataElementId.DE_045)) {
-                    if(!StringUtils.isNullOrEmpty(track.getTruncatedTrackData())) {
-                        request.set(track.getTrackNumber().equals(TrackNumber.TrackTwo) ? DataElementId.DE_035 : DataElementId.DE_045, track.getTruncatedTrackData());
+    /*
+     * Recovers a batch close the host answered with a 580. The stored requests are resent, and the
+     * batch close after them as a 1521 once the host has every one.
+     */
+    private <T extends TransactionBuilder<Transaction>> BatchResend resendBatch(NetworkMessage request, T builder) {
+        awaitDataCollectReports();
+
+        BatchResend batchResend = new BatchResend();
+        try {
+            Iterable<String> encodedRequests;
+            if (batchProvider instanceof IStreamingBatchProvider) {
+                encodedRequests = ((IStreamingBatchProvider) batchProvider).readEncodedRequests();
+            }
+            else encodedRequests = batchProvider.getEncodedRequests();
+            if(encodedRequests == null) {
+                return batchResend;
+            }
+
+            resendRequests(encodedRequests, batchResend);
+            if(batchResend.resendFailures.isEmpty()) {
+                request.setMessageTypeIndicator("1521");
+                batchResend.resentBatchClose = sendRequest(request, builder, new byte[2], new byte[8]);
+            }
+        }
+        catch(ApiException exc) {
+            batchResend.resentBatchCloseException = exc;
+        }
+        catch(RuntimeException exc) {
+            batchResend.resentBatchCloseException = new ApiException("The batch could not be resent.", exc);
+        }
+        return batchResend;
+    }
+
+    /*
+     * Resends the stored requests as 1221s, at most resendConcurrency of them waiting on the host
+     * at a time. A batch provider tracking the resends is told of each one the host takes, and
+     * those are skipped when a resend cut short is run again. Requests that could not be resent
+     * are added to the failures of the batch resend.
+     */
+    private void resendRequests(Iterable<String> encodedRequests, BatchResend batchResend) {
+        final IResendTracker tracker = batchProvider instanceof IResendTracker ? (IResendTracker)batchProvider : null;
+        final Semaphore permits = new Semaphore(Math.max(resendConcurrency, 1));
+        LinkedList<PendingResend> pending = new LinkedList<PendingResend>();
+
+        int index = 0;
+        for(String encRequest: encodedRequests) {
+            final int position = index++;
+            if(tracker != null && tracker.isResent(position)) {
+                continue;
+            }
+
+            try {
+                permits.acquire();
+            }
+            catch(InterruptedException exc) {
+                // the requests not yet sent are left for the next batch close
+                Thread.currentThread().interrupt();
+                batchResend.resendFailures.add(new ResendFailure(position, encRequest, new ApiException("The resend was interrupted.", exc)));
+                break;
+            }
+
+            try {
+                NetworkMessage newRequest = decodeRequest(encRequest);
+                newRequest.setMessageTypeIndicator("1221");
+
+                CompletableFuture<Transaction> future = sendRequestAsync(newRequest, null, new byte[2], new byte[8]);
+                future.whenComplete(new BiConsumer<Transaction, Throwable>() {
+                    public void accept(Transaction transaction, Throwable failure) {
+                        permits.release();
                     }
+                });
+                if(tracker != null) {
+                    // the tracker may write to disk, which is kept off the thread reading the responses
+                    future = future.whenCompleteAsync(new BiConsumer<Transaction, Throwable>() {
+                        public void accept(Transaction transaction, Throwable failure) {
+                            if(failure == null) {
+                                tracker.markResent(position);
+                            }
+                        }
+                    }, getAsyncExecutor());
+                }
+                pending.add(new PendingResend(position, encRequest, future));
+            }
+            catch(RuntimeException exc) {
+                permits.release();
+                batchResend.resendFailures.add(new ResendFailure(position, encRequest, new ApiException("The request could not be resent.", exc)));
+            }
+        }
+
+        // collected in the order of the batch, whatever order the host answered in
+        for(PendingResend resend: pending) {
+            try {
+                batchResend.resentTransactions.add(resend.future.join());
+            }
+            catch(CompletionException exc) {
+                Throwable cause = exc.getCause() != null ? exc.getCause() : exc;
+                ApiException failure;
+                if(cause instanceof ApiException) {
+                    failure = (ApiException)cause;
+                }
+                else if(cause instanceof Exception) {
+                    failure = new ApiException("The request could not be resent.", (Exception)cause);
+                }
+                else failure = new ApiException("The request could not be resent.", exc);
+                batchResend.resendFailures.add(new ResendFailure(resend.index, resend.encodedRequest, failure));
+            }
+        }
+    }
+
+    // what came of recovering a batch close, for its batch summary
+    private static class BatchResend {
+        private final LinkedList<Transaction> resentTransactions = new LinkedList<Transaction>();
+        private final LinkedList<ResendFailure> resendFailures = new LinkedList<ResendFailure>();
+        private Transaction resentBatchClose;
+        private ApiException resentBatchCloseException;
+    }
+
+    private static class PendingResend {
+        private final int index;
+        private final String encodedRequest;
+        private final CompletableFuture<Transaction> future;
+
+        PendingResend(int index, String encodedRequest, CompletableFuture<Transaction> future) {
+            this.index = index;
+            this.encodedRequest = encodedRequest;
+            this.future = future;
+        }
+    }
+
+    // the request as it goes into its token, with the pan data replaced by the truncated track
+    private static NetworkMessage snapshotRequest(NetworkMessage request, IPaymentMethod paymentMethod) {
+        if(paymentMethod instanceof ITrackData) {
+            ITrackData track = (ITrackData)paymentMethod;
+            if(request.has(DataElementId.DE_035) || request.has(DataElementId.DE_045)) {
+                if(!StringUtils.isNullOrEmpty(track.getTruncatedTrackData())) {
+                    request.set(track.getTrackNumber().equals(TrackNumber.TrackTwo) ? DataElementId.DE_035 : DataElementId.DE_045, track.getTruncatedTrackData());
+                }
+            }
+        }
+        return request;
+    }
+
+    private void reportDataCollect(final TransactionType transactionType, final PaymentMethodType paymentMethodType, final BigDecimal amount, final RequestToken token) {
+        Runnable report = new Runnable() {
+            public void run() {
+                String encodedRequest = token.getEncodedMessage();
+                batchProvider.reportDataCollect(transactionType, paymentMethodType, amount, encodedRequest);
+            }
+        };
+
+        if(backgroundDataCollectReporting) {
+            getDataCollectReporter().execute(report);
+        }
+        else {
+            report.run();
+        }
+    }
+
+    private synchronized ExecutorService getDataCollectReporter() {
+        if(dataCollectReporter == null) {
+            // a single thread, so the batch provider sees the data collects in order
+            dataCollectReporter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "VapsConnector-DataCollect");
+                    thread.setDaemon(true);
+                    return thread;
                 }
+            });
+        }
+        return dataCollectReporter;
+    }
+
+    // the batch provider has to be up to date before the batch is totalled or closed
+    private void awaitDataCollectReports() {
+        ExecutorService reporter;
+        synchronized (this) {
+            reporter = dataCollectReporter;
+        }
+        if(reporter == null) {
+            return;
+        }
+
+        try {
+            reporter.submit(new Runnable() {
+                public void run() { }
+            }).get();
+        }
+        catch(InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+        catch(ExecutionException | RejectedExecutionException exc) {
+            /* NOM NOM */
+        }
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (this) {
+            if(dataCollectReporter != null) {
+                dataCollectReporter.shutdown();
+                dataCollectReporter = null;
             }
-            encodedRequest = encodeRequest(request);
         }
-        return encodedRequest;
+        super.dispose();
+    }
+
+    /*
+     * The token of a request, built from a copy of the message. The copy is encrypted once, for the
+     * token, the data collect report or the follow up capture, and dropped after. When the message
+     * cannot be encrypted the request it came from is tokenized instead, with its track truncated,
+     * as the request is when its implied data collect fails.
+     */
+    private static class RequestToken extends TransactionToken {
+        private final IRequestEncoder encoder;
+        private final boolean cardData;
+        private final boolean fallback;
+        private byte[] message;
+        private NetworkMessage fallbackRequest;
+        private IPaymentMethod paymentMethod;
+        private String encodedMessage;
+        private String encodedFallback;
+
+        RequestToken(IRequestEncoder encoder, NetworkMessage message) {
+            this.encoder = encoder;
+            this.message = message.buildMessage();
+            this.cardData = VapsConnector.hasCardData(message);
+            this.fallback = false;
+        }
+
+        // a null fallback request stands for the message itself
+        RequestToken(IRequestEncoder encoder, NetworkMessage message, NetworkMessage fallbackRequest, IPaymentMethod paymentMethod) {
+            this.encoder = encoder;
+            this.message = message.buildMessage();
+            this.cardData = VapsConnector.hasCardData(message);
+            this.fallback = true;
+            this.fallbackRequest = fallbackRequest;
+            this.paymentMethod = paymentMethod;
+        }
+
+        boolean hasCardData() {
+            return cardData;
+        }
+
+        // the encrypted message, also kept when the transaction carries no token
+        synchronized String getEncodedMessage() {
+            if(message != null) {
+                encodedMessage = encodeRequest(encoder, message);
+                if(StringUtils.isNullOrEmpty(encodedMessage) && fallback) {
+                    NetworkMessage request = parseRequest(fallbackRequest != null ? fallbackRequest.buildMessage() : message);
+                    encodedFallback = encodeRequest(encoder, snapshotRequest(request, paymentMethod).buildMessage());
+                }
+                message = null;
+                fallbackRequest = null;
+                paymentMethod = null;
+            }
+            return encodedMessage;
+        }
+
+        // a copy of the message, for the follow up capture
+        synchronized NetworkMessage getRequest() {
+            if(message != null) {
+                return parseRequest(message);
+            }
+            else if(!StringUtils.isNullOrEmpty(encodedMessage)) {
+                return decodeRequest(encoder, encodedMessage);
+            }
+            return null;
+        }
+
+        @Override
+        protected String encode() {
+            String encodedRequest = getEncodedMessage();
+            if(StringUtils.isNullOrEmpty(encodedRequest)) {
+                return encodedFallback;
+            }
+            return encodedRequest;
+        }
+    }
+
+    private static boolean hasCardData(NetworkMessage request) {
+        return request.has(DataElementId.DE_002)
+                || request.has(DataElementId.DE_014)
+                || request.has(DataElementId.DE_035)
+                || request.has(DataElementId.DE_045);
     }
 
     private NetworkMessage buildImpliedCapture(NetworkMessage request, NetworkMessage response, PaymentMethodType paymentMethodType) {
@@ -2595,11 +3028,19 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
 
         return impliedCapture;
     }
-    private String encodeRequest(NetworkMessage request) {
-        lrcFailure = false;
+    private synchronized IRequestEncoder getRequestEncoder() {
+        if(requestEncoder == null) {
+            if(isEnableLogging()) {
+                System.out.println(String.format("[TOKEN TRACE]: %s %s", companyId, terminalId));
+            }
+            requestEncoder = new PayrollEncoder(companyId, terminalId);
+        }
+        return requestEncoder;
+    }
+    private static String encodeRequest(IRequestEncoder encoder, byte[] message) {
         int encodeCount = 0;
         while(encodeCount++ < 3) {
-            String encodedRequest = doEncoding(request);
+            String encodedRequest = doEncoding(encoder, message);
 //            if(lrcFailure && isEnableLogging()) {
 //                System.out.println(String.format("[TOKEN TRACE]: framedRequest: %s", encodedRequest));
 //            }
@@ -2613,22 +3054,16 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
         }
         return null;
     }
-    private String doEncoding(NetworkMessage request) {
+    private static String doEncoding(IRequestEncoder encoder, byte[] message) {
         // base64 encode the message buffer
-        byte[] encoded = Base64.encodeBase64(request.buildMessage());
+        byte[] encoded = Base64.encodeBase64(message);
         String encodedString = new String(encoded);
 //        if(lrcFailure && isEnableLogging()) {
 //            System.out.println(String.format("[TOKEN TRACE]: encodedString: %s", encodedString));
 //        }
 
         // encrypt it
-        if(requestEncoder == null) {
-            if(isEnableLogging()) {
-                System.out.println(String.format("[TOKEN TRACE]: %s %s", companyId, terminalId));
-            }
-            requestEncoder = new PayrollEncoder(companyId, terminalId);
-        }
-        String token = requestEncoder.encode(encodedString);
+        String token = encoder.encode(encodedString);
 //        if(lrcFailure && isEnableLogging()) {
 //            System.out.println(String.format("[TOKEN TRACE]: encryptedToken: %s", token));
 //        }
@@ -2644,10 +3079,9 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
         return new String(mw.toArray());
     }
     private NetworkMessage decodeRequest(String encodedStr) {
-        if(requestEncoder == null) {
-            requestEncoder = new PayrollEncoder(companyId, terminalId);
-        }
-
+        return decodeRequest(getRequestEncoder(), encodedStr);
+    }
+    private static NetworkMessage decodeRequest(IRequestEncoder encoder, String encodedStr) {
         byte[] encodedBuffer = encodedStr.getBytes();
         MessageReader mr = new MessageReader(encodedBuffer);
 
@@ -2662,10 +3096,11 @@ public class VapsConnector extends NetworkGateway implements IPaymentGateway {
             }
         }
 
-        String requestStr = requestEncoder.decode(valueToDecrypt);
-        byte[] decoded = Base64.decodeBase64(requestStr);
-
-        mr = new MessageReader(decoded);
+        String requestStr = encoder.decode(valueToDecrypt);
+        return parseRequest(Base64.decodeBase64(requestStr));
+    }
+    private static NetworkMessage parseRequest(byte[] decoded) {
+        MessageReader mr = new MessageReader(decoded);
         String mti = mr.readString(4);
         byte[] buffer = mr.readBytes(decoded.length);
         NetworkMessage request = NetworkMessage.parse(buffer, Iso8583MessageType.CompleteMessage);
@@ -13,4 +13,11 @@ public abstract class XmlGateway extends Gateway {
             throw new GatewayException("Unexpected http status code [" + response.getStatusCode() + "]");
         return response.getRawResponse();
     }
+
+    public String doTransaction(byte[] request) throws GatewayException {
+        GatewayResponse response = sendRequest("POST", "", request);
+        if(response.getStatusCode() != 200)
+            throw new GatewayException("Unexpected http status code [" + response.getStatusCode() + "]");
+        return response.getRawResponse();
+    }
 }
@@ -24,7 +24,7 @@ public abstract class BillPayResponseBase<T> implements IBillPayResponse<T> {
         namespaces.put("a", "http://schemas.datacontract.org/2004/07/BDMS.NewModel");
         namespaces.put("i", "http://www.w3.org/2001/XMLSchema-instance");
 
-        this.response = ElementTree.parse(response, namespaces).get(responseTagName);
+        this.response = ElementTree.parse(response, namespaces, ElementTree.Parser.Streaming).get(responseTagName);
         return this;
     }
 
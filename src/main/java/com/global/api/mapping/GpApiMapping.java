@@ -9,9 +9,13 @@ import com.global.api.entities.gpApi.PagedResult;
 import com.global.api.entities.reporting.*;
 import com.global.api.utils.JsonDoc;
 import com.global.api.utils.StringUtils;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 import static com.global.api.gateways.GpApiConnector.parseGpApiDate;
@@ -165,8 +169,58 @@ public class GpApiMapping {
     }
 
     public static <T> T mapReportResponse(String rawResponse, ReportType reportType) throws GatewayException {
-        JsonDoc json = JsonDoc.parse(rawResponse);
+        return mapReportResponse(JsonDoc.parse(rawResponse), reportType);
+    }
 
+    /**
+     * Maps the report as it is read. Paged results are mapped one record at a time,
+     * so neither the raw response nor a document for the whole page is ever held.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T mapReportResponse(JsonReader reader, ReportType reportType) throws GatewayException, IOException {
+        switch (reportType) {
+            case FindTransactionsPaged:
+            case FindSettlementTransactionsPaged:
+                return (T) mapTransactions(reader);
+
+            case FindDepositsPaged:
+                return (T) mapDeposits(reader);
+
+            case FindDisputesPaged:
+                return (T) mapPagedResult(reader, "disputes", new DisputeSummaryPaged(), new ISummaryMapper<DisputeSummary>() {
+                    public DisputeSummary map(JsonDoc doc) throws GatewayException {
+                        return mapDisputeSummary(doc);
+                    }
+                });
+
+            case FindSettlementDisputesPaged:
+                return (T) mapPagedResult(reader, "disputes", new DisputeSummaryPaged(), new ISummaryMapper<DisputeSummary>() {
+                    public DisputeSummary map(JsonDoc doc) throws GatewayException {
+                        return mapSettlementDisputeSummary(doc);
+                    }
+                });
+
+            case FindStoredPaymentMethodsPaged:
+                return (T) mapPagedResult(reader, "payment_methods", new StoredPaymentMethodSummaryPaged(), new ISummaryMapper<StoredPaymentMethodSummary>() {
+                    public StoredPaymentMethodSummary map(JsonDoc doc) throws GatewayException {
+                        return mapStoredPaymentMethodSummary(doc);
+                    }
+                });
+
+            case FindActionsPaged:
+                return (T) mapPagedResult(reader, "actions", new ActionSummaryPaged(), new ISummaryMapper<ActionSummary>() {
+                    public ActionSummary map(JsonDoc doc) throws GatewayException {
+                        return mapActionSummary(doc);
+                    }
+                });
+
+            default:
+                return mapReportResponse(JsonDoc.parse(reader), reportType);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T mapReportResponse(JsonDoc json, ReportType reportType) throws GatewayException {
         switch (reportType) {
             case TransactionDetail:
                 return (T) mapTransactionSummary(json);
@@ -520,6 +574,14 @@ public class GpApiMapping {
         return pagedResult;
     }
 
+    public static TransactionSummaryPaged mapTransactions(JsonReader reader) throws GatewayException, IOException {
+        return mapPagedResult(reader, "transactions", new TransactionSummaryPaged(), new ISummaryMapper<TransactionSummary>() {
+            public TransactionSummary map(JsonDoc doc) throws GatewayException {
+                return mapTransactionSummary(doc);
+            }
+        });
+    }
+
     public static DepositSummaryPaged mapDeposits(JsonDoc doc) throws GatewayException {
         DepositSummaryPaged pagedResult = new DepositSummaryPaged();
         setPagingInfo(pagedResult, doc);
@@ -575,4 +637,45 @@ public class GpApiMapping {
         return pagedResult;
     }
 
-}
\ No newline at end of file
+    public static DepositSummaryPaged mapDeposits(JsonReader reader) throws GatewayException, IOException {
+        return mapPagedResult(reader, "deposits", new DepositSummaryPaged(), new ISummaryMapper<DepositSummary>() {
+            public DepositSummary map(JsonDoc doc) throws GatewayException {
+                return mapDepositSummary(doc);
+            }
+        });
+    }
+
+    private interface ISummaryMapper<T> {
+        T map(JsonDoc doc) throws GatewayException;
+    }
+
+    // Reads a page object, mapping the records of the named array as each one is read
+    private static <T, TResult extends PagedResult<T>> TResult mapPagedResult(JsonReader reader, String itemsName, TResult pagedResult, ISummaryMapper<T> mapper) throws GatewayException, IOException {
+        HashMap<String, Object> pagingValues = new HashMap<String, Object>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            JsonToken token = reader.peek();
+            if (name.equals(itemsName) && token == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (reader.peek() == JsonToken.BEGIN_OBJECT)
+                        pagedResult.add(mapper.map(JsonDoc.parse(reader)));
+                    else reader.skipValue();
+                }
+                reader.endArray();
+            } else if (token == JsonToken.BEGIN_OBJECT) {
+                pagingValues.put(name, JsonDoc.parse(reader));
+            } else if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                pagingValues.put(name, reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        setPagingInfo(pagedResult, new JsonDoc(pagingValues));
+        return pagedResult;
+    }
+}
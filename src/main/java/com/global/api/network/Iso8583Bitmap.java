@@ -1,83 +1,101 @@
 package com.global.api.network;
 
 import com.global.api.network.enums.DataElementId;
-import com.global.api.utils.ReverseIntEnumMap;
-import com.global.api.utils.StringUtils;
-
-import java.math.BigInteger;
+import com.global.api.utils.MessageWriter;
 
 public class Iso8583Bitmap {
-    private String binaryValue;
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+    private static final DataElementId[] dataElementMap;
+    static {
+        int maxValue = 0;
+        for(DataElementId id: DataElementId.values()) {
+            maxValue = Math.max(maxValue, id.getValue());
+        }
+
+        dataElementMap = new DataElementId[maxValue + 1];
+        for(DataElementId id: DataElementId.values()) {
+            dataElementMap[id.getValue()] = id;
+        }
+    }
+
+    // bit 63 is the first data element of the bitmap, bit 0 the last
+    private long value;
     private int offset;
     private int currIndex = -1;
 
-    private ReverseIntEnumMap<DataElementId> dataElementMap;
-
     public Iso8583Bitmap(byte[] bytes) {
         this(bytes, 0);
     }
     public Iso8583Bitmap(byte[] bytes, int offset) {
         this.offset = offset;
 
-        StringBuilder sb = new StringBuilder();
-        for(byte b: bytes) {
-            sb.append(Integer.toBinaryString((b & 0xFF) + 0x100).substring(1));
+        for(int i = 0; i < bytes.length && i < 8; i++) {
+            value |= (long)(bytes[i] & 0xFF) << (56 - (i * 8));
         }
-
-        binaryValue = sb.toString();
-        dataElementMap = new ReverseIntEnumMap<DataElementId>(DataElementId.class);
     }
 
     public boolean isPresent(DataElementId element) {
-        return binaryValue.charAt(element.getValue() - offset) == '1';
+        int index = element.getValue() - offset;
+        if(index < 0 || index > 63) {
+            return false;
+        }
+        return (value & (1L << (63 - index))) != 0;
     }
 
     public DataElementId getNextDataElement() {
-        // get the next set value
-        char value;
-        do {
-            // return null if end of string
-            if(++currIndex >= binaryValue.length()) {
-                return null;
-            }
+        // return null if end of the bitmap
+        if(++currIndex > 63) {
+            return null;
+        }
 
-            value = binaryValue.charAt(currIndex);
+        long remaining = value << currIndex;
+        if(remaining == 0) {
+            currIndex = 64;
+            return null;
         }
-        while (value == '0');
+        currIndex += Long.numberOfLeadingZeros(remaining);
 
         // return the enum value
-        return dataElementMap.get(currIndex + offset);
+        int elementValue = currIndex + offset;
+        if(elementValue >= dataElementMap.length) {
+            return null;
+        }
+        return dataElementMap[elementValue];
     }
 
     void setDataElement(DataElementId element) {
-        StringBuilder sb = new StringBuilder(binaryValue);
-        sb.setCharAt(element.getValue() - offset, '1');
-        binaryValue = sb.toString();
+        int index = element.getValue() - offset;
+        if(index < 0 || index > 63) {
+            throw new IndexOutOfBoundsException(String.format("%s is outside of this bitmap.", element));
+        }
+        value |= 1L << (63 - index);
     }
 
     public String toBinaryString() {
-        return binaryValue;
+        char[] chars = new char[64];
+        for(int i = 0; i < 64; i++) {
+            chars[i] = (value & (1L << (63 - i))) != 0 ? '1' : '0';
+        }
+        return new String(chars);
     }
     public String toHexString() {
-        StringBuilder sb = new StringBuilder();
-
-        for(int i = 0; i < binaryValue.length(); i += 8) {
-            int decimal = Integer.parseInt(binaryValue.substring(i, i + 8), 2);
-            String hexValue = Integer.toString(decimal, 16);
-            sb.append(StringUtils.padLeft(hexValue, 2, '0'));
+        char[] chars = new char[16];
+        for(int i = 0; i < 16; i++) {
+            chars[i] = HEX_CHARS[(int)(value >>> (60 - (i * 4))) & 0x0F];
         }
-
-        return sb.toString();
+        return new String(chars);
     }
     public byte[] toByteArray() {
-        String s = toHexString();
-
-        byte[] b = new byte[s.length() / 2];
-        for (int i = 0; i < b.length; i++) {
-            int index = i * 2;
-            int v = Integer.parseInt(s.substring(index, index + 2), 16);
-            b[i] = (byte) v;
+        byte[] b = new byte[8];
+        for(int i = 0; i < 8; i++) {
+            b[i] = (byte)(value >>> (56 - (i * 8)));
         }
         return b;
     }
+
+    void writeTo(MessageWriter mw) {
+        for(int i = 0; i < 8; i++) {
+            mw.add((byte)(value >>> (56 - (i * 8))));
+        }
+    }
 }
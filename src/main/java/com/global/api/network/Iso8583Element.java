@@ -5,7 +5,6 @@ import com.global.api.network.enums.DataElementType;
 import com.global.api.network.enums.DataElementId;
 import com.global.api.utils.MessageReader;
 import com.global.api.utils.MessageWriter;
-import com.global.api.utils.StringUtils;
 
 public class Iso8583Element {
     private DataElementId id;
@@ -14,6 +13,11 @@ public class Iso8583Element {
     private Integer length;
     private byte[] buffer;
 
+    // parsed elements only point into the message they were read from until the value is needed
+    private byte[] source;
+    private int sourceOffset;
+    private int sourceLength;
+
     public DataElementId getId() {
         return id;
     }
@@ -27,10 +31,27 @@ public class Iso8583Element {
         return length;
     }
     public byte[] getBuffer() {
+        if(buffer == null && source != null) {
+            byte[] value = new byte[sourceLength];
+
+            // a truncated message leaves the missing bytes zeroed
+            int available = Math.max(0, Math.min(sourceLength, source.length - sourceOffset));
+            System.arraycopy(source, sourceOffset, value, 0, available);
+            buffer = value;
+        }
         return buffer;
     }
+    String getString() {
+        if(isIndexed()) {
+            return new String(source, sourceOffset, sourceLength);
+        }
+
+        byte[] value = getBuffer();
+        return value == null ? null : new String(value);
+    }
     byte[] getSendBuffer() {
-        if(buffer == null) {
+        byte[] value = getBuffer();
+        if(value == null) {
             return new byte[0];
         }
 
@@ -38,20 +59,46 @@ public class Iso8583Element {
             case LVAR:
             case LLVAR:
             case LLLVAR: {
-                String length = StringUtils.padLeft(buffer.length, type.equals(DataElementType.LVAR) ? 1 : type.equals(DataElementType.LLVAR) ? 2 : 3, '0');
-
-                MessageWriter mw = new MessageWriter();
-                mw.addRange(length.getBytes());
-                mw.addRange(buffer);
+                MessageWriter mw = new MessageWriter(value.length + 3);
+                writeTo(mw);
 
                 return mw.toArray();
             }
             default: {
-                return buffer;
+                return value;
+            }
+        }
+    }
+    void writeTo(MessageWriter mw) {
+        if(isIndexed()) {
+            writeTo(mw, source, sourceOffset, sourceLength);
+        }
+        else {
+            byte[] value = getBuffer();
+            if(value != null) {
+                writeTo(mw, value, 0, value.length);
+            }
+        }
+    }
+    private void writeTo(MessageWriter mw, byte[] value, int offset, int count) {
+        switch (type) {
+            case LVAR:
+            case LLVAR:
+            case LLLVAR: {
+                mw.addDigits(count, getPrefixLength(type));
+                mw.addRange(value, offset, count);
+            } break;
+            default: {
+                mw.addRange(value, offset, count);
             }
         }
     }
 
+    // true while the value can still be read straight out of the source message
+    private boolean isIndexed() {
+        return buffer == null && source != null && sourceOffset + sourceLength <= source.length;
+    }
+
     private Iso8583Element() {}
 
     static Iso8583Element inflate(DataElementId id, DataElementType type, String description, Integer length, byte[] buffer) {
@@ -75,23 +122,31 @@ public class Iso8583Element {
             case LVAR:
             case LLVAR:
             case LLLVAR: {
-                String lengthStr = mr.readString(type.equals(DataElementType.LVAR) ? 1 : type.equals(DataElementType.LLVAR) ? 2 : 3);
-                Integer actualLength = Integer.parseInt(lengthStr);
-                element.buffer = mr.readBytes(actualLength);
+                String lengthStr = mr.readString(getPrefixLength(type));
+                element.sourceLength = Integer.parseInt(lengthStr);
             }
             break;
             default: {
-                element.buffer = mr.readBytes(length);
+                element.sourceLength = length;
             }
         }
 
+        // index the value over the reader's buffer rather than copying it out
+        element.source = mr.getBuffer();
+        element.sourceOffset = mr.getPosition();
+        mr.skip(element.sourceLength);
+
         return element;
     }
 
+    private static int getPrefixLength(DataElementType type) {
+        return type.equals(DataElementType.LVAR) ? 1 : type.equals(DataElementType.LLVAR) ? 2 : 3;
+    }
+
     <TResult extends IDataElement<TResult>> TResult getConcrete(Class<TResult> clazz) {
         try {
             TResult rvalue = clazz.newInstance();
-            return rvalue.fromByteArray(buffer);
+            return rvalue.fromByteArray(getBuffer());
         }
         catch(Exception exc) {
             return null;
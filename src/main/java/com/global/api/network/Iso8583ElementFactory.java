@@ -1,143 +1,169 @@
 package com.global.api.network;
 
+import com.global.api.network.abstractions.IIso8583SpecificationLoader;
 import com.global.api.network.enums.DataElementId;
 import com.global.api.network.enums.DataElementType;
 import com.global.api.utils.MessageReader;
 import com.global.api.network.enums.Iso8583MessageType;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
-class Iso8583ElementFactory {
-    private HashMap<DataElementId, String> elementDescriptions;
-    private HashMap<DataElementId, Integer> elementLengths;
-    private HashMap<DataElementId, DataElementType> elementTypes;
-    private MessageReader messageReader;
+/**
+ * The element specifications are compiled once per message type and never change afterwards,
+ * so the same factory is shared by every message of that type on every thread. Registering a
+ * loader compiles a new set of factories for the messages created from then on.
+ */
+public class Iso8583ElementFactory {
+    private static final IIso8583SpecificationLoader defaultLoader = new IIso8583SpecificationLoader() {
+        public void load(Iso8583MessageType messageType, Iso8583Specification specification) {
+            if(messageType.equals(Iso8583MessageType.CompleteMessage)) {
+                specification.addElement(DataElementId.DE_001, DataElementType.BINARY, "Secondary BitmapElement", 8);
+                specification.addElement(DataElementId.DE_002, DataElementType.LLVAR, "Primary Account Number (PAN)", 19);
+                specification.addElement(DataElementId.DE_003, DataElementType.NUMERIC, "Processing Code", 6);
+                specification.addElement(DataElementId.DE_004, DataElementType.NUMERIC, "Amount, Transaction", 12);
+                specification.addElement(DataElementId.DE_007, DataElementType.NUMERIC, "Date and Time, Transmission", 10);
+                specification.addElement(DataElementId.DE_011, DataElementType.NUMERIC, "System Trace Audit Number (STAN)", 6);
+                specification.addElement(DataElementId.DE_012, DataElementType.NUMERIC, "Date and Time, Transaction", 12);
+                specification.addElement(DataElementId.DE_014, DataElementType.NUMERIC, "Date, Expiration", 4);
+                specification.addElement(DataElementId.DE_015, DataElementType.NUMERIC, "Date, Settlement", 6);
+                specification.addElement(DataElementId.DE_017, DataElementType.NUMERIC, "Date, Capture", 4);
+                specification.addElement(DataElementId.DE_018, DataElementType.NUMERIC, "Merchant Type", 4);
+                specification.addElement(DataElementId.DE_019, DataElementType.NUMERIC, "Country Code, Acquiring Institution", 3);
+                specification.addElement(DataElementId.DE_022, DataElementType.ALPHA_NUMERIC, "Point of Service Data Code", 12);
+                specification.addElement(DataElementId.DE_023, DataElementType.NUMERIC, "Card Sequence Number", 3);
+                specification.addElement(DataElementId.DE_024, DataElementType.NUMERIC, "Function Code", 3);
+                specification.addElement(DataElementId.DE_025, DataElementType.NUMERIC, "Message Reason Code", 4);
+                specification.addElement(DataElementId.DE_028, DataElementType.NUMERIC, "Date, Reconciliation", 6);
+                specification.addElement(DataElementId.DE_030, DataElementType.NUMERIC, "Amounts, Original", 24);
+                specification.addElement(DataElementId.DE_032, DataElementType.LLVAR, "Acquiring Institution Identification Code", 11);
+                specification.addElement(DataElementId.DE_034, DataElementType.LLVAR, "Primary Account Number, Extended", 28);
+                specification.addElement(DataElementId.DE_035, DataElementType.LLVAR, "Track 2 Data", 37);
+                specification.addElement(DataElementId.DE_037, DataElementType.ALPHA_NUMERIC_PAD, "Retrieval Reference Number", 12);
+                specification.addElement(DataElementId.DE_038, DataElementType.ALPHA_NUMERIC_PAD, "Approval Code", 6);
+                specification.addElement(DataElementId.DE_039, DataElementType.NUMERIC, "Action Code", 3);
+                specification.addElement(DataElementId.DE_041, DataElementType.ALPHA_NUMERIC_SPECIAL, "Card Acceptor Terminal Identification Code", 8);
+                specification.addElement(DataElementId.DE_042, DataElementType.ALPHA_NUMERIC_SPECIAL, "Card Acceptor Identification Code", 15);
+                specification.addElement(DataElementId.DE_043, DataElementType.LLVAR, "Card Acceptor Name/Location", 99);
+                specification.addElement(DataElementId.DE_044, DataElementType.LLVAR, "Additional Response Data", 99);
+                specification.addElement(DataElementId.DE_045, DataElementType.LLVAR, "Track 1 Data", 76);
+                specification.addElement(DataElementId.DE_046, DataElementType.LLLVAR, "Amounts, Fees", 204);
+                specification.addElement(DataElementId.DE_048, DataElementType.LLLVAR, "Message Control", 999);
+                specification.addElement(DataElementId.DE_049, DataElementType.NUMERIC, "Currency Code, Transaction", 3);
+                specification.addElement(DataElementId.DE_050, DataElementType.NUMERIC, "Currency Code, Reconciliation", 3);
+                specification.addElement(DataElementId.DE_052, DataElementType.BINARY, "Personal Identification Number (PIN) Data", 8);
+                specification.addElement(DataElementId.DE_053, DataElementType.LLVAR, "Security Related Control Information", 48);
+                specification.addElement(DataElementId.DE_054, DataElementType.LLLVAR, "Amounts, Additional", 120);
+                specification.addElement(DataElementId.DE_055, DataElementType.LLLVAR, "Integrated Circuit Card (ICC) Data", 512);
+                specification.addElement(DataElementId.DE_056, DataElementType.LLVAR, "Original Data Elements", 35);
+                specification.addElement(DataElementId.DE_058, DataElementType.LLVAR, "Authorizing Agent Institution Identification Code", 11);
+                specification.addElement(DataElementId.DE_059, DataElementType.LLLVAR, "Transport Data", 999);
+                specification.addElement(DataElementId.DE_062, DataElementType.LLLVAR, "Card Issuer Data", 999);
+                specification.addElement(DataElementId.DE_063, DataElementType.LLLVAR, "Product Data", 999);
+                specification.addElement(DataElementId.DE_072, DataElementType.LLLVAR, "Data Record", 999);
+                specification.addElement(DataElementId.DE_073, DataElementType.NUMERIC, "Date, Action", 6);
+                specification.addElement(DataElementId.DE_096, DataElementType.LLLVAR, "Key Management Data", 999);
+                specification.addElement(DataElementId.DE_097, DataElementType.NUMERIC, "Amount, Net Reconciliation", 16);
+                specification.addElement(DataElementId.DE_102, DataElementType.LLVAR, "Account Identification 1", 28);
+                specification.addElement(DataElementId.DE_103, DataElementType.LLVAR, "Check MICR Data (Account Identification 2)", 28);
+                specification.addElement(DataElementId.DE_115, DataElementType.LLLVAR, "eWIC Overflow Data", 999);
+                specification.addElement(DataElementId.DE_116, DataElementType.LLLVAR, "eWIC Overflow Data", 999);
+                specification.addElement(DataElementId.DE_117, DataElementType.LLLVAR, "eWIC Data", 999);
+                specification.addElement(DataElementId.DE_123, DataElementType.LLLVAR, "Reconciliation Totals", 999);
+                specification.addElement(DataElementId.DE_124, DataElementType.LLLVAR, "Sundry Data", 999);
+                specification.addElement(DataElementId.DE_125, DataElementType.LLLVAR, "Extended Response Data 1", 999);
+                specification.addElement(DataElementId.DE_126, DataElementType.LLLVAR, "Extended Response Data 2", 999);
+                specification.addElement(DataElementId.DE_127, DataElementType.LLLVAR, "Forwarding Data", 999);
+            }
+            else if(messageType.equals(Iso8583MessageType.SubElement_DE_048)) {
+                specification.addElement(DataElementId.DE_001, DataElementType.NUMERIC, "Communication Diagnostics", 4);
+                specification.addElement(DataElementId.DE_002, DataElementType.ALPHA_NUMERIC_SPECIAL, "Hardware & Software Configuration", 20);
+                specification.addElement(DataElementId.DE_003, DataElementType.ALPHA, "Language Code", 2);
+                specification.addElement(DataElementId.DE_004, DataElementType.NUMERIC, "Batch Number", 10);
+                specification.addElement(DataElementId.DE_005, DataElementType.NUMERIC, "Shift Number", 3);
+                specification.addElement(DataElementId.DE_006, DataElementType.LVAR, "Clerk Id", 9);
+                specification.addElement(DataElementId.DE_007, DataElementType.NUMERIC, "Multiple Transaction Control", 9);
+                specification.addElement(DataElementId.DE_008, DataElementType.LLLVAR, "Customer Data", 250);
+                specification.addElement(DataElementId.DE_009, DataElementType.LLVAR, "Track 2 for Second Card", 37);
+                specification.addElement(DataElementId.DE_010, DataElementType.LLVAR, "Track 1 for Second Card", 76);
+                specification.addElement(DataElementId.DE_011, DataElementType.ALPHA_NUMERIC_PAD, "Card Type", 4);
+                specification.addElement(DataElementId.DE_012, DataElementType.BINARY, "Administratively Directed Task", 1);
+                specification.addElement(DataElementId.DE_013, DataElementType.LLVAR, "RFID Data", 99);
+                specification.addElement(DataElementId.DE_014, DataElementType.ALPHA_NUMERIC_SPECIAL, "PIN Encryption Methodology", 2);
+                specification.addElement(DataElementId.DE_033, DataElementType.LLVAR, "POS Configuration", 99);
+                specification.addElement(DataElementId.DE_034, DataElementType.LLVAR, "Message Configuration", 99);
+                specification.addElement(DataElementId.DE_035, DataElementType.LLVAR, "Name 1", 99);
+                specification.addElement(DataElementId.DE_036, DataElementType.LLVAR, "Name 2", 99);
+                specification.addElement(DataElementId.DE_037, DataElementType.LLVAR, "Secondary Account Number", 28);
+                specification.addElement(DataElementId.DE_039, DataElementType.LLVAR, "Prior Message Information", 99);
+                specification.addElement(DataElementId.DE_040, DataElementType.LLVAR, "Address 1", 99);
+                specification.addElement(DataElementId.DE_041, DataElementType.LLVAR, "Address 2", 99);
+                specification.addElement(DataElementId.DE_042, DataElementType.LLVAR, "Address 3", 99);
+                specification.addElement(DataElementId.DE_043, DataElementType.LLVAR, "Address 4", 99);
+                specification.addElement(DataElementId.DE_044, DataElementType.LLVAR, "Address 5", 99);
+                specification.addElement(DataElementId.DE_045, DataElementType.LLVAR, "Address 6", 99);
+                specification.addElement(DataElementId.DE_046, DataElementType.LLVAR, "Address 7", 99);
+                specification.addElement(DataElementId.DE_047, DataElementType.LLVAR, "Address 8", 99);
+                specification.addElement(DataElementId.DE_048, DataElementType.LLVAR, "Address 9", 99);
+                specification.addElement(DataElementId.DE_049, DataElementType.LLVAR, "Address 10", 99);
+            }
+        }
+    };
+    private static final List<IIso8583SpecificationLoader> loaders = new ArrayList<IIso8583SpecificationLoader>();
+    private static volatile Map<Iso8583MessageType, Iso8583ElementFactory> factories = compile();
 
-    static Iso8583ElementFactory getConfiguredFactory(Iso8583MessageType messageType) {
-        return getConfiguredFactory(null, messageType);
+    private final Iso8583Specification specification;
+
+    public static Iso8583Specification getSpecification(Iso8583MessageType messageType) {
+        return factories.get(messageType).specification;
     }
-    static Iso8583ElementFactory getConfiguredFactory(MessageReader mr, Iso8583MessageType messageType) {
-        Iso8583ElementFactory factory = new Iso8583ElementFactory(mr);
 
-        if(messageType.equals(Iso8583MessageType.CompleteMessage)) {
-            factory.addElementMapping(DataElementId.DE_001, DataElementType.BINARY, "Secondary BitmapElement", 8);
-            factory.addElementMapping(DataElementId.DE_002, DataElementType.LLVAR, "Primary Account Number (PAN)", 19);
-            factory.addElementMapping(DataElementId.DE_003, DataElementType.NUMERIC, "Processing Code", 6);
-            factory.addElementMapping(DataElementId.DE_004, DataElementType.NUMERIC, "Amount, Transaction", 12);
-            factory.addElementMapping(DataElementId.DE_007, DataElementType.NUMERIC, "Date and Time, Transmission", 10);
-            factory.addElementMapping(DataElementId.DE_011, DataElementType.NUMERIC, "System Trace Audit Number (STAN)", 6);
-            factory.addElementMapping(DataElementId.DE_012, DataElementType.NUMERIC, "Date and Time, Transaction", 12);
-            factory.addElementMapping(DataElementId.DE_014, DataElementType.NUMERIC, "Date, Expiration", 4);
-            factory.addElementMapping(DataElementId.DE_015, DataElementType.NUMERIC, "Date, Settlement", 6);
-            factory.addElementMapping(DataElementId.DE_017, DataElementType.NUMERIC, "Date, Capture", 4);
-            factory.addElementMapping(DataElementId.DE_018, DataElementType.NUMERIC, "Merchant Type", 4);
-            factory.addElementMapping(DataElementId.DE_019, DataElementType.NUMERIC, "Country Code, Acquiring Institution", 3);
-            factory.addElementMapping(DataElementId.DE_022, DataElementType.ALPHA_NUMERIC, "Point of Service Data Code", 12);
-            factory.addElementMapping(DataElementId.DE_023, DataElementType.NUMERIC, "Card Sequence Number", 3);
-            factory.addElementMapping(DataElementId.DE_024, DataElementType.NUMERIC, "Function Code", 3);
-            factory.addElementMapping(DataElementId.DE_025, DataElementType.NUMERIC, "Message Reason Code", 4);
-            factory.addElementMapping(DataElementId.DE_028, DataElementType.NUMERIC, "Date, Reconciliation", 6);
-            factory.addElementMapping(DataElementId.DE_030, DataElementType.NUMERIC, "Amounts, Original", 24);
-            factory.addElementMapping(DataElementId.DE_032, DataElementType.LLVAR, "Acquiring Institution Identification Code", 11);
-            factory.addElementMapping(DataElementId.DE_034, DataElementType.LLVAR, "Primary Account Number, Extended", 28);
-            factory.addElementMapping(DataElementId.DE_035, DataElementType.LLVAR, "Track 2 Data", 37);
-            factory.addElementMapping(DataElementId.DE_037, DataElementType.ALPHA_NUMERIC_PAD, "Retrieval Reference Number", 12);
-            factory.addElementMapping(DataElementId.DE_038, DataElementType.ALPHA_NUMERIC_PAD, "Approval Code", 6);
-            factory.addElementMapping(DataElementId.DE_039, DataElementType.NUMERIC, "Action Code", 3);
-            factory.addElementMapping(DataElementId.DE_041, DataElementType.ALPHA_NUMERIC_SPECIAL, "Card Acceptor Terminal Identification Code", 8);
-            factory.addElementMapping(DataElementId.DE_042, DataElementType.ALPHA_NUMERIC_SPECIAL, "Card Acceptor Identification Code", 15);
-            factory.addElementMapping(DataElementId.DE_043, DataElementType.LLVAR, "Card Acceptor Name/Location", 99);
-            factory.addElementMapping(DataElementId.DE_044, DataElementType.LLVAR, "Additional Response Data", 99);
-            factory.addElementMapping(DataElementId.DE_045, DataElementType.LLVAR, "Track 1 Data", 76);
-            factory.addElementMapping(DataElementId.DE_046, DataElementType.LLLVAR, "Amounts, Fees", 204);
-            factory.addElementMapping(DataElementId.DE_048, DataElementType.LLLVAR, "Message Control", 999);
-            factory.addElementMapping(DataElementId.DE_049, DataElementType.NUMERIC, "Currency Code, Transaction", 3);
-            factory.addElementMapping(DataElementId.DE_050, DataElementType.NUMERIC, "Currency Code, Reconciliation", 3);
-            factory.addElementMapping(DataElementId.DE_052, DataElementType.BINARY, "Personal Identification Number (PIN) Data", 8);
-            factory.addElementMapping(DataElementId.DE_053, DataElementType.LLVAR, "Security Related Control Information", 48);
-            factory.addElementMapping(DataElementId.DE_054, DataElementType.LLLVAR, "Amounts, Additional", 120);
-            factory.addElementMapping(DataElementId.DE_055, DataElementType.LLLVAR, "Integrated Circuit Card (ICC) Data", 512);
-            factory.addElementMapping(DataElementId.DE_056, DataElementType.LLVAR, "Original Data Elements", 35);
-            factory.addElementMapping(DataElementId.DE_058, DataElementType.LLVAR, "Authorizing Agent Institution Identification Code", 11);
-            factory.addElementMapping(DataElementId.DE_059, DataElementType.LLLVAR, "Transport Data", 999);
-            factory.addElementMapping(DataElementId.DE_062, DataElementType.LLLVAR, "Card Issuer Data", 999);
-            factory.addElementMapping(DataElementId.DE_063, DataElementType.LLLVAR, "Product Data", 999);
-            factory.addElementMapping(DataElementId.DE_072, DataElementType.LLLVAR, "Data Record", 999);
-            factory.addElementMapping(DataElementId.DE_073, DataElementType.NUMERIC, "Date, Action", 6);
-            factory.addElementMapping(DataElementId.DE_096, DataElementType.LLLVAR, "Key Management Data", 999);
-            factory.addElementMapping(DataElementId.DE_097, DataElementType.NUMERIC, "Amount, Net Reconciliation", 16);
-            factory.addElementMapping(DataElementId.DE_102, DataElementType.LLVAR, "Account Identification 1", 28);
-            factory.addElementMapping(DataElementId.DE_103, DataElementType.LLVAR, "Check MICR Data (Account Identification 2)", 28);
-            factory.addElementMapping(DataElementId.DE_115, DataElementType.LLLVAR, "eWIC Overflow Data", 999);
-            factory.addElementMapping(DataElementId.DE_116, DataElementType.LLLVAR, "eWIC Overflow Data", 999);
-            factory.addElementMapping(DataElementId.DE_117, DataElementType.LLLVAR, "eWIC Data", 999);
-            factory.addElementMapping(DataElementId.DE_123, DataElementType.LLLVAR, "Reconciliation Totals", 999);
-            factory.addElementMapping(DataElementId.DE_124, DataElementType.LLLVAR, "Sundry Data", 999);
-            factory.addElementMapping(DataElementId.DE_125, DataElementType.LLLVAR, "Extended Response Data 1", 999);
-            factory.addElementMapping(DataElementId.DE_126, DataElementType.LLLVAR, "Extended Response Data 2", 999);
-            factory.addElementMapping(DataElementId.DE_127, DataElementType.LLLVAR, "Forwarding Data", 999);
+    public static synchronized void addSpecificationLoader(IIso8583SpecificationLoader loader) {
+        loaders.add(loader);
+        try {
+            factories = compile();
         }
-        else if(messageType.equals(Iso8583MessageType.SubElement_DE_048)) {
-            factory.addElementMapping(DataElementId.DE_001, DataElementType.NUMERIC, "Communication Diagnostics", 4);
-            factory.addElementMapping(DataElementId.DE_002, DataElementType.ALPHA_NUMERIC_SPECIAL, "Hardware & Software Configuration", 20);
-            factory.addElementMapping(DataElementId.DE_003, DataElementType.ALPHA, "Language Code", 2);
-            factory.addElementMapping(DataElementId.DE_004, DataElementType.NUMERIC, "Batch Number", 10);
-            factory.addElementMapping(DataElementId.DE_005, DataElementType.NUMERIC, "Shift Number", 3);
-            factory.addElementMapping(DataElementId.DE_006, DataElementType.LVAR, "Clerk Id", 9);
-            factory.addElementMapping(DataElementId.DE_007, DataElementType.NUMERIC, "Multiple Transaction Control", 9);
-            factory.addElementMapping(DataElementId.DE_008, DataElementType.LLLVAR, "Customer Data", 250);
-            factory.addElementMapping(DataElementId.DE_009, DataElementType.LLVAR, "Track 2 for Second Card", 37);
-            factory.addElementMapping(DataElementId.DE_010, DataElementType.LLVAR, "Track 1 for Second Card", 76);
-            factory.addElementMapping(DataElementId.DE_011, DataElementType.ALPHA_NUMERIC_PAD, "Card Type", 4);
-            factory.addElementMapping(DataElementId.DE_012, DataElementType.BINARY, "Administratively Directed Task", 1);
-            factory.addElementMapping(DataElementId.DE_013, DataElementType.LLVAR, "RFID Data", 99);
-            factory.addElementMapping(DataElementId.DE_014, DataElementType.ALPHA_NUMERIC_SPECIAL, "PIN Encryption Methodology", 2);
-            factory.addElementMapping(DataElementId.DE_033, DataElementType.LLVAR, "POS Configuration", 99);
-            factory.addElementMapping(DataElementId.DE_034, DataElementType.LLVAR, "Message Configuration", 99);
-            factory.addElementMapping(DataElementId.DE_035, DataElementType.LLVAR, "Name 1", 99);
-            factory.addElementMapping(DataElementId.DE_036, DataElementType.LLVAR, "Name 2", 99);
-            factory.addElementMapping(DataElementId.DE_037, DataElementType.LLVAR, "Secondary Account Number", 28);
-            factory.addElementMapping(DataElementId.DE_039, DataElementType.LLVAR, "Prior Message Information", 99);
-            factory.addElementMapping(DataElementId.DE_040, DataElementType.LLVAR, "Address 1", 99);
-            factory.addElementMapping(DataElementId.DE_041, DataElementType.LLVAR, "Address 2", 99);
-            factory.addElementMapping(DataElementId.DE_042, DataElementType.LLVAR, "Address 3", 99);
-            factory.addElementMapping(DataElementId.DE_043, DataElementType.LLVAR, "Address 4", 99);
-            factory.addElementMapping(DataElementId.DE_044, DataElementType.LLVAR, "Address 5", 99);
-            factory.addElementMapping(DataElementId.DE_045, DataElementType.LLVAR, "Address 6", 99);
-            factory.addElementMapping(DataElementId.DE_046, DataElementType.LLVAR, "Address 7", 99);
-            factory.addElementMapping(DataElementId.DE_047, DataElementType.LLVAR, "Address 8", 99);
-            factory.addElementMapping(DataElementId.DE_048, DataElementType.LLVAR, "Address 9", 99);
-            factory.addElementMapping(DataElementId.DE_049, DataElementType.LLVAR, "Address 10", 99);
+        catch(RuntimeException exc) {
+            loaders.remove(loader);
+            throw exc;
+        }
+    }
+    public static synchronized void removeSpecificationLoader(IIso8583SpecificationLoader loader) {
+        if(loaders.remove(loader)) {
+            factories = compile();
         }
-
-        return factory;
     }
 
-    private Iso8583ElementFactory(MessageReader mr) {
-        messageReader = mr;
-        elementTypes = new HashMap<DataElementId, DataElementType>();
-        elementDescriptions = new HashMap<DataElementId, String>();
-        elementLengths = new HashMap<DataElementId, Integer>();
+    static Iso8583ElementFactory getConfiguredFactory(Iso8583MessageType messageType) {
+        return factories.get(messageType);
     }
 
-    private void addElementMapping(DataElementId id, DataElementType type, String description, int length) {
-        elementTypes.put(id, type);
-        elementDescriptions.put(id, description);
-        elementLengths.put(id, length);
+    // called during class initialization or while holding the class lock
+    private static Map<Iso8583MessageType, Iso8583ElementFactory> compile() {
+        EnumMap<Iso8583MessageType, Iso8583ElementFactory> map = new EnumMap<Iso8583MessageType, Iso8583ElementFactory>(Iso8583MessageType.class);
+        for(Iso8583MessageType messageType: Iso8583MessageType.values()) {
+            Iso8583Specification specification = new Iso8583Specification();
+
+            defaultLoader.load(messageType, specification);
+            for(IIso8583SpecificationLoader loader: loaders) {
+                loader.load(messageType, specification);
+            }
+            map.put(messageType, new Iso8583ElementFactory(specification.freeze()));
+        }
+        return Collections.unmodifiableMap(map);
     }
 
-    Iso8583Element createElement(DataElementId id) {
-        DataElementType type = elementTypes.get(id);
-        String description = elementDescriptions.get(id);
-        Integer length = elementLengths.get(id);
+    private Iso8583ElementFactory(Iso8583Specification specification) {
+        this.specification = specification;
+    }
 
-        return Iso8583Element.inflate(id, type, description, length, messageReader);
+    Iso8583Element createElement(DataElementId id, MessageReader mr) {
+        return Iso8583Element.inflate(id, specification.getType(id), specification.getDescription(id), specification.getLength(id), mr);
     }
     Iso8583Element createElement(DataElementId id, byte[] buffer) {
-        DataElementType type = elementTypes.get(id);
-        String description = elementDescriptions.get(id);
-        Integer length = elementLengths.get(id);
-
-        return Iso8583Element.inflate(id, type, description, length, buffer);
+        return Iso8583Element.inflate(id, specification.getType(id), specification.getDescription(id), specification.getLength(id), buffer);
     }
 }
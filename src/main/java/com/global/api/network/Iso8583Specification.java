@@ -0,0 +1,52 @@
+package com.global.api.network;
+
+import com.global.api.network.enums.DataElementId;
+import com.global.api.network.enums.DataElementType;
+
+/**
+ * The element definitions for one message type, indexed by the element's ordinal.
+ * A specification is frozen once the element factory has been compiled from it.
+ */
+public class Iso8583Specification {
+    private final DataElementType[] elementTypes;
+    private final String[] elementDescriptions;
+    private final Integer[] elementLengths;
+    private boolean frozen;
+
+    public DataElementType getType(DataElementId id) {
+        return elementTypes[id.ordinal()];
+    }
+    public String getDescription(DataElementId id) {
+        return elementDescriptions[id.ordinal()];
+    }
+    public Integer getLength(DataElementId id) {
+        return elementLengths[id.ordinal()];
+    }
+    public boolean isDefined(DataElementId id) {
+        return elementTypes[id.ordinal()] != null;
+    }
+
+    Iso8583Specification() {
+        int count = DataElementId.values().length;
+        elementTypes = new DataElementType[count];
+        elementDescriptions = new String[count];
+        elementLengths = new Integer[count];
+    }
+
+    public Iso8583Specification addElement(DataElementId id, DataElementType type, String description, int length) {
+        if(frozen) {
+            throw new IllegalStateException("The specification has already been compiled.");
+        }
+
+        int index = id.ordinal();
+        elementTypes[index] = type;
+        elementDescriptions[index] = description;
+        elementLengths[index] = length;
+        return this;
+    }
+
+    Iso8583Specification freeze() {
+        frozen = true;
+        return this;
+    }
+}
@@ -0,0 +1,579 @@
+package com.global.api.network;
+
+import com.global.api.entities.enums.PaymentMethodType;
+import com.global.api.entities.enums.TransactionType;
+import com.global.api.entities.exceptions.BatchFullException;
+import com.global.api.network.abstractions.IResendTracker;
+import com.global.api.network.abstractions.IStreamingBatchProvider;
+import com.global.api.network.entities.PriorMessageInformation;
+import com.global.api.terminals.abstractions.IDisposable;
+import com.global.api.utils.IRequestEncoder;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+
+/**
+ * A batch provider keeping the open batch in an append-only journal, a file mapped into memory.
+ * Each sequence number and data collect is written to the journal as a record, and the running
+ * totals are rebuilt from it when the provider is opened again, e.g. after a crash. A record only
+ * partly written when the process stopped is dropped.
+ *
+ * Every batch has its own journal file in the directory, journal.000001 and so on. Closing the
+ * batch starts the next file and removes the old one.
+ *
+ * A call returns once its record is on disk. Calls made at the same time share one flush.
+ *
+ * The requests the host has taken back while recovering a batch close are journaled as well, so
+ * a resend cut short by a crash does not send them a second time.
+ */
+public class JournalBatchProvider implements IStreamingBatchProvider, IResendTracker, IDisposable {
+    private static final String FILE_PREFIX = "journal.";
+    private static final int INITIAL_SIZE = 1024 * 1024;
+    private static final int MAX_BATCH_NUMBER = 99;
+    private static final int MAX_SEQUENCE_NUMBER = 99;
+
+    private static final byte OPEN = 1;
+    private static final byte SEQUENCE = 2;
+    private static final byte DATA_COLLECT = 3;
+    private static final byte CLOSE = 4;
+    private static final byte RESENT = 5;
+
+    // the length before the type and payload, the checksum after
+    private static final int RECORD_OVERHEAD = 9;
+    // debit and credit changes, then whether a request follows
+    private static final int DATA_COLLECT_HEADER = 17;
+
+    private final File directory;
+    private IRequestEncoder requestEncoder;
+    private volatile PriorMessageInformation priorMessageInformation;
+
+    private Segment segment;
+    private int batchNumber;
+    private int sequenceNumber;
+    private int transactionCount;
+    // in cents
+    private long totalDebits;
+    private long totalCredits;
+    // positions of the encoded requests resent in this batch
+    private final BitSet resent = new BitSet();
+
+    public JournalBatchProvider(String directory) throws IOException {
+        this(directory, null);
+    }
+    public JournalBatchProvider(String directory, IRequestEncoder requestEncoder) throws IOException {
+        this.directory = new File(directory);
+        this.requestEncoder = requestEncoder;
+        if(!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            throw new IOException(String.format("Could not create the batch journal directory %s.", directory));
+        }
+        recover();
+    }
+
+    public synchronized int getBatchNumber() {
+        return batchNumber;
+    }
+
+    public int getSequenceNumber() throws BatchFullException {
+        Segment target;
+        int end;
+        int rvalue;
+        synchronized (this) {
+            if(sequenceNumber >= MAX_SEQUENCE_NUMBER) {
+                throw new BatchFullException();
+            }
+
+            target = getSegment();
+            end = target.append(SEQUENCE, ByteBuffer.allocate(4).putInt(0, sequenceNumber + 1));
+            rvalue = ++sequenceNumber;
+        }
+        target.commit(end);
+        return rvalue;
+    }
+
+    public synchronized int getTransactionCount() {
+        return transactionCount;
+    }
+    public synchronized BigDecimal getTotalCredits() {
+        return BigDecimal.valueOf(totalCredits, 2);
+    }
+    public synchronized BigDecimal getTotalDebits() {
+        return BigDecimal.valueOf(totalDebits, 2);
+    }
+
+    public IRequestEncoder getRequestEncoder() {
+        return requestEncoder;
+    }
+    public void setRequestEncoder(IRequestEncoder requestEncoder) {
+        this.requestEncoder = requestEncoder;
+    }
+
+    public PriorMessageInformation getPriorMessageData() {
+        return priorMessageInformation;
+    }
+    public void setPriorMessageData(PriorMessageInformation value) {
+        this.priorMessageInformation = value;
+    }
+
+    public void reportDataCollect(TransactionType transactionType, PaymentMethodType paymentMethodType, BigDecimal amount, String encodedRequest) {
+        long cents = amount == null ? 0 : amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        long debits = 0;
+        long credits = 0;
+        if(transactionType != null) {
+            switch (transactionType) {
+                case Capture:
+                case Sale: {
+                    debits = cents;
+                } break;
+                case Refund: {
+                    credits = cents;
+                } break;
+                case Reversal: {
+                    debits = -cents;
+                } break;
+            }
+        }
+
+        byte[] request = encodedRequest == null ? new byte[0] : encodedRequest.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(DATA_COLLECT_HEADER + request.length);
+        payload.putLong(debits).putLong(credits).put((byte)(encodedRequest == null ? 0 : 1)).put(request);
+        payload.flip();
+
+        Segment target;
+        int end;
+        synchronized (this) {
+            target = getSegment();
+            end = target.append(DATA_COLLECT, payload);
+            transactionCount++;
+            totalDebits += debits;
+            totalCredits += credits;
+        }
+        target.commit(end);
+    }
+
+    public synchronized boolean isResent(int index) {
+        return resent.get(index);
+    }
+
+    public void markResent(int index) {
+        Segment target;
+        int end;
+        synchronized (this) {
+            if(resent.get(index)) {
+                return;
+            }
+            target = getSegment();
+            end = target.append(RESENT, ByteBuffer.allocate(4).putInt(0, index));
+            resent.set(index);
+        }
+        target.commit(end);
+    }
+
+    public void closeBatch(boolean inBalance) {
+        synchronized (this) {
+            Segment closed = getSegment();
+            closed.commit(closed.append(CLOSE, ByteBuffer.allocate(0)));
+
+            int next = nextBatchNumber(batchNumber);
+            segment = createSegment(closed.index + 1, next);
+            batchNumber = next;
+            sequenceNumber = 0;
+            transactionCount = 0;
+            totalDebits = 0;
+            totalCredits = 0;
+            resent.clear();
+
+            closed.close();
+            // may fail while the old file is still mapped, it is removed when next opened
+            closed.file.delete();
+        }
+    }
+
+    public Iterable<String> readEncodedRequests() {
+        final ByteBuffer records;
+        synchronized (this) {
+            Segment current = getSegment();
+            records = current.snapshot();
+        }
+
+        return new Iterable<String>() {
+            public Iterator<String> iterator() {
+                return new EncodedRequestIterator(records.duplicate());
+            }
+        };
+    }
+
+    public LinkedList<String> getEncodedRequests() {
+        LinkedList<String> rvalue = new LinkedList<String>();
+        for(String encodedRequest: readEncodedRequests()) {
+            rvalue.add(encodedRequest);
+        }
+        return rvalue;
+    }
+
+    public synchronized void dispose() {
+        if(segment != null) {
+            segment.close();
+            segment = null;
+        }
+    }
+
+    private Segment getSegment() {
+        if(segment == null) {
+            throw new IllegalStateException("The batch journal has been disposed.");
+        }
+        return segment;
+    }
+
+    private static int nextBatchNumber(int batchNumber) {
+        return batchNumber >= MAX_BATCH_NUMBER ? 1 : batchNumber + 1;
+    }
+
+    // picks up the newest journal that opens properly, older ones belong to closed batches
+    private void recover() throws IOException {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return segmentIndex(name) > 0;
+            }
+        });
+        if(files == null) {
+            throw new IOException(String.format("Could not read the batch journal directory %s.", directory));
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            public int compare(File a, File b) {
+                return Integer.compare(segmentIndex(b.getName()), segmentIndex(a.getName()));
+            }
+        });
+
+        Segment recovered = null;
+        boolean closed = false;
+        for(File file: files) {
+            if(recovered != null) {
+                file.delete();
+                continue;
+            }
+
+            Segment candidate = new Segment(file, segmentIndex(file.getName()));
+            if(replay(candidate)) {
+                recovered = candidate;
+                closed = candidate.batchClosed;
+            }
+            else {
+                // created but never opened, the crash happened while closing the batch before it
+                candidate.close();
+                file.delete();
+            }
+        }
+
+        if(recovered == null) {
+            segment = createSegment(1, 1);
+            batchNumber = 1;
+        }
+        else if(closed) {
+            int next = nextBatchNumber(batchNumber);
+            segment = createSegment(recovered.index + 1, next);
+            batchNumber = next;
+            sequenceNumber = 0;
+            transactionCount = 0;
+            totalDebits = 0;
+            totalCredits = 0;
+            resent.clear();
+
+            recovered.close();
+            recovered.file.delete();
+        }
+        else {
+            segment = recovered;
+        }
+    }
+
+    // rebuilds the state from the records of the journal, false when it does not start with a batch
+    private boolean replay(Segment candidate) {
+        ByteBuffer buffer = candidate.buffer;
+        CRC32 crc = new CRC32();
+
+        int position = 0;
+        boolean opened = false;
+        while(position + RECORD_OVERHEAD <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            byte type = buffer.get(position + 4);
+            if(length < 0 || length > buffer.capacity() - position - RECORD_OVERHEAD || type < OPEN || type > RESENT) {
+                break;
+            }
+
+            ByteBuffer record = buffer.duplicate();
+            record.limit(position + 5 + length).position(position + 4);
+            crc.reset();
+            crc.update(record);
+            if((int)crc.getValue() != buffer.getInt(position + 5 + length)) {
+                break;
+            }
+
+            int payload = position + 5;
+            if(!opened) {
+                if(type != OPEN) {
+                    return false;
+                }
+                opened = true;
+                batchNumber = buffer.getInt(payload);
+                sequenceNumber = 0;
+                transactionCount = 0;
+                totalDebits = 0;
+                totalCredits = 0;
+                resent.clear();
+            }
+            else if(type == SEQUENCE) {
+                sequenceNumber = buffer.getInt(payload);
+            }
+            else if(type == DATA_COLLECT) {
+                transactionCount++;
+                totalDebits += buffer.getLong(payload);
+                totalCredits += buffer.getLong(payload + 8);
+            }
+            else if(type == CLOSE) {
+                candidate.batchClosed = true;
+            }
+            else if(type == RESENT) {
+                resent.set(buffer.getInt(payload));
+            }
+            position += RECORD_OVERHEAD + length;
+        }
+
+        if(!opened) {
+            return false;
+        }
+        candidate.recoverAt(position);
+        return true;
+    }
+
+    private Segment createSegment(int index, int batchNumber) {
+        File file = new File(directory, String.format("%s%06d", FILE_PREFIX, index));
+        try {
+            Segment created = new Segment(file, index);
+            created.commit(created.append(OPEN, ByteBuffer.allocate(4).putInt(0, batchNumber)));
+            return created;
+        }
+        catch(IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    private static int segmentIndex(String name) {
+        if(!name.startsWith(FILE_PREFIX) || name.length() == FILE_PREFIX.length()) {
+            return -1;
+        }
+        for(int i = FILE_PREFIX.length(); i < name.length(); i++) {
+            if(name.charAt(i) < '0' || name.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        try {
+            return Integer.parseInt(name.substring(FILE_PREFIX.length()));
+        }
+        catch(NumberFormatException exc) {
+            return -1;
+        }
+    }
+
+    /*
+     * One journal file. Records are appended under the segment lock and flushed by commit, where
+     * the first caller to find its record not yet on disk flushes everything written so far and
+     * the callers behind it wait for that flush instead of starting their own.
+     */
+    private static class Segment {
+        private final File file;
+        private final int index;
+        private final RandomAccessFile raf;
+        private MappedByteBuffer buffer;
+        private final CRC32 crc = new CRC32();
+        private int position;
+        private int durable;
+        private boolean flushing;
+        private boolean batchClosed;
+
+        Segment(File file, int index) throws IOException {
+            this.file = file;
+            this.index = index;
+            this.raf = new RandomAccessFile(file, "rw");
+            this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_SIZE, raf.length()));
+            // mapping a new file sets its length, which forcing the mapping does not put on disk
+            raf.getChannel().force(true);
+        }
+
+        // clears what is left of a record cut short, so it cannot be read back after later records
+        synchronized void recoverAt(int position) {
+            this.position = position;
+            this.durable = position;
+            byte[] zeros = new byte[4096];
+            ByteBuffer tail = buffer.duplicate();
+            tail.position(position);
+            while(tail.hasRemaining()) {
+                tail.put(zeros, 0, Math.min(zeros.length, tail.remaining()));
+            }
+        }
+
+        // the records written so far
+        synchronized ByteBuffer snapshot() {
+            ByteBuffer rvalue = buffer.duplicate();
+            rvalue.limit(position).position(0);
+            return rvalue;
+        }
+
+        // writes the record and returns where it ends, which is what commit waits for
+        synchronized int append(byte type, ByteBuffer payload) {
+            int length = payload.remaining();
+            ensureCapacity(RECORD_OVERHEAD + length);
+
+            buffer.putInt(position, length);
+            buffer.put(position + 4, type);
+            ByteBuffer target = buffer.duplicate();
+            target.position(position + 5);
+            target.put(payload.duplicate());
+
+            ByteBuffer record = buffer.duplicate();
+            record.limit(position + 5 + length).position(position + 4);
+            crc.reset();
+            crc.update(record);
+            buffer.putInt(position + 5 + length, (int)crc.getValue());
+
+            position += RECORD_OVERHEAD + length;
+            return position;
+        }
+
+        void commit(int end) {
+            MappedByteBuffer target;
+            int flushTo;
+            synchronized (this) {
+                boolean interrupted = false;
+                while(durable < end && flushing) {
+                    try {
+                        wait();
+                    }
+                    catch(InterruptedException exc) {
+                        interrupted = true;
+                    }
+                }
+                if(interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                if(durable >= end) {
+                    return;
+                }
+
+                flushing = true;
+                target = buffer;
+                flushTo = position;
+            }
+
+            boolean flushed = false;
+            try {
+                target.force();
+                flushed = true;
+            }
+            finally {
+                synchronized (this) {
+                    flushing = false;
+                    if(flushed) {
+                        durable = Math.max(durable, flushTo);
+                    }
+                    notifyAll();
+                }
+            }
+        }
+
+        synchronized void close() {
+            try {
+                buffer.force();
+                raf.close();
+            }
+            catch(IOException exc) {
+                /* NOM NOM */
+            }
+        }
+
+        private void ensureCapacity(int length) {
+            if(buffer.capacity() - position >= length) {
+                return;
+            }
+
+            // what is in the old mapping goes to disk before the commits move to the new one
+            buffer.force();
+            long size = Math.max((long)buffer.capacity() * 2, (long)position + length);
+            if(size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("The batch journal is full.");
+            }
+            // the new length goes to disk before any record is written past the old one. The old
+            // mapping is dropped here and unmapped by the collector once the commits and snapshots
+            // still reading it are done, unmapping it while they are would crash the reader
+            try {
+                buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+                raf.getChannel().force(true);
+            }
+            catch(IOException exc) {
+                throw new UncheckedIOException(exc);
+            }
+        }
+    }
+
+    // walks the data collect records of a snapshot, skipping those reported without a request
+    private static class EncodedRequestIterator implements Iterator<String> {
+        private final ByteBuffer records;
+        private String next;
+
+        EncodedRequestIterator(ByteBuffer records) {
+            this.records = records;
+            advance();
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public String next() {
+            if(next == null) {
+                throw new NoSuchElementException();
+            }
+            String rvalue = next;
+            advance();
+            return rvalue;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void advance() {
+            next = null;
+            while(next == null && records.remaining() >= RECORD_OVERHEAD) {
+                int start = records.position();
+                int length = records.getInt(start);
+                byte type = records.get(start + 4);
+                records.position(start + RECORD_OVERHEAD + length);
+
+                int payload = start + 5;
+                if(type == DATA_COLLECT && records.get(payload + 16) == 1) {
+                    byte[] request = new byte[length - DATA_COLLECT_HEADER];
+                    ByteBuffer value = records.duplicate();
+                    value.position(payload + DATA_COLLECT_HEADER);
+                    value.get(request);
+                    next = new String(request, StandardCharsets.UTF_8);
+                }
+            }
+        }
+    }
+}
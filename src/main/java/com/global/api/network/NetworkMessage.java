@@ -14,11 +14,11 @@ import java.text.ParseException;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.EnumMap;
 
 public class NetworkMessage {
     private String messageTypeIndicator;
-    private HashMap<DataElementId, Iso8583Element> elements;
+    private EnumMap<DataElementId, Iso8583Element> elements;
     private Iso8583Bitmap bitmap;
     private Iso8583Bitmap secondaryBitmap;
     private Iso8583MessageType messageType;
@@ -56,16 +56,13 @@ public class NetworkMessage {
     private void setBitmap(Iso8583Bitmap bitmap) {
         this.bitmap = bitmap;
     }
-    private void setFactory(Iso8583ElementFactory factory) {
-        this.factory = factory;
-    }
 
     public NetworkMessage() {
         this(Iso8583MessageType.CompleteMessage);
     }
     public NetworkMessage(Iso8583MessageType messageType) {
         this.messageType = messageType;
-        elements = new HashMap<DataElementId, Iso8583Element>();
+        elements = new EnumMap<DataElementId, Iso8583Element>(DataElementId.class);
         factory = Iso8583ElementFactory.getConfiguredFactory(messageType);
     }
 
@@ -76,7 +73,7 @@ public class NetworkMessage {
     public BigDecimal getAmount(DataElementId id) {
         if(elements.containsKey(id)) {
             Iso8583Element element = elements.get(id);
-            return StringUtils.toAmount(new String(element.getBuffer()));
+            return StringUtils.toAmount(element.getString());
         }
         return null;
     }
@@ -102,7 +99,7 @@ public class NetworkMessage {
     public String getString(DataElementId id) {
         if(elements.containsKey(id)) {
             Iso8583Element element = elements.get(id);
-            return new String(element.getBuffer());
+            return element.getString();
         }
         return null;
     }
@@ -117,7 +114,7 @@ public class NetworkMessage {
     public <TResult extends Enum<TResult> & IStringConstant> TResult getStringConstant(DataElementId id, Class<TResult> clazz) {
         if(elements.containsKey(id)) {
             Iso8583Element element = elements.get(id);
-            String value = new String(element.getBuffer());
+            String value = element.getString();
 
             TResult rvalue = ReverseStringEnumMap.parse(StringUtils.trim(value), clazz);
             if(rvalue == null) {
@@ -176,7 +173,7 @@ public class NetworkMessage {
         return buildMessage(false);
     }
     public byte[] buildMessage(boolean addBitmapAsString) {
-        MessageWriter mw = new MessageWriter();
+        MessageWriter mw = new MessageWriter(estimateLength());
 
         // put the MTI
         if(!StringUtils.isNullOrEmpty(messageTypeIndicator)) {
@@ -189,14 +186,14 @@ public class NetworkMessage {
             mw.addRange(bitmap.toHexString().getBytes());
         }
         else {
-            mw.addRange(bitmap.toByteArray());
+            bitmap.writeTo(mw);
         }
 
         // primary bitmap
         DataElementId currentElement = bitmap.getNextDataElement();
         do {
             Iso8583Element element = elements.get(currentElement);
-            mw.addRange(element.getSendBuffer());
+            element.writeTo(mw);
 
             currentElement = bitmap.getNextDataElement();
         }
@@ -207,7 +204,7 @@ public class NetworkMessage {
             currentElement = secondaryBitmap.getNextDataElement();
             while(currentElement != null){
                 Iso8583Element element = elements.get(currentElement);
-                mw.addRange(element.getSendBuffer());
+                element.writeTo(mw);
 
                 currentElement = secondaryBitmap.getNextDataElement();
             }
@@ -216,6 +213,18 @@ public class NetworkMessage {
         return mw.toArray();
     }
 
+    // MTI, both bitmaps as hex and the largest possible length prefix for every element
+    private int estimateLength() {
+        int length = 36;
+        for(Iso8583Element element: elements.values()) {
+            byte[] buffer = element.getBuffer();
+            if(buffer != null) {
+                length += buffer.length + 3;
+            }
+        }
+        return length;
+    }
+
     private void generateBitmaps() {
         bitmap = new Iso8583Bitmap(new byte[8]);
 
@@ -226,7 +235,7 @@ public class NetworkMessage {
         }
 
         for(DataElementId elementType: elements.keySet()) {
-            if(secondaryBitmap != null && elementType.getValue() > 64) {
+            if(secondaryBitmap != null && elementType.getValue() >= 64) {
                 secondaryBitmap.setDataElement(elementType);
             }
             else {
@@ -244,29 +253,40 @@ public class NetworkMessage {
         MessageReader mr = new MessageReader(input.getBytes());
         Iso8583Bitmap bitmap = new Iso8583Bitmap(StringUtils.bytesFromHex(mr.readString(16)));
 
-        return parseMessage(bitmap, mr, messageType);
+        return parseMessage(bitmap, mr, messageType, null);
     }
     public static NetworkMessage parse(byte[] input, Iso8583MessageType messageType) {
+        return parse(input, messageType, null);
+    }
+    /**
+     * Reads the elements of the primary bitmap up to the last element given and stops there, for
+     * when only the leading elements of a message are needed.
+     */
+    public static NetworkMessage parse(byte[] input, Iso8583MessageType messageType, DataElementId lastElement) {
         MessageReader mr = new MessageReader(input);
         Iso8583Bitmap bitmap = new Iso8583Bitmap(mr.readBytes(8));
 
-        return parseMessage(bitmap, mr, messageType);
+        return parseMessage(bitmap, mr, messageType, lastElement);
     }
-    private static NetworkMessage parseMessage(Iso8583Bitmap bitmap, MessageReader mr, Iso8583MessageType messageType) {
+    private static NetworkMessage parseMessage(Iso8583Bitmap bitmap, MessageReader mr, Iso8583MessageType messageType, DataElementId lastElement) {
         NetworkMessage message = new NetworkMessage(messageType);
         message.setBitmap(bitmap);
 
-        // initialize the factory
-        message.setFactory(Iso8583ElementFactory.getConfiguredFactory(mr, messageType));
-
         // read the primary bitmap
         DataElementId currentElement = bitmap.getNextDataElement();
         do {
-            message.elements.put(currentElement, message.factory.createElement(currentElement));
+            if(lastElement != null && currentElement.getValue() > lastElement.getValue()) {
+                return message;
+            }
+            message.elements.put(currentElement, message.factory.createElement(currentElement, mr));
             currentElement = bitmap.getNextDataElement();
         }
         while(currentElement != null);
 
+        if(lastElement != null) {
+            return message;
+        }
+
         // check for secondary bitmap
         if(message.has(DataElementId.DE_001)) {
             byte[] secondaryBuffer = message.getByteArray(DataElementId.DE_001);
@@ -274,7 +294,7 @@ public class NetworkMessage {
 
             currentElement = secondaryMap.getNextDataElement();
             while(currentElement != null) {
-                message.elements.put(currentElement, message.factory.createElement(currentElement));
+                message.elements.put(currentElement, message.factory.createElement(currentElement, mr));
                 currentElement = secondaryMap.getNextDataElement();
             }
         }
@@ -0,0 +1,12 @@
+package com.global.api.network.abstractions;
+
+import com.global.api.network.Iso8583Specification;
+import com.global.api.network.enums.Iso8583MessageType;
+
+/**
+ * Adds to or overrides the element definitions of a message type, e.g. to
+ * describe private use elements, without subclassing the element factory.
+ */
+public interface IIso8583SpecificationLoader {
+    void load(Iso8583MessageType messageType, Iso8583Specification specification);
+}
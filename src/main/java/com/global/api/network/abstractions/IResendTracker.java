@@ -0,0 +1,11 @@
+package com.global.api.network.abstractions;
+
+/**
+ * Remembers which encoded requests of the open batch the host has taken back after a 580, so a
+ * resend that was cut short carries on where it stopped. Requests are identified by their position
+ * among the encoded requests of the batch. Implemented by a batch provider next to IBatchProvider.
+ */
+public interface IResendTracker {
+    boolean isResent(int index);
+    void markResent(int index);
+}
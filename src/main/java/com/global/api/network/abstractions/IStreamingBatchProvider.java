@@ -0,0 +1,12 @@
+package com.global.api.network.abstractions;
+
+/**
+ * A batch provider that can hand out the encoded requests of the open batch without holding them
+ * all in memory. The connector uses it in place of getEncodedRequests() when resending a batch.
+ */
+public interface IStreamingBatchProvider extends IBatchProvider {
+    /**
+     * @return the encoded requests reported so far, read from storage while they are iterated
+     */
+    Iterable<String> readEncodedRequests();
+}
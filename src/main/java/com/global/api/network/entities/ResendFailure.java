@@ -0,0 +1,31 @@
+package com.global.api.network.entities;
+
+import com.global.api.entities.exceptions.ApiException;
+
+/**
+ * A stored request that could not be resent while recovering a batch close.
+ */
+public class ResendFailure {
+    private final int index;
+    private final String encodedRequest;
+    private final ApiException exception;
+
+    public ResendFailure(int index, String encodedRequest, ApiException exception) {
+        this.index = index;
+        this.encodedRequest = encodedRequest;
+        this.exception = exception;
+    }
+
+    /**
+     * @return the position of the request among the encoded requests of the batch
+     */
+    public int getIndex() {
+        return index;
+    }
+    public String getEncodedRequest() {
+        return encodedRequest;
+    }
+    public ApiException getException() {
+        return exception;
+    }
+}
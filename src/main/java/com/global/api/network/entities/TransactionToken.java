@@ -0,0 +1,46 @@
+package com.global.api.network.entities;
+
+/**
+ * The token of a network transaction, used to resubmit it or to send its data collect later.
+ * Building the token encrypts the whole request, so it is only done the first time the token is
+ * read and the result is kept.
+ */
+public abstract class TransactionToken {
+    private volatile String value;
+    private volatile boolean encoded;
+
+    public String getValue() {
+        if(!encoded) {
+            synchronized (this) {
+                if(!encoded) {
+                    value = encode();
+                    encoded = true;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Keeps a token that was built elsewhere, unless it has been read already.
+     */
+    protected synchronized void complete(String value) {
+        if(!encoded) {
+            this.value = value;
+            encoded = true;
+        }
+    }
+
+    protected abstract String encode();
+
+    public static TransactionToken of(final String value) {
+        TransactionToken rvalue = new TransactionToken() {
+            @Override
+            protected String encode() {
+                return value;
+            }
+        };
+        rvalue.complete(value);
+        return rvalue;
+    }
+}
@@ -0,0 +1,47 @@
+package com.global.api.reporting;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the rows as comma separated values, the first line holds the field names.
+ */
+public class CsvReportSink<T> extends FieldReportSink<T> {
+    private boolean headerWritten;
+
+    public CsvReportSink(Writer writer, Class<T> clazz, String... fieldNames) {
+        super(writer, clazz, fieldNames);
+    }
+
+    @Override
+    public void write(T row) throws IOException {
+        if (!headerWritten) {
+            headerWritten = true;
+            writeLine(getWriter(), getFieldNames());
+        }
+        super.write(row);
+    }
+
+    protected void writeLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = format(values[i]);
+            if (value != null) {
+                writer.write(escape(value));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private static String escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+}
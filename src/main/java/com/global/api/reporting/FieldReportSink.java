@@ -0,0 +1,126 @@
+package com.global.api.reporting;
+
+import com.global.api.entities.enums.IStringConstant;
+import org.joda.time.DateTime;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Writes the named fields of each row, one line per row. Without field names every
+ * field holding a plain value (text, number, flag, date or constant) is written.
+ */
+public abstract class FieldReportSink<T> implements IReportSink<T> {
+    private static final String DATE_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSS";
+
+    private final Writer writer;
+    private final Field[] fields;
+    private final SimpleDateFormat dateFormat;
+
+    protected FieldReportSink(Writer writer, Class<T> clazz, String... fieldNames) {
+        this.writer = writer;
+        this.fields = fieldNames.length == 0 ? getValueFields(clazz) : getFields(clazz, fieldNames);
+        this.dateFormat = new SimpleDateFormat(DATE_PATTERN);
+    }
+
+    public String[] getFieldNames() {
+        String[] names = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            names[i] = fields[i].getName();
+        }
+        return names;
+    }
+
+    public void write(T row) throws IOException {
+        Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            try {
+                values[i] = fields[i].get(row);
+            } catch (IllegalAccessException e) {
+                throw new IOException(e);
+            }
+        }
+        writeLine(writer, values);
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    protected abstract void writeLine(Writer writer, Object[] values) throws IOException;
+
+    protected Writer getWriter() {
+        return writer;
+    }
+
+    protected String format(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Date) {
+            return dateFormat.format((Date) value);
+        }
+        if (value instanceof IStringConstant) {
+            return ((IStringConstant) value).getValue();
+        }
+        return value.toString();
+    }
+
+    private static Field[] getFields(Class<?> clazz, String[] fieldNames) {
+        Field[] fields = new Field[fieldNames.length];
+        for (int i = 0; i < fieldNames.length; i++) {
+            fields[i] = getField(clazz, fieldNames[i]);
+            fields[i].setAccessible(true);
+        }
+        return fields;
+    }
+
+    private static Field getField(Class<?> clazz, String fieldName) {
+        for (Class<?> current = clazz; current != null; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredField(fieldName);
+            } catch (NoSuchFieldException e) {
+                // look in the superclass
+            }
+        }
+        throw new IllegalArgumentException(String.format("%s has no field %s.", clazz.getSimpleName(), fieldName));
+    }
+
+    private static Field[] getValueFields(Class<?> clazz) {
+        List<Field> fields = new ArrayList<Field>();
+        for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && isValueType(field.getType())) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+        }
+        return fields.toArray(new Field[0]);
+    }
+
+    private static boolean isValueType(Class<?> type) {
+        return type.isPrimitive()
+                || type == String.class
+                || type == Boolean.class
+                || Number.class.isAssignableFrom(type)
+                || Date.class.isAssignableFrom(type)
+                || DateTime.class.isAssignableFrom(type)
+                || type.isEnum()
+                || IStringConstant.class.isAssignableFrom(type);
+    }
+}
@@ -0,0 +1,8 @@
+package com.global.api.reporting;
+
+/**
+ * Identifies a row of an export, rows with the same key are written once.
+ */
+public interface IReportKey<T> {
+    String getKey(T row);
+}
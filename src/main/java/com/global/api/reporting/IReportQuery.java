@@ -0,0 +1,14 @@
+package com.global.api.reporting;
+
+import com.global.api.builders.TransactionReportBuilder;
+
+import java.util.Date;
+
+/**
+ * Builds the report request for one part of an export window. Each call returns a
+ * new builder since the parts are requested at the same time, the exporter sets the
+ * part's dates on it.
+ */
+public interface IReportQuery<TResult> {
+    TransactionReportBuilder<TResult> build(Date startDate, Date endDate);
+}
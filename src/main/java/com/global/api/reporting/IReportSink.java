@@ -0,0 +1,9 @@
+package com.global.api.reporting;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface IReportSink<T> extends Closeable {
+    void write(T row) throws IOException;
+    void flush() throws IOException;
+}
@@ -0,0 +1,39 @@
+package com.global.api.reporting;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes each row as a JSON object on its own line, empty fields are left out.
+ */
+public class JsonLinesReportSink<T> extends FieldReportSink<T> {
+    private static final Gson gson = new Gson();
+
+    private final String[] fieldNames;
+
+    public JsonLinesReportSink(Writer writer, Class<T> clazz, String... fieldNames) {
+        super(writer, clazz, fieldNames);
+        this.fieldNames = getFieldNames();
+    }
+
+    protected void writeLine(Writer writer, Object[] values) throws IOException {
+        JsonObject json = new JsonObject();
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value instanceof Number) {
+                json.addProperty(fieldNames[i], (Number) value);
+            }
+            else if (value instanceof Boolean) {
+                json.addProperty(fieldNames[i], (Boolean) value);
+            }
+            else if (value != null) {
+                json.addProperty(fieldNames[i], format(value));
+            }
+        }
+        writer.write(gson.toJson(json));
+        writer.write('\n');
+    }
+}
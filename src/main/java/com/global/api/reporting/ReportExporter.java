@@ -0,0 +1,316 @@
+package com.global.api.reporting;
+
+import com.global.api.ServicesContainer;
+import com.global.api.builders.TransactionReportBuilder;
+import com.global.api.entities.TransactionSummary;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.BuilderException;
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.entities.exceptions.GatewayRateLimitException;
+import com.global.api.entities.gpApi.PagedResult;
+import com.global.api.gateways.GpApiConnector;
+import org.joda.time.DateTime;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports a date ranged report by splitting the window into parts that are requested
+ * at the same time. The rows are written to the sink in the order of the parts, rows
+ * whose key was already written are skipped. A rate limited request pauses every part,
+ * then it is sent again after a growing delay.
+ *
+ * Only the part being written and the parts being requested, one per thread, are held in memory.
+ *
+ * The parts are cut on whole units of the date granularity, days for GP-API which only sends
+ * the date, so no two parts ask for the same period.
+ */
+public class ReportExporter<T> {
+    private final IReportQuery<?> query;
+    private final Date startDate;
+    private final Date endDate;
+    private long rangeLength = TimeUnit.DAYS.toMillis(1);
+    private int parallelism = 4;
+    private int maxRetries = 5;
+    private long retryDelay = 1000;
+    private long maxRetryDelay = 30000;
+    private IReportKey<T> key;
+    private TimeUnit dateGranularity;
+
+    // the time before which no request is sent, pushed back by a rate limited response
+    private final Object pauseLock = new Object();
+    private long pausedUntil;
+
+    public ReportExporter(IReportQuery<?> query, Date startDate, Date endDate) {
+        this.query = query;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    public ReportExporter<T> withRangeLength(long rangeLength, TimeUnit unit) {
+        this.rangeLength = unit.toMillis(rangeLength);
+        return this;
+    }
+    public ReportExporter<T> withParallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+    /**
+     * @param maxRetries how many times a rate limited request is sent again
+     * @param retryDelay the pause before the first retry, doubled for each one after it
+     * @param maxRetryDelay the longest pause
+     */
+    public ReportExporter<T> withRetries(int maxRetries, long retryDelay, long maxRetryDelay) {
+        this.maxRetries = maxRetries;
+        this.retryDelay = retryDelay;
+        this.maxRetryDelay = maxRetryDelay;
+        return this;
+    }
+    /**
+     * Rows are told apart by the key, transaction summaries by their transaction id when none is set.
+     */
+    public ReportExporter<T> withKey(IReportKey<T> key) {
+        this.key = key;
+        return this;
+    }
+
+    /**
+     * The smallest period the connector can ask for, found from the connector when none is set.
+     */
+    public ReportExporter<T> withDateGranularity(TimeUnit dateGranularity) {
+        this.dateGranularity = dateGranularity;
+        return this;
+    }
+
+    public int export(IReportSink<T> sink) throws ApiException {
+        return export(sink, "default");
+    }
+
+    /**
+     * @return the number of rows written
+     */
+    public int export(IReportSink<T> sink, final String configName) throws ApiException {
+        if (startDate == null || endDate == null || startDate.after(endDate)) {
+            throw new BuilderException("The export needs a start date before its end date.");
+        }
+        if (rangeLength <= 0 || parallelism <= 0) {
+            throw new BuilderException("The range length and parallelism must be greater than zero.");
+        }
+
+        List<Date[]> ranges = split(dateGranularity != null ? dateGranularity : getDateGranularity(configName));
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, ranges.size()), new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ReportExport-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        List<Future<List<T>>> pending = new ArrayList<Future<List<T>>>(ranges.size());
+        try {
+            for (int i = 0; i < ranges.size() && i < parallelism; i++) {
+                pending.add(submit(executor, ranges.get(i), configName));
+            }
+
+            // a duplicate sits on the border of two parts, so only the keys of the last two are kept
+            HashSet<String> previousKeys = new HashSet<String>();
+            HashSet<String> currentKeys = new HashSet<String>();
+            int written = 0;
+
+            for (int i = 0; i < ranges.size(); i++) {
+                List<T> rows = await(pending.get(i));
+                pending.set(i, null);
+                if (i + parallelism < ranges.size()) {
+                    pending.add(submit(executor, ranges.get(i + parallelism), configName));
+                }
+
+                for (T row : rows) {
+                    String rowKey = getKey(row);
+                    if (rowKey != null) {
+                        // kept even when written by the part before, the next part may return it too
+                        boolean seen = previousKeys.contains(rowKey);
+                        if (!currentKeys.add(rowKey) || seen) {
+                            continue;
+                        }
+                    }
+                    sink.write(row);
+                    written++;
+                }
+
+                previousKeys = currentKeys;
+                currentKeys = new HashSet<String>();
+            }
+
+            sink.flush();
+            return written;
+        } catch (IOException e) {
+            throw new ApiException("The report could not be written.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Date[]> split(TimeUnit granularity) {
+        // at least one unit of the granularity in each part
+        long units = Math.max(1, (rangeLength + granularity.toMillis(1) - 1) / granularity.toMillis(1));
+
+        List<Date[]> ranges = new ArrayList<Date[]>();
+        long end = endDate.getTime();
+        long start = startDate.getTime();
+        while (start <= end) {
+            // each part ends just before the next one starts
+            long next = advance(start, units, granularity);
+            ranges.add(new Date[] { new Date(start), new Date(Math.min(next - 1, end)) });
+            start = next;
+        }
+        return ranges;
+    }
+
+    // the start of the unit the given number of units after the one holding the time
+    private static long advance(long time, long units, TimeUnit granularity) {
+        if (granularity == TimeUnit.DAYS) {
+            // days as the connector formats them, in the local time zone
+            return new DateTime(time).withTimeAtStartOfDay().plusDays((int) units).getMillis();
+        }
+        long step = granularity.toMillis(1);
+        return time - Math.floorMod(time, step) + units * step;
+    }
+
+    private static TimeUnit getDateGranularity(String configName) throws ApiException {
+        try (ServicesContainer.Lease lease = ServicesContainer.getInstance().lease(configName)) {
+            return lease.getGateway() instanceof GpApiConnector ? TimeUnit.DAYS : TimeUnit.MILLISECONDS;
+        }
+    }
+
+    private Future<List<T>> submit(ExecutorService executor, final Date[] range, final String configName) {
+        return executor.submit(new Callable<List<T>>() {
+            public List<T> call() throws Exception {
+                return fetch(range[0], range[1], configName);
+            }
+        });
+    }
+
+    private List<T> await(Future<List<T>> future) throws ApiException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException("The report export was interrupted.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ApiException) {
+                throw (ApiException) cause;
+            }
+            if (cause instanceof Exception) {
+                throw new ApiException(cause.getMessage(), (Exception) cause);
+            }
+            throw (Error) cause;
+        }
+    }
+
+    // reads every page of one part of the window
+    private List<T> fetch(Date start, Date end, String configName) throws ApiException, InterruptedException {
+        TransactionReportBuilder<?> builder = query.build(start, end);
+        builder.withStartDate(start).withEndDate(end);
+
+        List<T> rows = new ArrayList<T>();
+        int page = builder.getPage();
+        while (true) {
+            builder.setPage(page++);
+            Object result = execute(builder, configName);
+
+            if (result instanceof PagedResult) {
+                List<T> results = toPagedResult(result).getResults();
+                rows.addAll(results);
+                if (builder.getPageSize() > 0 && results.size() == builder.getPageSize()) {
+                    continue;
+                }
+            }
+            else if (result instanceof Collection) {
+                rows.addAll(toCollection(result));
+            }
+            else if (result != null) {
+                rows.add(toRow(result));
+            }
+            return rows;
+        }
+    }
+
+    private Object execute(TransactionReportBuilder<?> builder, String configName) throws ApiException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            waitForPause();
+            try {
+                return builder.execute(configName);
+            } catch (GatewayException e) {
+                if (!isRateLimited(e) || attempt >= maxRetries) {
+                    throw e;
+                }
+                pause(attempt);
+            }
+        }
+    }
+
+    private static boolean isRateLimited(GatewayException e) {
+        return e instanceof GatewayRateLimitException || "429".equals(e.getResponseCode());
+    }
+
+    private void pause(int attempt) {
+        long delay = Math.min(maxRetryDelay, retryDelay << Math.min(attempt, 20));
+        // spread the retries of the parts so they do not all come back at once
+        delay += ThreadLocalRandom.current().nextLong(delay / 4 + 1);
+        synchronized (pauseLock) {
+            pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + delay);
+        }
+    }
+
+    private void waitForPause() throws InterruptedException {
+        while (true) {
+            long wait;
+            synchronized (pauseLock) {
+                wait = pausedUntil - System.currentTimeMillis();
+            }
+            if (wait <= 0) {
+                return;
+            }
+            Thread.sleep(wait);
+        }
+    }
+
+    private String getKey(T row) {
+        if (key != null) {
+            return key.getKey(row);
+        }
+        if (row instanceof TransactionSummary) {
+            return ((TransactionSummary) row).getTransactionId();
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private PagedResult<T> toPagedResult(Object result) {
+        return (PagedResult<T>) result;
+    }
+    @SuppressWarnings("unchecked")
+    private Collection<T> toCollection(Object result) {
+        return (Collection<T>) result;
+    }
+    @SuppressWarnings("unchecked")
+    private T toRow(Object result) {
+        return (T) result;
+    }
+}
@@ -1,20 +1,26 @@
 package com.global.api.serviceConfigs;
 
+import com.global.api.AsyncRequestExecutor;
 import com.global.api.ConfiguredServices;
 import com.global.api.entities.enums.Environment;
 import com.global.api.entities.enums.Host;
 import com.global.api.entities.enums.HostError;
 import com.global.api.entities.exceptions.ConfigurationException;
+import com.global.api.gateways.IHttpTransport;
 
 import java.net.Proxy;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.Executor;
 
 public abstract class Configuration {
     protected boolean enableLogging = false;
     protected Environment environment = Environment.TEST;
     protected String serviceUrl;
     protected Proxy proxy;
+    protected IHttpTransport httpTransport;
+    protected Executor asyncExecutor;
+    protected int maxConcurrentRequests = AsyncRequestExecutor.DEFAULT_MAX_CONCURRENT_REQUESTS;
     protected HashMap<Host, ArrayList<HostError>> simulatedHostErrors;
     protected int timeout = 30000;
     protected boolean validated;
@@ -41,6 +47,27 @@ public abstract class Configuration {
         this.proxy = proxy;
     }
 
+    public IHttpTransport getHttpTransport() {
+        return httpTransport;
+    }
+    public void setHttpTransport(IHttpTransport httpTransport) {
+        this.httpTransport = httpTransport;
+    }
+
+    public Executor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
     public boolean isEnableLogging() {
         return enableLogging;
     }
@@ -73,6 +100,9 @@ public abstract class Configuration {
     public abstract void configureContainer(ConfiguredServices services) throws ConfigurationException;
 
     public void validate() throws ConfigurationException {
+        if(maxConcurrentRequests < 0) {
+            throw new ConfigurationException("maxConcurrentRequests cannot be negative.");
+        }
         this.validated = true;
     }
 }
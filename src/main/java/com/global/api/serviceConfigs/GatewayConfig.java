@@ -185,6 +185,7 @@ public class GatewayConfig extends Configuration {
             gateway.setTimeout(timeout);
             gateway.setServiceUrl(serviceUrl);
             gateway.setProxy(proxy);
+            gateway.setHttpTransport(httpTransport);
             gateway.setHostedPaymentConfig(hostedPaymentConfig);
             gateway.setEnableLogging(enableLogging);
 
@@ -212,6 +213,7 @@ public class GatewayConfig extends Configuration {
                 secure3d2.setMethodNotificationUrl(methodNotificationUrl);
                 secure3d2.setChallengeNotificationUrl(challengeNotificationUrl);
                 secure3d2.setEnableLogging(enableLogging);
+                secure3d2.setHttpTransport(httpTransport);
 
                 services.setSecure3dProvider(Secure3dVersion.TWO, secure3d2);
             }
@@ -235,6 +237,7 @@ public class GatewayConfig extends Configuration {
             gateway.setVersionNumber(versionNumber);
             gateway.setTimeout(timeout);
             gateway.setServiceUrl(serviceUrl + "/Hps.Exchange.PosGateway/PosGatewayService.asmx");
+            gateway.setHttpTransport(httpTransport);
             gateway.setEnableLogging(enableLogging);
             services.setGatewayConnector(gateway);
 
@@ -242,6 +245,7 @@ public class GatewayConfig extends Configuration {
             payplan.setEnableLogging(enableLogging);
             payplan.setSecretApiKey(secretApiKey);
             payplan.setTimeout(timeout);
+            payplan.setHttpTransport(httpTransport);
             String payplanEndpoint = environment == Environment.TEST || serviceUrl.contains("cert.")
                     ? "/Portico.PayPlan.v2/"
                     : "/PayPlan.v2/";
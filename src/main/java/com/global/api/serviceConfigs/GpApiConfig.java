@@ -69,6 +69,7 @@ public class GpApiConfig extends GatewayConfig {
 
         gpApiConnector.setServiceUrl(serviceUrl);
         gpApiConnector.setEnableLogging(this.isEnableLogging());
+        gpApiConnector.setHttpTransport(httpTransport);
 
         services.setGatewayConnector(gpApiConnector);
 
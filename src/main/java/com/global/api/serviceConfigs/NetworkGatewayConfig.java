@@ -26,6 +26,12 @@ public class NetworkGatewayConfig extends Configuration {
     private String terminalId;
     private String uniqueDeviceId;
     private Boolean persistentConnection = false;
+    private int connectionPoolSize = 0;
+    private int healthCheckInterval = 60000;
+    private boolean multiplexedConnection = false;
+    private boolean tokenizationEnabled = true;
+    private boolean backgroundDataCollectReporting = false;
+    private int resendConcurrency = 4;
 
     public AcceptorConfig getAcceptorConfig() {
         return acceptorConfig;
@@ -128,6 +134,56 @@ public class NetworkGatewayConfig extends Configuration {
     public void setPersistentConnection(Boolean persistentConnection) {
         this.persistentConnection = persistentConnection;
     }
+    public int getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+    public void setConnectionPoolSize(int connectionPoolSize) {
+        this.connectionPoolSize = connectionPoolSize;
+    }
+    public int getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+    public void setHealthCheckInterval(int healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+    public boolean isMultiplexedConnection() {
+        return multiplexedConnection;
+    }
+    public void setMultiplexedConnection(boolean multiplexedConnection) {
+        this.multiplexedConnection = multiplexedConnection;
+    }
+    public boolean isTokenizationEnabled() {
+        return tokenizationEnabled;
+    }
+    /**
+     * When false transactions carry no transaction token. Data collects are still tokenized for
+     * the batch provider.
+     */
+    public void setTokenizationEnabled(boolean tokenizationEnabled) {
+        this.tokenizationEnabled = tokenizationEnabled;
+    }
+    public boolean isBackgroundDataCollectReporting() {
+        return backgroundDataCollectReporting;
+    }
+    /**
+     * When true data collects are tokenized and reported to the batch provider on a background
+     * thread, in order, instead of before the transaction returns. The batch provider is then
+     * called from that thread, and totals read straight after a transaction may not include it yet.
+     * A transaction token holding card data is encrypted on the same thread.
+     */
+    public void setBackgroundDataCollectReporting(boolean backgroundDataCollectReporting) {
+        this.backgroundDataCollectReporting = backgroundDataCollectReporting;
+    }
+    public int getResendConcurrency() {
+        return resendConcurrency;
+    }
+    /**
+     * The most stored requests waiting on the host at once when they are resent after a 580 on
+     * batch close. Each request takes its own connection, or shares one when it is multiplexed.
+     */
+    public void setResendConcurrency(int resendConcurrency) {
+        this.resendConcurrency = resendConcurrency;
+    }
     
     public void configureContainer(ConfiguredServices services) {
         VapsConnector gateway = new VapsConnector();
@@ -139,6 +195,9 @@ public class NetworkGatewayConfig extends Configuration {
         gateway.setTimeout(timeout);
         gateway.setEnableLogging(enableLogging);
         gateway.setSimulatedHostErrors(simulatedHostErrors);
+        gateway.setConnectionPoolSize(connectionPoolSize);
+        gateway.setHealthCheckInterval(healthCheckInterval);
+        gateway.setMultiplexedConnection(multiplexedConnection);
 
         // other fields
         gateway.setCompanyId(companyId);
@@ -149,7 +208,10 @@ public class NetworkGatewayConfig extends Configuration {
         gateway.setTerminalId(terminalId);
         gateway.setMerchantType(merchantType);
         gateway.setUniqueDeviceId(uniqueDeviceId);
-        gateway.setProcessingFlag(persistentConnection ? NetworkProcessingFlag.PersistentConnection : NetworkProcessingFlag.NonPersistentConnection);
+        gateway.setTokenizationEnabled(tokenizationEnabled);
+        gateway.setBackgroundDataCollectReporting(backgroundDataCollectReporting);
+        gateway.setResendConcurrency(resendConcurrency);
+        gateway.setProcessingFlag(persistentConnection || connectionPoolSize > 0 || multiplexedConnection ? NetworkProcessingFlag.PersistentConnection : NetworkProcessingFlag.NonPersistentConnection);
         
         // acceptor config
         if(acceptorConfig == null) {
@@ -202,5 +264,13 @@ public class NetworkGatewayConfig extends Configuration {
         if(!StringUtils.isNullOrEmpty(nodeIdentification) && nodeIdentification.length() != 4) {
             throw new ConfigurationException("Node identification must only be 4 characters in length.");
         }
+
+        // connection pool
+        if(connectionPoolSize < 0) {
+            throw new ConfigurationException("Connection pool size cannot be negative.");
+        }
+        if(connectionPoolSize > 0 && healthCheckInterval < 0) {
+            throw new ConfigurationException("Health check interval cannot be negative.");
+        }
     }
 }
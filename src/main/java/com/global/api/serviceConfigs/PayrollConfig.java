@@ -38,6 +38,7 @@ public class PayrollConfig extends Configuration {
         payrollConnector.setApiKey(apiKey);
         payrollConnector.setServiceUrl(serviceUrl);
         payrollConnector.setTimeout(timeout);
+        payrollConnector.setHttpTransport(httpTransport);
 
         services.setPayrollConnector(payrollConnector);
     }
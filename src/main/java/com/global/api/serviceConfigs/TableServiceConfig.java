@@ -20,6 +20,7 @@ public class TableServiceConfig extends Configuration {
             TableServiceConnector conn = new TableServiceConnector();
             conn.setServiceUrl("https://www.freshtxt.com/api31/");
             conn.setTimeout(timeout);
+            conn.setHttpTransport(httpTransport);
 
             services.setTableServiceConnector(conn);
         }
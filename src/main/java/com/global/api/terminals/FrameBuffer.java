@@ -0,0 +1,150 @@
+package com.global.api.terminals;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Collects the bytes read from a terminal connection until a whole frame has arrived. The buffer
+ * grows to fit the largest frame and is reused between reads, only the frames handed out are
+ * allocated. Once a frame larger than the retained capacity has been read the buffer goes back
+ * to its initial size, so a single signature or report does not keep its memory.
+ */
+public class FrameBuffer {
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final int MIN_READ = 512;
+
+    private final int initialCapacity;
+    private byte[] buffer;
+    private int start;
+    private int end;
+    // where the search for a terminator goes on, so a frame arriving in pieces is scanned once
+    private int scanned;
+
+    public FrameBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+    public FrameBuffer(int initialCapacity) {
+        this.initialCapacity = Math.max(initialCapacity, 16);
+        this.buffer = new byte[this.initialCapacity];
+    }
+
+    /**
+     * @return the number of bytes received and not yet taken
+     */
+    public int length() {
+        return end - start;
+    }
+
+    /**
+     * @return the next byte without taking it, -1 when there is none
+     */
+    public int peek() {
+        return start < end ? buffer[start] & 0xFF : -1;
+    }
+
+    public void skip(int count) {
+        if(count > length()) {
+            throw new IndexOutOfBoundsException(String.format("Cannot skip %s of %s bytes.", count, length()));
+        }
+        consume(count);
+    }
+
+    public void clear() {
+        consume(length());
+    }
+
+    /**
+     * Reads the bytes the stream has available, or blocks for at least one when it has none.
+     *
+     * @return the number of bytes read, -1 at the end of the stream
+     */
+    public int read(InputStream in) throws IOException {
+        ensureFree(Math.max(in.available(), MIN_READ));
+
+        int count = in.read(buffer, end, buffer.length - end);
+        if(count > 0) {
+            end += count;
+        }
+        return count;
+    }
+
+    /**
+     * Takes a frame led by its length as two bytes, most significant first.
+     *
+     * @return the frame without the length, null when it has not fully arrived
+     */
+    public byte[] readLengthPrefixed() {
+        if(length() < 2) {
+            return null;
+        }
+
+        int frameLength = ((buffer[start] & 0xFF) << 8) | (buffer[start + 1] & 0xFF);
+        if(length() < frameLength + 2) {
+            return null;
+        }
+
+        byte[] frame = new byte[frameLength];
+        System.arraycopy(buffer, start + 2, frame, 0, frameLength);
+        consume(frameLength + 2);
+        return frame;
+    }
+
+    /**
+     * Takes the bytes up to and including the terminator and the given number of bytes after it,
+     * e.g. the ETX and LRC of a message.
+     *
+     * @return the frame, null when it has not fully arrived
+     */
+    public byte[] readFrame(byte terminator, int trailerLength) {
+        for(int i = Math.max(start, scanned); i < end; i++) {
+            if(buffer[i] == terminator) {
+                int frameLength = i - start + 1 + trailerLength;
+                if(length() < frameLength) {
+                    scanned = i;
+                    return null;
+                }
+
+                byte[] frame = new byte[frameLength];
+                System.arraycopy(buffer, start, frame, 0, frameLength);
+                consume(frameLength);
+                return frame;
+            }
+        }
+        scanned = end;
+        return null;
+    }
+
+    private void consume(int count) {
+        start += count;
+        scanned = start;
+        if(start == end) {
+            start = 0;
+            end = 0;
+            scanned = 0;
+            if(buffer.length > MAX_RETAINED_CAPACITY) {
+                buffer = new byte[initialCapacity];
+            }
+        }
+    }
+
+    private void ensureFree(int free) {
+        if(buffer.length - end >= free) {
+            return;
+        }
+
+        // move the waiting bytes to the front, growing the buffer when that is not enough
+        int length = end - start;
+        if(buffer.length - length >= free) {
+            System.arraycopy(buffer, start, buffer, 0, length);
+        }
+        else {
+            byte[] grown = new byte[Math.max(buffer.length << 1, length + free)];
+            System.arraycopy(buffer, start, grown, 0, length);
+            buffer = grown;
+        }
+        scanned -= start;
+        start = 0;
+        end = length;
+    }
+}
@@ -61,18 +61,19 @@ public class TerminalUtilities {
     }
 
     public static DeviceMessage buildRequest(String message, MessageFormat format) {
-        MessageWriter buffer = new MessageWriter();
+        byte[] messageBytes = message.getBytes();
+        MessageWriter buffer = new MessageWriter(messageBytes.length + 3);
 
         // beginning sentinel
         if(format.equals(MessageFormat.Visa2nd))
             buffer.add(ControlCodes.STX);
         else {
-            buffer.add((byte)(message.length() >>> 8));
-            buffer.add((byte)message.length());
+            buffer.add((byte)(messageBytes.length >>> 8));
+            buffer.add((byte)messageBytes.length);
         }
 
         // put message
-        buffer.addRange(message.getBytes());
+        buffer.addRange(messageBytes);
 
         // ending sentinel
         if(format.equals(MessageFormat.Visa2nd)) {
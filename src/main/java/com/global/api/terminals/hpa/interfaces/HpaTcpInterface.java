@@ -1,6 +1,7 @@
 package com.global.api.terminals.hpa.interfaces;
 
 import com.global.api.entities.exceptions.MessageException;
+import com.global.api.terminals.FrameBuffer;
 import com.global.api.terminals.abstractions.IDeviceCommInterface;
 import com.global.api.terminals.abstractions.IDeviceMessage;
 import com.global.api.terminals.abstractions.ITerminalConfiguration;
@@ -9,21 +10,21 @@ import com.global.api.terminals.messaging.IMessageSentInterface;
 import com.global.api.utils.AutoResetEvent;
 import com.global.api.utils.Element;
 import com.global.api.utils.ElementTree;
+import com.global.api.utils.MessageWriter;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.List;
 
 public class HpaTcpInterface implements IDeviceCommInterface {
     private Socket client;
     private DataOutputStream out;
-    private InputStream in;
+    private volatile InputStream in;
     private AutoResetEvent await;
     private ITerminalConfiguration settings;
-    private List<Byte> messageQueue;
+    // the messages of the current response, multiple messages are separated by a carriage return
+    private final MessageWriter messageQueue = new MessageWriter();
     private String lastConnectionError;
 
     private IMessageSentInterface onMessageSent;
@@ -39,66 +40,64 @@ public class HpaTcpInterface implements IDeviceCommInterface {
 
         onMessageReceived = new IMessageReceivedInterface() {
             public void messageReceived(byte[] message) {
-                if(messageQueue == null)
-                    messageQueue = new ArrayList<Byte>();
-
-                for(byte b: message)
-                    messageQueue.add(b);
+                synchronized (messageQueue) {
+                    messageQueue.addRange(message);
+                }
 
                 try {
-                    Element msg = ElementTree.parse(message).get("SIP");
+                    Element msg = ElementTree.parse(message, ElementTree.Parser.Streaming).get("SIP");
                     int multiMessage = msg.getInt("MultipleMessage");
                     if(multiMessage == 0)
                         await.set();
-                    else messageQueue.add((byte)'\r'); // delimiter
+                    else addDelimiter();
                 }
                 catch(Exception e) {
                     // this should never cause a failure
-                    messageQueue.add((byte)'\r'); // delimiter
+                    addDelimiter();
                 }
             }
         };
     }
 
+    private void addDelimiter() {
+        synchronized (messageQueue) {
+            messageQueue.add((byte)'\r');
+        }
+    }
+
     private void beginReceiveThread() {
+        final InputStream input = in;
         Thread receiveThread = new Thread() {
             public void run() {
-                while(true) {
+                // frames are two bytes of length followed by the message, they may arrive in pieces
+                FrameBuffer frames = new FrameBuffer();
+
+                // stops once the connection it was started for is closed
+                while(input == in) {
                     try {
-                        if(in.available() > 0) {
-                            do {
-                                int length = getLength();
-                                if (length > 0) {
-                                    byte[] buffer = new byte[8192];
-
-                                    boolean incomplete = true;
-                                    int offset = 0;
-                                    int tempLength = length;
-                                    do {
-                                        int bytesReceived = in.read(buffer, offset, tempLength);
-                                        if (bytesReceived != tempLength) {
-                                            offset += bytesReceived;
-                                            tempLength -= bytesReceived;
-                                            sleep(10);
-                                        } else incomplete = false;
-                                    }
-                                    while (incomplete);
-
-                                    byte[] readBuffer = new byte[length];
-                                    System.arraycopy(buffer, 0, readBuffer, 0, length);
-                                    onMessageReceived.messageReceived(readBuffer);
+                        if(input.available() > 0) {
+                            if(frames.read(input) < 0) {
+                                break;
+                            }
+
+                            byte[] frame;
+                            while((frame = frames.readLengthPrefixed()) != null) {
+                                if(frame.length > 0) {
+                                    onMessageReceived.messageReceived(frame);
                                 }
-                                else break;
                             }
-                            while(true);
                         }
-                        sleep(300);
+                        else sleep(300);
+                    } catch (IOException e) {
+                        // the connection is gone
+                        break;
                     } catch (Exception e) {
                         // This never needs to fail
                     }
                 }
             }
         };
+        receiveThread.setDaemon(true);
         receiveThread.start();
     }
 
@@ -127,7 +126,6 @@ public class HpaTcpInterface implements IDeviceCommInterface {
                 out.close();
                 client.close();
             }
-            messageQueue = null;
         }
         catch(IOException e) {
             // Eating the close exception
@@ -147,7 +145,9 @@ public class HpaTcpInterface implements IDeviceCommInterface {
         }
 
         String strMessage = message.toString();
-        messageQueue = new ArrayList<Byte>();
+        synchronized (messageQueue) {
+            messageQueue.reset();
+        }
         try{
             byte[] buffer = message.getSendBuffer();
 
@@ -157,11 +157,12 @@ public class HpaTcpInterface implements IDeviceCommInterface {
 
                 if(message.isAwaitResponse()) {
                     await.waitOne(settings.getTimeout());
-                    if(messageQueue.size() == 0) {
-                        throw new MessageException("Device did not response within the timeout");
+                    synchronized (messageQueue) {
+                        if(messageQueue.length() == 0) {
+                            throw new MessageException("Device did not response within the timeout");
+                        }
+                        return messageQueue.toArray();
                     }
-
-                    return convertBytes(messageQueue.toArray(new Byte[messageQueue.size()]));
                 }
                 else return null;
             }
@@ -180,28 +181,4 @@ public class HpaTcpInterface implements IDeviceCommInterface {
             }
         }
     }
-
-    private int getLength() {
-        try {
-            byte[] lengthBuffer = new byte[2];
-            int byteCount = in.read(lengthBuffer, 0, 2);
-
-            if(byteCount != 2)
-                return 0;
-            return (short)(((lengthBuffer[0] & 0xFF) << 8) | (lengthBuffer[1] & 0xFF));
-        }
-        catch(IOException e) {
-            return 0;
-        }
-    }
-
-    private byte[] convertBytes(Byte[] buffer) {
-        byte[] returnBuffer = new byte[buffer.length];
-
-        int index = 0;
-        for(Byte b: buffer)
-            returnBuffer[index++] = b;
-
-        return returnBuffer;
-    }
 }
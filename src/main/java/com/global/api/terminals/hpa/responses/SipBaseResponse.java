@@ -5,6 +5,7 @@ import com.global.api.entities.exceptions.MessageException;
 import com.global.api.terminals.TerminalResponse;
 import com.global.api.utils.Element;
 import com.global.api.utils.ElementTree;
+import com.global.api.utils.IOUtils;
 import com.global.api.utils.StringUtils;
 
 import java.util.Arrays;
@@ -45,11 +46,7 @@ public class SipBaseResponse extends TerminalResponse {
     }
 
     public SipBaseResponse(byte[] buffer, String... messageIds) throws ApiException {
-        StringBuilder sb = new StringBuilder();
-        for(byte b: buffer) {
-            sb.append((char) b);
-        }
-        response = sb.toString();
+        response = new String(buffer, IOUtils.ISO_8859_1);
 
         String[] messages = response.replace("\n", "").split("\\r");
         for(String message: messages) {
@@ -58,7 +55,7 @@ public class SipBaseResponse extends TerminalResponse {
             }
             currentMessage = message;
 
-            Element root = ElementTree.parse(message).get("SIP");
+            Element root = ElementTree.parse(message, ElementTree.Parser.Streaming).get("SIP");
             this.command = root.getString("Response");
             if(this.command != null && !Arrays.asList(messageIds).contains(this.command))
                 throw new MessageException(String.format("Excpected %s but recieved %s", StringUtils.join(", ", messageIds), this.command));
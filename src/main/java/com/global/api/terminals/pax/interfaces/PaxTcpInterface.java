@@ -2,6 +2,7 @@ package com.global.api.terminals.pax.interfaces;
 
 import com.global.api.entities.enums.ControlCodes;
 import com.global.api.entities.exceptions.MessageException;
+import com.global.api.terminals.FrameBuffer;
 import com.global.api.terminals.TerminalUtilities;
 import com.global.api.terminals.abstractions.*;
 import com.global.api.terminals.messaging.IMessageSentInterface;
@@ -18,7 +19,7 @@ public class PaxTcpInterface implements IDeviceCommInterface {
     private InputStream in;
     private ITerminalConfiguration settings;
     private int nakCount = 0;
-
+    private final FrameBuffer frames = new FrameBuffer();
 
     private IMessageSentInterface onMessageSent;
 
@@ -68,6 +69,7 @@ public class PaxTcpInterface implements IDeviceCommInterface {
             if(onMessageSent != null)
                 onMessageSent.messageSent(message.toString());
 
+            frames.clear();
             for(int i = 0; i < 3; i++) {
                 out.write(buffer);
 
@@ -107,43 +109,54 @@ public class PaxTcpInterface implements IDeviceCommInterface {
 
     private byte[] getTerminalResponse() throws MessageException {
         try {
-            byte[] buffer = new byte[4096];
-            int bytesReceived = awaitResponse(in, buffer);
-
-            if(bytesReceived > 0) {
-                byte[] rec_buffer = new byte[bytesReceived];
-                System.arraycopy(buffer, 0, rec_buffer, 0, bytesReceived);
+            long started = System.currentTimeMillis();
+            while(true) {
+                if(frames.length() == 0) {
+                    awaitResponse(started);
+                }
 
-                ControlCodes code = EnumUtils.parse(ControlCodes.class, rec_buffer[0]); // queue.readCode();
-                if (code.equals(ControlCodes.NAK))
+                ControlCodes code = EnumUtils.parse(ControlCodes.class, (byte)frames.peek());
+                if (code == null)
+                    throw new MessageException(String.format("Unknown message received: %s", frames.peek()));
+                else if (code.equals(ControlCodes.NAK)) {
+                    frames.skip(1);
                     return null;
+                }
                 else if (code.equals(ControlCodes.EOT))
                     throw new MessageException("Terminal returned EOT for the current message");
-                else if (code.equals(ControlCodes.ACK))
-                    return getTerminalResponse();
+                else if (code.equals(ControlCodes.ACK)) {
+                    // the terminal has the request, the timeout starts over for its response
+                    frames.skip(1);
+                    started = System.currentTimeMillis();
+                }
                 else if (code.equals(ControlCodes.STX)) {
-                    return rec_buffer;
+                    // the message runs through the ETX and the LRC after it
+                    byte[] rvalue = frames.readFrame(ControlCodes.ETX.getByte(), 1);
+                    if(rvalue != null) {
+                        return rvalue;
+                    }
+                    awaitResponse(started);
                 } else throw new MessageException(String.format("Unknown message received: %s", code));
             }
-
-            return null;
         }
         catch(IOException exc) {
             return null;
         }
     }
 
-    private int awaitResponse(InputStream in, byte[] buffer) throws IOException {
-        long t = System.currentTimeMillis();
+    private void awaitResponse(long started) throws IOException {
         do {
             if(in.available() > 0) {
-                return in.read(buffer);
+                if(frames.read(in) < 0) {
+                    throw new IOException("The terminal closed the connection");
+                }
+                return;
             }
 
-            if (System.currentTimeMillis() - t >= settings.getTimeout())
+            if (System.currentTimeMillis() - started >= settings.getTimeout())
                 break;
         }
         while(true);
         throw new IOException("Terminal did not respond in the given timeout");
     }
-}
\ No newline at end of file
+}
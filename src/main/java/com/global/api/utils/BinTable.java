@@ -0,0 +1,214 @@
+package com.global.api.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Looks up card ranges by the leading digits of a PAN. Ranges are stored in digit tries, so a
+ * lookup reads each digit of the longest range once, however many ranges there are. When ranges
+ * overlap the longest one matching the PAN wins.
+ *
+ * A table can be read from a file with one range a line, blank lines and lines starting
+ * with # are skipped:
+ * <pre>
+ * # list,card type,first bin[,last bin]
+ * card,Visa,4
+ * card,MC,2221,2720
+ * fleet,Visa,448460,448611
+ * readylink,,462766
+ * </pre>
+ * The first and last bin of a range must have the same number of digits.
+ */
+public class BinTable {
+    private final Node cardTypes = new Node();
+    private final Map<String, Node> fleetRanges = new HashMap<String, Node>();
+    private final Node readyLinkRanges = new Node();
+
+    private static class Node {
+        private Node[] children;
+        private String value;
+
+        Node child(int digit) {
+            if(children == null) {
+                children = new Node[10];
+            }
+            if(children[digit] == null) {
+                children[digit] = new Node();
+            }
+            return children[digit];
+        }
+    }
+
+    public BinTable addCardType(String cardType, String firstBin, String lastBin) {
+        insert(cardTypes, firstBin, lastBin, cardType);
+        return this;
+    }
+
+    public BinTable addFleet(String cardType, String firstBin, String lastBin) {
+        Node ranges = fleetRanges.get(cardType);
+        if(ranges == null) {
+            ranges = new Node();
+            fleetRanges.put(cardType, ranges);
+        }
+        insert(ranges, firstBin, lastBin, cardType);
+        return this;
+    }
+
+    public BinTable addReadyLink(String firstBin, String lastBin) {
+        insert(readyLinkRanges, firstBin, lastBin, "ReadyLink");
+        return this;
+    }
+
+    /**
+     * @return the card type of the PAN, null when no range matches
+     */
+    public String getCardType(String pan) {
+        return find(cardTypes, pan);
+    }
+
+    public boolean isFleet(String cardType, String pan) {
+        Node ranges = fleetRanges.get(cardType);
+        return ranges != null && find(ranges, pan) != null;
+    }
+
+    public boolean isReadyLink(String pan) {
+        return find(readyLinkRanges, pan) != null;
+    }
+
+    public static BinTable load(Reader reader) throws IOException {
+        BinTable table = new BinTable();
+        BufferedReader lines = new BufferedReader(reader);
+
+        String line;
+        int lineNumber = 0;
+        while((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if(line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] fields = line.split(",", -1);
+            if(fields.length < 3 || fields.length > 4) {
+                throw new IOException(String.format("Line %s of the BIN table should have 3 or 4 fields.", lineNumber));
+            }
+
+            String list = fields[0].trim();
+            String cardType = fields[1].trim();
+            String firstBin = fields[2].trim();
+            String lastBin = fields.length == 4 ? fields[3].trim() : firstBin;
+            if(!isRange(firstBin, lastBin)) {
+                throw new IOException(String.format("Line %s of the BIN table has an invalid range.", lineNumber));
+            }
+
+            if(list.equals("card")) {
+                table.addCardType(cardType, firstBin, lastBin);
+            }
+            else if(list.equals("fleet")) {
+                table.addFleet(cardType, firstBin, lastBin);
+            }
+            else if(list.equals("readylink")) {
+                table.addReadyLink(firstBin, lastBin);
+            }
+            else {
+                throw new IOException(String.format("Line %s of the BIN table has an unknown list %s.", lineNumber, list));
+            }
+        }
+        return table;
+    }
+
+    private static boolean isRange(String firstBin, String lastBin) {
+        if(firstBin.isEmpty() || firstBin.length() != lastBin.length()) {
+            return false;
+        }
+        for(int i = 0; i < firstBin.length(); i++) {
+            if(!isDigit(firstBin.charAt(i)) || !isDigit(lastBin.charAt(i))) {
+                return false;
+            }
+        }
+        return firstBin.compareTo(lastBin) <= 0;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // spaces and dashes in the PAN are skipped, the deepest value on the path is the match
+    private static String find(Node root, String pan) {
+        if(pan == null) {
+            return null;
+        }
+
+        Node node = root;
+        String match = root.value;
+        for(int i = 0; i < pan.length() && node.children != null; i++) {
+            char c = pan.charAt(i);
+            if(c == ' ' || c == '-') {
+                continue;
+            }
+            if(!isDigit(c)) {
+                break;
+            }
+
+            node = node.children[c - '0'];
+            if(node == null) {
+                break;
+            }
+            if(node.value != null) {
+                match = node.value;
+            }
+        }
+        return match;
+    }
+
+    /*
+     * Splits the range into the fewest prefixes covering it, e.g. 448460-448611 becomes
+     * 44846, 44847, 44848, 44849, 4485, 44860, 448610 and 448611.
+     */
+    private static void insert(Node node, String firstBin, String lastBin, String value) {
+        if(firstBin == null || lastBin == null || !isRange(firstBin, lastBin)) {
+            throw new IllegalArgumentException(String.format("%s-%s is not a valid BIN range.", firstBin, lastBin));
+        }
+        insert(node, firstBin, lastBin, 0, value);
+    }
+    private static void insert(Node node, String first, String last, int index, String value) {
+        if(covers(first, last, index)) {
+            node.value = value;
+            return;
+        }
+
+        int low = first.charAt(index) - '0';
+        int high = last.charAt(index) - '0';
+        if(low == high) {
+            insert(node.child(low), first, last, index + 1, value);
+            return;
+        }
+
+        insert(node.child(low), first, fill(first, index + 1, '9'), index + 1, value);
+        for(int digit = low + 1; digit < high; digit++) {
+            node.child(digit).value = value;
+        }
+        insert(node.child(high), fill(last, index + 1, '0'), last, index + 1, value);
+    }
+
+    // true when the digits from index on run from all zeros to all nines
+    private static boolean covers(String first, String last, int index) {
+        for(int i = index; i < first.length(); i++) {
+            if(first.charAt(i) != '0' || last.charAt(i) != '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String fill(String bin, int index, char digit) {
+        StringBuilder sb = new StringBuilder(bin.length()).append(bin, 0, index);
+        for(int i = index; i < bin.length(); i++) {
+            sb.append(digit);
+        }
+        return sb.toString();
+    }
+}
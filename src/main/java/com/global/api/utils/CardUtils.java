@@ -4,143 +4,108 @@ import com.global.api.entities.enums.TrackNumber;
 import com.global.api.paymentMethods.GiftCard;
 import com.global.api.paymentMethods.ITrackData;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class CardUtils {
-    private static final Pattern AmexRegex = Pattern.compile("^3[47]");
-    private static final Pattern MasterCardRegex = Pattern.compile("^(?:5[1-5]|222[1-9]|22[3-9][0-9]|2[3-6][0-9]{2}|27[01][0-9]|2720)");
-    private static final Pattern VisaRegex = Pattern.compile("^4");
-    private static final Pattern DinersClubRegex = Pattern.compile("^3(?:0[0-5]|[68][0-9])");
-    private static final Pattern RouteClubRegex = Pattern.compile("^(2014|2149)");
-    private static final Pattern DiscoverRegex = Pattern.compile("^6(?:011|5[0-9]{2})");
-    private static final Pattern JcbRegex = Pattern.compile("^(?:2131|1800|35\\d{3})");
-    private static final Pattern VoyagerRegex = Pattern.compile("^70888[5-9]");
-    private static final Pattern WexRegex = Pattern.compile("^(?:690046|707138)");
-    private static final Pattern StoredValueRegex = Pattern.compile("^(?:600649|603261|603571|627600|639470)");
-    private static final Pattern ValueLinkRegex = Pattern.compile("^(?:601056|603225)");
-    private static final Pattern HeartlandGiftRegex = Pattern.compile("^(?:502244|627720|708355)");
-
     private static final Pattern trackOnePattern = Pattern.compile("%?[B0]?([\\d]+)\\^[^\\^]+\\^([\\d]{4})([^?]+)?/?");
     private static final Pattern trackTwoPattern = Pattern.compile(";?([\\d]+)[=|[dD]](\\d{4})([^?]+)?/?");
 
-    private static Map<String, Map<String, String>> fleetBinMap;
-    private static Map<String,Pattern> regexMap;
-    private static ArrayList<String> readyLinkBinMap;
-
-    static {
-        regexMap = new HashMap<String, Pattern>();
-        regexMap.put("Amex", AmexRegex);
-        regexMap.put("MC", MasterCardRegex);
-        regexMap.put("Visa", VisaRegex);
-        regexMap.put("DinersClub", DinersClubRegex);
-        regexMap.put("EnRoute", RouteClubRegex);
-        regexMap.put("Discover", DiscoverRegex);
-        regexMap.put("Jcb", JcbRegex);
-        regexMap.put("Voyager", VoyagerRegex);
-        regexMap.put("Wex", WexRegex);
-        regexMap.put("StoredValue", StoredValueRegex);
-        regexMap.put("ValueLink", ValueLinkRegex);
-        regexMap.put("HeartlandGift", HeartlandGiftRegex);
+    private static volatile BinTable binTable = createBinTable();
+
+    private static BinTable createBinTable() {
+        BinTable table = new BinTable();
+        table.addCardType("Amex", "34", "34")
+                .addCardType("Amex", "37", "37")
+                .addCardType("MC", "51", "55")
+                .addCardType("MC", "2221", "2720")
+                .addCardType("Visa", "4", "4")
+                .addCardType("DinersClub", "300", "305")
+                .addCardType("DinersClub", "36", "36")
+                .addCardType("DinersClub", "38", "38")
+                .addCardType("EnRoute", "2014", "2014")
+                .addCardType("EnRoute", "2149", "2149")
+                .addCardType("Discover", "6011", "6011")
+                .addCardType("Discover", "65", "65")
+                .addCardType("Jcb", "2131", "2131")
+                .addCardType("Jcb", "1800", "1800")
+                .addCardType("Jcb", "35", "35")
+                .addCardType("Voyager", "708885", "708889")
+                .addCardType("Wex", "690046", "690046")
+                .addCardType("Wex", "707138", "707138")
+                .addCardType("StoredValue", "600649", "600649")
+                .addCardType("StoredValue", "603261", "603261")
+                .addCardType("StoredValue", "603571", "603571")
+                .addCardType("StoredValue", "627600", "627600")
+                .addCardType("StoredValue", "639470", "639470")
+                .addCardType("ValueLink", "601056", "601056")
+                .addCardType("ValueLink", "603225", "603225")
+                .addCardType("HeartlandGift", "502244", "502244")
+                .addCardType("HeartlandGift", "627720", "627720")
+                .addCardType("HeartlandGift", "708355", "708355");
 
         // ReadyLink
-        readyLinkBinMap = new ArrayList<String>();
-        readyLinkBinMap.add("462766");
-        readyLinkBinMap.add("406498");
-        readyLinkBinMap.add("440230");
-        readyLinkBinMap.add("485932");
-        readyLinkBinMap.add("434249");
-        readyLinkBinMap.add("487093");
-        readyLinkBinMap.add("411338");
-        readyLinkBinMap.add("438968");
-        readyLinkBinMap.add("444083");
-        readyLinkBinMap.add("417021");
-        readyLinkBinMap.add("400421");
-        readyLinkBinMap.add("426938");
-        readyLinkBinMap.add("478499");
-        readyLinkBinMap.add("446053");
-        readyLinkBinMap.add("459440");
-        readyLinkBinMap.add("421783");
-        readyLinkBinMap.add("422799");
-        readyLinkBinMap.add("473517");
-        readyLinkBinMap.add("493478");
-        readyLinkBinMap.add("453037");
-        readyLinkBinMap.add("443613");
-        readyLinkBinMap.add("401658");
-        readyLinkBinMap.add("439331");
-        readyLinkBinMap.add("407216");
-        readyLinkBinMap.add("400123");
-        readyLinkBinMap.add("402407");
-        readyLinkBinMap.add("405551");
-        readyLinkBinMap.add("404206");
-        readyLinkBinMap.add("422803");
-        readyLinkBinMap.add("407635");
-        readyLinkBinMap.add("447904");
-        readyLinkBinMap.add("439461");
-
-        // fleet bin ranges
-        fleetBinMap = new HashMap<String, Map<String, String>>();
+        String[] readyLinkBins = new String[] {
+                "462766", "406498", "440230", "485932", "434249", "487093", "411338", "438968",
+                "444083", "417021", "400421", "426938", "478499", "446053", "459440", "421783",
+                "422799", "473517", "493478", "453037", "443613", "401658", "439331", "407216",
+                "400123", "402407", "405551", "404206", "422803", "407635", "447904", "439461"
+        };
+        for(String bin : readyLinkBins) {
+            table.addReadyLink(bin, bin);
+        }
 
         // visa fleet mappings
-        Map<String, String> visaFleetMap = new HashMap<String, String>();
-        visaFleetMap.put("448460", "448611");
-        visaFleetMap.put("448613", "448615");
-        visaFleetMap.put("448617", "448674");
-        visaFleetMap.put("448676", "448686");
-        visaFleetMap.put("448688", "448699");
-        visaFleetMap.put("461400", "461421");
-        visaFleetMap.put("461423", "461499");
-        visaFleetMap.put("480700", "480899");
-        fleetBinMap.put("Visa", visaFleetMap);
+        table.addFleet("Visa", "448460", "448611")
+                .addFleet("Visa", "448613", "448615")
+                .addFleet("Visa", "448617", "448674")
+                .addFleet("Visa", "448676", "448686")
+                .addFleet("Visa", "448688", "448699")
+                .addFleet("Visa", "461400", "461421")
+                .addFleet("Visa", "461423", "461499")
+                .addFleet("Visa", "480700", "480899");
 
         // mastercard fleet mappings
-        Map<String, String> mcFleetMap = new HashMap<String, String>();
-        mcFleetMap.put("553231", "553380");
-        mcFleetMap.put("556083", "556099");
-        mcFleetMap.put("556100", "556599");
-        mcFleetMap.put("556700", "556999");
-        fleetBinMap.put("MC", mcFleetMap);
+        table.addFleet("MC", "553231", "553380")
+                .addFleet("MC", "556083", "556099")
+                .addFleet("MC", "556100", "556599")
+                .addFleet("MC", "556700", "556999");
 
         // wright express fleet mappings
-        Map<String, String> wexFleetMap = new HashMap<String, String>();
-        wexFleetMap.put("690046", "690046");
-        wexFleetMap.put("707138", "707138");
-        fleetBinMap.put("Wex", wexFleetMap);
+        table.addFleet("Wex", "690046", "690046")
+                .addFleet("Wex", "707138", "707138");
 
         // voyager fleet
-        Map<String, String> voyagerFleetMap = new HashMap<String, String>();
-        voyagerFleetMap.put("708885", "708889");
-        fleetBinMap.put("Voyager", voyagerFleetMap);
+        table.addFleet("Voyager", "708885", "708889");
+
+        return table;
+    }
+
+    public static BinTable getBinTable() {
+        return binTable;
+    }
+
+    /**
+     * Replaces the ranges used to map card types, e.g. with a table loaded by {@link BinTable#load}.
+     */
+    public static void setBinTable(BinTable table) {
+        if(table == null) {
+            table = createBinTable();
+        }
+        binTable = table;
     }
 
     public static boolean isFleet(String cardType, String pan) {
         if (!StringUtils.isNullOrEmpty(pan)) {
-            int compareValue = Integer.parseInt(pan.substring(0, 6));
             String baseCardType = StringUtils.trimEnd(cardType, "Fleet");
-
-            if (fleetBinMap.containsKey(baseCardType)) {
-                Map<String, String> binRanges = fleetBinMap.get(baseCardType);
-                for (String key : binRanges.keySet()) {
-                    int lowerRange = Integer.parseInt(key);
-                    int upperRange = Integer.parseInt(binRanges.get(key));
-
-                    if (compareValue >= lowerRange && compareValue <= upperRange) {
-                        return true;
-                    }
-                }
-            }
+            return binTable.isFleet(baseCardType, pan);
         }
         return false;
     }
 
     public static boolean isReadyLink(String pan) {
         if(!StringUtils.isNullOrEmpty(pan)) {
-            String compareValue = pan.substring(0, 6);
-            return readyLinkBinMap.contains(compareValue);
+            return binTable.isReadyLink(pan);
         }
         return false;
     }
@@ -148,20 +113,16 @@ public class CardUtils {
     public static String mapCardType(String pan) {
         String rvalue = "Unknown";
         if(!StringUtils.isNullOrEmpty(pan)) {
-            pan = pan.replace(" ", "").replace("-", "");
-
-            for (Map.Entry<String, Pattern> kvp : regexMap.entrySet()) {
-                if (kvp.getValue().matcher(pan).find()) {
-                    rvalue = kvp.getKey();
-                }
-            }
+            BinTable table = binTable;
+            String cardType = table.getCardType(pan);
 
             // we have a card type, check if it's a fleet card
-            if(!rvalue.equals("Unknown")) {
-                if(isFleet(rvalue, pan)) {
+            if(cardType != null) {
+                rvalue = cardType;
+                if(table.isFleet(cardType, pan)) {
                     rvalue += "Fleet";
                 }
-                else if(isReadyLink(pan)) {
+                else if(table.isReadyLink(pan)) {
                     rvalue += "ReadyLink";
                 }
             }
@@ -10,13 +10,17 @@ import org.w3c.dom.NodeList;
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class Element {
     private Document doc;
     private org.w3c.dom.Element element;
+    // set instead of the DOM element when parsed by the streaming parser, such elements are read only
+    private XmlNode node;
     private Map<String, String> namespaces;
 
     public Element(Document doc, org.w3c.dom.Element element, Map<String, String> namespaces) {
@@ -25,11 +29,21 @@ public class Element {
         this.namespaces = namespaces;
     }
 
+    Element(XmlNode node, Map<String, String> namespaces) {
+        this.node = node;
+        this.namespaces = namespaces;
+    }
+
     public Element firstChild() {
+        if(node != null) {
+            List<XmlNode> children = node.getChildren();
+            return new Element(children.isEmpty() ? null : children.get(0), namespaces);
+        }
         return Element.fromNode(doc, this.element.getFirstChild());
     }
 
     public Element remove(String tagName) {
+        checkWritable();
         Element child = get(tagName);
         if(child != null) {
             element.removeChild(child.getElement());
@@ -38,6 +52,7 @@ public class Element {
     }
 
     public Element set(String name, String value){
+        checkWritable();
         this.element.setAttribute(name, value);
         return this;
     }
@@ -46,6 +61,7 @@ public class Element {
     }
 
     public Element text(String text){
+        checkWritable();
         if(text == null)
             text = "";
         this.element.appendChild(doc.createTextNode(text));
@@ -56,16 +72,23 @@ public class Element {
     }
 
     public Element append(Element child) {
+        checkWritable();
         this.doc.adoptNode(child.getElement());
         this.element.appendChild(child.getElement());
         return this;/**/
     }
 
     public String tag() {
+        if(node != null) {
+            return node.getName();
+        }
         return this.element.getTagName();
     }
 
-    public org.w3c.dom.Element getElement() { return this.element; }
+    public org.w3c.dom.Element getElement() {
+        checkWritable();
+        return this.element;
+    }
 
     public static Element fromNode(Document doc, Node node) {
         return fromNode(doc, node, new HashMap<String, String>());
@@ -75,14 +98,24 @@ public class Element {
     }
 
     public boolean has(String tagName) {
+        if(node != null) {
+            return node.findFirst(tagName, null) != null;
+        }
         return this.element.getElementsByTagName(tagName).getLength() > 0;
     }
 
     public Element get(String tagName) {
+        if(node != null) {
+            return new Element(node.findFirst(tagName, null), namespaces);
+        }
         return Element.fromNode(doc, this.element.getElementsByTagName(tagName).item(0));
     }
 
     public Element[] getAll() {
+        if(node != null) {
+            return toElements(node.getChildren());
+        }
+
         NodeList nodes = this.element.getChildNodes();
 
         Element[] elements = new Element[nodes.getLength()];
@@ -92,6 +125,12 @@ public class Element {
         return elements;
     }
     public Element[] getAll(String tagName) {
+        if(node != null) {
+            List<XmlNode> nodes = new ArrayList<XmlNode>();
+            node.findAll(tagName, nodes);
+            return toElements(nodes);
+        }
+
         NodeList nodes = this.element.getElementsByTagName(tagName);
 
         Element[] elements = new Element[nodes.getLength()];
@@ -102,45 +141,46 @@ public class Element {
     }
 
     public String getAttributeString(String attributeName) {
+        if(node != null) {
+            return node.getAttribute(attributeName);
+        }
         return this.element.getAttribute(attributeName);
     }
 
     public String getString(String... tagNames) {
         for(String tagName: tagNames) {
-            org.w3c.dom.Element element = getElementByTagName(tagName);
-            if(element != null) {
-                return element.getTextContent();
+            String value = getTextContent(tagName);
+            if(value != null) {
+                return value;
             }
         }
         return null;
     }
 
     public boolean getBool(String tagName) {
-        org.w3c.dom.Element element = getElementByTagName(tagName);
-        if(element != null) {
-            String value = element.getTextContent();
+        String value = getTextContent(tagName);
+        if(value != null) {
             if(StringUtils.isNullOrEmpty(value)) {
                 return false;
             }
-            return Boolean.parseBoolean(element.getTextContent());
+            return Boolean.parseBoolean(value);
         } return false;
     }
 
     public Integer getInt(String tagName) {
-        org.w3c.dom.Element element = getElementByTagName(tagName);
-        if(element != null) {
-            String value = element.getTextContent();
+        String value = getTextContent(tagName);
+        if(value != null) {
             if(StringUtils.isNullOrEmpty(value)) {
                 return null;
             }
-            return Integer.parseInt(element.getTextContent());
+            return Integer.parseInt(value);
         } return null;
     }
 
     public BigDecimal getDecimal(String tagName) {
-        org.w3c.dom.Element element = getElementByTagName(tagName);
-        if(element != null) {
-            return new BigDecimal(element.getTextContent());
+        String value = getTextContent(tagName);
+        if(value != null) {
+            return new BigDecimal(value);
         } return null;
     }
 
@@ -149,10 +189,10 @@ public class Element {
     }
     public Date getDate(SimpleDateFormat formatter, String... tagNames) {
         for(String tagName: tagNames) {
-            org.w3c.dom.Element element = getElementByTagName(tagName);
-            if(element != null) {
+            String value = getTextContent(tagName);
+            if(value != null) {
                 try {
-                    return formatter.parse(element.getTextContent());
+                    return formatter.parse(value);
                 }
                 catch (ParseException e) {
                     return null;
@@ -167,9 +207,8 @@ public class Element {
     }
     public DateTime getDateTime(DateTimeFormatter format, String... tagNames) {
         for(String tagName: tagNames) {
-            org.w3c.dom.Element element = getElementByTagName(tagName);
-            if(element != null) {
-                String value = element.getTextContent();
+            String value = getTextContent(tagName);
+            if(value != null) {
                 if(!StringUtils.isNullOrEmpty(value)) {
                     if (format == null) {
                         return DateTime.parse(value);
@@ -182,6 +221,20 @@ public class Element {
         return null;
     }
 
+    // the text of the first element with the name, looked up in the whole document when this element has none
+    private String getTextContent(String tagName) {
+        if(node != null) {
+            XmlNode found = node.findFirst(tagName, null);
+            if(found == null) {
+                found = node.getDocument().findFirst(tagName, null);
+            }
+            return found != null ? found.getTextContent() : null;
+        }
+
+        org.w3c.dom.Element found = getElementByTagName(tagName);
+        return found != null ? found.getTextContent() : null;
+    }
+
     private org.w3c.dom.Element getElementByTagName(String tagName) {
         org.w3c.dom.Element node;
 
@@ -192,4 +245,17 @@ public class Element {
 
         return node;
     }
-}
\ No newline at end of file
+
+    private Element[] toElements(List<XmlNode> nodes) {
+        Element[] elements = new Element[nodes.size()];
+        for(int i = 0; i < nodes.size(); i++)
+            elements[i] = new Element(nodes.get(i), namespaces);
+        return elements;
+    }
+
+    private void checkWritable() {
+        if(node != null) {
+            throw new UnsupportedOperationException("Elements parsed by the streaming parser are read only.");
+        }
+    }
+}
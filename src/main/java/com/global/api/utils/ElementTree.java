@@ -5,27 +5,93 @@ import com.global.api.entities.enums.IMappedConstant;
 import com.global.api.entities.enums.IStringConstant;
 import com.global.api.entities.exceptions.ApiException;
 import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.HashMap;
 
 public class ElementTree {
+    /**
+     * Dom builds a W3C document that can also be written to, Streaming reads the
+     * response with StAX into a lighter read only tree. Dom is the default, callers
+     * that only read the tree ask for Streaming.
+     */
+    public enum Parser {
+        Dom,
+        Streaming
+    }
+
+    private static volatile Parser defaultParser = Parser.Dom;
+
+    // neither factories nor builders are thread safe, so each thread keeps its own
+    private static final ThreadLocal<DocumentBuilder> documentBuilder = new ThreadLocal<DocumentBuilder>() {
+        @Override
+        protected DocumentBuilder initialValue() {
+            try {
+                return DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            } catch (ParserConfigurationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+    private static final ThreadLocal<XMLInputFactory> inputFactory = new ThreadLocal<XMLInputFactory>() {
+        @Override
+        protected XMLInputFactory initialValue() {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            return factory;
+        }
+    };
+    private static final ThreadLocal<XMLOutputFactory> outputFactory = new ThreadLocal<XMLOutputFactory>() {
+        @Override
+        protected XMLOutputFactory initialValue() {
+            return XMLOutputFactory.newInstance();
+        }
+    };
+    // requests are written into a buffer the thread keeps, unless one grew past the limit
+    private static final int REQUEST_BUFFER_LIMIT = 64 * 1024;
+    private static final ThreadLocal<ByteArrayOutputStream> requestBuffer = new ThreadLocal<ByteArrayOutputStream>() {
+        @Override
+        protected ByteArrayOutputStream initialValue() {
+            return new ByteArrayOutputStream(4096);
+        }
+    };
+    private static final byte[] XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>".getBytes(IOUtils.UTF_8);
+
     private Document doc;
+    private XmlNode document;
     private HashMap<String, String> namespaces;
 
+    public static Parser getDefaultParser() {
+        return defaultParser;
+    }
+    public static void setDefaultParser(Parser parser) {
+        defaultParser = parser;
+    }
+
     public void setDocument(Document doc) {
         this.doc = doc;
     }
@@ -37,7 +103,13 @@ public class ElementTree {
         init(namespaces); 
     }
 
+    private ElementTree(XmlNode document, HashMap<String, String> namespaces) {
+        this.document = document;
+        this.namespaces = namespaces;
+    }
+
     public Element element(String tagName) {
+        checkWritable();
         org.w3c.dom.Element element;
 
         if (tagName.contains(":")) {
@@ -52,6 +124,7 @@ public class ElementTree {
     }
 
     public Element subElement(Element parent, String tagName) {
+        checkWritable();
         org.w3c.dom.Element child;
 
         if (tagName.contains(":")) {
@@ -108,25 +181,139 @@ public class ElementTree {
     }
 
     public String toString(Element root) {
-        doc.appendChild(root.getElement());
-
         try {
-            TransformerFactory tFact = TransformerFactory.newInstance();
-            Transformer trans = tFact.newTransformer();
-
-            StringWriter writer = new StringWriter();
-            StreamResult result = new StreamResult(writer);
-            DOMSource source = new DOMSource(doc);
-            trans.transform(source, result);
-            return writer.toString();
-        } catch (TransformerException e) {
+            ByteArrayOutputStream buffer = write(root);
+            try {
+                return buffer.toString("UTF-8");
+            } finally {
+                releaseBuffer(buffer);
+            }
+        } catch (ApiException e) {
+            return e.getMessage();
+        } catch (UnsupportedEncodingException e) {
             return e.getMessage();
+        }
+    }
+
+    /**
+     * The document with the given root as UTF-8 bytes, ready to be written to the transport.
+     */
+    public byte[] toBytes(Element root) throws ApiException {
+        ByteArrayOutputStream buffer = write(root);
+        try {
+            return buffer.toByteArray();
         } finally {
-            doc.removeChild(root.getElement());
+            releaseBuffer(buffer);
+        }
+    }
+
+    private ByteArrayOutputStream write(Element root) throws ApiException {
+        checkWritable();
+
+        ByteArrayOutputStream buffer = requestBuffer.get();
+        buffer.reset();
+
+        XMLStreamWriter writer = null;
+        try {
+            buffer.write(XML_DECLARATION, 0, XML_DECLARATION.length);
+            writer = outputFactory.get().createXMLStreamWriter(buffer, "UTF-8");
+            writeElement(writer, root.getElement(), new HashMap<String, String>());
+            writer.flush();
+            return buffer;
+        } catch (XMLStreamException e) {
+            releaseBuffer(buffer);
+            throw new ApiException(e.getMessage());
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (XMLStreamException e) {
+                    // eat the close exception
+                }
+            }
+        }
+    }
+
+    private static void releaseBuffer(ByteArrayOutputStream buffer) {
+        if (buffer.size() > REQUEST_BUFFER_LIMIT) {
+            requestBuffer.remove();
+        }
+    }
+
+    // writes the element the way the DOM transformer did, declaring each namespace where it is first used
+    private static void writeElement(XMLStreamWriter writer, org.w3c.dom.Element element, HashMap<String, String> inScope) throws XMLStreamException {
+        String prefix = element.getPrefix() == null ? "" : element.getPrefix();
+        String namespaceURI = element.getNamespaceURI();
+        String localName = element.getLocalName() == null ? element.getTagName() : element.getLocalName();
+
+        boolean empty = isEmpty(element);
+        if (empty) {
+            writer.writeEmptyElement(prefix, localName, namespaceURI == null ? "" : namespaceURI);
+        }
+        else writer.writeStartElement(prefix, localName, namespaceURI == null ? "" : namespaceURI);
+
+        if (namespaceURI != null && !namespaceURI.equals(inScope.get(prefix))) {
+            inScope = new HashMap<String, String>(inScope);
+            inScope.put(prefix, namespaceURI);
+            if (prefix.equals("")) {
+                writer.writeDefaultNamespace(namespaceURI);
+            }
+            else writer.writeNamespace(prefix, namespaceURI);
+        }
+
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node attribute = attributes.item(i);
+            writer.writeAttribute(attribute.getNodeName(), attribute.getNodeValue());
+        }
+        if (empty) {
+            return;
+        }
+
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                writeElement(writer, (org.w3c.dom.Element) child, inScope);
+            }
+            else if (child.getNodeType() == Node.TEXT_NODE) {
+                writeText(writer, child.getNodeValue());
+            }
+        }
+        writer.writeEndElement();
+    }
+
+    // carriage returns are escaped so the receiving parser does not normalize them away
+    private static void writeText(XMLStreamWriter writer, String text) throws XMLStreamException {
+        int start = 0;
+        for (int index = text.indexOf('\r'); index >= 0; index = text.indexOf('\r', start)) {
+            writer.writeCharacters(text.substring(start, index));
+            writer.writeEntityRef("#13");
+            start = index + 1;
+        }
+        writer.writeCharacters(text.substring(start));
+    }
+
+    private static boolean isEmpty(org.w3c.dom.Element element) {
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() != Node.TEXT_NODE || child.getNodeValue().length() > 0) {
+                return false;
+            }
         }
+        return true;
     }
 
     public Element get(String tagName) {
+        if (document != null) {
+            String namespaceURI = null;
+            if (tagName.contains(":")) {
+                namespaceURI = namespaces.get(tagName.split(":")[0]);
+            }
+
+            XmlNode found = document.findFirst(tagName, namespaceURI);
+            if (found != null) {
+                return new Element(found, namespaces);
+            } return null;
+        }
+
         Node node;
 
         if (tagName.contains(":")) {
@@ -144,26 +331,66 @@ public class ElementTree {
     }
 
     public static ElementTree parse(byte[] buffer) throws ApiException {
-        String xmlString = "";
-        for(byte b: buffer) {
-            xmlString += (char)b;
+        // terminals send single byte text, each byte is one character
+        return parse(buffer, IOUtils.ISO_8859_1);
+    }
+
+    public static ElementTree parse(byte[] buffer, Parser parser) throws ApiException {
+        return parse(new ByteArrayInputStream(buffer), IOUtils.ISO_8859_1, new HashMap<String, String>(), parser);
+    }
+
+    public static ElementTree parse(byte[] buffer, Charset charset) throws ApiException {
+        return parse(buffer, 0, buffer.length, charset);
+    }
+
+    public static ElementTree parse(byte[] buffer, int offset, int length, Charset charset) throws ApiException {
+        return parse(new ByteArrayInputStream(buffer, offset, length), charset, new HashMap<String, String>());
+    }
+
+    public static ElementTree parse(InputStream stream, Charset charset, HashMap<String, String> namespaces) throws ApiException {
+        return parse(stream, charset, namespaces, defaultParser);
+    }
+
+    /**
+     * Parses the document straight from the stream. The bytes are decoded with the given
+     * charset, when it is null the parser detects the encoding from the byte order mark
+     * or the XML declaration.
+     */
+    public static ElementTree parse(InputStream stream, Charset charset, HashMap<String, String> namespaces, Parser parser) throws ApiException {
+        if (charset != null) {
+            return parse(new InputSource(new InputStreamReader(stream, charset)), namespaces, parser);
         }
-        return parse(xmlString);
+        return parse(new InputSource(stream), namespaces, parser);
     }
 
     public static ElementTree parse(String xml) throws ApiException {
         return parse(xml, new HashMap<String, String>());
     }
 
-    public static ElementTree parse(String xml, HashMap<String, String> namespaces) throws ApiException{
+    public static ElementTree parse(String xml, Parser parser) throws ApiException {
+        return parse(xml, new HashMap<String, String>(), parser);
+    }
+
+    public static ElementTree parse(String xml, HashMap<String, String> namespaces) throws ApiException {
+        return parse(xml, namespaces, defaultParser);
+    }
+
+    public static ElementTree parse(String xml, HashMap<String, String> namespaces, Parser parser) throws ApiException {
+        return parse(new InputSource(new StringReader(xml)), namespaces, parser);
+    }
+
+    private static ElementTree parse(InputSource source, HashMap<String, String> namespaces, Parser parser) throws ApiException {
+        if (parser == Parser.Streaming) {
+            return parseStreaming(source, namespaces);
+        }
+
         try {
-            InputSource is = new InputSource(new StringReader(xml));
+            DocumentBuilder builder = documentBuilder.get();
+            builder.reset();
 
             ElementTree rvalue = new ElementTree(namespaces);
-            rvalue.setDocument(DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(is));
+            rvalue.setDocument(builder.parse(source));
             return rvalue;
-        } catch(ParserConfigurationException e) {
-            throw new ApiException(e.getMessage());
         } catch(SAXException e) {
             throw new ApiException(e.getMessage());
         } catch(IOException e) {
@@ -171,13 +398,91 @@ public class ElementTree {
         }
     }
 
-    private void init(HashMap<String, String> namespaces) {
+    private static ElementTree parseStreaming(InputSource source, HashMap<String, String> namespaces) throws ApiException {
+        XMLStreamReader reader = null;
         try {
-            this.namespaces = namespaces;
-            this.doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+            if (source.getCharacterStream() != null) {
+                reader = inputFactory.get().createXMLStreamReader(source.getCharacterStream());
+            }
+            else reader = inputFactory.get().createXMLStreamReader(source.getByteStream());
+
+            XmlNode document = XmlNode.createDocument();
+            ArrayList<XmlNode> open = new ArrayList<XmlNode>();
+            XmlNode current = document;
+
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        open.add(current);
+                        current = current.addChild(qualifiedName(reader.getPrefix(), reader.getLocalName()), reader.getNamespaceURI(), readAttributes(reader));
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        current = open.remove(open.size() - 1);
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if (current != document) {
+                            current.addText(reader.getText());
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return new ElementTree(document, namespaces);
+        } catch (XMLStreamException e) {
+            throw new ApiException(e.getMessage());
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // eat the close exception
+                }
+            }
+        }
+    }
+
+    // namespace declarations are kept as attributes, the way the DOM parser reports them
+    private static String[] readAttributes(XMLStreamReader reader) {
+        int namespaceCount = reader.getNamespaceCount();
+        int attributeCount = reader.getAttributeCount();
+        if (namespaceCount + attributeCount == 0) {
+            return null;
+        }
+
+        String[] attributes = new String[(namespaceCount + attributeCount) * 2];
+        int index = 0;
+        for (int i = 0; i < namespaceCount; i++) {
+            attributes[index++] = qualifiedName("xmlns", reader.getNamespacePrefix(i));
+            attributes[index++] = reader.getNamespaceURI(i);
+        }
+        for (int i = 0; i < attributeCount; i++) {
+            attributes[index++] = qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+            attributes[index++] = reader.getAttributeValue(i);
+        }
+        return attributes;
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        if (StringUtils.isNullOrEmpty(localName)) {
+            return prefix;
+        }
+        if (StringUtils.isNullOrEmpty(prefix)) {
+            return localName;
+        }
+        return prefix + ":" + localName;
+    }
+
+    private void init(HashMap<String, String> namespaces) {
+        this.namespaces = namespaces;
+        this.doc = documentBuilder.get().newDocument();
+    }
 
-        } catch (ParserConfigurationException e) {
-            System.out.println(e.getMessage());
+    private void checkWritable() {
+        if (doc == null) {
+            throw new UnsupportedOperationException("Documents parsed by the streaming parser are read only.");
         }
     }
-}
\ No newline at end of file
+}
@@ -4,6 +4,9 @@ import java.util.HashMap;
 import java.util.Map;
 
 public class EmvUtils {
+    private static final byte[] TVR_MASK = new byte[] { (byte)0xFC, 0x50, (byte)0xFC, 0x20, 0x00 };
+    private static final byte[] TSI_MASK = new byte[] { (byte)0xE8, 0x00 };
+
     private static Map<String, String> knownTags;
     private static Map<String, String> blackList;
     private static Map<String, String> dataTypes;
@@ -204,63 +207,43 @@ public class EmvUtils {
         if(StringUtils.isNullOrEmpty(tagData)) {
             return null;
         }
-
-        tagData = tagData.toUpperCase();
+        return parseTagData(bytesFromHex(tagData), verbose);
+    }
+    public static EmvData parseTagData(byte[] tagData, boolean verbose) {
+        if(tagData == null || tagData.length == 0) {
+            return null;
+        }
 
         EmvData rvalue = new EmvData();
 
-        for(int i = 0; i < tagData.length();) {
-            try {
-                String tagName = tagData.substring(i, i = i + 2);
-                if((Integer.parseInt(tagName, 16) & 0x1F) == 0x1F) {
-                    tagName += tagData.substring(i, i = i + 2);
-                }
+        TlvBuffer tlv = TlvBuffer.parse(tagData);
+        for(int i = 0; i < tlv.size(); i++) {
+            // the elements of constructed tags stay in the value of their parent
+            if(tlv.getParent(i) != -1) {
+                continue;
+            }
+
+            String tagName = tlv.getTagName(i);
+            String lengthStr = tlv.getLengthString(i);
+            String value = tlv.getValueString(i);
 
-                String lengthStr = tagData.substring(i, i = i + 2);
-                int length = Integer.parseInt(lengthStr, 16);
-                if(length > 127) {
-                    int bytesLength = length - 128;
-                    lengthStr = tagData.substring(i, i = i + (bytesLength * 2));
-                    length = Integer.parseInt(lengthStr, 16);
+            if(!blackList.containsKey(tagName)) {
+                TlvData approvedTag = new TlvData(tagName, lengthStr, value, knownTags.get(tagName));
+                if(tagName.equals("5F28") && !value.equals("840")) {
+                    rvalue.setStandInStatus(false, "Card is not domestically issued");
                 }
-                length *= 2;
-
-                String value = tagData.substring(i, i = i + length);
-
-                if(!blackList.containsKey(tagName)) {
-                    TlvData approvedTag = new TlvData(tagName, lengthStr, value, knownTags.get(tagName));
-                    if(tagName.equals("5F28") && !value.equals("840")) {
-                        rvalue.setStandInStatus(false, "Card is not domestically issued");
-                    }
-                    else if(tagName.equals("95")) {
-                        byte[] valueBuffer = StringUtils.bytesFromHex(value);
-                        byte[] maskBuffer = StringUtils.bytesFromHex("FC50FC2000");
-
-                        for(int idx = 0; idx < valueBuffer.length; idx++) {
-                            if((valueBuffer[idx] & maskBuffer[idx]) != 0x00) {
-                                rvalue.setStandInStatus(false, String.format("Invalid TVR status in byte %s of tag 95", idx + 1));
-                            }
-                        }
-                    }
-                    else if(tagName.equals("9B")) {
-                        byte[] valueBuffer = StringUtils.bytesFromHex(value);
-                        byte[] maskBuffer = StringUtils.bytesFromHex("E800");
-
-                        for(int idx = 0; idx < valueBuffer.length; idx++) {
-                            if((valueBuffer[idx] & maskBuffer[idx]) != maskBuffer[idx]) {
-                                rvalue.setStandInStatus(false, String.format("Invalid TSI status in byte %s of tag 9B", idx + 1));
-                            }
-                        }
-                    }
-
-                    rvalue.addTag(approvedTag);
+                else if(tagName.equals("95")) {
+                    checkStatus(rvalue, tlv, i, TVR_MASK, false, "Invalid TVR status in byte %s of tag 95");
                 }
-                else {
-                    rvalue.addRemovedTag(tagName, lengthStr, value, blackList.get(tagName));
+                else if(tagName.equals("9B")) {
+                    checkStatus(rvalue, tlv, i, TSI_MASK, true, "Invalid TSI status in byte %s of tag 9B");
                 }
+
+                rvalue.addTag(approvedTag);
+            }
+            else {
+                rvalue.addRemovedTag(tagName, lengthStr, value, blackList.get(tagName));
             }
-            catch(NumberFormatException exc) {}
-            catch(IndexOutOfBoundsException exc) {}
         }
 
         if(verbose) {
@@ -279,8 +262,43 @@ public class EmvUtils {
                 System.out.println(String.format("TAG: %s - %s", tagName, tag.getDescription()));
                 System.out.println(String.format("%s: %s\r\n",tag.getLength(), tag.getValue()));
             }
+
+            if(!tlv.isComplete()) {
+                System.out.println(String.format("Tag data not read from byte %s: %s", tlv.getErrorOffset(), tlv.getError()));
+            }
         }
 
         return rvalue;
     }
+
+    // the masked bits must all be clear, or all be set when expectSet is true
+    private static void checkStatus(EmvData emvData, TlvBuffer tlv, int index, byte[] mask, boolean expectSet, String reason) {
+        byte[] buffer = tlv.getBuffer();
+        int offset = tlv.getValueOffset(index);
+        int length = Math.min(tlv.getValueLength(index), mask.length);
+
+        for(int idx = 0; idx < length; idx++) {
+            int masked = buffer[offset + idx] & mask[idx];
+            if(expectSet ? masked != mask[idx] : masked != 0x00) {
+                emvData.setStandInStatus(false, String.format(reason, idx + 1));
+            }
+        }
+    }
+
+    // decodes up to the first character that is not hex
+    private static byte[] bytesFromHex(String hex) {
+        int length = hex.length() / 2;
+        for(int i = 0; i < length * 2; i++) {
+            if(Character.digit(hex.charAt(i), 16) < 0) {
+                length = i / 2;
+                break;
+            }
+        }
+
+        byte[] buffer = new byte[length];
+        for(int i = 0; i < length; i++) {
+            buffer[i] = (byte)((Character.digit(hex.charAt(i * 2), 16) << 4) | Character.digit(hex.charAt(i * 2 + 1), 16));
+        }
+        return buffer;
+    }
 }
@@ -4,12 +4,19 @@ import java.io.*;
 import java.nio.charset.Charset;
 
 public class IOUtils {
+    public static final Charset UTF_8 = Charset.forName("UTF-8");
+    public static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
     public static String readFully(InputStream stream) throws IOException {
+        return readFully(new InputStreamReader(stream, UTF_8));
+    }
+
+    public static String readFully(Reader reader) throws IOException {
         StringBuilder sb = new StringBuilder();
-        Reader reader = new BufferedReader(new InputStreamReader(stream, Charset.forName("UTF-8")));
-        int c;
-        while((c = reader.read()) != -1)
-            sb.append((char)c);
+        char[] buffer = new char[4096];
+        int count;
+        while((count = reader.read(buffer)) != -1)
+            sb.append(buffer, 0, count);
         return sb.toString();
     }
 }
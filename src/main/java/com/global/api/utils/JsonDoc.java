@@ -2,8 +2,13 @@ package com.global.api.utils;
 
 import com.global.api.entities.enums.IStringConstant;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.joda.time.DateTime;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -255,11 +260,65 @@ public class JsonDoc {
         return parse(json, null);
     }
     public static JsonDoc parse(String json, IRequestEncoder encoder) {
-        JsonElement parsed = new JsonParser().parse(json);
-        if(parsed.isJsonObject()) {
-            return parseObject(parsed.getAsJsonObject(), encoder);
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.setLenient(true);
+        try {
+            JsonToken token;
+            try {
+                token = reader.peek();
+            }
+            catch(EOFException exc) {
+                // empty document
+                return null;
+            }
+            if(token != JsonToken.BEGIN_OBJECT) {
+                return null;
+            }
+
+            JsonDoc doc = parse(reader, encoder);
+            if(reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonSyntaxException("Did not consume the entire document.");
+            }
+            return doc;
         }
-        return null;
+        catch(IOException exc) {
+            throw new JsonSyntaxException(exc);
+        }
+    }
+
+    public static JsonDoc parse(JsonReader reader) throws IOException {
+        return parse(reader, null);
+    }
+    /**
+     * Reads the next object from the reader without building an intermediate tree,
+     * leaving the reader positioned after it.
+     */
+    public static JsonDoc parse(JsonReader reader, IRequestEncoder encoder) throws IOException {
+        HashMap<String, Object> values = new HashMap<String, Object>();
+
+        reader.beginObject();
+        while(reader.hasNext()) {
+            String name = reader.nextName();
+            switch(reader.peek()) {
+                case BEGIN_ARRAY:
+                    values.put(name, parseArray(reader, encoder));
+                    break;
+                case BEGIN_OBJECT:
+                    values.put(name, parse(reader, encoder));
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    break;
+                case BOOLEAN:
+                    values.put(name, String.valueOf(reader.nextBoolean()));
+                    break;
+                default:
+                    values.put(name, reader.nextString());
+            }
+        }
+        reader.endObject();
+
+        return new JsonDoc(values, encoder);
     }
 
     public static String parseSingleValue(String json, String name) {
@@ -270,31 +329,6 @@ public class JsonDoc {
         return doc.getString("name");
     }
 
-    private static JsonDoc parseObject(JsonObject obj, IRequestEncoder encoder) {
-        HashMap<String, Object> values = new HashMap<String, Object>();
-        for(Map.Entry<String, JsonElement> child: obj.entrySet()) {
-            if(child.getValue().isJsonArray()) {
-                if( (child.getValue().getAsJsonArray().size() > 0) && (child.getValue().getAsJsonArray().get(0) instanceof JsonObject) ) {
-                    List<JsonDoc> objs = parseArray(child.getValue().getAsJsonArray(), encoder);
-                    values.put(child.getKey(), objs);
-                } else {
-                    ArrayList<String> objs = parseStringArrayList(child.getValue().getAsJsonArray(), encoder);
-                    values.put(child.getKey(), objs);
-                }
-            }
-            else if(child.getValue().isJsonObject()){
-                values.put(child.getKey(), parseObject(child.getValue().getAsJsonObject(), encoder));
-            }
-            else {
-                JsonElement childValue = child.getValue();
-                if(!childValue.isJsonNull())
-                    values.put(child.getKey(), childValue.getAsString());
-                //else values.put(child.getKey(), null);
-            }
-        }
-        return new JsonDoc(values, encoder);
-    }
-
     public static ArrayList<String> parseStringArrayList(JsonArray objs, IRequestEncoder encoder) {
         ArrayList<String> response = new ArrayList<String>();
         for (JsonElement child : objs) {
@@ -303,12 +337,38 @@ public class JsonDoc {
         return response;
     }
 
-    private static List<JsonDoc> parseArray(JsonArray objs, IRequestEncoder encoder) {
-        List<JsonDoc> responses = new ArrayList<JsonDoc>();
-        for (JsonElement obj: objs) {
-            if(obj.isJsonObject())
-                responses.add(parseObject(obj.getAsJsonObject(), encoder));
+    // arrays of objects become documents, anything else a list of strings
+    private static List<?> parseArray(JsonReader reader, IRequestEncoder encoder) throws IOException {
+        reader.beginArray();
+        if(reader.hasNext() && reader.peek() == JsonToken.BEGIN_OBJECT) {
+            List<JsonDoc> responses = new ArrayList<JsonDoc>();
+            while(reader.hasNext()) {
+                if(reader.peek() == JsonToken.BEGIN_OBJECT)
+                    responses.add(parse(reader, encoder));
+                else reader.skipValue();
+            }
+            reader.endArray();
+            return responses;
         }
-        return responses;
+
+        ArrayList<String> response = new ArrayList<String>();
+        while(reader.hasNext()) {
+            switch(reader.peek()) {
+                case BOOLEAN:
+                    response.add(String.valueOf(reader.nextBoolean()));
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    break;
+                case STRING:
+                case NUMBER:
+                    response.add(reader.nextString());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endArray();
+        return response;
     }
 }
@@ -9,6 +9,8 @@ public class MessageReader {
     long length = 0;
 
     public long getLength() { return length; }
+    public int getPosition() { return position; }
+    public byte[] getBuffer() { return buffer; }
 
     public MessageReader(byte[] bytes){
         buffer = bytes;
@@ -28,8 +30,7 @@ public class MessageReader {
     }
 
     public <T extends Enum<T> & IByteConstant> T readEnum(Class<T> enumType){
-        ReverseByteEnumMap<T> map = new ReverseByteEnumMap<T>(enumType);
-        return map.get(buffer[position++]);
+        return ReverseByteEnumMap.forType(enumType).get(buffer[position++]);
     }
 
     public byte readByte() {
@@ -50,6 +51,10 @@ public class MessageReader {
         return rvalue;
     }
 
+    public void skip(int length) {
+        position += length;
+    }
+
     public char readChar(){
         return (char)buffer[position++];
     }
@@ -3,54 +3,100 @@ package com.global.api.utils;
 import com.global.api.entities.enums.IByteConstant;
 import com.global.api.entities.enums.IStringConstant;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 public class MessageWriter {
-    List<Byte> buffer;
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private byte[] buffer;
+    private int count;
+
+    public int length() {
+        return count;
+    }
 
     public MessageWriter() {
-        buffer = new ArrayList<Byte>();
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MessageWriter(int initialCapacity) {
+        buffer = new byte[Math.max(initialCapacity, 16)];
     }
 
     public MessageWriter(byte[] bytes){
-        buffer = new ArrayList<Byte>();
-        for(byte b: bytes)
-            buffer.add(b);
+        this(bytes.length);
+        addRange(bytes);
     }
 
-    public void add(Byte b) { buffer.add(b); }
+    public void add(Byte b) {
+        add(b.byteValue());
+    }
+
+    public void add(byte b) {
+        ensureCapacity(count + 1);
+        buffer[count++] = b;
+    }
 
     public void add(IByteConstant constant){
-        buffer.add(constant.getByte());
+        add(constant.getByte());
     }
 
     public void add(IStringConstant constant) {
-        for(byte b: constant.getBytes())
-            buffer.add(b);
+        addRange(constant.getBytes());
     }
 
     public void addRange(Byte[] bytes) {
-        for(byte b: bytes)
-            buffer.add(b);
+        ensureCapacity(count + bytes.length);
+        for(Byte b: bytes)
+            buffer[count++] = b;
     }
 
     public void addRange(byte[] bytes){
-        for(byte b: bytes)
-            buffer.add(b);
+        addRange(bytes, 0, bytes.length);
+    }
+
+    public void addRange(byte[] bytes, int offset, int length) {
+        ensureCapacity(count + length);
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    /**
+     * Writes the value as ASCII digits, left padded with zeros to at least the given width.
+     */
+    public void addDigits(int value, int width) {
+        int digits = 1;
+        for(int remainder = value / 10; remainder != 0; remainder /= 10) {
+            digits++;
+        }
+
+        int size = Math.max(digits, width);
+        ensureCapacity(count + size);
+        for(int i = count + size - 1; i >= count; i--) {
+            buffer[i] = (byte)('0' + value % 10);
+            value /= 10;
+        }
+        count += size;
     }
 
     public void pop(){
-        buffer.remove(buffer.size() - 1);
+        if(count == 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        count--;
     }
 
-    public byte[] toArray(){
-        byte[] b = new byte[buffer.size()];
+    public void reset() {
+        count = 0;
+    }
 
-        Object[] b2 = buffer.toArray();
-        for(int i = 0; i < buffer.size(); i++)
-            b[i] = (Byte)b2[i];
+    public byte[] toArray(){
+        return Arrays.copyOf(buffer, count);
+    }
 
-        return b;
+    private void ensureCapacity(int capacity) {
+        if(capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length << 1));
+        }
     }
 }
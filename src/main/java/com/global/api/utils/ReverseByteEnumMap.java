@@ -2,24 +2,40 @@ package com.global.api.utils;
 
 import com.global.api.entities.enums.IByteConstant;
 
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * Finds the constant of an enum by its byte. The map of each enum is built once and shared,
+ * see {@link #forType(Class)}.
+ */
 public class ReverseByteEnumMap<V extends Enum<V> & IByteConstant> {
-    private Map<Byte, V> map = new HashMap<Byte, V>();
+    @SuppressWarnings("rawtypes")
+    private static final ClassValue<ReverseByteEnumMap> maps = new ClassValue<ReverseByteEnumMap>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected ReverseByteEnumMap computeValue(Class<?> type) {
+            return new ReverseByteEnumMap(type);
+        }
+    };
+
+    // indexed by the unsigned byte
+    private final Object[] values = new Object[256];
 
     ReverseByteEnumMap(Class<V> valueType) {
         for(V v: valueType.getEnumConstants()) {
-            map.put(v.getByte(), v);
+            values[v.getByte() & 0xFF] = v;
         }
     }
 
+    @SuppressWarnings("unchecked")
     public V get(byte value) {
-        return map.get(value);
+        return (V)values[value & 0xFF];
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V extends Enum<V> & IByteConstant> ReverseByteEnumMap<V> forType(Class<V> valueType) {
+        return (ReverseByteEnumMap<V>)maps.get(valueType);
     }
 
     public static <TResult extends Enum<TResult> & IByteConstant> TResult parse(byte value, Class<TResult> clazz) {
-        ReverseByteEnumMap<TResult> mapper = new ReverseByteEnumMap<TResult>(clazz);
-        return mapper.get(value);
+        return forType(clazz).get(value);
     }
-}
\ No newline at end of file
+}
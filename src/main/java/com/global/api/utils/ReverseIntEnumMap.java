@@ -2,19 +2,58 @@ package com.global.api.utils;
 
 import com.global.api.entities.enums.INumericConstant;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Comparator;
 
+/**
+ * Finds the constant of an enum by its number. The map of each enum is built once and shared,
+ * see {@link #forType(Class)}.
+ */
 public class ReverseIntEnumMap<V extends Enum<V> & INumericConstant> {
-    private Map<Integer, V> map = new HashMap<Integer, V>();
+    @SuppressWarnings("rawtypes")
+    private static final ClassValue<ReverseIntEnumMap> maps = new ClassValue<ReverseIntEnumMap>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected ReverseIntEnumMap computeValue(Class<?> type) {
+            return new ReverseIntEnumMap(type);
+        }
+    };
+
+    // the numbers sorted for a binary search, the constants in the same order
+    private final int[] keys;
+    private final Object[] values;
 
     public ReverseIntEnumMap(Class<V> valueType) {
-        for(V v: valueType.getEnumConstants()) {
-            map.put(v.getValue(), v);
+        V[] constants = valueType.getEnumConstants().clone();
+        // a stable sort, so of two constants with the same number the last declared is kept
+        Arrays.sort(constants, new Comparator<V>() {
+            public int compare(V a, V b) {
+                return Integer.compare(a.getValue(), b.getValue());
+            }
+        });
+
+        int[] keys = new int[constants.length];
+        Object[] values = new Object[constants.length];
+        int size = 0;
+        for(V v: constants) {
+            if(size > 0 && keys[size - 1] == v.getValue()) {
+                size--;
+            }
+            keys[size] = v.getValue();
+            values[size++] = v;
         }
+        this.keys = Arrays.copyOf(keys, size);
+        this.values = Arrays.copyOf(values, size);
     }
 
+    @SuppressWarnings("unchecked")
     public V get(int value) {
-        return map.get(value);
+        int index = Arrays.binarySearch(keys, value);
+        return index < 0 ? null : (V)values[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V extends Enum<V> & INumericConstant> ReverseIntEnumMap<V> forType(Class<V> valueType) {
+        return (ReverseIntEnumMap<V>)maps.get(valueType);
     }
-}
\ No newline at end of file
+}
@@ -5,11 +5,26 @@ import com.global.api.entities.enums.IStringConstant;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Finds the constant of an enum by its string value. The map of each enum is built once and
+ * shared, see {@link #forType(Class)}.
+ */
 public class ReverseStringEnumMap<V extends Enum<V> & IStringConstant> {
-    private Map<String, V> map = new HashMap<String, V>();
+    @SuppressWarnings("rawtypes")
+    private static final ClassValue<ReverseStringEnumMap> maps = new ClassValue<ReverseStringEnumMap>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected ReverseStringEnumMap computeValue(Class<?> type) {
+            return new ReverseStringEnumMap(type);
+        }
+    };
+
+    private final Map<String, V> map;
 
     public ReverseStringEnumMap(Class<V> valueType) {
-        for(V v: valueType.getEnumConstants()) {
+        V[] constants = valueType.getEnumConstants();
+        map = new HashMap<String, V>(constants.length * 4 / 3 + 1);
+        for(V v: constants) {
             map.put(v.getValue(), v);
         }
     }
@@ -18,8 +33,12 @@ public class ReverseStringEnumMap<V extends Enum<V> & IStringConstant> {
         return map.get(value);
     }
 
+    @SuppressWarnings("unchecked")
+    public static <V extends Enum<V> & IStringConstant> ReverseStringEnumMap<V> forType(Class<V> valueType) {
+        return (ReverseStringEnumMap<V>)maps.get(valueType);
+    }
+
     public static <TResult extends Enum<TResult> & IStringConstant> TResult parse(String value, Class<TResult> clazz) {
-        ReverseStringEnumMap<TResult> mapper = new ReverseStringEnumMap<TResult>(clazz);
-        return mapper.get(value);
+        return forType(clazz).get(value);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,213 @@
+package com.global.api.utils;
+
+/**
+ * An index over the BER-TLV elements of a byte buffer, such as the EMV data of DE 55. The values
+ * are not copied, each element is kept as offsets into the buffer.
+ *
+ * The elements inside a constructed tag are indexed after it with the constructed tag as their
+ * parent. When the value of a constructed tag is not valid TLV, e.g. proprietary tags like FFC6,
+ * it is kept as a plain value.
+ *
+ * Parsing stops at the first element that does not fit the buffer, the elements read before it
+ * are kept and the reason is given by {@link #getError()}.
+ */
+public class TlvBuffer {
+    private static final int FIELDS = 6;
+    private static final int TAG = 0;
+    private static final int TAG_OFFSET = 1;
+    private static final int LENGTH_OFFSET = 2;
+    private static final int VALUE_OFFSET = 3;
+    private static final int VALUE_LENGTH = 4;
+    private static final int PARENT = 5;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final byte[] buffer;
+    private int[] elements;
+    private int size;
+    private String error;
+    private int errorOffset = -1;
+
+    public static TlvBuffer parse(byte[] buffer) {
+        return parse(buffer, 0, buffer.length);
+    }
+    public static TlvBuffer parse(byte[] buffer, int offset, int length) {
+        TlvBuffer rvalue = new TlvBuffer(buffer);
+        rvalue.parse(offset, offset + length, -1);
+        return rvalue;
+    }
+
+    private TlvBuffer(byte[] buffer) {
+        this.buffer = buffer;
+        this.elements = new int[16 * FIELDS];
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+    public int size() {
+        return size;
+    }
+    public boolean isComplete() {
+        return error == null;
+    }
+    public String getError() {
+        return error;
+    }
+    /**
+     * @return the offset of the element that could not be read, -1 when the buffer was read to the end
+     */
+    public int getErrorOffset() {
+        return errorOffset;
+    }
+
+    /**
+     * @return the tag bytes as a number, e.g. 0x9F26
+     */
+    public int getTag(int index) {
+        return field(index, TAG);
+    }
+    public String getTagName(int index) {
+        return hex(field(index, TAG_OFFSET), field(index, LENGTH_OFFSET));
+    }
+    /**
+     * @return the encoded length, e.g. 81 9C for a value of 156 bytes
+     */
+    public String getLengthString(int index) {
+        return hex(field(index, LENGTH_OFFSET), field(index, VALUE_OFFSET));
+    }
+    public int getValueOffset(int index) {
+        return field(index, VALUE_OFFSET);
+    }
+    public int getValueLength(int index) {
+        return field(index, VALUE_LENGTH);
+    }
+    public String getValueString(int index) {
+        int offset = field(index, VALUE_OFFSET);
+        return hex(offset, offset + field(index, VALUE_LENGTH));
+    }
+    public byte[] getValue(int index) {
+        byte[] value = new byte[field(index, VALUE_LENGTH)];
+        System.arraycopy(buffer, field(index, VALUE_OFFSET), value, 0, value.length);
+        return value;
+    }
+    /**
+     * @return the index of the constructed tag holding the element, -1 for a top level element
+     */
+    public int getParent(int index) {
+        return field(index, PARENT);
+    }
+    /**
+     * @return true when the value was read as the elements following this one
+     */
+    public boolean isConstructed(int index) {
+        return index + 1 < size && field(index + 1, PARENT) == index;
+    }
+
+    /**
+     * @return the index of the first element with the tag at any level, -1 when there is none
+     */
+    public int indexOf(int tag) {
+        for(int i = 0; i < size; i++) {
+            if(elements[i * FIELDS + TAG] == tag) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int field(int index, int field) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("Element %s of %s.", index, size));
+        }
+        return elements[index * FIELDS + field];
+    }
+
+    // reads the elements between offset and end, false when they are not valid TLV
+    private boolean parse(int offset, int end, int parent) {
+        while(offset < end) {
+            int tagOffset = offset;
+            int tag = buffer[offset++] & 0xFF;
+            boolean constructed = (tag & 0x20) != 0;
+            if((tag & 0x1F) == 0x1F) {
+                // subsequent tag bytes follow while the high bit is set, except for the
+                // terminal proprietary FFxx tags which are always two bytes
+                boolean proprietary = tag == 0xFF;
+                int tagBytes = 1;
+                do {
+                    if(offset >= end || ++tagBytes > 4) {
+                        return fail("The tag is not complete.", tagOffset, parent);
+                    }
+                    tag = (tag << 8) | (buffer[offset] & 0xFF);
+                } while((buffer[offset++] & 0x80) != 0 && !proprietary);
+            }
+
+            if(offset >= end) {
+                return fail("The length is missing.", tagOffset, parent);
+            }
+            int lengthOffset = offset;
+            int length = buffer[offset++] & 0xFF;
+            if(length > 0x7F) {
+                int lengthBytes = length & 0x7F;
+                if(lengthBytes == 0 || lengthBytes > 3) {
+                    return fail(String.format("A length of %s bytes is not supported.", lengthBytes), tagOffset, parent);
+                }
+                if(offset + lengthBytes > end) {
+                    return fail("The length is not complete.", tagOffset, parent);
+                }
+                length = 0;
+                for(int i = 0; i < lengthBytes; i++) {
+                    length = (length << 8) | (buffer[offset++] & 0xFF);
+                }
+            }
+
+            if(length > end - offset) {
+                return fail(String.format("The value is %s bytes but only %s remain.", length, end - offset), tagOffset, parent);
+            }
+
+            int index = add(tag, tagOffset, lengthOffset, offset, length, parent);
+            if(constructed && length > 0 && !parse(offset, offset + length, index)) {
+                // not TLV inside, keep it as a plain value
+                size = index + 1;
+            }
+            offset += length;
+        }
+        return true;
+    }
+
+    private boolean fail(String message, int offset, int parent) {
+        // an error inside a constructed tag only means its value is not TLV
+        if(parent == -1) {
+            error = message;
+            errorOffset = offset;
+        }
+        return false;
+    }
+
+    private int add(int tag, int tagOffset, int lengthOffset, int valueOffset, int valueLength, int parent) {
+        if((size + 1) * FIELDS > elements.length) {
+            int[] grown = new int[elements.length * 2];
+            System.arraycopy(elements, 0, grown, 0, size * FIELDS);
+            elements = grown;
+        }
+
+        int base = size * FIELDS;
+        elements[base + TAG] = tag;
+        elements[base + TAG_OFFSET] = tagOffset;
+        elements[base + LENGTH_OFFSET] = lengthOffset;
+        elements[base + VALUE_OFFSET] = valueOffset;
+        elements[base + VALUE_LENGTH] = valueLength;
+        elements[base + PARENT] = parent;
+        return size++;
+    }
+
+    private String hex(int start, int end) {
+        char[] chars = new char[(end - start) * 2];
+        for(int i = start; i < end; i++) {
+            int v = buffer[i] & 0xFF;
+            chars[(i - start) * 2] = HEX[v >>> 4];
+            chars[(i - start) * 2 + 1] = HEX[v & 0x0F];
+        }
+        return new String(chars);
+    }
+}
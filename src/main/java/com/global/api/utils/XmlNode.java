@@ -0,0 +1,195 @@
+package com.global.api.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A read only element of a document built by the streaming parser. It holds only
+ * what the Element getters need: the qualified name, the attributes and the content
+ * in document order, with text kept as plain strings.
+ */
+final class XmlNode {
+    private final String name;
+    private final String namespaceUri;
+    private final XmlNode document;
+    private String[] attributes;
+    // null, a single String, or a list of String and XmlNode in document order
+    private Object content;
+    // on the document node only, the first element of each name in document order
+    private HashMap<String, XmlNode> firstByName;
+
+    String getName() {
+        return name;
+    }
+    String getNamespaceUri() {
+        return namespaceUri;
+    }
+    XmlNode getDocument() {
+        return document;
+    }
+
+    static XmlNode createDocument() {
+        return new XmlNode(null, null, null);
+    }
+
+    private XmlNode(String name, String namespaceUri, XmlNode document) {
+        this.name = name;
+        this.namespaceUri = namespaceUri;
+        this.document = document == null ? this : document;
+        if(document == null) {
+            firstByName = new HashMap<String, XmlNode>();
+        }
+    }
+
+    XmlNode addChild(String name, String namespaceUri, String[] attributes) {
+        XmlNode child = new XmlNode(name, namespaceUri, document);
+        child.attributes = attributes;
+        addContent(child);
+
+        if(!document.firstByName.containsKey(name)) {
+            document.firstByName.put(name, child);
+        }
+        return child;
+    }
+
+    void addText(String text) {
+        if(content instanceof String) {
+            content = (String) content + text;
+        }
+        else if(content == null) {
+            content = text;
+        }
+        else {
+            List<Object> items = getContent();
+            int last = items.size() - 1;
+            if(last >= 0 && items.get(last) instanceof String) {
+                items.set(last, items.get(last) + text);
+            }
+            else items.add(text);
+        }
+    }
+
+    String getAttribute(String attributeName) {
+        if(attributes != null) {
+            for(int i = 0; i < attributes.length; i += 2) {
+                if(attributes[i].equals(attributeName)) {
+                    return attributes[i + 1];
+                }
+            }
+        }
+        return "";
+    }
+
+    /**
+     * The concatenated text of this element and all of its descendants.
+     */
+    String getTextContent() {
+        if(content == null) {
+            return "";
+        }
+        if(content instanceof String) {
+            return (String) content;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        appendText(sb);
+        return sb.toString();
+    }
+
+    List<XmlNode> getChildren() {
+        List<XmlNode> children = new ArrayList<XmlNode>();
+        if(content instanceof List) {
+            for(Object item: getContent()) {
+                if(item instanceof XmlNode) {
+                    children.add((XmlNode) item);
+                }
+            }
+        }
+        return children;
+    }
+
+    /**
+     * The first descendant with the given name in document order, the same
+     * element getElementsByTagName(name).item(0) finds.
+     */
+    XmlNode findFirst(String tagName, String tagNamespaceUri) {
+        if(this == document && tagNamespaceUri == null && !tagName.equals("*")) {
+            return firstByName.get(tagName);
+        }
+        if(!(content instanceof List)) {
+            return null;
+        }
+
+        for(Object item: getContent()) {
+            if(item instanceof XmlNode) {
+                XmlNode child = (XmlNode) item;
+                if(child.matches(tagName, tagNamespaceUri)) {
+                    return child;
+                }
+
+                XmlNode descendant = child.findFirst(tagName, tagNamespaceUri);
+                if(descendant != null) {
+                    return descendant;
+                }
+            }
+        }
+        return null;
+    }
+
+    void findAll(String tagName, List<XmlNode> results) {
+        if(!(content instanceof List)) {
+            return;
+        }
+
+        for(Object item: getContent()) {
+            if(item instanceof XmlNode) {
+                XmlNode child = (XmlNode) item;
+                if(child.matches(tagName, null)) {
+                    results.add(child);
+                }
+                child.findAll(tagName, results);
+            }
+        }
+    }
+
+    private boolean matches(String tagName, String tagNamespaceUri) {
+        if(tagNamespaceUri != null && !tagNamespaceUri.equals(namespaceUri)) {
+            return false;
+        }
+        return tagName.equals("*") || tagName.equals(name);
+    }
+
+    private void appendText(StringBuilder sb) {
+        if(content instanceof String) {
+            sb.append((String) content);
+        }
+        else if(content != null) {
+            for(Object item: getContent()) {
+                if(item instanceof String) {
+                    sb.append((String) item);
+                }
+                else ((XmlNode) item).appendText(sb);
+            }
+        }
+    }
+
+    private void addContent(XmlNode child) {
+        if(content instanceof List) {
+            getContent().add(child);
+            return;
+        }
+
+        List<Object> items = new ArrayList<Object>(4);
+        if(content != null) {
+            items.add(content);
+        }
+        items.add(child);
+        content = items;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> getContent() {
+        return (List<Object>) content;
+    }
+}
@@ -0,0 +1,183 @@
+package com.global.api.tests;
+
+import com.global.api.ServicesContainer;
+import com.global.api.builders.AuthorizationBuilder;
+import com.global.api.builders.ManagementBuilder;
+import com.global.api.entities.Transaction;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.BuilderException;
+import com.global.api.gateways.IAsyncPaymentGateway;
+import com.global.api.paymentMethods.CreditCardData;
+import org.junit.After;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncExecutionTests {
+    private static final String CONFIG_NAME = "asyncTests";
+
+    @After
+    public void tearDown() throws Exception {
+        ServicesContainer.configureService(null, CONFIG_NAME);
+    }
+
+    @Test
+    public void executeAsync_boundedConcurrency() throws Exception {
+        BlockingGateway gateway = new BlockingGateway(50);
+        FakeGateway.configure(gateway, CONFIG_NAME, 3);
+
+        List<CompletableFuture<Transaction>> futures = new ArrayList<CompletableFuture<Transaction>>();
+        for(int i = 0; i < 12; i++) {
+            futures.add(createCharge().executeAsync(CONFIG_NAME));
+        }
+
+        for(CompletableFuture<Transaction> future: futures) {
+            assertEquals("00", future.get(5, TimeUnit.SECONDS).getResponseCode());
+        }
+        assertEquals(12, gateway.completed.get());
+        assertTrue(gateway.maxInFlight.get() <= 3);
+    }
+
+    @Test
+    public void executeAsync_validationFailure() throws Exception {
+        FakeGateway.configure(new BlockingGateway(0), CONFIG_NAME, 3);
+
+        CompletableFuture<Transaction> future = new CreditCardData().charge().executeAsync(CONFIG_NAME);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected the validation to fail.");
+        }
+        catch(ExecutionException exc) {
+            assertTrue(exc.getCause() instanceof BuilderException);
+        }
+    }
+
+    @Test
+    public void executeAsync_notConfigured() throws Exception {
+        CompletableFuture<Transaction> future = createCharge().executeAsync("missingConfig");
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    public void executeAsync_nonBlockingGateway() throws Exception {
+        AsyncGateway gateway = new AsyncGateway();
+        FakeGateway.configure(gateway, CONFIG_NAME, 2);
+
+        CompletableFuture<Transaction> first = createCharge().executeAsync(CONFIG_NAME);
+        CompletableFuture<Transaction> second = createCharge().executeAsync(CONFIG_NAME);
+        CompletableFuture<Transaction> third = createCharge().executeAsync(CONFIG_NAME);
+
+        // both slots are held by the outstanding responses, the third request waits
+        waitFor(gateway, 2);
+        Thread.sleep(50);
+        assertEquals(2, gateway.pending.size());
+
+        gateway.completeNext();
+        waitFor(gateway, 2);
+        gateway.completeNext();
+        gateway.completeNext();
+
+        assertEquals("00", first.get(5, TimeUnit.SECONDS).getResponseCode());
+        assertEquals("00", second.get(5, TimeUnit.SECONDS).getResponseCode());
+        assertEquals("00", third.get(5, TimeUnit.SECONDS).getResponseCode());
+    }
+
+    @Test
+    public void executeAsync_queuedRequestKeepsItsConfiguration() throws Exception {
+        BlockingGateway first = new BlockingGateway(0);
+        first.hold = new CountDownLatch(1);
+        FakeGateway.configure(first, CONFIG_NAME, 1);
+
+        // the second request is queued behind the first when the configuration is replaced
+        CompletableFuture<Transaction> running = createCharge().executeAsync(CONFIG_NAME);
+        CompletableFuture<Transaction> queued = createCharge().executeAsync(CONFIG_NAME);
+        BlockingGateway second = new BlockingGateway(0);
+        FakeGateway.configure(second, CONFIG_NAME, 1);
+        first.hold.countDown();
+
+        assertEquals("00", running.get(5, TimeUnit.SECONDS).getResponseCode());
+        assertEquals("00", queued.get(5, TimeUnit.SECONDS).getResponseCode());
+        assertEquals(2, first.completed.get());
+        assertEquals(0, second.completed.get());
+    }
+
+    private AuthorizationBuilder createCharge() {
+        CreditCardData card = new CreditCardData();
+        card.setNumber("4111111111111111");
+        card.setExpMonth(12);
+        card.setExpYear(2025);
+
+        return card.charge(new BigDecimal("10")).withCurrency("USD");
+    }
+
+    private void waitFor(AsyncGateway gateway, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while(gateway.pending.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static class BlockingGateway extends FakeGateway {
+        private final int delay;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+        private volatile CountDownLatch hold = new CountDownLatch(0);
+
+        BlockingGateway(int delay) {
+            this.delay = delay;
+        }
+
+        public Transaction processAuthorization(AuthorizationBuilder builder) throws ApiException {
+            int current = inFlight.incrementAndGet();
+            synchronized (maxInFlight) {
+                maxInFlight.set(Math.max(maxInFlight.get(), current));
+            }
+
+            try {
+                hold.await(5, TimeUnit.SECONDS);
+                Thread.sleep(delay);
+            }
+            catch(InterruptedException exc) {
+                throw new ApiException("Interrupted", exc);
+            }
+            finally {
+                inFlight.decrementAndGet();
+            }
+
+            completed.incrementAndGet();
+            return approved();
+        }
+    }
+
+    private static class AsyncGateway extends BlockingGateway implements IAsyncPaymentGateway {
+        private final List<CompletableFuture<Transaction>> pending = new java.util.concurrent.CopyOnWriteArrayList<CompletableFuture<Transaction>>();
+
+        AsyncGateway() {
+            super(0);
+        }
+
+        public CompletableFuture<Transaction> processAuthorizationAsync(AuthorizationBuilder builder) {
+            CompletableFuture<Transaction> future = new CompletableFuture<Transaction>();
+            pending.add(future);
+            return future;
+        }
+        public CompletableFuture<Transaction> manageTransactionAsync(ManagementBuilder builder) {
+            return CompletableFuture.completedFuture(approved());
+        }
+
+        void completeNext() {
+            CompletableFuture<Transaction> future = pending.remove(0);
+            future.complete(approved());
+        }
+    }
+}
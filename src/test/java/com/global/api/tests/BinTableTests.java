@@ -0,0 +1,74 @@
+package com.global.api.tests;
+
+import com.global.api.utils.BinTable;
+import com.global.api.utils.CardUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class BinTableTests {
+    @After
+    public void tearDown() {
+        CardUtils.setBinTable(null);
+    }
+
+    @Test
+    public void mapCardType_defaultTable() {
+        assertEquals("Visa", CardUtils.mapCardType("4111111111111111"));
+        assertEquals("MC", CardUtils.mapCardType("2720 9900 0000 0000"));
+        assertEquals("Amex", CardUtils.mapCardType("3782-822463-10005"));
+        assertEquals("Jcb", CardUtils.mapCardType("3566002020360505"));
+        assertEquals("DinersClub", CardUtils.mapCardType("36006666333344"));
+        assertEquals("Discover", CardUtils.mapCardType("6011000990139424"));
+        assertEquals("VisaFleet", CardUtils.mapCardType("4486110000000000"));
+        assertEquals("Visa", CardUtils.mapCardType("4486120000000000"));
+        assertEquals("MCFleet", CardUtils.mapCardType("5567000000000000"));
+        assertEquals("WexFleet", CardUtils.mapCardType("6900460000000000"));
+        assertEquals("VisaReadyLink", CardUtils.mapCardType("4627660000000000"));
+        assertEquals("Unknown", CardUtils.mapCardType("9999999999999999"));
+        assertEquals("Unknown", CardUtils.mapCardType(""));
+    }
+
+    @Test
+    public void isFleet_shortPan() {
+        assertFalse(CardUtils.isFleet("Visa", "4486"));
+        assertTrue(CardUtils.isFleet("VisaFleet", "448699"));
+    }
+
+    @Test
+    public void load_longestRangeWins() throws IOException {
+        BinTable table = BinTable.load(new StringReader(
+                "# list,card type,first bin,last bin\n" +
+                "card,Visa,4\n" +
+                "\n" +
+                "card,Private,412345,412399\n" +
+                "fleet,Private,412390,412399\n" +
+                "readylink,,400000,400999\n"));
+
+        assertEquals("Visa", table.getCardType("4111111111111111"));
+        assertEquals("Private", table.getCardType("4123450000000000"));
+        assertEquals("Visa", table.getCardType("4124000000000000"));
+        assertTrue(table.isFleet("Private", "4123950000000000"));
+        assertFalse(table.isFleet("Visa", "4123950000000000"));
+        assertTrue(table.isReadyLink("4005000000000000"));
+        assertNull(table.getCardType("5111111111111111"));
+
+        CardUtils.setBinTable(table);
+        assertEquals("PrivateFleet", CardUtils.mapCardType("4123950000000000"));
+        assertEquals("VisaReadyLink", CardUtils.mapCardType("4005000000000000"));
+    }
+
+    @Test(expected = IOException.class)
+    public void load_rangeLengthsDiffer() throws IOException {
+        BinTable.load(new StringReader("card,Visa,40,4999\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void load_unknownList() throws IOException {
+        BinTable.load(new StringReader("debit,Visa,4\n"));
+    }
+}
@@ -1,6 +1,8 @@
 package com.global.api.tests;
 
 import com.global.api.ServicesContainer;
+import com.global.api.builders.AuthorizationBuilder;
+import com.global.api.entities.enums.TransactionType;
 import com.global.api.entities.exceptions.ApiException;
 import com.global.api.entities.exceptions.BuilderException;
 import com.global.api.paymentMethods.CreditCardData;
@@ -14,6 +16,8 @@ import org.junit.Test;
 import java.math.BigDecimal;
 import java.util.Date;
 
+import static org.junit.Assert.fail;
+
 public class BuilderValidationTests {
     CreditCardData card;
     
@@ -32,6 +36,23 @@ public class BuilderValidationTests {
         card.setCardHolderName("John Smith");
     }
     
+    @Test
+    public void validationsChangedOnOneBuilderOnly() throws ApiException {
+        AuthorizationBuilder changed = card.charge(new BigDecimal(14)).withCurrency("USD");
+        changed.getValidations().of(TransactionType.Sale).check("invoiceNumber").isNotNull();
+        try {
+            changed.getValidations().validate(changed);
+            fail("The added rule should have been checked.");
+        }
+        catch(BuilderException exc) {
+            // expected
+        }
+
+        // the rules of the builder class are left as they were
+        AuthorizationBuilder other = card.charge(new BigDecimal(14)).withCurrency("USD");
+        other.getValidations().validate(other);
+    }
+
     @Test(expected = BuilderException.class)
     public void creditAuthNoAmount() throws ApiException {
         card.authorize().execute();
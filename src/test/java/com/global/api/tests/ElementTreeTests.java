@@ -0,0 +1,244 @@
+package com.global.api.tests;
+
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.utils.Element;
+import com.global.api.utils.ElementTree;
+import com.global.api.utils.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class ElementTreeTests {
+    private static final String PORTICO_RESPONSE = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+            + "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">"
+            + "<soap:Body><PosResponse rootUrl=\"https://cert.api2.heartlandportico.com/Hps.Exchange.PosGateway\" xmlns=\"http://Hps.Exchange.PosGateway\">"
+            + "<Ver1.0><Header><LicenseId>123</LicenseId><SiteId>456</SiteId><DeviceId>789</DeviceId>"
+            + "<GatewayTxnId>1234567890</GatewayTxnId><GatewayRspCode>0</GatewayRspCode><GatewayRspMsg>Success</GatewayRspMsg>"
+            + "<RspDT>2021-03-04T10:11:12.1234567</RspDT></Header>"
+            + "<Transaction><CreditSale><RspCode>00</RspCode><RspText>APPROVAL</RspText><AuthCode>12345A</AuthCode>"
+            + "<AVSRsltCode>0</AVSRsltCode><CardType>Visa</CardType><AuthAmt>10.00</AuthAmt><Partial>false</Partial>"
+            + "<TxnDescriptor><![CDATA[Tom & Jerry's <Cafe>]]></TxnDescriptor><Note>fish &amp; chips</Note>"
+            + "<Mixed>one<B>two</B>three</Mixed><Empty/></CreditSale></Transaction></Ver1.0></PosResponse></soap:Body></soap:Envelope>";
+
+    private static final String REALEX_RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<response timestamp=\"20210304101112\">\n"
+            + "  <merchantid>heartlandgpsandbox</merchantid>\n"
+            + "  <result>00</result>\n"
+            + "  <message>[ test system ] AUTHORISED</message>\n"
+            + "  <fraudresponse mode=\"ACTIVE\">\n"
+            + "    <result>PASS</result>\n"
+            + "    <rules>\n"
+            + "      <rule id=\"a1\" name=\"Rule one\"><action>PASS</action></rule>\n"
+            + "      <rule id=\"b2\" name=\"Rule two\"><action>HOLD</action></rule>\n"
+            + "    </rules>\n"
+            + "  </fraudresponse>\n"
+            + "</response>";
+
+    @Test
+    public void streaming_matchesDom() throws ApiException {
+        for(ElementTree.Parser parser: ElementTree.Parser.values()) {
+            Element response = ElementTree.parse(PORTICO_RESPONSE, new HashMap<String, String>(), parser).get("PosResponse");
+            assertEquals("PosResponse", response.tag());
+            assertEquals("https://cert.api2.heartlandportico.com/Hps.Exchange.PosGateway", response.getAttributeString("rootUrl"));
+            assertEquals("", response.getAttributeString("missing"));
+            assertTrue(response.has("CreditSale"));
+            assertFalse(response.has("DebitSale"));
+
+            Element header = response.get("Header");
+            assertEquals("1234567890", header.getString("GatewayTxnId"));
+            assertEquals(Integer.valueOf(0), header.getInt("GatewayRspCode"));
+            assertEquals("APPROVAL", header.getString("MissingText", "RspText"));
+            assertNull(header.getString("DoesNotExist"));
+
+            Element sale = response.get("CreditSale");
+            assertEquals("00", sale.getString("RspCode"));
+            assertEquals(new java.math.BigDecimal("10.00"), sale.getDecimal("AuthAmt"));
+            assertFalse(sale.getBool("Partial"));
+            assertEquals("Tom & Jerry's <Cafe>", sale.getString("TxnDescriptor"));
+            assertEquals("fish & chips", sale.getString("Note"));
+            assertEquals("onetwothree", sale.getString("Mixed"));
+            assertEquals("", sale.getString("Empty"));
+            assertNull(sale.getInt("Empty"));
+            // not under the sale, found in the rest of the document
+            assertEquals("Success", sale.getString("GatewayRspMsg"));
+            assertNotNull(sale.getDateTime("RspDT"));
+            assertEquals(11, sale.getAll().length);
+        }
+    }
+
+    @Test
+    public void streaming_matchesDom_whitespaceAndAttributes() throws ApiException {
+        Element dom = ElementTree.parse(REALEX_RESPONSE, new HashMap<String, String>(), ElementTree.Parser.Dom).get("response");
+        Element streamed = ElementTree.parse(REALEX_RESPONSE, new HashMap<String, String>(), ElementTree.Parser.Streaming).get("response");
+
+        assertEquals(dom.getAttributeString("timestamp"), streamed.getAttributeString("timestamp"));
+        assertEquals(dom.getString("result"), streamed.getString("result"));
+        assertEquals(dom.getString("rules"), streamed.getString("rules"));
+
+        Element[] domRules = dom.getAll("rule");
+        Element[] streamedRules = streamed.getAll("rule");
+        assertEquals(2, streamedRules.length);
+        for(int i = 0; i < domRules.length; i++) {
+            assertEquals(domRules[i].getAttributeString("id"), streamedRules[i].getAttributeString("id"));
+            assertEquals(domRules[i].getAttributeString("name"), streamedRules[i].getAttributeString("name"));
+            assertEquals(domRules[i].getString("action"), streamedRules[i].getString("action"));
+        }
+        assertEquals(dom.get("fraudresponse").getAttributeString("mode"), streamed.get("fraudresponse").getAttributeString("mode"));
+    }
+
+    @Test
+    public void streaming_namespaces() throws ApiException {
+        String xml = "<s:Envelope xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\"><s:Body>"
+                + "<ClearLoadedBillsResponse xmlns=\"https://test.heartlandpaymentservices.net\">"
+                + "<ClearLoadedBillsResult xmlns:a=\"http://schemas.datacontract.org/2004/07/BDMS.NewModel\">"
+                + "<a:Messages><a:Code>Success</a:Code><a:MessageDescription>Done</a:MessageDescription></a:Messages>"
+                + "<a:ResponseCode>0</a:ResponseCode></ClearLoadedBillsResult></ClearLoadedBillsResponse></s:Body></s:Envelope>";
+
+        HashMap<String, String> namespaces = new HashMap<String, String>();
+        namespaces.put("s", "http://schemas.xmlsoap.org/soap/envelope/");
+        namespaces.put("a", "http://schemas.datacontract.org/2004/07/BDMS.NewModel");
+
+        Element response = ElementTree.parse(xml, namespaces, ElementTree.Parser.Streaming).get("ClearLoadedBillsResponse");
+        assertEquals("0", response.getString("a:ResponseCode"));
+        assertEquals("Success", response.get("a:Messages").getString("a:Code"));
+        assertEquals("http://schemas.datacontract.org/2004/07/BDMS.NewModel", response.get("ClearLoadedBillsResult").getAttributeString("xmlns:a"));
+        assertNotNull(ElementTree.parse(xml, namespaces, ElementTree.Parser.Streaming).get("s:Body"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void streaming_readOnly() throws ApiException {
+        ElementTree.parse(REALEX_RESPONSE, new HashMap<String, String>(), ElementTree.Parser.Streaming).get("response").set("timestamp", "0");
+    }
+
+    @Test
+    public void parse_defaultsToWritableDom() throws ApiException {
+        ElementTree doc = ElementTree.parse(REALEX_RESPONSE);
+        doc.get("response").set("timestamp", "0");
+
+        assertEquals("0", doc.get("response").getAttributeString("timestamp"));
+        assertTrue(doc.toString(doc.get("response")).contains("timestamp=\"0\""));
+    }
+
+    @Test(expected = ApiException.class)
+    public void streaming_malformed() throws ApiException {
+        ElementTree.parse("<response><result>00</response>", new HashMap<String, String>(), ElementTree.Parser.Streaming);
+    }
+
+    @Test
+    public void toBytes_soapEnvelope() throws ApiException {
+        ElementTree et = new ElementTree();
+        et.addNamespace("soap", "http://schemas.xmlsoap.org/soap/envelope/");
+        et.addNamespace("xsi", "http://www.w3.org/2001/XMLSchema-instance");
+
+        Element envelope = et.element("soap:Envelope");
+        Element body = et.subElement(envelope, "soap:Body");
+        Element request = et.subElement(body, "PosRequest").set("xmlns", "http://Hps.Exchange.PosGateway");
+        Element transaction = et.element("CreditSale");
+        et.subElement(transaction, "Amt", "10.00");
+        et.subElement(transaction, "CardHolderName", "Ren\u00e9e & <Jerry>");
+        et.subElement(transaction, "Note").text("a\r\nb");
+        et.subElement(transaction, "Empty").text((String) null);
+        et.subElement(transaction, "Card").set("type", "\"visa\"");
+        et.subElement(request, "Transaction").append(transaction);
+
+        String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"
+                + "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+                + "<PosRequest xmlns=\"http://Hps.Exchange.PosGateway\"><Transaction><CreditSale><Amt>10.00</Amt>"
+                + "<CardHolderName>Ren\u00e9e &amp; &lt;Jerry&gt;</CardHolderName><Note>a&#13;\nb</Note><Empty/>"
+                + "<Card type=\"&quot;visa&quot;\"/></CreditSale></Transaction></PosRequest></soap:Body></soap:Envelope>";
+        assertEquals(expected, et.toString(envelope));
+        assertArrayEquals(expected.getBytes(IOUtils.UTF_8), et.toBytes(envelope));
+
+        // and it reads back the same
+        Element parsed = ElementTree.parse(et.toBytes(envelope), IOUtils.UTF_8).get("CreditSale");
+        assertEquals("Ren\u00e9e & <Jerry>", parsed.getString("CardHolderName"));
+        assertEquals("a\r\nb", parsed.getString("Note"));
+    }
+
+    @Test
+    public void activityReport_sameRowsFromEitherParser() throws ApiException {
+        StringBuilder sb = new StringBuilder("<PosResponse><Ver1.0><Header><GatewayRspCode>0</GatewayRspCode></Header><Transaction><ReportActivity>");
+        for(int i = 0; i < 400; i++) {
+            sb.append("<Details><GatewayTxnId>").append(1000000 + i).append("</GatewayTxnId><ServiceName>CreditSale</ServiceName>")
+                    .append("<TxnStatus>A</TxnStatus><Amt>").append(i).append(".00</Amt><CardType>Visa</CardType><MaskedCardNbr>411111******1111</MaskedCardNbr>")
+                    .append("<TxnUtcDT>2021-03-04T10:11:12.123</TxnUtcDT><RspCode>00</RspCode><RspText>APPROVAL</RspText><AuthCode>12345A</AuthCode>")
+                    .append("<UserName>user</UserName><DeviceId>1234</DeviceId><SiteId>5678</SiteId></Details>");
+        }
+        sb.append("</ReportActivity></Transaction></Ver1.0></PosResponse>");
+        String xml = sb.toString();
+
+        assertEquals(400, hydrate(xml, ElementTree.Parser.Dom));
+        assertEquals(400, hydrate(xml, ElementTree.Parser.Streaming));
+    }
+
+    @Test
+    public void parseBytes_charsets() throws ApiException {
+        byte[] latin = "<SIP><Response>Sale</Response><CardholderName>Ren\u00e9e</CardholderName></SIP>".getBytes(IOUtils.ISO_8859_1);
+        assertEquals("Ren\u00e9e", ElementTree.parse(latin).get("SIP").getString("CardholderName"));
+
+        byte[] utf8 = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><SIP><CardholderName>Ren\u00e9e</CardholderName></SIP>".getBytes(IOUtils.UTF_8);
+        assertEquals("Ren\u00e9e", ElementTree.parse(utf8, IOUtils.UTF_8).get("SIP").getString("CardholderName"));
+        for(ElementTree.Parser parser: ElementTree.Parser.values()) {
+            // no charset, taken from the declaration
+            ElementTree doc = ElementTree.parse(new ByteArrayInputStream(utf8), null, new HashMap<String, String>(), parser);
+            assertEquals("Ren\u00e9e", doc.get("SIP").getString("CardholderName"));
+        }
+
+        byte[] framed = "xx<SIP><Response>Sale</Response></SIP>yy".getBytes(IOUtils.ISO_8859_1);
+        assertEquals("Sale", ElementTree.parse(framed, 2, framed.length - 4, IOUtils.ISO_8859_1).get("SIP").getString("Response"));
+    }
+
+    @Test
+    public void parseBytes_largePayloadReadInFull() throws ApiException {
+        byte[] payload = buildSipBatchReport(1024 * 1024);
+
+        Element sip = ElementTree.parse(payload).get("SIP");
+        assertEquals("GetBatchReport", sip.getString("Response"));
+        assertEquals(new String(payload, IOUtils.ISO_8859_1).split("<Record>", -1).length - 1, sip.getAll("Record").length);
+    }
+
+    private byte[] buildSipBatchReport(int size) {
+        StringBuilder sb = new StringBuilder("<SIP><Version>1.0</Version><ECRId>1004</ECRId><Request>GetBatchReport</Request>")
+                .append("<Response>GetBatchReport</Response><RequestId>100001</RequestId><MultipleMessage>0</MultipleMessage>")
+                .append("<Result>0</Result><ResultText>Success</ResultText>");
+        int record = 0;
+        while(sb.length() < size - 256) {
+            sb.append("<Record><TransactionId>").append(record++).append("</TransactionId><TransactionType>CREDIT SALE</TransactionType>")
+                    .append("<CardType>VISA</CardType><MaskedPAN>************1111</MaskedPAN><TransactionAmount>1000</TransactionAmount></Record>");
+        }
+        sb.append("</SIP>");
+        return sb.toString().getBytes(IOUtils.ISO_8859_1);
+    }
+
+    // reads the row fields the way the Portico connector does, several of them missing
+    private int hydrate(String xml, ElementTree.Parser parser) throws ApiException {
+        Element report = ElementTree.parse(xml, new HashMap<String, String>(), parser).get("ReportActivity");
+
+        int count = 0;
+        for(Element detail: report.getAll("Details")) {
+            assertNotNull(detail.getString("GatewayTxnId"));
+            detail.getString("ServiceName");
+            detail.getString("Status", "TxnStatus");
+            detail.getDecimal("Amt");
+            detail.getString("CardType");
+            detail.getString("MaskedCardNbr");
+            detail.getDateTime("TxnUtcDT", "ReqUtcDT");
+            detail.getString("IssuerRspCode", "RspCode");
+            detail.getString("IssuerRspText", "RspText");
+            detail.getString("AuthCode");
+            detail.getString("UserName");
+            detail.getString("ClientTxnId");
+            detail.getString("InvoiceNbr");
+            detail.getString("CustomerID");
+            detail.getString("ClerkID");
+            detail.getDecimal("GratuityAmtInfo");
+            detail.getDecimal("SettlementAmt");
+            detail.getString("TokenPANLast4");
+            count++;
+        }
+        return count;
+    }
+}
@@ -2,9 +2,12 @@ package com.global.api.tests;
 
 import com.global.api.utils.EmvData;
 import com.global.api.utils.EmvUtils;
+import com.global.api.utils.StringUtils;
+import com.global.api.utils.TlvBuffer;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -60,4 +63,67 @@ public class EmvTests {
         EmvData data = EmvUtils.parseTagData(tagData, true);
         assertEquals(tagData, data.getAcceptedTagData());
     }
+
+    @Test
+    public void parseLongLength() {
+        StringBuilder value = new StringBuilder();
+        for(int i = 0; i < 156; i++) {
+            value.append("AB");
+        }
+        String tagData = "9F2701809F4E819C" + value + "9F390105";
+
+        EmvData data = EmvUtils.parseTagData(tagData);
+        assertEquals("819C", data.getTag("9F4E").getLength());
+        assertEquals(312, data.getTag("9F4E").getValue().length());
+        assertEquals("05", data.getEntryMode());
+        assertEquals(tagData, data.getAcceptedTagData());
+    }
+
+    @Test
+    public void tlvBufferNestedTags() {
+        byte[] buffer = StringUtils.bytesFromHex("7009" + "9F2602A1B2" + "8A023030" + "FFC60300FF01" + "9F3602000A");
+        TlvBuffer tlv = TlvBuffer.parse(buffer);
+
+        assertTrue(tlv.isComplete());
+        assertEquals(5, tlv.size());
+        assertTrue(tlv.isConstructed(0));
+        assertEquals(0, tlv.getParent(tlv.indexOf(0x9F26)));
+        assertEquals("A1B2", tlv.getValueString(tlv.indexOf(0x9F26)));
+        assertEquals(0, tlv.getParent(tlv.indexOf(0x8A)));
+
+        // FF is constructed, but the value of the proprietary tag is not TLV
+        int tac = tlv.indexOf(0xFFC6);
+        assertEquals(-1, tlv.getParent(tac));
+        assertFalse(tlv.isConstructed(tac));
+        assertEquals(-1, tlv.getParent(tlv.indexOf(0x9F36)));
+    }
+
+    @Test
+    public void tlvBufferReportsError() {
+        TlvBuffer tlv = TlvBuffer.parse(StringUtils.bytesFromHex("9F27018095050000008000" + "9F3608AB"));
+
+        assertFalse(tlv.isComplete());
+        assertEquals(2, tlv.size());
+        assertEquals(11, tlv.getErrorOffset());
+        assertNotNull(tlv.getError());
+    }
+
+    @Test
+    public void tlvBufferRandomData() {
+        Random random = new Random(55);
+        for(int i = 0; i < 10000; i++) {
+            byte[] buffer = new byte[random.nextInt(64)];
+            random.nextBytes(buffer);
+
+            TlvBuffer tlv = TlvBuffer.parse(buffer);
+            for(int j = 0; j < tlv.size(); j++) {
+                int end = tlv.getValueOffset(j) + tlv.getValueLength(j);
+                assertTrue(end <= buffer.length);
+                assertTrue(tlv.getParent(j) < j);
+            }
+            if(buffer.length > 0) {
+                assertNotNull(EmvUtils.parseTagData(buffer, false));
+            }
+        }
+    }
 }
@@ -0,0 +1,45 @@
+package com.global.api.tests;
+
+import com.global.api.entities.enums.ControlCodes;
+import com.global.api.entities.enums.PayGroupFrequency;
+import com.global.api.network.enums.DE48_CardType;
+import com.global.api.utils.EnumUtils;
+import com.global.api.utils.ReverseByteEnumMap;
+import com.global.api.utils.ReverseIntEnumMap;
+import com.global.api.utils.ReverseStringEnumMap;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EnumUtilsTests {
+    @Test
+    public void parseByte() {
+        assertEquals(ControlCodes.ACK, EnumUtils.parse(ControlCodes.class, (byte)0x06));
+        assertEquals(ControlCodes.NAK, ReverseByteEnumMap.parse((byte)0x15, ControlCodes.class));
+        assertNull(EnumUtils.parse(ControlCodes.class, (byte)0xFE));
+        assertFalse(EnumUtils.isDefined(ControlCodes.class, (byte)0xFE));
+    }
+
+    @Test
+    public void parseInt() {
+        assertEquals(PayGroupFrequency.Annually, EnumUtils.parse(PayGroupFrequency.class, 1));
+        assertEquals(PayGroupFrequency.Weekly, EnumUtils.parse(PayGroupFrequency.class, 52));
+        assertNull(EnumUtils.parse(PayGroupFrequency.class, 2));
+        assertNull(EnumUtils.parse(PayGroupFrequency.class, 100));
+    }
+
+    @Test
+    public void parseString() {
+        assertEquals(DE48_CardType.AmericanAirlines, EnumUtils.parse(DE48_CardType.class, "AA  "));
+        assertEquals(DE48_CardType.AssocDistInc, ReverseStringEnumMap.parse("AI  ", DE48_CardType.class));
+        assertNull(EnumUtils.parse(DE48_CardType.class, "??"));
+        assertNull(EnumUtils.parse(DE48_CardType.class, (String)null));
+    }
+
+    @Test
+    public void mapsAreShared() {
+        assertSame(ReverseByteEnumMap.forType(ControlCodes.class), ReverseByteEnumMap.forType(ControlCodes.class));
+        assertSame(ReverseIntEnumMap.forType(PayGroupFrequency.class), ReverseIntEnumMap.forType(PayGroupFrequency.class));
+        assertSame(ReverseStringEnumMap.forType(DE48_CardType.class), ReverseStringEnumMap.forType(DE48_CardType.class));
+    }
+}
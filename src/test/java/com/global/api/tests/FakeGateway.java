@@ -0,0 +1,61 @@
+package com.global.api.tests;
+
+import com.global.api.AsyncRequestExecutor;
+import com.global.api.ConfiguredServices;
+import com.global.api.ServicesContainer;
+import com.global.api.builders.AuthorizationBuilder;
+import com.global.api.builders.ManagementBuilder;
+import com.global.api.builders.ReportBuilder;
+import com.global.api.entities.Transaction;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.ConfigurationException;
+import com.global.api.entities.exceptions.UnsupportedTransactionException;
+import com.global.api.gateways.IPaymentGateway;
+import com.global.api.gateways.IReportingService;
+import com.global.api.network.NetworkMessageHeader;
+import com.global.api.serviceConfigs.Configuration;
+
+/**
+ * An in memory gateway for tests of the builders and the services container. Transactions are
+ * approved and reports are unsupported; override the methods a test needs.
+ */
+public class FakeGateway implements IPaymentGateway, IReportingService {
+    public static void configure(IPaymentGateway gateway, String configName) throws ConfigurationException {
+        configure(gateway, configName, AsyncRequestExecutor.DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    public static void configure(final IPaymentGateway gateway, String configName, int maxConcurrentRequests) throws ConfigurationException {
+        Configuration config = new Configuration() {
+            public void configureContainer(ConfiguredServices services) {
+                services.setGatewayConnector(gateway);
+            }
+        };
+        config.setMaxConcurrentRequests(maxConcurrentRequests);
+        ServicesContainer.configureService(config, configName);
+    }
+
+    public static Transaction approved() {
+        Transaction trans = new Transaction();
+        trans.setResponseCode("00");
+        return trans;
+    }
+
+    public Transaction processAuthorization(AuthorizationBuilder builder) throws ApiException {
+        return approved();
+    }
+    public Transaction manageTransaction(ManagementBuilder builder) throws ApiException {
+        return approved();
+    }
+    public <T> T processReport(ReportBuilder<T> builder, Class<T> clazz) throws ApiException {
+        throw new UnsupportedTransactionException();
+    }
+    public String serializeRequest(AuthorizationBuilder builder) throws ApiException {
+        return null;
+    }
+    public NetworkMessageHeader sendKeepAlive() throws ApiException {
+        return null;
+    }
+    public boolean supportsHostedPayments() {
+        return false;
+    }
+}
@@ -0,0 +1,115 @@
+package com.global.api.tests;
+
+import com.global.api.entities.enums.ControlCodes;
+import com.global.api.terminals.FrameBuffer;
+import com.global.api.terminals.TerminalUtilities;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class FrameBufferTests {
+    @Test
+    public void readLengthPrefixed_largeFrameInPieces() throws IOException {
+        byte[] first = message(40000, 'A');
+        byte[] second = message(3, 'B');
+        InputStream in = new ChunkedInputStream(concat(lengthPrefixed(first), lengthPrefixed(second)), 1000);
+
+        FrameBuffer frames = new FrameBuffer();
+        byte[] frame = null;
+        while(frame == null && frames.read(in) > 0) {
+            frame = frames.readLengthPrefixed();
+        }
+        assertArrayEquals(first, frame);
+
+        while((frame = frames.readLengthPrefixed()) == null && frames.read(in) > 0) {
+            // keep reading
+        }
+        assertArrayEquals(second, frame);
+        assertEquals(0, frames.length());
+    }
+
+    @Test
+    public void readLengthPrefixed_unsignedLength() throws IOException {
+        byte[] message = message(0x8001, 'C');
+        InputStream in = new ByteArrayInputStream(lengthPrefixed(message));
+
+        FrameBuffer frames = new FrameBuffer(16);
+        byte[] frame = null;
+        while(frame == null && frames.read(in) > 0) {
+            frame = frames.readLengthPrefixed();
+        }
+        assertArrayEquals(message, frame);
+    }
+
+    @Test
+    public void readFrame_ackThenMessage() throws IOException {
+        byte[] message = TerminalUtilities.buildRequest(message(5000, 'D')).getSendBuffer();
+        byte[] received = concat(new byte[] { ControlCodes.ACK.getByte() }, message);
+        InputStream in = new ChunkedInputStream(received, 700);
+
+        FrameBuffer frames = new FrameBuffer();
+        frames.read(in);
+        assertEquals(ControlCodes.ACK.getByte(), frames.peek());
+        frames.skip(1);
+
+        byte[] frame;
+        while((frame = frames.readFrame(ControlCodes.ETX.getByte(), 1)) == null) {
+            assertTrue(frames.read(in) > 0);
+        }
+        assertArrayEquals(message, frame);
+        assertEquals(-1, frames.peek());
+    }
+
+    @Test
+    public void readFrame_waitsForTrailer() throws IOException {
+        FrameBuffer frames = new FrameBuffer();
+        frames.read(new ByteArrayInputStream(new byte[] { ControlCodes.STX.getByte(), 0x31, ControlCodes.ETX.getByte() }));
+        assertNull(frames.readFrame(ControlCodes.ETX.getByte(), 1));
+
+        frames.read(new ByteArrayInputStream(new byte[] { 0x32 }));
+        assertArrayEquals(new byte[] { ControlCodes.STX.getByte(), 0x31, ControlCodes.ETX.getByte(), 0x32 }, frames.readFrame(ControlCodes.ETX.getByte(), 1));
+    }
+
+    private static byte[] message(int length, char c) {
+        byte[] message = new byte[length];
+        Arrays.fill(message, (byte)c);
+        return message;
+    }
+
+    private static byte[] lengthPrefixed(byte[] message) {
+        return concat(new byte[] { (byte)(message.length >>> 8), (byte)message.length }, message);
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(first, 0, first.length);
+        out.write(second, 0, second.length);
+        return out.toByteArray();
+    }
+
+    // hands out the data a few bytes at a time, as a socket does
+    private static class ChunkedInputStream extends ByteArrayInputStream {
+        private final int chunkSize;
+
+        ChunkedInputStream(byte[] buffer, int chunkSize) {
+            super(buffer);
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public synchronized int available() {
+            return Math.min(super.available(), chunkSize);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, chunkSize));
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.global.api.tests;
+
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.entities.exceptions.GatewayRateLimitException;
+import com.global.api.entities.gpApi.GpApiRequest;
+import com.global.api.gateways.GpApiConnector;
+import com.global.api.entities.reporting.TransactionSummaryPaged;
+import com.global.api.gateways.PooledHttpTransport;
+import com.global.api.serviceConfigs.GpApiConfig;
+import com.global.api.services.ReportingService;
+import com.global.api.utils.JsonDoc;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class GpApiConnectorConcurrencyTests {
+    private static final AtomicInteger appCount = new AtomicInteger();
+    static {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private HttpsServer server;
+    private ExecutorService serverExecutor;
+    private LoopbackTls tls;
+    private final AtomicInteger signInCount = new AtomicInteger();
+    private final Set<String> rejectedTokens = ConcurrentHashMap.newKeySet();
+    private volatile int secondsToExpire = 600;
+    private volatile int signInDelay;
+
+    @Before
+    public void setUp() throws Exception {
+        tls = new LoopbackTls();
+        serverExecutor = Executors.newCachedThreadPool();
+        server = tls.createHttpsServer(serverExecutor);
+        server.createContext("/accesstoken", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                readFully(exchange.getRequestBody());
+                int count = signInCount.incrementAndGet();
+                try {
+                    Thread.sleep(signInDelay);
+                }
+                catch(InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                }
+
+                respond(exchange, 200, String.format("{\"token\":\"token-%d\",\"type\":\"Bearer\",\"seconds_to_expire\":%d,"
+                        + "\"scope\":{\"accounts\":[{\"id\":\"TRA_1\",\"name\":\"Transaction_Processing\"}]}}", count, secondsToExpire));
+            }
+        });
+        server.createContext("/echo", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                readFully(exchange.getRequestBody());
+                String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+                String token = authorization == null ? "" : authorization.substring("Bearer ".length());
+                if(authorization == null || rejectedTokens.contains(token)) {
+                    respond(exchange, 401, "{\"error_code\":\"NOT_AUTHENTICATED\",\"detailed_error_code\":\"40001\",\"detailed_error_description\":\"Invalid access token\"}");
+                    return;
+                }
+
+                JsonDoc response = new JsonDoc()
+                        .set("token", token)
+                        .set("idempotency", exchange.getRequestHeaders().getFirst("x-gp-idempotency"));
+                respond(exchange, 200, response.toString());
+            }
+        });
+        server.createContext("/throttled", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                readFully(exchange.getRequestBody());
+                respond(exchange, 429, "<html><body>Too Many Requests</body></html>");
+            }
+        });
+        server.createContext("/transactions", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                readFully(exchange.getRequestBody());
+                respond(exchange, 202, "<html><body>Accepted</body></html>");
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentRequests_signInOnce() throws Exception {
+        signInDelay = 100;
+        GpApiConfig config = createConfig();
+        final GpApiConnector first = createConnector(config);
+        final GpApiConnector second = createConnector(config);
+
+        List<String> results = runConcurrently(16, new RequestFactory() {
+            public String send(int index) throws Exception {
+                GpApiConnector connector = index % 2 == 0 ? first : second;
+                return connector.doTransaction(GpApiRequest.HttpMethod.Post, "/echo", "{}", null, "key-" + index);
+            }
+        });
+
+        // one sign in shared by both connectors, each request kept its own headers
+        assertEquals(1, signInCount.get());
+        for(int i = 0; i < results.size(); i++) {
+            JsonDoc response = JsonDoc.parse(results.get(i));
+            assertEquals("token-1", response.getString("token"));
+            assertEquals("key-" + i, response.getString("idempotency"));
+        }
+        assertEquals("Transaction_Processing", first.getTransactionProcessingAccountName());
+    }
+
+    @Test
+    public void expiringToken_refreshedAhead() throws Exception {
+        secondsToExpire = 2;
+        GpApiConnector connector = createConnector(createConfig());
+
+        JsonDoc response = JsonDoc.parse(connector.doTransaction(GpApiRequest.HttpMethod.Get, "/echo", null, null, null));
+        assertEquals("token-1", response.getString("token"));
+
+        // inside the refresh window, the token has not expired yet but is replaced before it does
+        Thread.sleep(1100);
+        response = JsonDoc.parse(connector.doTransaction(GpApiRequest.HttpMethod.Get, "/echo", null, null, null));
+        assertEquals("token-2", response.getString("token"));
+        assertEquals(2, signInCount.get());
+    }
+
+    @Test
+    public void revokedToken_signInOnceAgain() throws Exception {
+        final GpApiConnector connector = createConnector(createConfig());
+        connector.doTransaction(GpApiRequest.HttpMethod.Get, "/echo", null, null, null);
+        rejectedTokens.add("token-1");
+
+        List<String> results = runConcurrently(8, new RequestFactory() {
+            public String send(int index) throws Exception {
+                return connector.doTransaction(GpApiRequest.HttpMethod.Get, "/echo", null, null, null);
+            }
+        });
+
+        for(String result: results) {
+            assertEquals("token-2", JsonDoc.parse(result).getString("token"));
+        }
+        assertEquals(2, signInCount.get());
+    }
+
+    @Test
+    public void accountName_withoutCachedToken() throws Exception {
+        // as when another thread dropped the token after this request signed in
+        GpApiConnector connector = createConnector(createConfig());
+
+        assertEquals("Transaction_Processing", connector.getTransactionProcessingAccountName());
+        assertEquals(1, signInCount.get());
+    }
+
+    @Test(expected = GatewayRateLimitException.class)
+    public void rateLimited_withoutJsonBody() throws Exception {
+        // a proxy answers with HTML rather than the GP API error format
+        GpApiConnector connector = createConnector(createConfig());
+        connector.doTransaction(GpApiRequest.HttpMethod.Get, "/throttled", null, null, null);
+    }
+
+    @Test
+    public void report_unexpectedStatusWithoutJsonBody() throws Exception {
+        // error statuses fail before the body is read, this one reaches the report handler
+        GpApiConnector connector = createConnector(createConfig());
+        try {
+            connector.processReport(ReportingService.findTransactionsPaged(1, 10), TransactionSummaryPaged.class);
+            fail("Expected the report to fail.");
+        }
+        catch(GatewayException exc) {
+            assertEquals("202", exc.getResponseCode());
+            assertEquals("Status Code: 202 - <html><body>Accepted</body></html>", exc.getMessage());
+        }
+    }
+
+    private interface RequestFactory {
+        String send(int index) throws Exception;
+    }
+
+    private List<String> runConcurrently(int count, final RequestFactory factory) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        try {
+            List<Future<String>> futures = new ArrayList<Future<String>>();
+            for(int i = 0; i < count; i++) {
+                final int index = i;
+                futures.add(executor.submit(new Callable<String>() {
+                    public String call() throws Exception {
+                        start.await();
+                        return factory.send(index);
+                    }
+                }));
+            }
+            start.countDown();
+
+            List<String> results = new ArrayList<String>();
+            for(Future<String> future: futures) {
+                results.add(future.get());
+            }
+            return results;
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private GpApiConfig createConfig() {
+        // a new app for every test so the shared token cache starts empty
+        GpApiConfig config = new GpApiConfig();
+        config.setAppId("app-" + appCount.incrementAndGet());
+        config.setAppKey("key");
+        return config;
+    }
+
+    private GpApiConnector createConnector(GpApiConfig config) throws Exception {
+        GpApiConnector connector = new GpApiConnector(config);
+        connector.setServiceUrl(String.format("https://localhost:%d", server.getAddress().getPort()));
+        connector.setTimeout(5000);
+        connector.setHttpTransport(new PooledHttpTransport(0, tls.createClientSocketFactory()));
+        return connector;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(buffer);
+        gzip.write(body.getBytes("UTF-8"));
+        gzip.close();
+
+        byte[] response = buffer.toByteArray();
+        exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(status, response.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(response);
+        out.close();
+    }
+
+    private static void readFully(InputStream in) throws IOException {
+        byte[] buffer = new byte[1024];
+        while(in.read(buffer) != -1) { }
+        in.close();
+    }
+}
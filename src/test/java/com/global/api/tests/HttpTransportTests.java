@@ -0,0 +1,143 @@
+package com.global.api.tests;
+
+import com.global.api.gateways.IHttpTransport;
+import com.global.api.gateways.PooledHttpTransport;
+import com.global.api.gateways.RestGateway;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class HttpTransportTests {
+    private static final byte[] RESPONSE = "{\"status\":\"OK\"}".getBytes();
+
+    private HttpsServer server;
+    private ExecutorService serverExecutor;
+    private LoopbackTls tls;
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile int responseDelay;
+
+    @Before
+    public void setUp() throws Exception {
+        tls = new LoopbackTls();
+        serverExecutor = Executors.newCachedThreadPool();
+        server = tls.createHttpsServer(serverExecutor);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                int current = inFlight.incrementAndGet();
+                synchronized (maxInFlight) {
+                    maxInFlight.set(Math.max(maxInFlight.get(), current));
+                }
+
+                try {
+                    if(responseDelay > 0) {
+                        Thread.sleep(responseDelay);
+                    }
+                }
+                catch(InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                }
+                finally {
+                    inFlight.decrementAndGet();
+                }
+
+                exchange.sendResponseHeaders(200, RESPONSE.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(RESPONSE);
+                out.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void pooledTransport_reusesConnection() throws Exception {
+        RestGateway gateway = createGateway(new PooledHttpTransport(0, tls.createClientSocketFactory()));
+
+        for(int i = 0; i < 20; i++) {
+            assertEquals(new String(RESPONSE), gateway.doTransaction("GET", "/ping"));
+        }
+
+        // every request went over the same kept alive connection
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    public void pooledTransport_perHostLimit() throws Exception {
+        final PooledHttpTransport transport = new PooledHttpTransport(2, tls.createClientSocketFactory());
+        responseDelay = 50;
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for(int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    public String call() throws Exception {
+                        return createGateway(transport).doTransaction("GET", "/ping");
+                    }
+                }));
+            }
+
+            for(Future<String> result: results) {
+                assertEquals(new String(RESPONSE), result.get());
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        assertTrue(maxInFlight.get() <= 2);
+        assertEquals(0, transport.getActiveConnections("localhost"));
+    }
+
+    @Test
+    public void gzipResponse_keepsLineBreaks() throws Exception {
+        String body = "{\n  \"message\": \"line one\\nline two\",\n  \"name\": \"Ünïcödé\"\n}\n";
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+        gzip.write(body.getBytes("UTF-8"));
+        gzip.close();
+
+        RestGateway gateway = new RestGateway();
+        gateway.getHeaders().put("Accept-Encoding", "gzip");
+
+        assertEquals(body, gateway.getRawResponse("GET", "/", new ByteArrayInputStream(compressed.toByteArray())));
+    }
+
+    private RestGateway createGateway(IHttpTransport transport) {
+        RestGateway gateway = new RestGateway();
+        gateway.setServiceUrl(String.format("https://localhost:%d", server.getAddress().getPort()));
+        gateway.setTimeout(5000);
+        gateway.setHttpTransport(transport);
+        return gateway;
+    }
+}
@@ -0,0 +1,235 @@
+package com.global.api.tests;
+
+import com.global.api.entities.enums.PaymentMethodType;
+import com.global.api.entities.enums.TransactionType;
+import com.global.api.entities.exceptions.BatchFullException;
+import com.global.api.network.JournalBatchProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JournalBatchProviderTests {
+    private File directory;
+    private JournalBatchProvider provider;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("batch-journal").toFile();
+        provider = new JournalBatchProvider(directory.getPath());
+    }
+
+    @After
+    public void tearDown() {
+        provider.dispose();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void reportDataCollect_totals() throws Exception {
+        assertEquals(1, provider.getBatchNumber());
+        assertEquals(1, provider.getSequenceNumber());
+        provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("10.00"), "REQUEST_1");
+        assertEquals(2, provider.getSequenceNumber());
+        provider.reportDataCollect(TransactionType.Refund, PaymentMethodType.Credit, new BigDecimal("2.50"), "REQUEST_2");
+        provider.reportDataCollect(TransactionType.Reversal, PaymentMethodType.Credit, new BigDecimal("1.25"), null);
+
+        assertEquals(3, provider.getTransactionCount());
+        assertEquals(new BigDecimal("8.75"), provider.getTotalDebits());
+        assertEquals(new BigDecimal("2.50"), provider.getTotalCredits());
+
+        LinkedList<String> requests = provider.getEncodedRequests();
+        assertEquals(2, requests.size());
+        assertEquals("REQUEST_1", requests.get(0));
+        assertEquals("REQUEST_2", requests.get(1));
+    }
+
+    @Test
+    public void reopen_recoversBatch() throws Exception {
+        provider.getSequenceNumber();
+        provider.getSequenceNumber();
+        provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("10.00"), "REQUEST_1");
+        provider.reportDataCollect(TransactionType.Capture, PaymentMethodType.Credit, new BigDecimal("5.00"), "REQUEST_\u0002©");
+        provider.dispose();
+
+        provider = new JournalBatchProvider(directory.getPath());
+        assertEquals(1, provider.getBatchNumber());
+        assertEquals(3, provider.getSequenceNumber());
+        assertEquals(2, provider.getTransactionCount());
+        assertEquals(new BigDecimal("15.00"), provider.getTotalDebits());
+        assertEquals("REQUEST_\u0002©", provider.getEncodedRequests().getLast());
+    }
+
+    @Test
+    public void reopen_afterGrowth() throws Exception {
+        // the records go well past the first mapping, so the journal is extended twice
+        StringBuilder request = new StringBuilder();
+        while (request.length() < 600 * 1024) {
+            request.append("REQUEST_");
+        }
+        for (int i = 0; i < 5; i++) {
+            provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("1.00"), request.toString() + i);
+        }
+        provider.dispose();
+
+        provider = new JournalBatchProvider(directory.getPath());
+        assertEquals(5, provider.getTransactionCount());
+        assertEquals(new BigDecimal("5.00"), provider.getTotalDebits());
+        assertEquals(request.toString() + 4, provider.getEncodedRequests().getLast());
+    }
+
+    @Test
+    public void reopen_dropsTornRecord() throws Exception {
+        provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("10.00"), "REQUEST_1");
+        provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("20.00"), "REQUEST_2");
+        provider.dispose();
+
+        // break the checksum of the last record, as a write cut short would
+        File journal = directory.listFiles()[0];
+        RandomAccessFile file = new RandomAccessFile(journal, "rw");
+        try {
+            long position = findLast(file, "REQUEST_2".getBytes());
+            file.seek(position);
+            file.write('X');
+        }
+        finally {
+            file.close();
+        }
+
+        provider = new JournalBatchProvider(directory.getPath());
+        assertEquals(1, provider.getTransactionCount());
+        assertEquals(new BigDecimal("10.00"), provider.getTotalDebits());
+
+        provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("1.00"), "REQUEST_3");
+        provider.dispose();
+        provider = new JournalBatchProvider(directory.getPath());
+        assertEquals(2, provider.getTransactionCount());
+        assertEquals("REQUEST_3", provider.getEncodedRequests().getLast());
+    }
+
+    @Test
+    public void closeBatch_startsNextBatch() throws Exception {
+        provider.getSequenceNumber();
+        provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("10.00"), "REQUEST_1");
+        Iterable<String> before = provider.readEncodedRequests();
+
+        provider.closeBatch(true);
+        assertEquals(2, provider.getBatchNumber());
+        assertEquals(0, provider.getTransactionCount());
+        assertEquals(new BigDecimal("0.00"), provider.getTotalDebits());
+        assertEquals(1, provider.getSequenceNumber());
+        assertTrue(provider.getEncodedRequests().isEmpty());
+        assertEquals("REQUEST_1", before.iterator().next());
+
+        provider.dispose();
+        provider = new JournalBatchProvider(directory.getPath());
+        assertEquals(2, provider.getBatchNumber());
+        assertEquals(1, directory.listFiles().length);
+    }
+
+    @Test
+    public void getSequenceNumber_batchFull() throws Exception {
+        for (int i = 1; i <= 99; i++) {
+            assertEquals(i, provider.getSequenceNumber());
+        }
+        try {
+            provider.getSequenceNumber();
+            fail("Expected the batch to be full.");
+        }
+        catch (BatchFullException exc) {
+            // expected
+        }
+    }
+
+    @Test
+    public void reportDataCollect_concurrent() throws Exception {
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < 250; i++) {
+                        provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("0.01"), "REQUEST_" + thread + "_" + i);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1000, provider.getTransactionCount());
+        assertEquals(new BigDecimal("10.00"), provider.getTotalDebits());
+
+        // more than the first mapping holds, so the journal grew while in use
+        StringBuilder large = new StringBuilder();
+        while (large.length() < 2 * 1024 * 1024) {
+            large.append("0123456789");
+        }
+        provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("1.00"), large.toString());
+        provider.dispose();
+
+        provider = new JournalBatchProvider(directory.getPath());
+        assertEquals(1001, provider.getTransactionCount());
+        int count = 0;
+        for (String request : provider.readEncodedRequests()) {
+            count++;
+        }
+        assertEquals(1001, count);
+    }
+
+    @Test
+    public void markResent_survivesReopen() throws Exception {
+        provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("1.00"), "REQUEST_1");
+        provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("2.00"), "REQUEST_2");
+        provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("3.00"), "REQUEST_3");
+        provider.markResent(0);
+        provider.markResent(2);
+        provider.dispose();
+
+        provider = new JournalBatchProvider(directory.getPath());
+        assertTrue(provider.isResent(0));
+        assertFalse(provider.isResent(1));
+        assertTrue(provider.isResent(2));
+        assertEquals(3, provider.getTransactionCount());
+        assertEquals(3, provider.getEncodedRequests().size());
+
+        provider.closeBatch(true);
+        assertFalse(provider.isResent(0));
+        assertFalse(provider.isResent(2));
+    }
+
+    private static long findLast(RandomAccessFile file, byte[] value) throws Exception {
+        byte[] content = new byte[(int) Math.min(file.length(), 64 * 1024)];
+        file.seek(0);
+        file.readFully(content);
+        for (int i = content.length - value.length; i >= 0; i--) {
+            boolean match = true;
+            for (int j = 0; j < value.length && match; j++) {
+                match = content[i + j] == value[j];
+            }
+            if (match) {
+                return i;
+            }
+        }
+        throw new AssertionError("Value not found.");
+    }
+}
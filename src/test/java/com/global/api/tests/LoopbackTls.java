@@ -0,0 +1,65 @@
+package com.global.api.tests;
+
+import com.global.api.gateways.SSLSocketFactoryEx;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.security.KeyStore;
+import java.util.concurrent.Executor;
+
+/**
+ * TLS for test hosts on the loopback interface, from the self signed loopback.jks key store. The
+ * clients trust only that certificate.
+ */
+public class LoopbackTls {
+    private final SSLContext serverContext;
+    private final TrustManager[] trustManagers;
+
+    public SSLContext getServerContext() {
+        return serverContext;
+    }
+    public TrustManager[] getTrustManagers() {
+        return trustManagers;
+    }
+
+    public LoopbackTls() throws Exception {
+        char[] password = "changeit".toCharArray();
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        InputStream keyStream = getClass().getResourceAsStream("/loopback.jks");
+        try {
+            keyStore.load(keyStream, password);
+        }
+        finally {
+            keyStream.close();
+        }
+
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, password);
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(keyStore);
+        trustManagers = tmf.getTrustManagers();
+
+        serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(kmf.getKeyManagers(), trustManagers, null);
+    }
+
+    public SSLSocketFactory createClientSocketFactory() throws Exception {
+        return new SSLSocketFactoryEx(null, trustManagers, null);
+    }
+
+    // on a free port, started by the caller once its contexts are added
+    public HttpsServer createHttpsServer(Executor executor) throws IOException {
+        HttpsServer server = HttpsServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(serverContext));
+        server.setExecutor(executor);
+        return server;
+    }
+}
@@ -4,6 +4,9 @@ package com.global.api.tests;
 import com.global.api.network.elements.*;
 import com.global.api.network.enums.*;
 import com.global.api.network.Iso8583Bitmap;
+import com.global.api.network.Iso8583ElementFactory;
+import com.global.api.network.Iso8583Specification;
+import com.global.api.network.abstractions.IIso8583SpecificationLoader;
 import com.global.api.network.NetworkMessage;
 import com.global.api.network.enums.Iso8583MessageType;
 import com.global.api.utils.StringUtils;
@@ -112,6 +115,74 @@ public class NetworkMessageTests {
         assertEquals("3030058020c00002", pbmp.toHexString());
     }
 
+    @Test
+    public void networkMessage_build_test() {
+        // encoding a parsed message must reproduce the original bytes
+        String hexString = "b230450028e11824000000000000000030303038303030303030303030303130383931303130303233303437303030313533313831303130303233303437353534314c31303130314231303134433230303234343030353535313132323333343435303d3230313231303130303030303130313135383030303434202020203030303131323634393833202020203535372d454c4556454e5c3132353220464f52455354204156455c53544154454e2049534c414e445c313033303220202020204e59205553413038305824000082000000333420203231323035373130202020202020202030303030303330303031303032444220203331303320594e32363939393939392020202030303030303030303030303030303030492728e8cb6dc5833136413530343031303032363830303434323037313030303033393030313030303132303030303030303030303130383930303031303030303230353932303030313138303431373039343335304442202030303038303030354e323031313031494944303430303031";
+        NetworkMessage doc = NetworkMessage.parse(byteFromHex(hexString), Iso8583MessageType.CompleteMessage);
+        assertEquals(hexString, StringUtils.hexFromBytes(doc.buildMessage()).toLowerCase());
+
+        // primary and secondary elements, variable lengths and sub element messages
+        doc = buildRequest();
+        assertEquals("31323030f230458020c10204008000010000000231363430313230303230303030363030313630303038303030303030303030303130383931303138313230303030303030313533323631303138313230303030353534314c3130313031423130313443323030313337363234343031323030323030303036303031363d3235313231303130303434202020203030303733323635333939303820203038305824000082000000333420203231323035373130202020202020202030303030303330303031303032444220203331303320594e323639393939393920202020303030303030303030303030303030303032319f2701809f100706010a03a000009f3704a9e1b2c3303131303149494430343030303131383130313830303801020304050607083030323030", StringUtils.hexFromBytes(doc.buildMessage()).toLowerCase());
+        assertEquals("3132303066323330343538303230633130323034008000010000000231363430313230303230303030363030313630303038303030303030303030303130383931303138313230303030303030313533323631303138313230303030353534314c3130313031423130313443323030313337363234343031323030323030303036303031363d3235313231303130303434202020203030303733323635333939303820203038305824000082000000333420203231323035373130202020202020202030303030303330303031303032444220203331303320594e323639393939393920202020303030303030303030303030303030303032319f2701809f100706010a03a000009f3704a9e1b2c3303131303149494430343030303131383130313830303801020304050607083030323030", StringUtils.hexFromBytes(doc.buildMessage(true)).toLowerCase());
+
+        // the sub element messages use the same encoder without a secondary bitmap
+        DE48_MessageControl messageControl = doc.getDataElement(DataElementId.DE_048, DE48_MessageControl.class);
+        assertEquals("5824000082000000333420203231323035373130202020202020202030303030303330303031303032444220203331303320594e32363939393939392020202030303030303030303030303030303030", StringUtils.hexFromBytes(messageControl.toByteArray()).toLowerCase());
+    }
+
+    @Test
+    public void networkMessage_truncated_test() {
+        // hardware config followed by a batch number that is cut off after 4 of its 10 digits
+        byte[] data = byteFromHex("5000000000000000" + "3334202032313230353731302020202020202020" + "30303033");
+        NetworkMessage doc = NetworkMessage.parse(data, Iso8583MessageType.SubElement_DE_048);
+
+        assertEquals("34  21205710        ", doc.getString(DataElementId.DE_002));
+        assertArrayEquals(new byte[] { '0', '0', '0', '3', 0, 0, 0, 0, 0, 0 }, doc.getByteArray(DataElementId.DE_004));
+    }
+
+    @Test
+    public void networkMessage_specificationLoader_test() {
+        IIso8583SpecificationLoader loader = new IIso8583SpecificationLoader() {
+            public void load(Iso8583MessageType messageType, Iso8583Specification specification) {
+                if(messageType.equals(Iso8583MessageType.CompleteMessage)) {
+                    specification.addElement(DataElementId.DE_120, DataElementType.LLLVAR, "Private Use", 999);
+                }
+            }
+        };
+
+        assertFalse(Iso8583ElementFactory.getSpecification(Iso8583MessageType.CompleteMessage).isDefined(DataElementId.DE_120));
+        Iso8583ElementFactory.addSpecificationLoader(loader);
+        try {
+            Iso8583Specification specification = Iso8583ElementFactory.getSpecification(Iso8583MessageType.CompleteMessage);
+            assertEquals(DataElementType.LLLVAR, specification.getType(DataElementId.DE_120));
+            assertEquals(DataElementType.LLVAR, specification.getType(DataElementId.DE_002));
+            assertFalse(Iso8583ElementFactory.getSpecification(Iso8583MessageType.SubElement_DE_048).isDefined(DataElementId.DE_120));
+
+            NetworkMessage doc = new NetworkMessage();
+            doc.set(DataElementId.DE_011, "000153");
+            doc.set(DataElementId.DE_120, "PRIVATE");
+            byte[] buffer = doc.buildMessage();
+
+            doc = NetworkMessage.parse(buffer, Iso8583MessageType.CompleteMessage);
+            assertEquals("000153", doc.getString(DataElementId.DE_011));
+            assertEquals("PRIVATE", doc.getString(DataElementId.DE_120));
+
+            try {
+                specification.addElement(DataElementId.DE_121, DataElementType.LLLVAR, "Private Use", 999);
+                fail("Compiled specifications should not change.");
+            }
+            catch(IllegalStateException exc) {
+                // expected
+            }
+        }
+        finally {
+            Iso8583ElementFactory.removeSpecificationLoader(loader);
+        }
+        assertFalse(Iso8583ElementFactory.getSpecification(Iso8583MessageType.CompleteMessage).isDefined(DataElementId.DE_120));
+    }
+
     @Test
     public void networkMessage_parse_test() {
         String bexString = "b230450028e11824000000000000000030303038303030303030303030303130383930343137313334333530303030313533313830343137303934333439353534314c31303130314231303134433230303234343030353535313132323333343435303d3230313231303130303030303130313135383030303434202020203030303733323635333939303820203535372d454c4556454e5c3132353220464f52455354204156455c53544154454e2049534c414e445c313033303220202020204e59205553413038305824000082000000333420203231323035373130202020202020202030303030303330303031303032444220203331303320594e32363939393939392020202030303030303030303030303030303030492728e8cb6dc5833136413530343031303032363830303434323037313030303033393030313030303132303030303030303030303130383930303031303030303230353932303030313138303431373039343335304442202030303038303030354e323031313031494944303430303031";
@@ -909,6 +980,33 @@ public class NetworkMessageTests {
         assertEquals(original, new String(buffer));
     }
 
+    private NetworkMessage buildRequest() {
+        DE48_MessageControl messageControl = new DE48_MessageControl().fromByteArray(byteFromHex("5824000082000000333420203231323035373130202020202020202030303030303330303031303032444220203331303320594e32363939393939392020202030303030303030303030303030303030"));
+
+        NetworkMessage doc = new NetworkMessage();
+        doc.setMessageTypeIndicator("1200");
+        doc.set(DataElementId.DE_002, "4012002000060016")
+                .set(DataElementId.DE_003, "000800")
+                .set(DataElementId.DE_004, "000000001089")
+                .set(DataElementId.DE_007, "1018120000")
+                .set(DataElementId.DE_011, "000153")
+                .set(DataElementId.DE_012, "261018120000")
+                .set(DataElementId.DE_018, "5541")
+                .set(DataElementId.DE_022, "L10101B1014C")
+                .set(DataElementId.DE_024, "200")
+                .set(DataElementId.DE_025, "1376")
+                .set(DataElementId.DE_035, "4012002000060016=2512101")
+                .set(DataElementId.DE_041, "0044    ")
+                .set(DataElementId.DE_042, "0007326539908  ")
+                .set(DataElementId.DE_048, messageControl)
+                .set(DataElementId.DE_055, byteFromHex("9f2701809f100706010a03a000009f3704a9e1b2c3"))
+                .set(DataElementId.DE_062, "01IID040001")
+                .set(DataElementId.DE_073, "181018")
+                .set(DataElementId.DE_096, byteFromHex("0102030405060708"))
+                .set(DataElementId.DE_127, "00");
+        return doc;
+    }
+
     private byte[] byteFromHex(String s) {
         return StringUtils.bytesFromHex(s);
     }
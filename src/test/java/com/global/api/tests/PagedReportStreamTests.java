@@ -0,0 +1,171 @@
+package com.global.api.tests;
+
+import com.global.api.ServicesContainer;
+import com.global.api.builders.ReportBuilder;
+import com.global.api.builders.TransactionReportBuilder;
+import com.global.api.entities.TransactionSummary;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.BuilderException;
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.entities.reporting.TransactionSummaryPaged;
+import com.global.api.services.ReportingService;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class PagedReportStreamTests {
+    private static final String CONFIG_NAME = "pagedReportTests";
+
+    @After
+    public void tearDown() throws Exception {
+        ServicesContainer.configureService(null, CONFIG_NAME);
+    }
+
+    @Test
+    public void stream_readsEveryPage() throws Exception {
+        ReportGateway gateway = new ReportGateway(14, 0);
+        FakeGateway.configure(gateway, CONFIG_NAME);
+
+        Stream<TransactionSummary> stream = ReportingService.findTransactionsPaged(1, 4).stream(CONFIG_NAME);
+        List<TransactionSummary> rows = stream.collect(Collectors.toList());
+
+        assertEquals(14, rows.size());
+        for(int i = 0; i < rows.size(); i++) {
+            assertEquals("TRN_" + i, rows.get(i).getTransactionId());
+        }
+        assertEquals(4, gateway.requestedPages.size());
+    }
+
+    @Test
+    public void iterator_exactPages() throws Exception {
+        ReportGateway gateway = new ReportGateway(8, 0);
+        FakeGateway.configure(gateway, CONFIG_NAME);
+
+        Iterator<TransactionSummary> iterator = ReportingService.findTransactionsPaged(1, 4).iterator(CONFIG_NAME);
+        int count = 0;
+        while(iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+
+        // the third page comes back empty and ends the report
+        assertEquals(8, count);
+        assertEquals(3, gateway.requestedPages.size());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void stream_prefetchesOnePage() throws Exception {
+        ReportGateway gateway = new ReportGateway(100, 0);
+        FakeGateway.configure(gateway, CONFIG_NAME);
+
+        Iterator<TransactionSummary> iterator = ReportingService.findTransactionsPaged(1, 10).iterator(CONFIG_NAME);
+        for(int i = 0; i < 25; i++) {
+            iterator.next();
+        }
+
+        // reading the third page, the fourth is on its way and nothing past it
+        assertTrue(gateway.awaitRequests(4));
+        assertEquals(4, gateway.requestedPages.size());
+    }
+
+    @Test
+    public void stream_closeStopsPaging() throws Exception {
+        ReportGateway gateway = new ReportGateway(1000, 0);
+        gateway.hold = new CountDownLatch(1);
+        FakeGateway.configure(gateway, CONFIG_NAME);
+
+        // the second page is held at the gateway until the stream has been closed
+        Stream<TransactionSummary> stream = ReportingService.findTransactionsPaged(1, 10).stream(CONFIG_NAME);
+        List<TransactionSummary> first = stream.limit(5).collect(Collectors.toList());
+        assertTrue(gateway.awaitRequests(2));
+        stream.close();
+        gateway.hold.countDown();
+
+        assertEquals(5, first.size());
+        assertEquals(2, gateway.requestedPages.size());
+    }
+
+    @Test
+    public void stream_gatewayError() throws Exception {
+        FakeGateway.configure(new ReportGateway(30, 2), CONFIG_NAME);
+
+        Iterator<TransactionSummary> iterator = ReportingService.findTransactionsPaged(1, 10).iterator(CONFIG_NAME);
+        int count = 0;
+        try {
+            while(iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+            fail("Expected the second page to fail.");
+        }
+        catch(CompletionException exc) {
+            assertTrue(exc.getCause() instanceof GatewayException);
+        }
+        assertEquals(10, count);
+    }
+
+    @Test(expected = BuilderException.class)
+    public void stream_notPaged() throws Exception {
+        ReportingService.transactionDetail("TRN_0").stream(CONFIG_NAME);
+    }
+
+    private static class ReportGateway extends FakeGateway {
+        private final int totalRecords;
+        private final int failingPage;
+        private final List<Integer> requestedPages = new CopyOnWriteArrayList<Integer>();
+        private final Semaphore requests = new Semaphore(0);
+        private volatile CountDownLatch hold = new CountDownLatch(0);
+
+        ReportGateway(int totalRecords, int failingPage) {
+            this.totalRecords = totalRecords;
+            this.failingPage = failingPage;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T processReport(ReportBuilder<T> builder, Class<T> clazz) throws ApiException {
+            TransactionReportBuilder<T> reportBuilder = (TransactionReportBuilder<T>) builder;
+            int page = reportBuilder.getPage();
+            int pageSize = reportBuilder.getPageSize();
+            requestedPages.add(page);
+            requests.release();
+            if(page > 1) {
+                try {
+                    hold.await(5, TimeUnit.SECONDS);
+                }
+                catch(InterruptedException exc) {
+                    throw new ApiException("Interrupted", exc);
+                }
+            }
+            if(page == failingPage) {
+                throw new GatewayException("Unexpected http status code [500]");
+            }
+
+            TransactionSummaryPaged result = new TransactionSummaryPaged();
+            result.setPage(page);
+            result.setPageSize(pageSize);
+            result.setTotalRecordCount(totalRecords);
+            for(int i = (page - 1) * pageSize; i < Math.min(page * pageSize, totalRecords); i++) {
+                TransactionSummary summary = new TransactionSummary();
+                summary.setTransactionId("TRN_" + i);
+                result.add(summary);
+            }
+            return (T) result;
+        }
+
+        boolean awaitRequests(int count) throws InterruptedException {
+            return requests.tryAcquire(count, 5, TimeUnit.SECONDS);
+        }
+    }
+}
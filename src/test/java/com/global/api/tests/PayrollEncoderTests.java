@@ -0,0 +1,74 @@
+package com.global.api.tests;
+
+import com.global.api.entities.payroll.PayrollEncoder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class PayrollEncoderTests {
+    private static final String VALUE = "MTEwMLIwRQAgwQAE";
+
+    @Test
+    public void encode_knownValues() {
+        PayrollEncoder encoder = new PayrollEncoder("username", "apikey");
+        assertEquals("Cg9BqwXFQJPDcRadlTUuv3hjgRhSBefE0eXbVEPDiDE=", encoder.encode(VALUE));
+        assertEquals(VALUE, encoder.decode("Cg9BqwXFQJPDcRadlTUuv3hjgRhSBefE0eXbVEPDiDE="));
+        assertEquals("Cg9BqwXFQJPDcRadlTUuv3hjgRhSBefE0eXbVEPDiDE=", encoder.encode(VALUE));
+    }
+
+    @Test
+    public void encode_credentialsChanged() {
+        PayrollEncoder encoder = new PayrollEncoder("username", "apikey");
+        assertEquals("Cg9BqwXFQJPDcRadlTUuv3hjgRhSBefE0eXbVEPDiDE=", encoder.encode(VALUE));
+
+        encoder.setUsername("0044");
+        encoder.setApiKey("0007169969911");
+        assertEquals("91osRzz6f7MP3ifIuBpZp82CEdRtjXp6WrXkn2o6IYA=", encoder.encode(VALUE));
+        assertEquals(VALUE, encoder.decode("91osRzz6f7MP3ifIuBpZp82CEdRtjXp6WrXkn2o6IYA="));
+    }
+
+    @Test
+    public void decode_invalidValue() {
+        PayrollEncoder encoder = new PayrollEncoder("username", "apikey");
+        assertEquals("bm90IGVuY3J5cHRlZA==", encoder.decode("bm90IGVuY3J5cHRlZA=="));
+
+        // the failure does not leave a broken cipher behind
+        assertEquals(VALUE, encoder.decode("Cg9BqwXFQJPDcRadlTUuv3hjgRhSBefE0eXbVEPDiDE="));
+    }
+
+    @Test
+    public void encode_missingCredentials() {
+        assertEquals(VALUE, new PayrollEncoder().encode(VALUE));
+    }
+
+    @Test
+    public void encode_concurrent() throws Exception {
+        final PayrollEncoder encoder = new PayrollEncoder("username", "apikey");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 200; i++) {
+                final String value = VALUE + i;
+                results.add(executor.submit(new Callable<String>() {
+                    public String call() {
+                        return encoder.decode(encoder.encode(value));
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(VALUE + i, results.get(i).get());
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.global.api.tests;
+
+import com.global.api.ServicesContainer;
+import com.global.api.builders.ReportBuilder;
+import com.global.api.builders.TransactionReportBuilder;
+import com.global.api.entities.TransactionSummary;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.entities.exceptions.GatewayRateLimitException;
+import com.global.api.entities.reporting.TransactionSummaryPaged;
+import com.global.api.reporting.CsvReportSink;
+import com.global.api.reporting.IReportQuery;
+import com.global.api.reporting.JsonLinesReportSink;
+import com.global.api.reporting.ReportExporter;
+import com.global.api.services.ReportingService;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ReportExporterTests {
+    private static final String CONFIG_NAME = "reportExporterTests";
+    private static final long START = 1600000000000L;
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private static final IReportQuery<TransactionSummaryPaged> QUERY = new IReportQuery<TransactionSummaryPaged>() {
+        public TransactionReportBuilder<TransactionSummaryPaged> build(Date startDate, Date endDate) {
+            return ReportingService.findTransactionsPaged(1, 5);
+        }
+    };
+
+    @After
+    public void tearDown() throws Exception {
+        ServicesContainer.configureService(null, CONFIG_NAME);
+    }
+
+    @Test
+    public void export_inOrderWithoutDuplicates() throws Exception {
+        ReportGateway gateway = new ReportGateway(72, 0);
+        FakeGateway.configure(gateway, CONFIG_NAME);
+
+        StringWriter output = new StringWriter();
+        int written = new ReportExporter<TransactionSummary>(QUERY, new Date(START), new Date(START + 72 * HOUR - 1))
+                .withRangeLength(6, TimeUnit.HOURS)
+                .withParallelism(4)
+                .export(new CsvReportSink<TransactionSummary>(output, TransactionSummary.class, "transactionId", "amount"), CONFIG_NAME);
+
+        assertEquals(72, written);
+        String[] lines = output.toString().split("\r\n");
+        assertEquals(73, lines.length);
+        assertEquals("transactionId,amount", lines[0]);
+        for (int i = 0; i < 72; i++) {
+            assertEquals("TRN_" + i + "," + i + ".00", lines[i + 1]);
+        }
+        assertEquals(12, gateway.ranges.get());
+        assertTrue(gateway.maxInFlight.get() <= 4);
+    }
+
+    @Test
+    public void export_rowInThreeParts() throws Exception {
+        // each hour also returns the two hours before it, so a row is in three parts
+        ReportGateway gateway = new ReportGateway(12, 0, 2);
+        FakeGateway.configure(gateway, CONFIG_NAME);
+
+        StringWriter output = new StringWriter();
+        int written = new ReportExporter<TransactionSummary>(QUERY, new Date(START), new Date(START + 12 * HOUR - 1))
+                .withRangeLength(1, TimeUnit.HOURS)
+                .export(new CsvReportSink<TransactionSummary>(output, TransactionSummary.class, "transactionId"), CONFIG_NAME);
+
+        assertEquals(12, written);
+        assertEquals(13, output.toString().split("\r\n").length);
+    }
+
+    @Test
+    public void export_splitsOnWholeDays() throws Exception {
+        ReportGateway gateway = new ReportGateway(72, 0);
+        FakeGateway.configure(gateway, CONFIG_NAME);
+
+        int written = new ReportExporter<TransactionSummary>(QUERY, new Date(START), new Date(START + 72 * HOUR - 1))
+                .withRangeLength(6, TimeUnit.HOURS)
+                .withDateGranularity(TimeUnit.DAYS)
+                .export(new CsvReportSink<TransactionSummary>(new StringWriter(), TransactionSummary.class), CONFIG_NAME);
+
+        // the start falls within a day, so the window touches four of them
+        assertEquals(72, written);
+        assertEquals(4, gateway.ranges.get());
+    }
+
+    @Test
+    public void export_retriesRateLimited() throws Exception {
+        ReportGateway gateway = new ReportGateway(24, 2);
+        FakeGateway.configure(gateway, CONFIG_NAME);
+
+        StringWriter output = new StringWriter();
+        int written = new ReportExporter<TransactionSummary>(QUERY, new Date(START), new Date(START + 24 * HOUR - 1))
+                .withRangeLength(6, TimeUnit.HOURS)
+                .withRetries(3, 10, 100)
+                .export(new JsonLinesReportSink<TransactionSummary>(output, TransactionSummary.class, "transactionId", "amount"), CONFIG_NAME);
+
+        assertEquals(24, written);
+        assertEquals("{\"transactionId\":\"TRN_0\",\"amount\":0.00}", output.toString().split("\n")[0]);
+        assertEquals(0, gateway.rateLimitsLeft.get());
+    }
+
+    @Test
+    public void export_rateLimitRetriesExhausted() throws Exception {
+        FakeGateway.configure(new ReportGateway(24, 10), CONFIG_NAME);
+
+        try {
+            new ReportExporter<TransactionSummary>(QUERY, new Date(START), new Date(START + 24 * HOUR - 1))
+                    .withRetries(2, 1, 10)
+                    .export(new CsvReportSink<TransactionSummary>(new StringWriter(), TransactionSummary.class), CONFIG_NAME);
+            fail("Expected the export to fail.");
+        }
+        catch (GatewayRateLimitException exc) {
+            assertEquals("429", exc.getResponseCode());
+        }
+    }
+
+    // one transaction an hour, each range also returns the last transactions of the ranges before it
+    private static class ReportGateway extends FakeGateway {
+        private final int totalRecords;
+        private final int overlap;
+        private final AtomicInteger rateLimitsLeft;
+        private final AtomicInteger ranges = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        ReportGateway(int totalRecords, int rateLimits) {
+            this(totalRecords, rateLimits, 1);
+        }
+        ReportGateway(int totalRecords, int rateLimits, int overlap) {
+            this.totalRecords = totalRecords;
+            this.overlap = overlap;
+            this.rateLimitsLeft = new AtomicInteger(rateLimits);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T processReport(ReportBuilder<T> builder, Class<T> clazz) throws ApiException {
+            synchronized (rateLimitsLeft) {
+                if (rateLimitsLeft.get() > 0) {
+                    rateLimitsLeft.decrementAndGet();
+                    throw new GatewayRateLimitException("Status Code: 429 - Too many requests", "429", null);
+                }
+            }
+
+            int current = inFlight.incrementAndGet();
+            synchronized (maxInFlight) {
+                maxInFlight.set(Math.max(maxInFlight.get(), current));
+            }
+            try {
+                Thread.sleep(5);
+            }
+            catch (InterruptedException exc) {
+                throw new GatewayException("Interrupted");
+            }
+            finally {
+                inFlight.decrementAndGet();
+            }
+
+            TransactionReportBuilder<T> reportBuilder = (TransactionReportBuilder<T>) builder;
+            int page = reportBuilder.getPage();
+            int pageSize = reportBuilder.getPageSize();
+            if (page == 1) {
+                ranges.incrementAndGet();
+            }
+
+            int first = (int) Math.max(0, (reportBuilder.getStartDate().getTime() - START) / HOUR - overlap);
+            int last = (int) Math.min(totalRecords - 1, (reportBuilder.getEndDate().getTime() - START) / HOUR);
+
+            TransactionSummaryPaged result = new TransactionSummaryPaged();
+            for (int i = first + (page - 1) * pageSize; i <= last && i < first + page * pageSize; i++) {
+                TransactionSummary summary = new TransactionSummary();
+                summary.setTransactionId("TRN_" + i);
+                summary.setAmount(new BigDecimal(i).setScale(2));
+                result.add(summary);
+            }
+            return (T) result;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.global.api.tests;
+
+import com.global.api.ConfiguredServices;
+import com.global.api.ServicesConfig;
+import com.global.api.ServicesContainer;
+import com.global.api.builders.ReportBuilder;
+import com.global.api.entities.TransactionSummary;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.entities.reporting.TransactionSummaryPaged;
+import com.global.api.serviceConfigs.Configuration;
+import com.global.api.serviceConfigs.GatewayConfig;
+import com.global.api.services.ReportingService;
+import com.global.api.terminals.abstractions.IDisposable;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ServicesContainerTests {
+    private static final String CONFIG_NAME = "servicesContainerTests";
+
+    @After
+    public void tearDown() throws Exception {
+        ServicesContainer.configureService(null, CONFIG_NAME);
+    }
+
+    @Test
+    public void reconfigure_disposesAfterInFlight() throws Exception {
+        DisposableGateway first = new DisposableGateway(true);
+        FakeGateway.configure(first, CONFIG_NAME);
+
+        CompletableFuture<TransactionSummaryPaged> report = ReportingService.findTransactionsPaged(1, 10).executeAsync(CONFIG_NAME);
+        assertTrue(first.started.await(5, TimeUnit.SECONDS));
+
+        DisposableGateway second = new DisposableGateway(false);
+        FakeGateway.configure(second, CONFIG_NAME);
+
+        // new transactions go to the new gateway, the old one finishes its work first
+        assertSame(second, ServicesContainer.getInstance().getGateway(CONFIG_NAME));
+        assertFalse(first.disposed.get());
+
+        first.release.countDown();
+        assertNotNull(report.get(5, TimeUnit.SECONDS));
+        assertTrue(first.disposed.get());
+        assertFalse(second.disposed.get());
+    }
+
+    @Test
+    public void reconfigure_keepsSharedServices() throws Exception {
+        DisposableGateway gateway = new DisposableGateway(false);
+        FakeGateway.configure(gateway, CONFIG_NAME);
+        FakeGateway.configure(gateway, CONFIG_NAME);
+
+        assertSame(gateway, ServicesContainer.getInstance().getGateway(CONFIG_NAME));
+        assertFalse(gateway.disposed.get());
+    }
+
+    @Test
+    public void reconfigure_keepsServicesOfEarlierConfigurations() throws Exception {
+        DisposableGateway first = new DisposableGateway(true);
+        FakeGateway.configure(first, CONFIG_NAME);
+
+        CompletableFuture<TransactionSummaryPaged> report = ReportingService.findTransactionsPaged(1, 10).executeAsync(CONFIG_NAME);
+        assertTrue(first.started.await(5, TimeUnit.SECONDS));
+
+        // the second configuration shares the gateway and is replaced before the report finishes
+        ServicesContainer.configureService(new Configuration() {
+            public void configureContainer(ConfiguredServices services) {
+                // keeps the gateway
+            }
+        }, CONFIG_NAME);
+        FakeGateway.configure(new DisposableGateway(false), CONFIG_NAME);
+        assertFalse(first.disposed.get());
+
+        first.release.countDown();
+        assertNotNull(report.get(5, TimeUnit.SECONDS));
+        assertTrue(first.disposed.get());
+    }
+
+    @Test
+    public void configure_servicesConfigWhileReading() throws Exception {
+        FakeGateway.configure(new DisposableGateway(false), CONFIG_NAME);
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread reader = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    // the name is never left without a gateway while the services config is applied
+                    while(running.get()) {
+                        ReportingService.findTransactionsPaged(1, 10).execute(CONFIG_NAME);
+                    }
+                }
+                catch(Throwable exc) {
+                    failure.compareAndSet(null, exc);
+                }
+            }
+        });
+        reader.start();
+
+        DisposableGateway gateway = null;
+        for(int i = 0; i < 200; i++) {
+            final DisposableGateway next = new DisposableGateway(false);
+            ServicesConfig config = new ServicesConfig();
+            config.setGatewayConfig(new GatewayConfig() {
+                @Override
+                public void configureContainer(ConfiguredServices services) {
+                    services.setGatewayConnector(next);
+                }
+            });
+            ServicesContainer.configure(config, CONFIG_NAME);
+            gateway = next;
+        }
+        running.set(false);
+        reader.join(5000);
+
+        assertNull(failure.get());
+        assertSame(gateway, ServicesContainer.getInstance().getGateway(CONFIG_NAME));
+    }
+
+    @Test
+    public void remove_disposesIdleConfiguration() throws Exception {
+        DisposableGateway gateway = new DisposableGateway(false);
+        FakeGateway.configure(gateway, CONFIG_NAME);
+
+        ServicesContainer.configureService(null, CONFIG_NAME);
+        assertTrue(gateway.disposed.get());
+
+        try {
+            ServicesContainer.getInstance().getGateway(CONFIG_NAME);
+            fail("Expected the configuration to be removed.");
+        }
+        catch(ApiException exc) {
+            assertEquals("The specified configuration has not been configured for card processing.", exc.getMessage());
+        }
+    }
+
+    @Test
+    public void reconfigure_whileReading() throws Exception {
+        FakeGateway.configure(new DisposableGateway(false), CONFIG_NAME);
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> readers = new ArrayList<Thread>();
+        for(int i = 0; i < 4; i++) {
+            Thread reader = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        // a gateway disposed while leased fails the report
+                        while(running.get()) {
+                            ReportingService.findTransactionsPaged(1, 10).execute(CONFIG_NAME);
+                        }
+                    }
+                    catch(Throwable exc) {
+                        failure.compareAndSet(null, exc);
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        List<DisposableGateway> gateways = new ArrayList<DisposableGateway>();
+        for(int i = 0; i < 200; i++) {
+            DisposableGateway gateway = new DisposableGateway(false);
+            gateways.add(gateway);
+            FakeGateway.configure(gateway, CONFIG_NAME);
+        }
+        running.set(false);
+        for(Thread reader : readers) {
+            reader.join(5000);
+        }
+
+        assertNull(failure.get());
+        for(int i = 0; i < gateways.size() - 1; i++) {
+            assertTrue(gateways.get(i).disposed.get());
+        }
+        assertFalse(gateways.get(gateways.size() - 1).disposed.get());
+    }
+
+    private static class DisposableGateway extends FakeGateway implements IDisposable {
+        private final boolean blocking;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicBoolean disposed = new AtomicBoolean();
+
+        DisposableGateway(boolean blocking) {
+            this.blocking = blocking;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T processReport(ReportBuilder<T> builder, Class<T> clazz) throws ApiException {
+            started.countDown();
+            if(blocking) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                catch(InterruptedException exc) {
+                    throw new GatewayException("Interrupted");
+                }
+            }
+
+            if(disposed.get()) {
+                throw new GatewayException("The gateway was disposed.");
+            }
+            TransactionSummaryPaged result = new TransactionSummaryPaged();
+            result.add(new TransactionSummary());
+            return (T) result;
+        }
+
+        public void dispose() {
+            disposed.set(true);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.global.api.tests;
+
+import com.global.api.entities.Transaction;
+import com.global.api.network.entities.TransactionToken;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TransactionTokenTests {
+    @Test
+    public void encodedOnFirstRead() {
+        CountingToken token = new CountingToken("TOKEN");
+        Transaction transaction = new Transaction();
+        transaction.setTransactionTokenSource(token);
+        assertEquals(0, token.encodeCount.get());
+
+        assertEquals("TOKEN", transaction.getTransactionToken());
+        assertEquals("TOKEN", transaction.getTransactionToken());
+        assertEquals(1, token.encodeCount.get());
+    }
+
+    @Test
+    public void nullValueIsKept() {
+        CountingToken token = new CountingToken(null);
+        assertNull(token.getValue());
+        assertNull(token.getValue());
+        assertEquals(1, token.encodeCount.get());
+    }
+
+    @Test
+    public void stringToken() {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionToken("TOKEN");
+        assertEquals("TOKEN", transaction.getTransactionToken());
+
+        transaction.setTransactionToken(null);
+        assertNull(transaction.getTransactionToken());
+    }
+
+    @Test
+    public void encodedOnceAcrossThreads() throws InterruptedException {
+        final CountingToken token = new CountingToken("TOKEN");
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    assertEquals("TOKEN", token.getValue());
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, token.encodeCount.get());
+    }
+
+    private static class CountingToken extends TransactionToken {
+        private final String value;
+        private final AtomicInteger encodeCount = new AtomicInteger();
+
+        CountingToken(String value) {
+            this.value = value;
+        }
+
+        @Override
+        protected String encode() {
+            encodeCount.incrementAndGet();
+            return value;
+        }
+    }
+}
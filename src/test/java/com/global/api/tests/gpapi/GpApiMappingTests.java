@@ -3,19 +3,24 @@ package com.global.api.tests.gpapi;
 import com.global.api.ServicesContainer;
 import com.global.api.entities.Transaction;
 import com.global.api.entities.TransactionSummary;
+import com.global.api.entities.enums.ReportType;
 import com.global.api.entities.exceptions.ApiException;
 import com.global.api.entities.exceptions.GatewayException;
 import com.global.api.entities.reporting.ActionSummary;
 import com.global.api.entities.reporting.DepositSummary;
 import com.global.api.entities.reporting.DisputeSummary;
 import com.global.api.entities.reporting.StoredPaymentMethodSummary;
+import com.global.api.entities.reporting.TransactionSummaryPaged;
 import com.global.api.gateways.GpApiConnector;
 import com.global.api.mapping.GpApiMapping;
 import com.global.api.serviceConfigs.GpApiConfig;
 import com.global.api.utils.JsonDoc;
+import com.google.gson.stream.JsonReader;
 import org.joda.time.DateTime;
 import org.junit.Test;
 
+import java.io.*;
+
 import static com.global.api.gateways.GpApiConnector.parseGpApiDate;
 import static com.global.api.gateways.GpApiConnector.parseGpApiDateTime;
 import static org.junit.Assert.assertEquals;
@@ -423,4 +428,39 @@ public class GpApiMappingTests extends BaseGpApiTest {
         assertEquals(transaction.getCardExpYear(), doc.get("card").getInt("expiry_year").intValue());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void MapTransactionsPaged_Streaming() throws Exception {
+        // Arrange, paging info on both sides of the records
+        String rawJson = "{\"total_record_count\":3,\"transactions\":[" + buildTransactionJson(0) + "," + buildTransactionJson(1) + ",null," + buildTransactionJson(2) + "],"
+                + "\"current_page_size\":3,\"paging\":{\"page_size\":5,\"page\":2,\"order\":\"DESC\",\"order_by\":\"TIME_CREATED\"}}";
+
+        // Act
+        TransactionSummaryPaged expected = GpApiMapping.mapReportResponse(rawJson, ReportType.FindTransactionsPaged);
+        TransactionSummaryPaged streamed = GpApiMapping.mapReportResponse(new JsonReader(new StringReader(rawJson)), ReportType.FindTransactionsPaged);
+
+        // Assert
+        assertEquals(3, streamed.getResults().size());
+        assertEquals(expected.getTotalRecordCount(), streamed.getTotalRecordCount());
+        assertEquals(5, streamed.getPageSize());
+        assertEquals(2, streamed.getPage());
+        assertEquals("DESC", streamed.getOrder());
+        assertEquals("TIME_CREATED", streamed.getOrderBy());
+        for (int i = 0; i < 3; i++) {
+            TransactionSummary left = expected.getResults().get(i);
+            TransactionSummary right = streamed.getResults().get(i);
+            assertEquals("TRN_" + i, right.getTransactionId());
+            assertEquals(left.getTransactionId(), right.getTransactionId());
+            assertEquals(left.getAmount(), right.getAmount());
+            assertEquals(left.getTransactionDate(), right.getTransactionDate());
+            assertEquals(left.getMaskedCardNumber(), right.getMaskedCardNumber());
+        }
+    }
+
+    private String buildTransactionJson(int index) {
+        return "{\"id\":\"TRN_" + index + "\",\"time_created\":\"2020-06-05T03:08:20.896Z\",\"status\":\"CAPTURED\",\"type\":\"SALE\",\"channel\":\"CNP\","
+                + "\"amount\":\"" + (1000 + index) + "\",\"currency\":\"USD\",\"reference\":\"ref-" + index + "\",\"batch_id\":\"\",\"country\":\"US\","
+                + "\"payment_method\":{\"result\":\"00\",\"message\":\"SUCCESS\",\"entry_mode\":\"ECOM\",\"card\":{\"brand\":\"VISA\",\"authcode\":\"12345\","
+                + "\"masked_number_first6last4\":\"411111XXXXXX1111\"}},\"system\":{\"mid\":\"101023947262\",\"name\":\"XYZ LTD.\"}}";
+    }
+
+}
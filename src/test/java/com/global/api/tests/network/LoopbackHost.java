@@ -0,0 +1,102 @@
+package com.global.api.tests.network;
+
+import com.global.api.tests.LoopbackTls;
+
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * Minimal TLS host on the loopback interface that answers every length
+ * prefixed frame it receives, used to exercise the network transport
+ * without a VAPS test host.
+ */
+public class LoopbackHost {
+    public interface IResponder {
+        void respond(byte[] request, OutputStream out) throws Exception;
+    }
+
+    private final LoopbackTls tls;
+    private SSLServerSocket serverSocket;
+    private IResponder responder;
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    public void setResponder(IResponder responder) {
+        this.responder = responder;
+    }
+
+    public LoopbackHost() throws Exception {
+        tls = new LoopbackTls();
+        serverSocket = (SSLServerSocket) tls.getServerContext().getServerSocketFactory().createServerSocket(0);
+        responder = new IResponder() {
+            public void respond(byte[] request, OutputStream out) throws Exception {
+                out.write(frame(request));
+            }
+        };
+
+        Thread acceptThread = new Thread(new Runnable() {
+            public void run() {
+                while(!serverSocket.isClosed()) {
+                    try {
+                        handle(serverSocket.accept());
+                    }
+                    catch(IOException exc) {
+                        // closed
+                    }
+                }
+            }
+        });
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public SSLSocketFactory getClientSocketFactory() throws Exception {
+        return tls.createClientSocketFactory();
+    }
+
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    public static byte[] frame(byte[] payload) {
+        int length = payload.length + 2;
+        byte[] rvalue = new byte[length];
+        rvalue[0] = (byte)(length >>> 8);
+        rvalue[1] = (byte) length;
+        System.arraycopy(payload, 0, rvalue, 2, payload.length);
+        return rvalue;
+    }
+
+    private void handle(final Socket socket) {
+        Thread connectionThread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    DataInputStream in = new DataInputStream(socket.getInputStream());
+                    OutputStream out = socket.getOutputStream();
+                    while(true) {
+                        byte[] request = new byte[in.readUnsignedShort() - 2];
+                        in.readFully(request);
+
+                        responder.respond(request, out);
+                        out.flush();
+                    }
+                }
+                catch(Exception exc) {
+                    try {
+                        socket.close();
+                    }
+                    catch(IOException e) {
+                        // closed
+                    }
+                }
+            }
+        });
+        connectionThread.setDaemon(true);
+        connectionThread.start();
+    }
+}
@@ -0,0 +1,305 @@
+package com.global.api.tests.network;
+
+import com.global.api.entities.enums.Host;
+import com.global.api.entities.exceptions.GatewayComsException;
+import com.global.api.entities.exceptions.GatewayTimeoutException;
+import com.global.api.gateways.NetworkConnectionPool;
+import com.global.api.gateways.NetworkGateway;
+import com.global.api.terminals.DeviceMessage;
+import com.global.api.terminals.abstractions.IDeviceMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class NetworkLoopbackTests {
+    private LoopbackHost host;
+    private AsyncGateway gateway;
+
+    @Before
+    public void setUp() throws Exception {
+        host = new LoopbackHost();
+
+        gateway = new AsyncGateway();
+        gateway.setPrimaryEndpoint("localhost");
+        gateway.setPrimaryPort(host.getPort());
+        gateway.setTimeout(1000);
+        gateway.setSslSocketFactory(host.getClientSocketFactory());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        gateway.dispose();
+        host.close();
+    }
+
+    @Test
+    public void loopback_splitFrame() throws Exception {
+        host.setResponder(new LoopbackHost.IResponder() {
+            public void respond(byte[] request, OutputStream out) throws Exception {
+                byte[] response = LoopbackHost.frame(request);
+                out.write(response, 0, 5);
+                out.flush();
+                Thread.sleep(5);
+                out.write(response, 5, response.length - 5);
+            }
+        });
+
+        byte[] response = gateway.send(new DeviceMessage(LoopbackHost.frame("SPLIT FRAME RESPONSE".getBytes())));
+        assertEquals("SPLIT FRAME RESPONSE", new String(response));
+    }
+
+    @Test
+    public void loopback_concurrentPooledSends() throws Exception {
+        final int senders = 4;
+        gateway.setConnectionPoolSize(senders);
+
+        // the host only answers once every sender has a request waiting on its own connection
+        final CountDownLatch waiting = new CountDownLatch(senders);
+        host.setResponder(new LoopbackHost.IResponder() {
+            public void respond(byte[] request, OutputStream out) throws Exception {
+                waiting.countDown();
+                waiting.await(5, TimeUnit.SECONDS);
+                out.write(LoopbackHost.frame(request));
+            }
+        });
+        gateway.setTimeout(10000);
+
+        ExecutorService executor = Executors.newFixedThreadPool(senders);
+        try {
+            List<Future<byte[]>> responses = new ArrayList<Future<byte[]>>();
+            for(int i = 0; i < senders; i++) {
+                final byte[] request = LoopbackHost.frame(("SENDER " + i).getBytes());
+                responses.add(executor.submit(new Callable<byte[]>() {
+                    public byte[] call() throws Exception {
+                        return gateway.send(new DeviceMessage(request));
+                    }
+                }));
+            }
+
+            for(int i = 0; i < senders; i++) {
+                assertEquals("SENDER " + i, new String(responses.get(i).get()));
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+        assertEquals(0, waiting.getCount());
+        assertEquals(senders, gateway.getConnectionPool().getIdleCount(Host.Primary));
+    }
+
+    @Test
+    public void loopback_concurrentAsyncSends() throws Exception {
+        final int senders = 4;
+        gateway.setConnectionPoolSize(senders);
+
+        // without multiplexing the requests still wait on the host together, one per connection
+        final CountDownLatch waiting = new CountDownLatch(senders);
+        final AtomicInteger stalled = new AtomicInteger();
+        host.setResponder(new LoopbackHost.IResponder() {
+            public void respond(byte[] request, OutputStream out) throws Exception {
+                waiting.countDown();
+                if(!waiting.await(2, TimeUnit.SECONDS)) {
+                    stalled.incrementAndGet();
+                }
+                out.write(LoopbackHost.frame(request));
+            }
+        });
+        gateway.setTimeout(10000);
+
+        List<CompletableFuture<byte[]>> responses = new ArrayList<CompletableFuture<byte[]>>();
+        for(int i = 0; i < senders; i++) {
+            responses.add(gateway.sendAsync(LoopbackHost.frame(("ASYNC " + i).getBytes())));
+        }
+
+        for(int i = 0; i < senders; i++) {
+            assertEquals("ASYNC " + i, new String(responses.get(i).get(10, TimeUnit.SECONDS)));
+        }
+        assertEquals(0, stalled.get());
+    }
+
+    @Test
+    public void loopback_multiplexedUnreadableFrame() throws Exception {
+        UnreadableFrameGateway multiplexed = new UnreadableFrameGateway();
+        multiplexed.setPrimaryEndpoint("localhost");
+        multiplexed.setPrimaryPort(host.getPort());
+        multiplexed.setSslSocketFactory(host.getClientSocketFactory());
+        multiplexed.setMultiplexedConnection(true);
+
+        try {
+            CompletableFuture<byte[]> response = multiplexed.sendAsync(LoopbackHost.frame("UNREADABLE".getBytes()));
+            response.get(5, TimeUnit.SECONDS);
+            fail("Expected the connection to be dropped.");
+        }
+        catch(ExecutionException exc) {
+            assertTrue(exc.getCause() instanceof GatewayComsException);
+        }
+        finally {
+            multiplexed.dispose();
+        }
+    }
+
+    @Test
+    public void pool_countsHitsAndMisses() throws Exception {
+        gateway.setConnectionPoolSize(1);
+        for(int i = 0; i < 3; i++) {
+            assertEquals("POOLED", new String(gateway.send(new DeviceMessage(LoopbackHost.frame("POOLED".getBytes())))));
+        }
+
+        // one connection opened, then reused by every later send
+        NetworkConnectionPool pool = gateway.getConnectionPool();
+        assertEquals(1, pool.getMissCount());
+        assertEquals(2, pool.getHitCount());
+        assertEquals(0, pool.getEvictionCount());
+        assertEquals(1, pool.getIdleCount(Host.Primary));
+    }
+
+    @Test
+    public void pool_healthCheckKeepsLiveConnection() throws Exception {
+        KeepAliveGateway checked = createKeepAliveGateway();
+        try {
+            checked.send(new DeviceMessage(LoopbackHost.frame("FIRST".getBytes())));
+            assertEquals("SECOND", new String(checked.send(new DeviceMessage(LoopbackHost.frame("SECOND".getBytes())))));
+
+            // the idle socket answered the keep alive, so it was handed out
+            NetworkConnectionPool pool = checked.getConnectionPool();
+            assertEquals(1, pool.getHitCount());
+            assertEquals(1, pool.getMissCount());
+            assertEquals(0, pool.getEvictionCount());
+        }
+        finally {
+            checked.dispose();
+        }
+    }
+
+    @Test
+    public void pool_healthCheckEvictsDeadConnection() throws Exception {
+        KeepAliveGateway checked = createKeepAliveGateway();
+        try {
+            checked.send(new DeviceMessage(LoopbackHost.frame("FIRST".getBytes())));
+
+            // the host drops any connection that sends it a keep alive
+            host.setResponder(new LoopbackHost.IResponder() {
+                public void respond(byte[] request, OutputStream out) throws Exception {
+                    if(new String(request).equals("KEEPALIVE")) {
+                        throw new IOException("Dropped");
+                    }
+                    out.write(LoopbackHost.frame(request));
+                }
+            });
+            assertEquals("SECOND", new String(checked.send(new DeviceMessage(LoopbackHost.frame("SECOND".getBytes())))));
+
+            NetworkConnectionPool pool = checked.getConnectionPool();
+            assertEquals(0, pool.getHitCount());
+            assertEquals(2, pool.getMissCount());
+            assertEquals(1, pool.getEvictionCount());
+        }
+        finally {
+            checked.dispose();
+        }
+    }
+
+    @Test
+    public void pool_retriesOnDeadSocket() throws Exception {
+        gateway.setConnectionPoolSize(1);
+
+        // the host drops the pooled connection instead of answering, as when it timed out while idle
+        final AtomicInteger received = new AtomicInteger();
+        host.setResponder(new LoopbackHost.IResponder() {
+            public void respond(byte[] request, OutputStream out) throws Exception {
+                if(new String(request).equals("SECOND") && received.incrementAndGet() == 1) {
+                    throw new IOException("Dropped");
+                }
+                out.write(LoopbackHost.frame(request));
+            }
+        });
+
+        gateway.send(new DeviceMessage(LoopbackHost.frame("FIRST".getBytes())));
+        assertEquals("SECOND", new String(gateway.send(new DeviceMessage(LoopbackHost.frame("SECOND".getBytes())))));
+
+        // the dead socket was handed out, then the request was sent again on a new one
+        NetworkConnectionPool pool = gateway.getConnectionPool();
+        assertEquals(1, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+        assertEquals(2, received.get());
+    }
+
+    @Test
+    public void loopback_largeFrame() throws Exception {
+        byte[] payload = new byte[16000];
+        Arrays.fill(payload, (byte)'X');
+
+        byte[] response = gateway.send(new DeviceMessage(LoopbackHost.frame(payload)));
+        assertEquals(payload.length, response.length);
+        assertArrayEquals(payload, response);
+    }
+
+    @Test
+    public void loopback_timeout() throws Exception {
+        host.setResponder(new LoopbackHost.IResponder() {
+            public void respond(byte[] request, OutputStream out) {
+                // never answer
+            }
+        });
+        gateway.setTimeout(250);
+
+        long start = System.currentTimeMillis();
+        try {
+            gateway.send(new DeviceMessage(LoopbackHost.frame("TIMEOUT".getBytes())));
+            fail("Expected a timeout.");
+        }
+        catch(GatewayTimeoutException exc) {
+            // one attempt per pass on the same host
+            assertTrue(System.currentTimeMillis() - start < 5000);
+        }
+    }
+
+    private static class AsyncGateway extends NetworkGateway {
+        CompletableFuture<byte[]> sendAsync(byte[] request) {
+            return sendAsync(new DeviceMessage(request), "1");
+        }
+    }
+
+    // every reused connection is checked first
+    private KeepAliveGateway createKeepAliveGateway() throws Exception {
+        KeepAliveGateway checked = new KeepAliveGateway();
+        checked.setPrimaryEndpoint("localhost");
+        checked.setPrimaryPort(host.getPort());
+        checked.setTimeout(1000);
+        checked.setSslSocketFactory(host.getClientSocketFactory());
+        checked.setConnectionPoolSize(1);
+        checked.setHealthCheckInterval(0);
+        return checked;
+    }
+
+    private static class KeepAliveGateway extends AsyncGateway {
+        @Override
+        protected IDeviceMessage buildKeepAliveMessage() {
+            return new DeviceMessage(LoopbackHost.frame("KEEPALIVE".getBytes()));
+        }
+    }
+
+    // fails to read the correlation key of every response
+    private static class UnreadableFrameGateway extends AsyncGateway {
+        @Override
+        protected String getCorrelationKey(byte[] responseBuffer) {
+            throw new IllegalStateException("Unreadable frame.");
+        }
+    }
+}
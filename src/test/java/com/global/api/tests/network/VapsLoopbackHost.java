@@ -0,0 +1,86 @@
+package com.global.api.tests.network;
+
+import com.global.api.network.NetworkMessage;
+import com.global.api.network.enums.DataElementId;
+import com.global.api.network.enums.Iso8583MessageType;
+import com.global.api.utils.MessageReader;
+import com.global.api.utils.MessageWriter;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loopback host that answers VAPS requests. Every request is approved with a response carrying
+ * back its STAN, terminal id and amount, so a test can drive a VapsConnector without a VAPS
+ * test host.
+ */
+public class VapsLoopbackHost extends LoopbackHost {
+    private final List<NetworkMessage> requests = new ArrayList<NetworkMessage>();
+    private final Map<String, String> responseCodes = new ConcurrentHashMap<String, String>();
+
+    public synchronized List<NetworkMessage> getRequests() {
+        return new ArrayList<NetworkMessage>(requests);
+    }
+    // the response code for requests of the given type, approved when it is not set
+    public void setResponseCode(String messageTypeIndicator, String responseCode) {
+        responseCodes.put(messageTypeIndicator, responseCode);
+    }
+
+    public VapsLoopbackHost() throws Exception {
+        setResponder(new IResponder() {
+            public void respond(byte[] request, OutputStream out) throws Exception {
+                out.write(frame(respondTo(request)));
+            }
+        });
+    }
+
+    /**
+     * Builds the response to a request frame, without its length. The header goes back as it
+     * came, so the response code in it is a success.
+     */
+    public byte[] respondTo(byte[] request) {
+        MessageReader mr = new MessageReader(request);
+        byte[] header = mr.readBytes(30);
+        NetworkMessage message = parseRequest(request);
+        synchronized (this) {
+            requests.add(message);
+        }
+
+        MessageWriter mw = new MessageWriter();
+        mw.addRange(header);
+        mw.addRange(buildResponse(message).buildMessage());
+        return mw.toArray();
+    }
+
+    public static NetworkMessage parseRequest(byte[] request) {
+        MessageReader mr = new MessageReader(request);
+        mr.readBytes(30);
+        String mti = mr.readString(4);
+        NetworkMessage message = NetworkMessage.parse(mr.readBytes(request.length), Iso8583MessageType.CompleteMessage);
+        message.setMessageTypeIndicator(mti);
+        return message;
+    }
+
+    protected NetworkMessage buildResponse(NetworkMessage request) {
+        NetworkMessage response = new NetworkMessage();
+        response.setMessageTypeIndicator(String.valueOf(Integer.parseInt(request.getMessageTypeIndicator()) + 10));
+        copy(request, response, DataElementId.DE_003);
+        copy(request, response, DataElementId.DE_004);
+        copy(request, response, DataElementId.DE_011);
+        copy(request, response, DataElementId.DE_012);
+        copy(request, response, DataElementId.DE_041);
+        response.set(DataElementId.DE_038, "123456");
+        String responseCode = responseCodes.get(request.getMessageTypeIndicator());
+        response.set(DataElementId.DE_039, responseCode != null ? responseCode : "000");
+        return response;
+    }
+
+    private static void copy(NetworkMessage from, NetworkMessage to, DataElementId id) {
+        if(from.has(id)) {
+            to.set(id, from.getByteArray(id));
+        }
+    }
+}
@@ -0,0 +1,529 @@
+package com.global.api.tests.network;
+
+import com.global.api.ServicesContainer;
+import com.global.api.entities.BatchSummary;
+import com.global.api.entities.Transaction;
+import com.global.api.entities.enums.PaymentMethodType;
+import com.global.api.entities.enums.TransactionType;
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.gateways.VapsConnector;
+import com.global.api.network.NetworkMessage;
+import com.global.api.network.abstractions.IBatchProvider;
+import com.global.api.network.abstractions.IResendTracker;
+import com.global.api.network.abstractions.IStanProvider;
+import com.global.api.network.entities.PriorMessageInformation;
+import com.global.api.network.enums.DataElementId;
+import com.global.api.network.enums.Iso8583MessageType;
+import com.global.api.paymentMethods.CreditTrackData;
+import com.global.api.serviceConfigs.AcceptorConfig;
+import com.global.api.serviceConfigs.NetworkGatewayConfig;
+import com.global.api.services.BatchService;
+import com.global.api.tests.testdata.TestCards;
+import com.global.api.utils.IRequestEncoder;
+import com.global.api.utils.MessageReader;
+import com.global.api.utils.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class VapsLoopbackTests {
+    private static final String CONFIG_NAME = "vapsLoopbackTests";
+
+    private VapsLoopbackHost host;
+    private CountingEncoder encoder;
+    private CreditTrackData track;
+
+    @Before
+    public void setUp() throws Exception {
+        host = new VapsLoopbackHost();
+        encoder = new CountingEncoder();
+        track = TestCards.MasterCardSwipe();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ServicesContainer.configureService(null, CONFIG_NAME);
+        host.close();
+    }
+
+    @Test
+    public void token_cardDataEncryptedOnce() throws Exception {
+        configure(buildConfig());
+
+        Transaction response = charge();
+        assertEquals("000", response.getResponseCode());
+
+        // the token holds the card, so it is encrypted with the response
+        assertEquals(1, encoder.getEncodeCount());
+        String token = response.getTransactionToken();
+        assertNotNull(token);
+        assertEquals(token, response.getTransactionToken());
+        assertEquals(1, encoder.getEncodeCount());
+
+        // the implied capture of the sale, with the STAN the host saw
+        NetworkMessage capture = decodeToken(token);
+        assertEquals("1220", capture.getMessageTypeIndicator());
+        assertEquals(host.getRequests().get(0).getString(DataElementId.DE_011), capture.getString(DataElementId.DE_011));
+    }
+
+    @Test
+    public void token_notBuiltWhenTokenizationDisabled() throws Exception {
+        NetworkGatewayConfig config = buildConfig();
+        config.setTokenizationEnabled(false);
+        configure(config);
+
+        Transaction response = charge();
+        assertEquals("000", response.getResponseCode());
+        assertNull(response.getTransactionToken());
+        assertEquals(0, encoder.getEncodeCount());
+    }
+
+    @Test
+    public void token_dataCollectStillReportedWhenTokenizationDisabled() throws Exception {
+        RecordingBatchProvider batchProvider = new RecordingBatchProvider(encoder);
+        NetworkGatewayConfig config = buildConfig();
+        config.setTokenizationEnabled(false);
+        config.setBatchProvider(batchProvider);
+        configure(config);
+
+        Transaction response = charge();
+        assertNull(response.getTransactionToken());
+        assertEquals(1, batchProvider.getEncodedRequests().size());
+        assertEquals(1, encoder.getEncodeCount());
+    }
+
+    @Test
+    public void token_dataCollectReportedInBackground() throws Exception {
+        RecordingBatchProvider batchProvider = new RecordingBatchProvider(encoder);
+        NetworkGatewayConfig config = buildConfig();
+        config.setBatchProvider(batchProvider);
+        config.setBackgroundDataCollectReporting(true);
+        configure(config);
+
+        // the reporter is held up, so nothing is encrypted before the sale returns
+        encoder.hold();
+        Transaction response = charge();
+        assertEquals("000", response.getResponseCode());
+        assertEquals(0, encoder.getEncodeCount());
+        encoder.release();
+
+        // the transaction shares the token the report encrypted
+        assertTrue(batchProvider.awaitReports(1));
+        assertEquals(batchProvider.getEncodedRequests().get(0), response.getTransactionToken());
+        assertEquals(1, encoder.getEncodeCount());
+        assertEquals(0, encoder.getCallerEncodeCount());
+    }
+
+    @Test
+    public void resend_limitsRequestsWaitingOnHost() throws Exception {
+        NetworkGatewayConfig config = buildConfig();
+        config.setBatchProvider(new RecordingBatchProvider(encoder));
+        config.setConnectionPoolSize(8);
+        config.setResendConcurrency(2);
+        configure(config);
+        for(int i = 0; i < 6; i++) {
+            charge();
+        }
+
+        // the first two resends wait on each other, so the limit is reached but never passed
+        final AtomicInteger waiting = new AtomicInteger();
+        final AtomicInteger mostWaiting = new AtomicInteger();
+        final CountDownLatch paired = new CountDownLatch(2);
+        host.setResponseCode("1520", "580");
+        host.setResponseCode("1521", "500");
+        host.setResponder(new LoopbackHost.IResponder() {
+            public void respond(byte[] request, OutputStream out) throws Exception {
+                if(VapsLoopbackHost.parseRequest(request).getMessageTypeIndicator().equals("1221")) {
+                    int count = waiting.incrementAndGet();
+                    mostWaiting.set(Math.max(mostWaiting.get(), count));
+                    paired.countDown();
+                    paired.await(2, TimeUnit.SECONDS);
+                    Thread.sleep(10);
+                    waiting.decrementAndGet();
+                }
+                out.write(LoopbackHost.frame(host.respondTo(request)));
+            }
+        });
+
+        BatchSummary summary = BatchService.closeBatch(CONFIG_NAME);
+        assertEquals(2, mostWaiting.get());
+        assertEquals(6, summary.getResentTransactions().size());
+        assertTrue(summary.getResendFailures().isEmpty());
+        assertEquals("500", summary.getResentBatchClose().getResponseCode());
+
+        // a later batch close carries nothing over from the resend
+        host.setResponseCode("1520", "500");
+        summary = BatchService.closeBatch(CONFIG_NAME);
+        assertNull(summary.getResentTransactions());
+        assertNull(summary.getResendFailures());
+        assertNull(summary.getResentBatchClose());
+    }
+
+    @Test
+    public void resend_reportsEachFailedRequest() throws Exception {
+        NetworkGatewayConfig config = buildConfig();
+        config.setBatchProvider(new RecordingBatchProvider(encoder));
+        config.setConnectionPoolSize(4);
+        configure(config);
+        for(int i = 0; i < 3; i++) {
+            charge();
+        }
+
+        // the host drops the connection on the resend of the second sale
+        final String failedStan = host.getRequests().get(1).getString(DataElementId.DE_011);
+        host.setResponseCode("1520", "580");
+        host.setResponder(new LoopbackHost.IResponder() {
+            public void respond(byte[] request, OutputStream out) throws Exception {
+                NetworkMessage message = VapsLoopbackHost.parseRequest(request);
+                if(message.getMessageTypeIndicator().equals("1221") && message.getString(DataElementId.DE_011).equals(failedStan)) {
+                    throw new IOException("Dropped");
+                }
+                out.write(LoopbackHost.frame(host.respondTo(request)));
+            }
+        });
+
+        BatchSummary summary = BatchService.closeBatch(CONFIG_NAME);
+        assertEquals(2, summary.getResentTransactions().size());
+        assertEquals(1, summary.getResendFailures().size());
+        assertEquals(1, summary.getResendFailures().get(0).getIndex());
+        assertNotNull(summary.getResendFailures().get(0).getException());
+
+        // the batch close is not resent while the host is missing a request
+        assertNull(summary.getResentBatchClose());
+        for(NetworkMessage request: host.getRequests()) {
+            assertNotEquals("1521", request.getMessageTypeIndicator());
+        }
+    }
+
+    @Test
+    public void resend_reportsFailedBatchClose() throws Exception {
+        NetworkGatewayConfig config = buildConfig();
+        config.setBatchProvider(new RecordingBatchProvider(encoder));
+        configure(config);
+        charge();
+
+        host.setResponseCode("1520", "580");
+        host.setResponder(new LoopbackHost.IResponder() {
+            public void respond(byte[] request, OutputStream out) throws Exception {
+                if(VapsLoopbackHost.parseRequest(request).getMessageTypeIndicator().equals("1521")) {
+                    throw new IOException("Dropped");
+                }
+                out.write(LoopbackHost.frame(host.respondTo(request)));
+            }
+        });
+
+        BatchSummary summary = BatchService.closeBatch(CONFIG_NAME);
+        assertEquals(1, summary.getResentTransactions().size());
+        assertNull(summary.getResentBatchClose());
+        assertNotNull(summary.getResentBatchCloseException());
+    }
+
+    @Test
+    public void resend_skipsRequestsAlreadyResent() throws Exception {
+        TrackingBatchProvider batchProvider = new TrackingBatchProvider(encoder);
+        NetworkGatewayConfig config = buildConfig();
+        config.setBatchProvider(batchProvider);
+        config.setConnectionPoolSize(4);
+        configure(config);
+        for(int i = 0; i < 3; i++) {
+            charge();
+        }
+        List<String> sales = new ArrayList<String>();
+        for(NetworkMessage request: host.getRequests()) {
+            sales.add(request.getString(DataElementId.DE_011));
+        }
+
+        // the first sale was resent by a batch close cut short
+        batchProvider.markResent(0);
+        host.setResponseCode("1520", "580");
+        host.setResponseCode("1521", "500");
+
+        BatchSummary summary = BatchService.closeBatch(CONFIG_NAME);
+        assertEquals(2, summary.getResentTransactions().size());
+        assertEquals("500", summary.getResentBatchClose().getResponseCode());
+
+        List<String> resent = new ArrayList<String>();
+        for(NetworkMessage request: host.getRequests()) {
+            if(request.getMessageTypeIndicator().equals("1221")) {
+                resent.add(request.getString(DataElementId.DE_011));
+            }
+        }
+        assertEquals(sales.subList(1, 3), resent);
+        assertTrue(batchProvider.isResent(1));
+        assertTrue(batchProvider.isResent(2));
+    }
+
+    @Test
+    public void multiplexed_responsesMatchedByStan() throws Exception {
+        NetworkGatewayConfig config = buildConfig();
+        config.setMultiplexedConnection(true);
+        configure(config);
+
+        // the host holds the requests until all have arrived, then answers them in reverse
+        final int count = 4;
+        final List<byte[]> held = new ArrayList<byte[]>();
+        host.setResponder(new LoopbackHost.IResponder() {
+            public void respond(byte[] request, OutputStream out) throws Exception {
+                held.add(request);
+                if(held.size() == count) {
+                    for(int i = count - 1; i >= 0; i--) {
+                        out.write(LoopbackHost.frame(host.respondTo(held.get(i))));
+                    }
+                }
+            }
+        });
+
+        List<CompletableFuture<Transaction>> futures = new ArrayList<CompletableFuture<Transaction>>();
+        for(int i = 1; i <= count; i++) {
+            futures.add(chargeAsync(new BigDecimal(i)));
+        }
+
+        for(int i = 1; i <= count; i++) {
+            Transaction response = futures.get(i - 1).get(5, TimeUnit.SECONDS);
+            assertEquals("000", response.getResponseCode());
+            assertEquals(new BigDecimal(i).setScale(2), response.getAuthorizedAmount().setScale(2));
+        }
+    }
+
+    @Test
+    public void multiplexed_headerOnlyRejectFailsEveryRequest() throws Exception {
+        NetworkGatewayConfig config = buildConfig();
+        config.setMultiplexedConnection(true);
+        configure(config);
+
+        // a reject names no request, so once all have arrived the host answers with the header alone
+        final int count = 3;
+        final AtomicInteger received = new AtomicInteger();
+        host.setResponder(new LoopbackHost.IResponder() {
+            public void respond(byte[] request, OutputStream out) throws Exception {
+                if(received.incrementAndGet() == count) {
+                    byte[] header = new MessageReader(request).readBytes(30);
+                    header[4] = 0x00; // no message
+                    header[6] = 0x01; // not a success
+                    out.write(LoopbackHost.frame(header));
+                }
+            }
+        });
+
+        List<CompletableFuture<Transaction>> futures = new ArrayList<CompletableFuture<Transaction>>();
+        for(int i = 1; i <= count; i++) {
+            futures.add(chargeAsync(new BigDecimal(i)));
+        }
+
+        // every request fails well before the five second timeout
+        for(CompletableFuture<Transaction> future: futures) {
+            try {
+                future.get(2, TimeUnit.SECONDS);
+                fail("The request should have been rejected.");
+            }
+            catch(ExecutionException exc) {
+                assertTrue(hasCause(exc, GatewayException.class));
+            }
+        }
+    }
+
+    private Transaction charge() throws Exception {
+        return track.charge(new BigDecimal(10))
+                .withCurrency("USD")
+                .withBatchNumber(1, 1)
+                .execute(CONFIG_NAME);
+    }
+
+    private CompletableFuture<Transaction> chargeAsync(BigDecimal amount) {
+        return track.charge(amount)
+                .withCurrency("USD")
+                .withBatchNumber(1, 1)
+                .executeAsync(CONFIG_NAME);
+    }
+
+    private static boolean hasCause(Throwable exc, Class<? extends Throwable> type) {
+        for(Throwable cause = exc; cause != null; cause = cause.getCause()) {
+            if(type.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private NetworkGatewayConfig buildConfig() {
+        AcceptorConfig acceptorConfig = new AcceptorConfig();
+        acceptorConfig.setHardwareLevel("34");
+        acceptorConfig.setSoftwareLevel("21205710");
+
+        NetworkGatewayConfig config = new NetworkGatewayConfig();
+        config.setAcceptorConfig(acceptorConfig);
+        config.setPrimaryEndpoint("localhost");
+        config.setPrimaryPort(host.getPort());
+        config.setCompanyId("0044");
+        config.setTerminalId("0000912197711");
+        config.setTimeout(5000);
+        config.setStanProvider(new IStanProvider() {
+            private final AtomicInteger stan = new AtomicInteger();
+
+            public int generateStan() {
+                return stan.incrementAndGet();
+            }
+        });
+        return config;
+    }
+
+    private VapsConnector configure(NetworkGatewayConfig config) throws Exception {
+        ServicesContainer.configureService(config, CONFIG_NAME);
+
+        VapsConnector connector = (VapsConnector) ServicesContainer.getInstance().getGateway(CONFIG_NAME);
+        connector.setSslSocketFactory(host.getClientSocketFactory());
+        connector.setRequestEncoder(encoder);
+        return connector;
+    }
+
+    // the token framed as STX, the encoded message, ETX and the LRC
+    private static NetworkMessage decodeToken(String token) {
+        String encoded = token.substring(1, token.length() - 2);
+        byte[] decoded = org.apache.commons.codec.binary.Base64.decodeBase64(CountingEncoder.unwrap(encoded));
+
+        MessageReader mr = new MessageReader(decoded);
+        String mti = mr.readString(4);
+        NetworkMessage message = NetworkMessage.parse(mr.readBytes(decoded.length), Iso8583MessageType.CompleteMessage);
+        message.setMessageTypeIndicator(mti);
+        return message;
+    }
+
+    /**
+     * Wraps the value instead of encrypting it, counting the calls and the threads making them.
+     * A held encoder blocks until it is released.
+     */
+    static class CountingEncoder implements IRequestEncoder {
+        private final AtomicInteger encodeCount = new AtomicInteger();
+        private final AtomicInteger callerEncodeCount = new AtomicInteger();
+        private final Thread caller = Thread.currentThread();
+        private volatile CountDownLatch held = new CountDownLatch(0);
+
+        int getEncodeCount() {
+            return encodeCount.get();
+        }
+        int getCallerEncodeCount() {
+            return callerEncodeCount.get();
+        }
+
+        void hold() {
+            held = new CountDownLatch(1);
+        }
+        void release() {
+            held.countDown();
+        }
+
+        public String encode(Object value) {
+            try {
+                held.await(5, TimeUnit.SECONDS);
+            }
+            catch(InterruptedException exc) {
+                Thread.currentThread().interrupt();
+            }
+
+            encodeCount.incrementAndGet();
+            if(Thread.currentThread() == caller) {
+                callerEncodeCount.incrementAndGet();
+            }
+            return "ENC" + value;
+        }
+
+        public String decode(Object value) {
+            return unwrap(value.toString());
+        }
+
+        static String unwrap(String value) {
+            return value.substring(3);
+        }
+    }
+
+    static class TrackingBatchProvider extends RecordingBatchProvider implements IResendTracker {
+        private final Set<Integer> resent = Collections.synchronizedSet(new HashSet<Integer>());
+
+        TrackingBatchProvider(IRequestEncoder encoder) {
+            super(encoder);
+        }
+
+        public boolean isResent(int index) {
+            return resent.contains(index);
+        }
+        public void markResent(int index) {
+            resent.add(index);
+        }
+    }
+
+    static class RecordingBatchProvider implements IBatchProvider {
+        private final IRequestEncoder encoder;
+        private final LinkedList<String> encodedRequests = new LinkedList<String>();
+        private PriorMessageInformation priorMessageData;
+
+        RecordingBatchProvider(IRequestEncoder encoder) {
+            this.encoder = encoder;
+        }
+
+        public int getBatchNumber() {
+            return 1;
+        }
+        public int getSequenceNumber() {
+            return 1;
+        }
+        public int getTransactionCount() {
+            return getEncodedRequests().size();
+        }
+        public BigDecimal getTotalCredits() {
+            return BigDecimal.ZERO;
+        }
+        public BigDecimal getTotalDebits() {
+            return BigDecimal.ZERO;
+        }
+        public IRequestEncoder getRequestEncoder() {
+            return encoder;
+        }
+        public synchronized LinkedList<String> getEncodedRequests() {
+            return new LinkedList<String>(encodedRequests);
+        }
+        public PriorMessageInformation getPriorMessageData() {
+            return priorMessageData;
+        }
+        public void setPriorMessageData(PriorMessageInformation value) {
+            this.priorMessageData = value;
+        }
+
+        public synchronized void reportDataCollect(TransactionType transactionType, PaymentMethodType paymentMethodType, BigDecimal amount, String encodedRequest) {
+            if(!StringUtils.isNullOrEmpty(encodedRequest)) {
+                encodedRequests.add(encodedRequest);
+            }
+            notifyAll();
+        }
+
+        public void closeBatch(boolean inBalance) {
+            synchronized (this) {
+                encodedRequests.clear();
+            }
+        }
+
+        synchronized boolean awaitReports(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while(encodedRequests.size() < count && System.currentTimeMillis() < deadline) {
+                wait(100);
+            }
+            return encodedRequests.size() >= count;
+        }
+    }
+}